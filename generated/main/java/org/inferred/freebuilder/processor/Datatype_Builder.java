@@ -55,7 +55,10 @@ abstract class Datatype_Builder {
     PARTIAL_TYPE("partialType"),
     PROPERTY_ENUM("propertyEnum"),
     BUILDER_SERIALIZABLE("builderSerializable"),
+    RECORD_VALUE_REQUESTED("recordValueRequested"),
+    VALUE_REUSE_REQUESTED("valueReuseRequested"),
     HAS_TO_BUILDER_METHOD("hasToBuilderMethod"),
+    HAS_APPEND_TO_METHOD("hasAppendToMethod"),
     BUILD_METHOD("buildMethod"),
     BUILD_PARTIAL_METHOD("buildPartialMethod"),
     CLEAR_METHOD("clearMethod"),
@@ -91,11 +94,15 @@ abstract class Datatype_Builder {
   // allows the JVM to optimize away the Optional objects created by and
   // passed to our API.
   private TypeClass rebuildableType = null;
+  private TypeClass metricsType = null;
   private TypeClass propertyEnum;
   private final LinkedHashMap<StandardMethod, UnderrideLevel> standardMethodUnderrides =
       new LinkedHashMap<>();
   private boolean builderSerializable;
+  private boolean recordValueRequested;
+  private boolean valueReuseRequested;
   private boolean hasToBuilderMethod;
+  private boolean hasAppendToMethod;
   private NameAndVisibility buildMethod;
   private NameAndVisibility buildPartialMethod;
   private NameAndVisibility clearMethod;
@@ -104,6 +111,9 @@ abstract class Datatype_Builder {
   private List<Excerpt> generatedBuilderAnnotations = ImmutableList.of();
   private List<Excerpt> valueTypeAnnotations = ImmutableList.of();
   private Datatype.Visibility valueTypeVisibility;
+  private List<Excerpt> valueTypeMembers = ImmutableList.of();
+  private List<Excerpt> builderMembers = ImmutableList.of();
+  private List<Excerpt> partialTypeMembers = ImmutableList.of();
   private List<Excerpt> nestedClasses = ImmutableList.of();
   private final EnumSet<Property> _unsetProperties = EnumSet.allOf(Property.class);
 
@@ -485,6 +495,72 @@ abstract class Datatype_Builder {
     return Optional.ofNullable(rebuildableType);
   }
 
+  /**
+   * Sets the value to be returned by {@link Datatype#getMetricsType()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code metricsType} is null
+   */
+  public Datatype.Builder setMetricsType(TypeClass metricsType) {
+    this.metricsType = Objects.requireNonNull(metricsType);
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Sets the value to be returned by {@link Datatype#getMetricsType()}.
+   *
+   * @return this {@code Builder} object
+   */
+  public Datatype.Builder setMetricsType(Optional<? extends TypeClass> metricsType) {
+    if (metricsType.isPresent()) {
+      return setMetricsType(metricsType.get());
+    } else {
+      return clearMetricsType();
+    }
+  }
+
+  /**
+   * Sets the value to be returned by {@link Datatype#getMetricsType()}.
+   *
+   * @return this {@code Builder} object
+   */
+  public Datatype.Builder setNullableMetricsType(TypeClass metricsType) {
+    if (metricsType != null) {
+      return setMetricsType(metricsType);
+    } else {
+      return clearMetricsType();
+    }
+  }
+
+  /**
+   * If the value to be returned by {@link Datatype#getMetricsType()} is present, replaces it by
+   * applying {@code mapper} to it and using the result.
+   *
+   * <p>If the result is null, clears the value.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code mapper} is null
+   */
+  public Datatype.Builder mapMetricsType(UnaryOperator<TypeClass> mapper) {
+    return setMetricsType(getMetricsType().map(mapper));
+  }
+
+  /**
+   * Sets the value to be returned by {@link Datatype#getMetricsType()} to {@link
+   * Optional#empty() Optional.empty()}.
+   *
+   * @return this {@code Builder} object
+   */
+  public Datatype.Builder clearMetricsType() {
+    metricsType = null;
+    return (Datatype.Builder) this;
+  }
+
+  /** Returns the value that will be returned by {@link Datatype#getMetricsType()}. */
+  public Optional<TypeClass> getMetricsType() {
+    return Optional.ofNullable(metricsType);
+  }
+
   /**
    * Sets the value to be returned by {@link Datatype#getPropertyEnum()}.
    *
@@ -636,6 +712,78 @@ abstract class Datatype_Builder {
     return builderSerializable;
   }
 
+  /**
+   * Sets the value to be returned by {@link Datatype#isRecordValueRequested()}.
+   *
+   * @return this {@code Builder} object
+   */
+  public Datatype.Builder setRecordValueRequested(boolean recordValueRequested) {
+    this.recordValueRequested = recordValueRequested;
+    _unsetProperties.remove(Property.RECORD_VALUE_REQUESTED);
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Replaces the value to be returned by {@link Datatype#isRecordValueRequested()} by applying
+   * {@code mapper} to it and using the result.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code mapper} is null or returns null
+   * @throws IllegalStateException if the field has not been set
+   */
+  public Datatype.Builder mapRecordValueRequested(UnaryOperator<Boolean> mapper) {
+    Objects.requireNonNull(mapper);
+    return setRecordValueRequested(mapper.apply(isRecordValueRequested()));
+  }
+
+  /**
+   * Returns the value that will be returned by {@link Datatype#isRecordValueRequested()}.
+   *
+   * @throws IllegalStateException if the field has not been set
+   */
+  public boolean isRecordValueRequested() {
+    Preconditions.checkState(
+        !_unsetProperties.contains(Property.RECORD_VALUE_REQUESTED),
+        "recordValueRequested not set");
+    return recordValueRequested;
+  }
+
+  /**
+   * Sets the value to be returned by {@link Datatype#isValueReuseRequested()}.
+   *
+   * @return this {@code Builder} object
+   */
+  public Datatype.Builder setValueReuseRequested(boolean valueReuseRequested) {
+    this.valueReuseRequested = valueReuseRequested;
+    _unsetProperties.remove(Property.VALUE_REUSE_REQUESTED);
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Replaces the value to be returned by {@link Datatype#isValueReuseRequested()} by applying
+   * {@code mapper} to it and using the result.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code mapper} is null or returns null
+   * @throws IllegalStateException if the field has not been set
+   */
+  public Datatype.Builder mapValueReuseRequested(UnaryOperator<Boolean> mapper) {
+    Objects.requireNonNull(mapper);
+    return setValueReuseRequested(mapper.apply(isValueReuseRequested()));
+  }
+
+  /**
+   * Returns the value that will be returned by {@link Datatype#isValueReuseRequested()}.
+   *
+   * @throws IllegalStateException if the field has not been set
+   */
+  public boolean isValueReuseRequested() {
+    Preconditions.checkState(
+        !_unsetProperties.contains(Property.VALUE_REUSE_REQUESTED),
+        "valueReuseRequested not set");
+    return valueReuseRequested;
+  }
+
   /**
    * Sets the value to be returned by {@link Datatype#getHasToBuilderMethod()}.
    *
@@ -671,6 +819,41 @@ abstract class Datatype_Builder {
     return hasToBuilderMethod;
   }
 
+  /**
+   * Sets the value to be returned by {@link Datatype#getHasAppendToMethod()}.
+   *
+   * @return this {@code Builder} object
+   */
+  public Datatype.Builder setHasAppendToMethod(boolean hasAppendToMethod) {
+    this.hasAppendToMethod = hasAppendToMethod;
+    _unsetProperties.remove(Property.HAS_APPEND_TO_METHOD);
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Replaces the value to be returned by {@link Datatype#getHasAppendToMethod()} by applying
+   * {@code mapper} to it and using the result.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code mapper} is null or returns null
+   * @throws IllegalStateException if the field has not been set
+   */
+  public Datatype.Builder mapHasAppendToMethod(UnaryOperator<Boolean> mapper) {
+    Objects.requireNonNull(mapper);
+    return setHasAppendToMethod(mapper.apply(getHasAppendToMethod()));
+  }
+
+  /**
+   * Returns the value that will be returned by {@link Datatype#getHasAppendToMethod()}.
+   *
+   * @throws IllegalStateException if the field has not been set
+   */
+  public boolean getHasAppendToMethod() {
+    Preconditions.checkState(
+        !_unsetProperties.contains(Property.HAS_APPEND_TO_METHOD), "hasAppendToMethod not set");
+    return hasAppendToMethod;
+  }
+
   /**
    * Sets the value to be returned by {@link Datatype#getBuildMethod()}.
    *
@@ -1123,6 +1306,346 @@ abstract class Datatype_Builder {
     return valueTypeVisibility;
   }
 
+  /**
+   * Adds {@code element} to the list to be returned from {@link Datatype#getValueTypeMembers()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code element} is null
+   */
+  public Datatype.Builder addValueTypeMembers(Excerpt element) {
+    if (valueTypeMembers instanceof ImmutableList) {
+      valueTypeMembers = new ArrayList<>(valueTypeMembers);
+    }
+    valueTypeMembers.add(Objects.requireNonNull(element));
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Adds each element of {@code elements} to the list to be returned from {@link
+   * Datatype#getValueTypeMembers()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code elements} is null or contains a null element
+   */
+  public Datatype.Builder addValueTypeMembers(Excerpt... elements) {
+    return addAllValueTypeMembers(Arrays.asList(elements));
+  }
+
+  /**
+   * Adds each element of {@code elements} to the list to be returned from {@link
+   * Datatype#getValueTypeMembers()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code elements} is null or contains a null element
+   */
+  public Datatype.Builder addAllValueTypeMembers(Spliterator<? extends Excerpt> elements) {
+    if ((elements.characteristics() & Spliterator.SIZED) != 0) {
+      long elementsSize = elements.estimateSize();
+      if (elementsSize > 0 && elementsSize <= Integer.MAX_VALUE) {
+        if (valueTypeMembers instanceof ImmutableList) {
+          valueTypeMembers = new ArrayList<>(valueTypeMembers);
+        }
+        ((ArrayList<?>) valueTypeMembers)
+            .ensureCapacity(valueTypeMembers.size() + (int) elementsSize);
+      }
+    }
+    elements.forEachRemaining(this::addValueTypeMembers);
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Adds each element of {@code elements} to the list to be returned from {@link
+   * Datatype#getValueTypeMembers()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code elements} is null or contains a null element
+   */
+  public Datatype.Builder addAllValueTypeMembers(BaseStream<? extends Excerpt, ?> elements) {
+    return addAllValueTypeMembers(elements.spliterator());
+  }
+
+  /**
+   * Adds each element of {@code elements} to the list to be returned from {@link
+   * Datatype#getValueTypeMembers()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code elements} is null or contains a null element
+   */
+  public Datatype.Builder addAllValueTypeMembers(Iterable<? extends Excerpt> elements) {
+    return addAllValueTypeMembers(elements.spliterator());
+  }
+
+  /**
+   * Applies {@code mutator} to the list to be returned from {@link Datatype#getValueTypeMembers()}.
+   *
+   * <p>This method mutates the list in-place. {@code mutator} is a void consumer, so any value
+   * returned from a lambda will be ignored. Take care not to call pure functions, like {@link
+   * Collection#stream()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code mutator} is null
+   */
+  public Datatype.Builder mutateValueTypeMembers(Consumer<? super List<Excerpt>> mutator) {
+    if (valueTypeMembers instanceof ImmutableList) {
+      valueTypeMembers = new ArrayList<>(valueTypeMembers);
+    }
+    // If addValueTypeMembers is overridden, this method will be updated to delegate to it
+    mutator.accept(valueTypeMembers);
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Clears the list to be returned from {@link Datatype#getValueTypeMembers()}.
+   *
+   * @return this {@code Builder} object
+   */
+  public Datatype.Builder clearValueTypeMembers() {
+    if (valueTypeMembers instanceof ImmutableList) {
+      valueTypeMembers = ImmutableList.of();
+    } else {
+      valueTypeMembers.clear();
+    }
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Returns an unmodifiable view of the list that will be returned by {@link
+   * Datatype#getValueTypeMembers()}. Changes to this builder will be reflected in the view.
+   */
+  public List<Excerpt> getValueTypeMembers() {
+    if (valueTypeMembers instanceof ImmutableList) {
+      valueTypeMembers = new ArrayList<>(valueTypeMembers);
+    }
+    return Collections.unmodifiableList(valueTypeMembers);
+  }
+
+  /**
+   * Adds {@code element} to the list to be returned from {@link Datatype#getBuilderMembers()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code element} is null
+   */
+  public Datatype.Builder addBuilderMembers(Excerpt element) {
+    if (builderMembers instanceof ImmutableList) {
+      builderMembers = new ArrayList<>(builderMembers);
+    }
+    builderMembers.add(Objects.requireNonNull(element));
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Adds each element of {@code elements} to the list to be returned from {@link
+   * Datatype#getBuilderMembers()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code elements} is null or contains a null element
+   */
+  public Datatype.Builder addBuilderMembers(Excerpt... elements) {
+    return addAllBuilderMembers(Arrays.asList(elements));
+  }
+
+  /**
+   * Adds each element of {@code elements} to the list to be returned from {@link
+   * Datatype#getBuilderMembers()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code elements} is null or contains a null element
+   */
+  public Datatype.Builder addAllBuilderMembers(Spliterator<? extends Excerpt> elements) {
+    if ((elements.characteristics() & Spliterator.SIZED) != 0) {
+      long elementsSize = elements.estimateSize();
+      if (elementsSize > 0 && elementsSize <= Integer.MAX_VALUE) {
+        if (builderMembers instanceof ImmutableList) {
+          builderMembers = new ArrayList<>(builderMembers);
+        }
+        ((ArrayList<?>) builderMembers)
+            .ensureCapacity(builderMembers.size() + (int) elementsSize);
+      }
+    }
+    elements.forEachRemaining(this::addBuilderMembers);
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Adds each element of {@code elements} to the list to be returned from {@link
+   * Datatype#getBuilderMembers()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code elements} is null or contains a null element
+   */
+  public Datatype.Builder addAllBuilderMembers(BaseStream<? extends Excerpt, ?> elements) {
+    return addAllBuilderMembers(elements.spliterator());
+  }
+
+  /**
+   * Adds each element of {@code elements} to the list to be returned from {@link
+   * Datatype#getBuilderMembers()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code elements} is null or contains a null element
+   */
+  public Datatype.Builder addAllBuilderMembers(Iterable<? extends Excerpt> elements) {
+    return addAllBuilderMembers(elements.spliterator());
+  }
+
+  /**
+   * Applies {@code mutator} to the list to be returned from {@link Datatype#getBuilderMembers()}.
+   *
+   * <p>This method mutates the list in-place. {@code mutator} is a void consumer, so any value
+   * returned from a lambda will be ignored. Take care not to call pure functions, like {@link
+   * Collection#stream()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code mutator} is null
+   */
+  public Datatype.Builder mutateBuilderMembers(Consumer<? super List<Excerpt>> mutator) {
+    if (builderMembers instanceof ImmutableList) {
+      builderMembers = new ArrayList<>(builderMembers);
+    }
+    // If addBuilderMembers is overridden, this method will be updated to delegate to it
+    mutator.accept(builderMembers);
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Clears the list to be returned from {@link Datatype#getBuilderMembers()}.
+   *
+   * @return this {@code Builder} object
+   */
+  public Datatype.Builder clearBuilderMembers() {
+    if (builderMembers instanceof ImmutableList) {
+      builderMembers = ImmutableList.of();
+    } else {
+      builderMembers.clear();
+    }
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Returns an unmodifiable view of the list that will be returned by {@link
+   * Datatype#getBuilderMembers()}. Changes to this builder will be reflected in the view.
+   */
+  public List<Excerpt> getBuilderMembers() {
+    if (builderMembers instanceof ImmutableList) {
+      builderMembers = new ArrayList<>(builderMembers);
+    }
+    return Collections.unmodifiableList(builderMembers);
+  }
+
+  /**
+   * Adds {@code element} to the list to be returned from {@link Datatype#getPartialTypeMembers()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code element} is null
+   */
+  public Datatype.Builder addPartialTypeMembers(Excerpt element) {
+    if (partialTypeMembers instanceof ImmutableList) {
+      partialTypeMembers = new ArrayList<>(partialTypeMembers);
+    }
+    partialTypeMembers.add(Objects.requireNonNull(element));
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Adds each element of {@code elements} to the list to be returned from {@link
+   * Datatype#getPartialTypeMembers()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code elements} is null or contains a null element
+   */
+  public Datatype.Builder addPartialTypeMembers(Excerpt... elements) {
+    return addAllPartialTypeMembers(Arrays.asList(elements));
+  }
+
+  /**
+   * Adds each element of {@code elements} to the list to be returned from {@link
+   * Datatype#getPartialTypeMembers()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code elements} is null or contains a null element
+   */
+  public Datatype.Builder addAllPartialTypeMembers(Spliterator<? extends Excerpt> elements) {
+    if ((elements.characteristics() & Spliterator.SIZED) != 0) {
+      long elementsSize = elements.estimateSize();
+      if (elementsSize > 0 && elementsSize <= Integer.MAX_VALUE) {
+        if (partialTypeMembers instanceof ImmutableList) {
+          partialTypeMembers = new ArrayList<>(partialTypeMembers);
+        }
+        ((ArrayList<?>) partialTypeMembers)
+            .ensureCapacity(partialTypeMembers.size() + (int) elementsSize);
+      }
+    }
+    elements.forEachRemaining(this::addPartialTypeMembers);
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Adds each element of {@code elements} to the list to be returned from {@link
+   * Datatype#getPartialTypeMembers()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code elements} is null or contains a null element
+   */
+  public Datatype.Builder addAllPartialTypeMembers(BaseStream<? extends Excerpt, ?> elements) {
+    return addAllPartialTypeMembers(elements.spliterator());
+  }
+
+  /**
+   * Adds each element of {@code elements} to the list to be returned from {@link
+   * Datatype#getPartialTypeMembers()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code elements} is null or contains a null element
+   */
+  public Datatype.Builder addAllPartialTypeMembers(Iterable<? extends Excerpt> elements) {
+    return addAllPartialTypeMembers(elements.spliterator());
+  }
+
+  /**
+   * Applies {@code mutator} to the list to be returned from {@link
+   * Datatype#getPartialTypeMembers()}.
+   *
+   * <p>This method mutates the list in-place. {@code mutator} is a void consumer, so any value
+   * returned from a lambda will be ignored. Take care not to call pure functions, like {@link
+   * Collection#stream()}.
+   *
+   * @return this {@code Builder} object
+   * @throws NullPointerException if {@code mutator} is null
+   */
+  public Datatype.Builder mutatePartialTypeMembers(Consumer<? super List<Excerpt>> mutator) {
+    if (partialTypeMembers instanceof ImmutableList) {
+      partialTypeMembers = new ArrayList<>(partialTypeMembers);
+    }
+    // If addPartialTypeMembers is overridden, this method will be updated to delegate to it
+    mutator.accept(partialTypeMembers);
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Clears the list to be returned from {@link Datatype#getPartialTypeMembers()}.
+   *
+   * @return this {@code Builder} object
+   */
+  public Datatype.Builder clearPartialTypeMembers() {
+    if (partialTypeMembers instanceof ImmutableList) {
+      partialTypeMembers = ImmutableList.of();
+    } else {
+      partialTypeMembers.clear();
+    }
+    return (Datatype.Builder) this;
+  }
+
+  /**
+   * Returns an unmodifiable view of the list that will be returned by {@link
+   * Datatype#getPartialTypeMembers()}. Changes to this builder will be reflected in the view.
+   */
+  public List<Excerpt> getPartialTypeMembers() {
+    if (partialTypeMembers instanceof ImmutableList) {
+      partialTypeMembers = new ArrayList<>(partialTypeMembers);
+    }
+    return Collections.unmodifiableList(partialTypeMembers);
+  }
+
   /**
    * Adds {@code element} to the list to be returned from {@link Datatype#getNestedClasses()}.
    *
@@ -1272,6 +1795,7 @@ abstract class Datatype_Builder {
       setPartialType(value.getPartialType());
     }
     value.getRebuildableType().ifPresent(this::setRebuildableType);
+    value.getMetricsType().ifPresent(this::setMetricsType);
     if (defaults._unsetProperties.contains(Property.PROPERTY_ENUM)
         || !Objects.equals(value.getPropertyEnum(), defaults.getPropertyEnum())) {
       setPropertyEnum(value.getPropertyEnum());
@@ -1281,10 +1805,22 @@ abstract class Datatype_Builder {
         || value.isBuilderSerializable() != defaults.isBuilderSerializable()) {
       setBuilderSerializable(value.isBuilderSerializable());
     }
+    if (defaults._unsetProperties.contains(Property.RECORD_VALUE_REQUESTED)
+        || value.isRecordValueRequested() != defaults.isRecordValueRequested()) {
+      setRecordValueRequested(value.isRecordValueRequested());
+    }
+    if (defaults._unsetProperties.contains(Property.VALUE_REUSE_REQUESTED)
+        || value.isValueReuseRequested() != defaults.isValueReuseRequested()) {
+      setValueReuseRequested(value.isValueReuseRequested());
+    }
     if (defaults._unsetProperties.contains(Property.HAS_TO_BUILDER_METHOD)
         || value.getHasToBuilderMethod() != defaults.getHasToBuilderMethod()) {
       setHasToBuilderMethod(value.getHasToBuilderMethod());
     }
+    if (defaults._unsetProperties.contains(Property.HAS_APPEND_TO_METHOD)
+        || value.getHasAppendToMethod() != defaults.getHasAppendToMethod()) {
+      setHasAppendToMethod(value.getHasAppendToMethod());
+    }
     if (defaults._unsetProperties.contains(Property.BUILD_METHOD)
         || !Objects.equals(value.getBuildMethod(), defaults.getBuildMethod())) {
       setBuildMethod(value.getBuildMethod());
@@ -1320,6 +1856,21 @@ abstract class Datatype_Builder {
         || !Objects.equals(value.getValueTypeVisibility(), defaults.getValueTypeVisibility())) {
       setValueTypeVisibility(value.getValueTypeVisibility());
     }
+    if (value instanceof Value && valueTypeMembers == ImmutableList.<Excerpt>of()) {
+      valueTypeMembers = ImmutableList.copyOf(value.getValueTypeMembers());
+    } else {
+      addAllValueTypeMembers(value.getValueTypeMembers());
+    }
+    if (value instanceof Value && builderMembers == ImmutableList.<Excerpt>of()) {
+      builderMembers = ImmutableList.copyOf(value.getBuilderMembers());
+    } else {
+      addAllBuilderMembers(value.getBuilderMembers());
+    }
+    if (value instanceof Value && partialTypeMembers == ImmutableList.<Excerpt>of()) {
+      partialTypeMembers = ImmutableList.copyOf(value.getPartialTypeMembers());
+    } else {
+      addAllPartialTypeMembers(value.getPartialTypeMembers());
+    }
     if (value instanceof Value && nestedClasses == ImmutableList.<Excerpt>of()) {
       nestedClasses = ImmutableList.copyOf(value.getNestedClasses());
     } else {
@@ -1375,6 +1926,7 @@ abstract class Datatype_Builder {
       setPartialType(template.getPartialType());
     }
     template.getRebuildableType().ifPresent(this::setRebuildableType);
+    template.getMetricsType().ifPresent(this::setMetricsType);
     if (!base._unsetProperties.contains(Property.PROPERTY_ENUM)
         && (defaults._unsetProperties.contains(Property.PROPERTY_ENUM)
             || !Objects.equals(template.getPropertyEnum(), defaults.getPropertyEnum()))) {
@@ -1386,11 +1938,26 @@ abstract class Datatype_Builder {
             || template.isBuilderSerializable() != defaults.isBuilderSerializable())) {
       setBuilderSerializable(template.isBuilderSerializable());
     }
+    if (!base._unsetProperties.contains(Property.RECORD_VALUE_REQUESTED)
+        && (defaults._unsetProperties.contains(Property.RECORD_VALUE_REQUESTED)
+            || template.isRecordValueRequested() != defaults.isRecordValueRequested())) {
+      setRecordValueRequested(template.isRecordValueRequested());
+    }
+    if (!base._unsetProperties.contains(Property.VALUE_REUSE_REQUESTED)
+        && (defaults._unsetProperties.contains(Property.VALUE_REUSE_REQUESTED)
+            || template.isValueReuseRequested() != defaults.isValueReuseRequested())) {
+      setValueReuseRequested(template.isValueReuseRequested());
+    }
     if (!base._unsetProperties.contains(Property.HAS_TO_BUILDER_METHOD)
         && (defaults._unsetProperties.contains(Property.HAS_TO_BUILDER_METHOD)
             || template.getHasToBuilderMethod() != defaults.getHasToBuilderMethod())) {
       setHasToBuilderMethod(template.getHasToBuilderMethod());
     }
+    if (!base._unsetProperties.contains(Property.HAS_APPEND_TO_METHOD)
+        && (defaults._unsetProperties.contains(Property.HAS_APPEND_TO_METHOD)
+            || template.getHasAppendToMethod() != defaults.getHasAppendToMethod())) {
+      setHasAppendToMethod(template.getHasAppendToMethod());
+    }
     if (!base._unsetProperties.contains(Property.BUILD_METHOD)
         && (defaults._unsetProperties.contains(Property.BUILD_METHOD)
             || !Objects.equals(template.getBuildMethod(), defaults.getBuildMethod()))) {
@@ -1427,6 +1994,9 @@ abstract class Datatype_Builder {
                 template.getValueTypeVisibility(), defaults.getValueTypeVisibility()))) {
       setValueTypeVisibility(template.getValueTypeVisibility());
     }
+    addAllValueTypeMembers(base.valueTypeMembers);
+    addAllBuilderMembers(base.builderMembers);
+    addAllPartialTypeMembers(base.partialTypeMembers);
     addAllNestedClasses(base.nestedClasses);
     return (Datatype.Builder) this;
   }
@@ -1447,10 +2017,14 @@ abstract class Datatype_Builder {
     valueType = defaults.valueType;
     partialType = defaults.partialType;
     rebuildableType = defaults.rebuildableType;
+    metricsType = defaults.metricsType;
     propertyEnum = defaults.propertyEnum;
     standardMethodUnderrides.clear();
     builderSerializable = defaults.builderSerializable;
+    recordValueRequested = defaults.recordValueRequested;
+    valueReuseRequested = defaults.valueReuseRequested;
     hasToBuilderMethod = defaults.hasToBuilderMethod;
+    hasAppendToMethod = defaults.hasAppendToMethod;
     buildMethod = defaults.buildMethod;
     buildPartialMethod = defaults.buildPartialMethod;
     clearMethod = defaults.clearMethod;
@@ -1459,6 +2033,9 @@ abstract class Datatype_Builder {
     clearGeneratedBuilderAnnotations();
     clearValueTypeAnnotations();
     valueTypeVisibility = defaults.valueTypeVisibility;
+    clearValueTypeMembers();
+    clearBuilderMembers();
+    clearPartialTypeMembers();
     clearNestedClasses();
     _unsetProperties.clear();
     _unsetProperties.addAll(defaults._unsetProperties);
@@ -1513,10 +2090,14 @@ abstract class Datatype_Builder {
     // allows the JVM to optimize away the Optional objects created by our
     // getter method.
     private final TypeClass rebuildableType;
+    private final TypeClass metricsType;
     private final TypeClass propertyEnum;
     private final ImmutableMap<StandardMethod, UnderrideLevel> standardMethodUnderrides;
     private final boolean builderSerializable;
+    private final boolean recordValueRequested;
+    private final boolean valueReuseRequested;
     private final boolean hasToBuilderMethod;
+    private final boolean hasAppendToMethod;
     private final NameAndVisibility buildMethod;
     private final NameAndVisibility buildPartialMethod;
     private final NameAndVisibility clearMethod;
@@ -1525,6 +2106,9 @@ abstract class Datatype_Builder {
     private final ImmutableList<Excerpt> generatedBuilderAnnotations;
     private final ImmutableList<Excerpt> valueTypeAnnotations;
     private final Visibility valueTypeVisibility;
+    private final ImmutableList<Excerpt> valueTypeMembers;
+    private final ImmutableList<Excerpt> builderMembers;
+    private final ImmutableList<Excerpt> partialTypeMembers;
     private final ImmutableList<Excerpt> nestedClasses;
 
     private Value(Datatype_Builder builder) {
@@ -1537,10 +2121,14 @@ abstract class Datatype_Builder {
       this.valueType = builder.valueType;
       this.partialType = builder.partialType;
       this.rebuildableType = builder.rebuildableType;
+      this.metricsType = builder.metricsType;
       this.propertyEnum = builder.propertyEnum;
       this.standardMethodUnderrides = ImmutableMap.copyOf(builder.standardMethodUnderrides);
       this.builderSerializable = builder.builderSerializable;
+      this.recordValueRequested = builder.recordValueRequested;
+      this.valueReuseRequested = builder.valueReuseRequested;
       this.hasToBuilderMethod = builder.hasToBuilderMethod;
+      this.hasAppendToMethod = builder.hasAppendToMethod;
       this.buildMethod = builder.buildMethod;
       this.buildPartialMethod = builder.buildPartialMethod;
       this.clearMethod = builder.clearMethod;
@@ -1549,6 +2137,9 @@ abstract class Datatype_Builder {
       this.generatedBuilderAnnotations = ImmutableList.copyOf(builder.generatedBuilderAnnotations);
       this.valueTypeAnnotations = ImmutableList.copyOf(builder.valueTypeAnnotations);
       this.valueTypeVisibility = builder.valueTypeVisibility;
+      this.valueTypeMembers = ImmutableList.copyOf(builder.valueTypeMembers);
+      this.builderMembers = ImmutableList.copyOf(builder.builderMembers);
+      this.partialTypeMembers = ImmutableList.copyOf(builder.partialTypeMembers);
       this.nestedClasses = ImmutableList.copyOf(builder.nestedClasses);
     }
 
@@ -1597,6 +2188,11 @@ abstract class Datatype_Builder {
       return Optional.ofNullable(rebuildableType);
     }
 
+    @Override
+    public Optional<TypeClass> getMetricsType() {
+      return Optional.ofNullable(metricsType);
+    }
+
     @Override
     public TypeClass getPropertyEnum() {
       return propertyEnum;
@@ -1612,11 +2208,26 @@ abstract class Datatype_Builder {
       return builderSerializable;
     }
 
+    @Override
+    public boolean isRecordValueRequested() {
+      return recordValueRequested;
+    }
+
+    @Override
+    public boolean isValueReuseRequested() {
+      return valueReuseRequested;
+    }
+
     @Override
     public boolean getHasToBuilderMethod() {
       return hasToBuilderMethod;
     }
 
+    @Override
+    public boolean getHasAppendToMethod() {
+      return hasAppendToMethod;
+    }
+
     @Override
     public NameAndVisibility getBuildMethod() {
       return buildMethod;
@@ -1657,6 +2268,21 @@ abstract class Datatype_Builder {
       return valueTypeVisibility;
     }
 
+    @Override
+    public ImmutableList<Excerpt> getValueTypeMembers() {
+      return valueTypeMembers;
+    }
+
+    @Override
+    public ImmutableList<Excerpt> getBuilderMembers() {
+      return builderMembers;
+    }
+
+    @Override
+    public ImmutableList<Excerpt> getPartialTypeMembers() {
+      return partialTypeMembers;
+    }
+
     @Override
     public ImmutableList<Excerpt> getNestedClasses() {
       return nestedClasses;
@@ -1674,10 +2300,14 @@ abstract class Datatype_Builder {
       builder.valueType = valueType;
       builder.partialType = partialType;
       builder.rebuildableType = rebuildableType;
+      builder.metricsType = metricsType;
       builder.propertyEnum = propertyEnum;
       builder.standardMethodUnderrides.putAll(standardMethodUnderrides);
       builder.builderSerializable = builderSerializable;
+      builder.recordValueRequested = recordValueRequested;
+      builder.valueReuseRequested = valueReuseRequested;
       builder.hasToBuilderMethod = hasToBuilderMethod;
+      builder.hasAppendToMethod = hasAppendToMethod;
       builder.buildMethod = buildMethod;
       builder.buildPartialMethod = buildPartialMethod;
       builder.clearMethod = clearMethod;
@@ -1686,6 +2316,9 @@ abstract class Datatype_Builder {
       builder.generatedBuilderAnnotations = generatedBuilderAnnotations;
       builder.valueTypeAnnotations = valueTypeAnnotations;
       builder.valueTypeVisibility = valueTypeVisibility;
+      builder.valueTypeMembers = valueTypeMembers;
+      builder.builderMembers = builderMembers;
+      builder.partialTypeMembers = partialTypeMembers;
       builder.nestedClasses = nestedClasses;
       builder._unsetProperties.clear();
       return (Builder) builder;
@@ -1706,10 +2339,14 @@ abstract class Datatype_Builder {
           && Objects.equals(valueType, other.valueType)
           && Objects.equals(partialType, other.partialType)
           && Objects.equals(rebuildableType, other.rebuildableType)
+          && Objects.equals(metricsType, other.metricsType)
           && Objects.equals(propertyEnum, other.propertyEnum)
           && Objects.equals(standardMethodUnderrides, other.standardMethodUnderrides)
           && builderSerializable == other.builderSerializable
+          && recordValueRequested == other.recordValueRequested
+          && valueReuseRequested == other.valueReuseRequested
           && hasToBuilderMethod == other.hasToBuilderMethod
+          && hasAppendToMethod == other.hasAppendToMethod
           && Objects.equals(buildMethod, other.buildMethod)
           && Objects.equals(buildPartialMethod, other.buildPartialMethod)
           && Objects.equals(clearMethod, other.clearMethod)
@@ -1718,6 +2355,9 @@ abstract class Datatype_Builder {
           && Objects.equals(generatedBuilderAnnotations, other.generatedBuilderAnnotations)
           && Objects.equals(valueTypeAnnotations, other.valueTypeAnnotations)
           && Objects.equals(valueTypeVisibility, other.valueTypeVisibility)
+          && Objects.equals(valueTypeMembers, other.valueTypeMembers)
+          && Objects.equals(builderMembers, other.builderMembers)
+          && Objects.equals(partialTypeMembers, other.partialTypeMembers)
           && Objects.equals(nestedClasses, other.nestedClasses);
     }
 
@@ -1733,10 +2373,14 @@ abstract class Datatype_Builder {
           valueType,
           partialType,
           rebuildableType,
+          metricsType,
           propertyEnum,
           standardMethodUnderrides,
           builderSerializable,
+          recordValueRequested,
+          valueReuseRequested,
           hasToBuilderMethod,
+          hasAppendToMethod,
           buildMethod,
           buildPartialMethod,
           clearMethod,
@@ -1745,6 +2389,9 @@ abstract class Datatype_Builder {
           generatedBuilderAnnotations,
           valueTypeAnnotations,
           valueTypeVisibility,
+          valueTypeMembers,
+          builderMembers,
+          partialTypeMembers,
           nestedClasses);
     }
 
@@ -1772,6 +2419,9 @@ abstract class Datatype_Builder {
       if (rebuildableType != null) {
         result.append(", rebuildableType=").append(rebuildableType);
       }
+      if (metricsType != null) {
+        result.append(", metricsType=").append(metricsType);
+      }
       return result
           .append(", propertyEnum=")
           .append(propertyEnum)
@@ -1779,8 +2429,14 @@ abstract class Datatype_Builder {
           .append(standardMethodUnderrides)
           .append(", builderSerializable=")
           .append(builderSerializable)
+          .append(", recordValueRequested=")
+          .append(recordValueRequested)
+          .append(", valueReuseRequested=")
+          .append(valueReuseRequested)
           .append(", hasToBuilderMethod=")
           .append(hasToBuilderMethod)
+          .append(", hasAppendToMethod=")
+          .append(hasAppendToMethod)
           .append(", buildMethod=")
           .append(buildMethod)
           .append(", buildPartialMethod=")
@@ -1797,6 +2453,12 @@ abstract class Datatype_Builder {
           .append(valueTypeAnnotations)
           .append(", valueTypeVisibility=")
           .append(valueTypeVisibility)
+          .append(", valueTypeMembers=")
+          .append(valueTypeMembers)
+          .append(", builderMembers=")
+          .append(builderMembers)
+          .append(", partialTypeMembers=")
+          .append(partialTypeMembers)
           .append(", nestedClasses=")
           .append(nestedClasses)
           .append("}")
@@ -1820,10 +2482,14 @@ abstract class Datatype_Builder {
     // allows the JVM to optimize away the Optional objects created by our
     // getter method.
     private final TypeClass rebuildableType;
+    private final TypeClass metricsType;
     private final TypeClass propertyEnum;
     private final ImmutableMap<StandardMethod, UnderrideLevel> standardMethodUnderrides;
     private final boolean builderSerializable;
+    private final boolean recordValueRequested;
+    private final boolean valueReuseRequested;
     private final boolean hasToBuilderMethod;
+    private final boolean hasAppendToMethod;
     private final NameAndVisibility buildMethod;
     private final NameAndVisibility buildPartialMethod;
     private final NameAndVisibility clearMethod;
@@ -1832,6 +2498,9 @@ abstract class Datatype_Builder {
     private final ImmutableList<Excerpt> generatedBuilderAnnotations;
     private final ImmutableList<Excerpt> valueTypeAnnotations;
     private final Visibility valueTypeVisibility;
+    private final ImmutableList<Excerpt> valueTypeMembers;
+    private final ImmutableList<Excerpt> builderMembers;
+    private final ImmutableList<Excerpt> partialTypeMembers;
     private final ImmutableList<Excerpt> nestedClasses;
     private final EnumSet<Property> _unsetProperties;
 
@@ -1845,10 +2514,14 @@ abstract class Datatype_Builder {
       this.valueType = builder.valueType;
       this.partialType = builder.partialType;
       this.rebuildableType = builder.rebuildableType;
+      this.metricsType = builder.metricsType;
       this.propertyEnum = builder.propertyEnum;
       this.standardMethodUnderrides = ImmutableMap.copyOf(builder.standardMethodUnderrides);
       this.builderSerializable = builder.builderSerializable;
+      this.recordValueRequested = builder.recordValueRequested;
+      this.valueReuseRequested = builder.valueReuseRequested;
       this.hasToBuilderMethod = builder.hasToBuilderMethod;
+      this.hasAppendToMethod = builder.hasAppendToMethod;
       this.buildMethod = builder.buildMethod;
       this.buildPartialMethod = builder.buildPartialMethod;
       this.clearMethod = builder.clearMethod;
@@ -1857,6 +2530,9 @@ abstract class Datatype_Builder {
       this.generatedBuilderAnnotations = ImmutableList.copyOf(builder.generatedBuilderAnnotations);
       this.valueTypeAnnotations = ImmutableList.copyOf(builder.valueTypeAnnotations);
       this.valueTypeVisibility = builder.valueTypeVisibility;
+      this.valueTypeMembers = ImmutableList.copyOf(builder.valueTypeMembers);
+      this.builderMembers = ImmutableList.copyOf(builder.builderMembers);
+      this.partialTypeMembers = ImmutableList.copyOf(builder.partialTypeMembers);
       this.nestedClasses = ImmutableList.copyOf(builder.nestedClasses);
       this._unsetProperties = builder._unsetProperties.clone();
     }
@@ -1927,6 +2603,11 @@ abstract class Datatype_Builder {
       return Optional.ofNullable(rebuildableType);
     }
 
+    @Override
+    public Optional<TypeClass> getMetricsType() {
+      return Optional.ofNullable(metricsType);
+    }
+
     @Override
     public TypeClass getPropertyEnum() {
       if (_unsetProperties.contains(Property.PROPERTY_ENUM)) {
@@ -1948,6 +2629,22 @@ abstract class Datatype_Builder {
       return builderSerializable;
     }
 
+    @Override
+    public boolean isRecordValueRequested() {
+      if (_unsetProperties.contains(Property.RECORD_VALUE_REQUESTED)) {
+        throw new UnsupportedOperationException("recordValueRequested not set");
+      }
+      return recordValueRequested;
+    }
+
+    @Override
+    public boolean isValueReuseRequested() {
+      if (_unsetProperties.contains(Property.VALUE_REUSE_REQUESTED)) {
+        throw new UnsupportedOperationException("valueReuseRequested not set");
+      }
+      return valueReuseRequested;
+    }
+
     @Override
     public boolean getHasToBuilderMethod() {
       if (_unsetProperties.contains(Property.HAS_TO_BUILDER_METHOD)) {
@@ -1956,6 +2653,14 @@ abstract class Datatype_Builder {
       return hasToBuilderMethod;
     }
 
+    @Override
+    public boolean getHasAppendToMethod() {
+      if (_unsetProperties.contains(Property.HAS_APPEND_TO_METHOD)) {
+        throw new UnsupportedOperationException("hasAppendToMethod not set");
+      }
+      return hasAppendToMethod;
+    }
+
     @Override
     public NameAndVisibility getBuildMethod() {
       if (_unsetProperties.contains(Property.BUILD_METHOD)) {
@@ -2014,6 +2719,21 @@ abstract class Datatype_Builder {
       return valueTypeVisibility;
     }
 
+    @Override
+    public ImmutableList<Excerpt> getValueTypeMembers() {
+      return valueTypeMembers;
+    }
+
+    @Override
+    public ImmutableList<Excerpt> getBuilderMembers() {
+      return builderMembers;
+    }
+
+    @Override
+    public ImmutableList<Excerpt> getPartialTypeMembers() {
+      return partialTypeMembers;
+    }
+
     @Override
     public ImmutableList<Excerpt> getNestedClasses() {
       return nestedClasses;
@@ -2038,10 +2758,14 @@ abstract class Datatype_Builder {
       builder.valueType = valueType;
       builder.partialType = partialType;
       builder.rebuildableType = rebuildableType;
+      builder.metricsType = metricsType;
       builder.propertyEnum = propertyEnum;
       builder.standardMethodUnderrides.putAll(standardMethodUnderrides);
       builder.builderSerializable = builderSerializable;
+      builder.recordValueRequested = recordValueRequested;
+      builder.valueReuseRequested = valueReuseRequested;
       builder.hasToBuilderMethod = hasToBuilderMethod;
+      builder.hasAppendToMethod = hasAppendToMethod;
       builder.buildMethod = buildMethod;
       builder.buildPartialMethod = buildPartialMethod;
       builder.clearMethod = clearMethod;
@@ -2050,6 +2774,9 @@ abstract class Datatype_Builder {
       builder.generatedBuilderAnnotations = generatedBuilderAnnotations;
       builder.valueTypeAnnotations = valueTypeAnnotations;
       builder.valueTypeVisibility = valueTypeVisibility;
+      builder.valueTypeMembers = valueTypeMembers;
+      builder.builderMembers = builderMembers;
+      builder.partialTypeMembers = partialTypeMembers;
       builder.nestedClasses = nestedClasses;
       builder._unsetProperties.clear();
       builder._unsetProperties.addAll(_unsetProperties);
@@ -2071,10 +2798,14 @@ abstract class Datatype_Builder {
           && Objects.equals(valueType, other.valueType)
           && Objects.equals(partialType, other.partialType)
           && Objects.equals(rebuildableType, other.rebuildableType)
+          && Objects.equals(metricsType, other.metricsType)
           && Objects.equals(propertyEnum, other.propertyEnum)
           && Objects.equals(standardMethodUnderrides, other.standardMethodUnderrides)
           && builderSerializable == other.builderSerializable
+          && recordValueRequested == other.recordValueRequested
+          && valueReuseRequested == other.valueReuseRequested
           && hasToBuilderMethod == other.hasToBuilderMethod
+          && hasAppendToMethod == other.hasAppendToMethod
           && Objects.equals(buildMethod, other.buildMethod)
           && Objects.equals(buildPartialMethod, other.buildPartialMethod)
           && Objects.equals(clearMethod, other.clearMethod)
@@ -2083,6 +2814,9 @@ abstract class Datatype_Builder {
           && Objects.equals(generatedBuilderAnnotations, other.generatedBuilderAnnotations)
           && Objects.equals(valueTypeAnnotations, other.valueTypeAnnotations)
           && Objects.equals(valueTypeVisibility, other.valueTypeVisibility)
+          && Objects.equals(valueTypeMembers, other.valueTypeMembers)
+          && Objects.equals(builderMembers, other.builderMembers)
+          && Objects.equals(partialTypeMembers, other.partialTypeMembers)
           && Objects.equals(nestedClasses, other.nestedClasses)
           && Objects.equals(_unsetProperties, other._unsetProperties);
     }
@@ -2099,10 +2833,14 @@ abstract class Datatype_Builder {
           valueType,
           partialType,
           rebuildableType,
+          metricsType,
           propertyEnum,
           standardMethodUnderrides,
           builderSerializable,
+          recordValueRequested,
+          valueReuseRequested,
           hasToBuilderMethod,
+          hasAppendToMethod,
           buildMethod,
           buildPartialMethod,
           clearMethod,
@@ -2111,6 +2849,9 @@ abstract class Datatype_Builder {
           generatedBuilderAnnotations,
           valueTypeAnnotations,
           valueTypeVisibility,
+          valueTypeMembers,
+          builderMembers,
+          partialTypeMembers,
           nestedClasses,
           _unsetProperties);
     }
@@ -2145,6 +2886,9 @@ abstract class Datatype_Builder {
       if (rebuildableType != null) {
         result.append("rebuildableType=").append(rebuildableType).append(", ");
       }
+      if (metricsType != null) {
+        result.append("metricsType=").append(metricsType).append(", ");
+      }
       if (!_unsetProperties.contains(Property.PROPERTY_ENUM)) {
         result.append("propertyEnum=").append(propertyEnum).append(", ");
       }
@@ -2152,9 +2896,18 @@ abstract class Datatype_Builder {
       if (!_unsetProperties.contains(Property.BUILDER_SERIALIZABLE)) {
         result.append(", builderSerializable=").append(builderSerializable);
       }
+      if (!_unsetProperties.contains(Property.RECORD_VALUE_REQUESTED)) {
+        result.append(", recordValueRequested=").append(recordValueRequested);
+      }
+      if (!_unsetProperties.contains(Property.VALUE_REUSE_REQUESTED)) {
+        result.append(", valueReuseRequested=").append(valueReuseRequested);
+      }
       if (!_unsetProperties.contains(Property.HAS_TO_BUILDER_METHOD)) {
         result.append(", hasToBuilderMethod=").append(hasToBuilderMethod);
       }
+      if (!_unsetProperties.contains(Property.HAS_APPEND_TO_METHOD)) {
+        result.append(", hasAppendToMethod=").append(hasAppendToMethod);
+      }
       if (!_unsetProperties.contains(Property.BUILD_METHOD)) {
         result.append(", buildMethod=").append(buildMethod);
       }
@@ -2178,7 +2931,17 @@ abstract class Datatype_Builder {
       if (!_unsetProperties.contains(Property.VALUE_TYPE_VISIBILITY)) {
         result.append(", valueTypeVisibility=").append(valueTypeVisibility);
       }
-      return result.append(", nestedClasses=").append(nestedClasses).append("}").toString();
+      return result
+          .append(", valueTypeMembers=")
+          .append(valueTypeMembers)
+          .append(", builderMembers=")
+          .append(builderMembers)
+          .append(", partialTypeMembers=")
+          .append(partialTypeMembers)
+          .append(", nestedClasses=")
+          .append(nestedClasses)
+          .append("}")
+          .toString();
     }
   }
 }
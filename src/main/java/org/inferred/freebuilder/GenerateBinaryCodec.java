@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link FreeBuilder} will generate a compact binary codec, {@code Codec}, nested in the generated
+ * builder of types annotated {@code @GenerateBinaryCodec}, with static
+ * {@code write(value, DataOutput)} and {@code read(DataInput)} methods.
+ *
+ * <p>Each property is written as a varint tag (its declaration order, starting from 1) followed
+ * by its value; integers are zigzag varint-encoded, and unset optional, null and empty
+ * collection properties are skipped entirely. Properties may be primitives, strings, enums,
+ * types themselves annotated {@code @GenerateBinaryCodec}, or optionals or collections of these.
+ *
+ * <p>Tags and enum constants are identified by position, so reordering properties or enum
+ * constants changes the format. As the generated builder is package-protected, expose the codec
+ * through static methods on the annotated type if other packages need it.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface GenerateBinaryCodec {
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link FreeBuilder} will generate a growable, columnar container, {@code Columns}, nested in the
+ * generated builder of types annotated {@code @GenerateColumns}.
+ *
+ * <p>{@code Columns} stores each property of the values added to it in its own array (primitive
+ * where possible, and a bit set for booleans), rather than holding an object per value. It
+ * returns lightweight views of the user's type by index, and read-only views of each column for
+ * bulk scans. Properties may be primitives, boxed primitives, strings or enums. Views implement
+ * only getters and the standard methods, so the type may not declare {@code appendTo},
+ * {@code withX}, {@code fingerprint64} or {@code estimatedRetainedBytes}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface GenerateColumns {
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link FreeBuilder} will generate field-level diff and patch support for types annotated
+ * {@code @GenerateDiff}.
+ *
+ * <p>The generated builder gains a static {@code diff(before, after)} method, returning a
+ * {@code Diff} holding a bitmask of the properties that differ and their values in
+ * {@code after}, and an {@code applyDiff(diff)} method that sets just those properties. Collection
+ * properties are replaced rather than merged. Types with more than 64 properties, and generic
+ * types, are not supported.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface GenerateDiff {
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link FreeBuilder} will implement an abstract {@code long fingerprint64()} method on types
+ * annotated {@code @GenerateFingerprint}, returning a stable 64-bit hash of the value's contents.
+ *
+ * <p>Unlike {@code hashCode}, the fingerprint is fully specified, so it is the same on every JVM
+ * and may be used to deduplicate or partition values across processes. Properties are mixed in
+ * declaration order with a fixed-seed MurmurHash3 mix. Lists are hashed in order; sets, maps and
+ * multimaps are hashed independently of iteration order. Supported property types are primitives
+ * and their boxes, strings, enums (by name), optionals, collections of supported types, and types
+ * that declare their own {@code long fingerprint64()} method, such as other
+ * {@code @GenerateFingerprint} types. The result is cached on the value. Generic types are not
+ * supported.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface GenerateFingerprint {
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link FreeBuilder} will generate a {@code Flyweight} implementation of types annotated
+ * {@code @GenerateFlyweight}, nested in the generated builder, which decodes each property from a
+ * {@link java.nio.ByteBuffer} on access rather than storing it in a field.
+ *
+ * <p>Each value occupies a fixed {@code Flyweight.SIZE} bytes, written by the static
+ * {@code Flyweight.write(value, buffer, offset)} method and viewed by
+ * {@code Flyweight.at(buffer, offset)}, so records can be read straight from a memory-mapped file.
+ * Properties may be primitives, boxed primitives or enums; they are laid out widest first, and
+ * enum constants are stored by position, so reordering properties or enum constants changes the
+ * format. Flyweights implement only getters and the standard methods, so the type may not declare
+ * {@code appendTo}, {@code withX}, {@code fingerprint64} or {@code estimatedRetainedBytes}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface GenerateFlyweight {
+}
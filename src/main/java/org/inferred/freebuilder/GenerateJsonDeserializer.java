@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link FreeBuilder} will generate a Jackson {@code StdDeserializer}, {@code Deserializer}, nested
+ * in the generated builder of types annotated {@code @GenerateJsonDeserializer}. It reads fields
+ * straight off the parser's token stream and calls the builder's setters (or, for collections,
+ * its single-element add methods) directly, avoiding the reflection and intermediate collections
+ * of Jackson's builder-based deserialization.
+ *
+ * <p>The type must also be annotated {@code @JsonDeserialize}; to use the generated class, point
+ * Jackson at it, e.g. {@code @JsonDeserialize(using = Person_Builder.Deserializer.class)}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface GenerateJsonDeserializer {
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link FreeBuilder} will count calls to {@code build()}, {@code buildPartial()},
+ * {@code mergeFrom} and {@code toBuilder()} on types annotated {@code @GenerateMetrics}, along
+ * with failed builds and a histogram of the sizes of each collection property, in a
+ * {@code Metrics} class nested in the generated builder.
+ *
+ * <p>Nothing is recorded unless the JVM is started with
+ * {@code -Dorg.inferred.freebuilder.metrics=true}. The flag is read once, into a static final
+ * field, so the JIT removes the disabled hooks entirely. Events can also be forwarded to a
+ * {@code Metrics.Listener}, to export them to a monitoring system.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface GenerateMetrics {
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When compiling at Java 16 or later, {@link FreeBuilder} will generate the value class behind
+ * {@code build()} as a {@code record} for interfaces annotated {@code @GenerateRecordValue}.
+ *
+ * <p>Records let the JVM supply compact {@code equals}, {@code hashCode} and field layout, but
+ * their {@code hashCode} values and serialized form differ from the generated final class, so
+ * this is opt-in. It only applies to interfaces whose properties are all plain or
+ * {@code @Nullable} fields or nested buildable types, with accessors named after the property,
+ * and which have no {@code @Memoized} or other extra value members; other types keep the
+ * generated class.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface GenerateRecordValue {
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link FreeBuilder} will implement an abstract {@code long estimatedRetainedBytes()} method on
+ * types annotated {@code @GenerateRetainedSize}, estimating the heap memory a value retains, for
+ * instance to weigh it in a size-bounded cache.
+ *
+ * <p>The estimate assumes a 64-bit JVM with compressed references and compact strings. It counts
+ * the value's own fields, strings, boxed primitives, optionals and collections, modelled on
+ * Guava's immutable collections, and recurses into types that declare their own
+ * {@code long estimatedRetainedBytes()} method, such as other {@code @GenerateRetainedSize}
+ * types. Enums and empty collections are assumed to be shared, and count nothing; objects of any
+ * other type count as a minimal 16-byte object.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface GenerateRetainedSize {
+}
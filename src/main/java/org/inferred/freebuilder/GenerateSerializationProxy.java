@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link FreeBuilder} will replace the default serialized form of {@code Serializable} types
+ * annotated {@code @GenerateSerializationProxy} with a compact {@code Externalizable} proxy.
+ *
+ * <p>The proxy writes each property positionally, and is read back through the type's builder,
+ * so any constraints the builder enforces are re-checked on deserialization.
+ *
+ * <p>Adding this annotation to a type changes its wire format: values serialized before the
+ * annotation was added cannot be read afterwards, nor vice versa. Properties are identified by
+ * position, so reordering them also changes the format.
+ *
+ * <p>Only values are proxied. Serializable builders keep their default serialized form, as a
+ * builder may have required properties unset, which a positional proxy cannot represent.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface GenerateSerializationProxy {
+}
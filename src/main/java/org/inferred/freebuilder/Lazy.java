@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link FreeBuilder} will add a {@code setFooLazily(Supplier)} method to the builder for getters
+ * annotated {@code @Lazy}, deferring computation of the property until it is first needed.
+ *
+ * <p>A lazily-set property is computed at most once per value, on the first call to its getter,
+ * {@link Object#equals(Object)}, {@link Object#hashCode()} or {@link Object#toString()}. The
+ * value type holds the property, whether computed or set eagerly, in a volatile rather than a
+ * final field, so other threads see it even through a data race. The supplier must not return
+ * null, and is released once called. Values built from the same builder compute the property
+ * separately; values copied with {@code toBuilder} share their original's result.
+ *
+ * <p>Lazy properties use reference semantics, like an unannotated property of the same type, and
+ * are not supported on {@code @GwtCompatible} types.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface Lazy {
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link FreeBuilder} will override non-abstract methods annotated {@code @Memoized} in the
+ * generated value type, calling your implementation at most once per instance and caching the
+ * result, including null, for later calls.
+ *
+ * <p>Memoized methods must take no parameters and return a value, and must not be final,
+ * private or static. They are not properties: they do not appear on the builder, and do not take
+ * part in {@link Object#equals(Object)}, {@link Object#hashCode()} or {@link Object#toString()}.
+ * The cached result is not serialized.
+ *
+ * <p>Computation is thread-safe: concurrent first calls on the same instance will wait for one
+ * call to your implementation to complete. Partial values do not cache results.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface Memoized {
+}
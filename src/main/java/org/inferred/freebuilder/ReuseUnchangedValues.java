@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Builders of types annotated {@code @ReuseUnchangedValues} remember the value they were created
+ * from by {@code toBuilder}, or last built. If no field has been replaced since, {@code build()}
+ * returns that value again instead of allocating a new one, so rebuilding a tree of values after
+ * a point edit only allocates along the edited path.
+ *
+ * <p>Fields are compared by identity, so setting a field to an equal but distinct object counts
+ * as a change. Nested buildable types should be annotated too, so their builders can report
+ * themselves unchanged without allocating. The remembered value stays reachable for as long as
+ * the builder is, which is why this is opt-in. Types with properties that cannot be compared
+ * cheaply, such as maps, {@code @Lazy} properties, or plain collections when Guava is
+ * unavailable, always build a new value.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface ReuseUnchangedValues {
+}
@@ -20,9 +20,22 @@ import static com.google.common.base.Objects.equal;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Iterables.transform;
 
+import static org.inferred.freebuilder.processor.BinaryCodecSupport.binaryCodecMetadata;
+import static org.inferred.freebuilder.processor.ColumnsSupport.columnsMetadata;
+import static org.inferred.freebuilder.processor.DiffSupport.diffMetadata;
+import static org.inferred.freebuilder.processor.FingerprintSupport.fingerprintMetadata;
+import static org.inferred.freebuilder.processor.FingerprintSupport.isFingerprintMethod;
+import static org.inferred.freebuilder.processor.FlyweightSupport.flyweightMetadata;
 import static org.inferred.freebuilder.processor.GwtSupport.gwtMetadata;
+import static org.inferred.freebuilder.processor.MemoizedSupport.memoizedMetadata;
+import static org.inferred.freebuilder.processor.MetricsSupport.metricsMetadata;
 import static org.inferred.freebuilder.processor.NamePicker.pickName;
-import static org.inferred.freebuilder.processor.model.MethodFinder.methodsOn;
+import static org.inferred.freebuilder.processor.PropertyTableSupport.propertyTableMetadata;
+import static org.inferred.freebuilder.processor.RetainedSizeSupport.isRetainedSizeMethod;
+import static org.inferred.freebuilder.processor.RetainedSizeSupport.retainedSizeMetadata;
+import static org.inferred.freebuilder.processor.SerializationProxySupport.serializationProxyMetadata;
+import static org.inferred.freebuilder.processor.WithMethodsSupport.isWithMethod;
+import static org.inferred.freebuilder.processor.WithMethodsSupport.withMethodsMetadata;
 import static org.inferred.freebuilder.processor.model.ModelUtils.asElement;
 import static org.inferred.freebuilder.processor.model.ModelUtils.getReturnType;
 import static org.inferred.freebuilder.processor.naming.NamingConventions.determineNamingConvention;
@@ -33,14 +46,19 @@ import static javax.lang.model.util.ElementFilter.typesIn;
 import static javax.tools.Diagnostic.Kind.ERROR;
 import static javax.tools.Diagnostic.Kind.NOTE;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 
+import org.inferred.freebuilder.GenerateRecordValue;
 import org.inferred.freebuilder.IgnoredByEquals;
 import org.inferred.freebuilder.NotInToString;
+import org.inferred.freebuilder.ReuseUnchangedValues;
 import org.inferred.freebuilder.processor.Datatype.StandardMethod;
 import org.inferred.freebuilder.processor.Datatype.UnderrideLevel;
+import org.inferred.freebuilder.processor.model.MethodFinder;
 import org.inferred.freebuilder.processor.model.MethodIntrospector;
 import org.inferred.freebuilder.processor.naming.NamingConvention;
 import org.inferred.freebuilder.processor.property.Factories;
@@ -103,12 +121,14 @@ class Analyser {
   private final Elements elements;
   private final Messager messager;
   private final Types types;
+  private final MethodFinder methodFinder;
 
-  Analyser(ProcessingEnvironment env, Messager messager) {
+  Analyser(ProcessingEnvironment env, Messager messager, MethodFinder methodFinder) {
     this.env = env;
     this.elements = env.getElementUtils();
     this.messager = messager;
     this.types = env.getTypeUtils();
+    this.methodFinder = methodFinder;
   }
 
   /**
@@ -129,7 +149,7 @@ class Analyser {
         generatedBuilder.withParameters(typeParameters));
     }
 
-    ImmutableSet<ExecutableElement> methods = methodsOn(type, elements, errorType -> {
+    ImmutableSet<ExecutableElement> methods = methodFinder.methodsOn(type, errorType -> {
       throw new CannotGenerateCodeException();
     });
     Datatype.Builder constructionAndExtension = constructionAndExtension(builder);
@@ -145,16 +165,20 @@ class Analyser {
         .setPartialType(partialType.withParameters(typeParameters))
         .setPropertyEnum(propertyType.withParameters())
         .putAllStandardMethodUnderrides(findUnderriddenMethods(methods))
-        .setBuildMethod(pickName(builder, elements, types, type.asType(), "build"))
-        .setBuildPartialMethod(pickName(builder, elements, types, type.asType(), "buildPartial"))
-        .setClearMethod(pickName(builder, elements, types, builder, "clear"))
+        .setBuildMethod(pickName(builder, methodFinder, types, type.asType(), "build"))
+        .setBuildPartialMethod(
+            pickName(builder, methodFinder, types, type.asType(), "buildPartial"))
+        .setClearMethod(pickName(builder, methodFinder, types, builder, "clear"))
         .setMergeFromBuilderMethod(pickName(
-            builder, elements, types, builder, "mergeFrom", builder))
+            builder, methodFinder, types, builder, "mergeFrom", builder))
         .setMergeFromValueMethod(pickName(
-            builder, elements, types, builder, "mergeFrom", type.asType()))
+            builder, methodFinder, types, builder, "mergeFrom", type.asType()))
         .setHasToBuilderMethod(hasToBuilderMethod(
             builder, constructionAndExtension.isExtensible(), methods))
+        .setHasAppendToMethod(methods.stream().anyMatch(this::isAppendToMethod))
         .setBuilderSerializable(shouldBuilderBeSerializable(builder))
+        .setRecordValueRequested(type.getAnnotation(GenerateRecordValue.class) != null)
+        .setValueReuseRequested(type.getAnnotation(ReuseUnchangedValues.class) != null)
         .setBuilder(Type.from(builder));
     if (datatypeBuilder.getBuilderFactory().isPresent()
         && !datatypeBuilder.getHasToBuilderMethod()) {
@@ -162,9 +186,39 @@ class Analyser {
           generatedBuilder.nestedType("Rebuildable").withParameters(typeParameters));
     }
     Datatype baseDatatype = datatypeBuilder.build();
+    Optional<JacksonSupport> jacksonSupport = JacksonSupport.create(type, elements);
     Map<Property, PropertyCodeGenerator> generatorsByProperty = pickPropertyGenerators(
-        type, baseDatatype, builder, removeNonGetterMethods(builder, methods));
+        type,
+        baseDatatype,
+        builder,
+        removeNonGetterMethods(type, builder, methods),
+        jacksonSupport);
+    datatypeBuilder.mergeFrom(memoizedMetadata(type, baseDatatype, methods, types, messager));
     datatypeBuilder.mergeFrom(gwtMetadata(type, baseDatatype, generatorsByProperty));
+    datatypeBuilder.mergeFrom(binaryCodecMetadata(
+        type, baseDatatype, generatorsByProperty, elements, types, messager));
+    datatypeBuilder.mergeFrom(serializationProxyMetadata(
+        type, baseDatatype, generatorsByProperty, elements, types, messager));
+    datatypeBuilder.mergeFrom(flyweightMetadata(
+        type, baseDatatype, methods, generatorsByProperty, types, messager));
+    datatypeBuilder.mergeFrom(columnsMetadata(
+        type, baseDatatype, methods, generatorsByProperty, types, messager));
+    datatypeBuilder.mergeFrom(diffMetadata(type, baseDatatype, generatorsByProperty, messager));
+    datatypeBuilder.mergeFrom(propertyTableMetadata(
+        type, baseDatatype, generatorsByProperty, types, messager));
+    datatypeBuilder.mergeFrom(fingerprintMetadata(
+        type, baseDatatype, methods, generatorsByProperty, elements, types, messager));
+    datatypeBuilder.mergeFrom(retainedSizeMetadata(
+        type, baseDatatype, methods, generatorsByProperty, elements, types, messager));
+    datatypeBuilder.mergeFrom(withMethodsMetadata(
+        type, baseDatatype, builder, methods, generatorsByProperty, types, messager));
+    datatypeBuilder.mergeFrom(metricsMetadata(type, baseDatatype, generatorsByProperty));
+    if (jacksonSupport.isPresent()) {
+      datatypeBuilder.mergeFrom(jacksonSupport.get().streamingMetadata(
+          type, baseDatatype, generatorsByProperty, messager));
+    } else {
+      JacksonSupport.checkStreamingNotRequested(type, messager);
+    }
     return new GeneratedBuilder(datatypeBuilder.build(), generatorsByProperty);
   }
 
@@ -310,14 +364,37 @@ class Analyser {
           && types.isSameType(method.getReturnType(), declaredType));
   }
 
+  /**
+   * Returns whether {@code method} is an abstract {@code StringBuilder appendTo(StringBuilder)}
+   * method for the value type to implement.
+   */
+  private boolean isAppendToMethod(ExecutableElement method) {
+    TypeMirror stringBuilder = elements.getTypeElement(StringBuilder.class.getName()).asType();
+    return (method.getSimpleName().contentEquals("appendTo")
+        && method.getModifiers().contains(Modifier.ABSTRACT)
+        && method.getParameters().size() == 1
+        && types.isSameType(method.getParameters().get(0).asType(), stringBuilder)
+        && types.isSameType(method.getReturnType(), stringBuilder));
+  }
+
   private Set<ExecutableElement> removeNonGetterMethods(
-      DeclaredType builder, Iterable<ExecutableElement> methods) {
+      TypeElement type, DeclaredType builder, Iterable<ExecutableElement> methods) {
     ImmutableSet.Builder<ExecutableElement> nonUnderriddenMethods = ImmutableSet.builder();
     for (ExecutableElement method : methods) {
       boolean isAbstract = method.getModifiers().contains(Modifier.ABSTRACT);
       boolean isStandardMethod = maybeStandardMethod(method).isPresent();
       boolean isToBuilderMethod = isToBuilderMethod(builder, method);
-      if (isAbstract && !isStandardMethod && !isToBuilderMethod) {
+      boolean isAppendToMethod = isAppendToMethod(method);
+      boolean isWithMethod = isWithMethod(type, method, types);
+      boolean isFingerprintMethod = isFingerprintMethod(type, method);
+      boolean isRetainedSizeMethod = isRetainedSizeMethod(type, method);
+      if (isAbstract
+          && !isStandardMethod
+          && !isToBuilderMethod
+          && !isAppendToMethod
+          && !isWithMethod
+          && !isFingerprintMethod
+          && !isRetainedSizeMethod) {
         nonUnderriddenMethods.add(method);
       }
     }
@@ -407,11 +484,12 @@ class Analyser {
       TypeElement type,
       Datatype datatype,
       DeclaredType builder,
-      Iterable<ExecutableElement> methods) {
+      Iterable<ExecutableElement> methods,
+      Optional<JacksonSupport> jacksonSupport) {
     NamingConvention namingConvention = determineNamingConvention(type, methods, messager, types);
-    Optional<JacksonSupport> jacksonSupport = JacksonSupport.create(type, elements);
-    Set<String> methodsInvokedInBuilderConstructor =
-        getMethodsInvokedInBuilderConstructor(asElement(builder));
+    // Only needed by some property types, so only introspect the builder if necessary.
+    Supplier<Set<String>> methodsInvokedInBuilderConstructor =
+        Suppliers.memoize(() -> getMethodsInvokedInBuilderConstructor(asElement(builder)));
 
     ImmutableMap.Builder<Property, PropertyCodeGenerator> generatorsByProperty =
         ImmutableMap.builder();
@@ -432,8 +510,8 @@ class Analyser {
   }
 
   private Set<String> getMethodsInvokedInBuilderConstructor(TypeElement builder) {
-    MethodIntrospector methodIntrospector = MethodIntrospector.instance(env);
     List<ExecutableElement> constructors = constructorsIn(builder.getEnclosedElements());
+    MethodIntrospector methodIntrospector = MethodIntrospector.instance(env);
     Set<Name> result = null;
     for (ExecutableElement constructor : constructors) {
       if (result == null) {
@@ -473,7 +551,8 @@ class Analyser {
   }
 
   private static PropertyCodeGenerator createCodeGenerator(Config config) {
-    for (PropertyCodeGenerator.Factory factory : Factories.PROPERTY_FACTORIES) {
+    TypeMirror propertyType = config.getProperty().getType();
+    for (PropertyCodeGenerator.Factory factory : Factories.factoriesFor(propertyType)) {
       Optional<? extends PropertyCodeGenerator> codeGenerator = factory.create(config);
       if (codeGenerator.isPresent()) {
         return codeGenerator.get();
@@ -488,14 +567,14 @@ class Analyser {
     private final Datatype datatype;
     private final Property property;
     private final ExecutableElement getterMethod;
-    private final Set<String> methodsInvokedInBuilderConstructor;
+    private final Supplier<Set<String>> methodsInvokedInBuilderConstructor;
 
     ConfigImpl(
         DeclaredType builder,
         Datatype datatype,
         Property property,
         ExecutableElement getterMethod,
-        Set<String> methodsInvokedInBuilderConstructor) {
+        Supplier<Set<String>> methodsInvokedInBuilderConstructor) {
       this.builder = builder;
       this.datatype = datatype;
       this.property = property;
@@ -530,7 +609,7 @@ class Analyser {
 
     @Override
     public Set<String> getMethodsInvokedInBuilderConstructor() {
-      return methodsInvokedInBuilderConstructor;
+      return methodsInvokedInBuilderConstructor.get();
     }
 
     @Override
@@ -547,6 +626,11 @@ class Analyser {
     public Types getTypes() {
       return types;
     }
+
+    @Override
+    public MethodFinder getMethodFinder() {
+      return methodFinder;
+    }
   }
 
   /**
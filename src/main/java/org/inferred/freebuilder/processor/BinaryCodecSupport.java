@@ -0,0 +1,695 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import static org.inferred.freebuilder.processor.BuilderMethods.addMethod;
+import static org.inferred.freebuilder.processor.BuilderMethods.clearMethod;
+import static org.inferred.freebuilder.processor.BuilderMethods.setter;
+import static org.inferred.freebuilder.processor.model.ModelUtils.asElement;
+import static org.inferred.freebuilder.processor.model.ModelUtils.maybeUnbox;
+import static org.inferred.freebuilder.processor.model.ModelUtils.upperBound;
+
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+import org.inferred.freebuilder.GenerateBinaryCodec;
+import org.inferred.freebuilder.processor.BuilderFactory.TypeInference;
+import org.inferred.freebuilder.processor.property.Property;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator.Initially;
+import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
+import org.inferred.freebuilder.processor.source.QualifiedName;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.ValueType;
+import org.inferred.freebuilder.processor.source.Variable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+class BinaryCodecSupport {
+
+  /** Initial buffer size when reading strings, which is doubled as more bytes are read. */
+  private static final int STRING_CHUNK_SIZE = 4096;
+
+  /** How a single value is encoded. */
+  private enum Encoding {
+    BOOLEAN, BYTE, SHORT, CHAR, INT, LONG, FLOAT, DOUBLE, STRING, ENUM, CODEC
+  }
+
+  /** Whether, and how many times, a property's value appears in the encoded form. */
+  private enum Presence {
+    /** Always written. */
+    ALWAYS,
+    /** Written unless zero or false; a primitive read back as that default if absent. */
+    UNLESS_DEFAULT,
+    /** Written unless null. */
+    NULLABLE,
+    /** Written unless empty; the present value is written. */
+    OPTIONAL,
+    /** Written unless empty, as a varint count followed by each element. */
+    REPEATED
+  }
+
+  public static Datatype.Builder binaryCodecMetadata(
+      TypeElement type,
+      Datatype datatype,
+      Map<Property, PropertyCodeGenerator> generatorsByProperty,
+      Elements elements,
+      Types types,
+      Messager messager) {
+    Datatype.Builder extraMetadata = new Datatype.Builder();
+    if (type.getAnnotation(GenerateBinaryCodec.class) == null) {
+      return extraMetadata;
+    }
+    if (datatype.getType().isParameterized()) {
+      messager.printMessage(ERROR, "@GenerateBinaryCodec is not supported on generic types", type);
+      return extraMetadata;
+    }
+    if (!datatype.getBuilderFactory().isPresent()) {
+      messager.printMessage(
+          ERROR, "@GenerateBinaryCodec requires a no-args Builder constructor", type);
+      return extraMetadata;
+    }
+    ImmutableList.Builder<Field> fields = ImmutableList.builder();
+    boolean supported = true;
+    int tag = 0;
+    for (Property property : generatorsByProperty.keySet()) {
+      tag++;
+      Optional<Field> field =
+          field(property, generatorsByProperty.get(property), tag, elements, types);
+      if (field.isPresent()) {
+        fields.add(field.get());
+      } else {
+        messager.printMessage(
+            ERROR,
+            "@GenerateBinaryCodec does not support property '" + property.getName()
+                + "' of type " + property.getType(),
+            type);
+        supported = false;
+      }
+    }
+    if (supported) {
+      extraMetadata.addNestedClasses(new Codec(datatype, fields.build()));
+    }
+    return extraMetadata;
+  }
+
+  private static Optional<Field> field(
+      Property property,
+      PropertyCodeGenerator generator,
+      int tag,
+      Elements elements,
+      Types types) {
+    Optional<TypeMirror> elementType = generator.getAddElementType();
+    if (elementType.isPresent()) {
+      return scalar(elementType.get(), elements, types).map(scalar -> new Field(
+          property, tag, Presence.REPEATED, scalar, elementType.get(), Optional.empty()));
+    }
+    Optional<OptionalType> optionalType = OptionalType.of(property.getType());
+    if (optionalType.isPresent()) {
+      TypeMirror valueType = optionalType.get().primitiveKind()
+          .map(kind -> (TypeMirror) types.getPrimitiveType(kind))
+          .orElseGet(() -> typeArgument(property.getType(), elements));
+      return scalar(valueType, elements, types).map(scalar -> new Field(
+          property, tag, Presence.OPTIONAL, scalar, valueType, optionalType));
+    }
+    Presence presence;
+    if (generator.initialState() == Initially.OPTIONAL) {
+      presence = Presence.NULLABLE;
+    } else if (property.getType().getKind().isPrimitive()) {
+      presence = Presence.UNLESS_DEFAULT;
+    } else {
+      presence = Presence.ALWAYS;
+    }
+    return scalar(property.getType(), elements, types).map(scalar -> new Field(
+        property, tag, presence, scalar, property.getType(), Optional.empty()));
+  }
+
+  private static TypeMirror typeArgument(TypeMirror type, Elements elements) {
+    List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
+    if (typeArguments.isEmpty()) {
+      return elements.getTypeElement(Object.class.getName()).asType();
+    }
+    return upperBound(elements, typeArguments.get(0));
+  }
+
+  private static Optional<Scalar> scalar(TypeMirror type, Elements elements, Types types) {
+    switch (type.getKind()) {
+      case BOOLEAN:
+        return Optional.of(new Scalar(Encoding.BOOLEAN, Optional.empty()));
+      case BYTE:
+        return Optional.of(new Scalar(Encoding.BYTE, Optional.empty()));
+      case SHORT:
+        return Optional.of(new Scalar(Encoding.SHORT, Optional.empty()));
+      case CHAR:
+        return Optional.of(new Scalar(Encoding.CHAR, Optional.empty()));
+      case INT:
+        return Optional.of(new Scalar(Encoding.INT, Optional.empty()));
+      case LONG:
+        return Optional.of(new Scalar(Encoding.LONG, Optional.empty()));
+      case FLOAT:
+        return Optional.of(new Scalar(Encoding.FLOAT, Optional.empty()));
+      case DOUBLE:
+        return Optional.of(new Scalar(Encoding.DOUBLE, Optional.empty()));
+      case DECLARED:
+        break;
+      default:
+        return Optional.empty();
+    }
+    Optional<TypeMirror> unboxedType = maybeUnbox(type, types);
+    if (unboxedType.isPresent()) {
+      return scalar(unboxedType.get(), elements, types);
+    }
+    TypeElement element = asElement((DeclaredType) type);
+    if (element.getQualifiedName().contentEquals(String.class.getName())) {
+      return Optional.of(new Scalar(Encoding.STRING, Optional.empty()));
+    }
+    if (element.getKind() == ElementKind.ENUM) {
+      return Optional.of(new Scalar(Encoding.ENUM, Optional.of(QualifiedName.of(element))));
+    }
+    if (element.getTypeParameters().isEmpty()) {
+      QualifiedName codec = codecFor(element);
+      if (element.getAnnotation(GenerateBinaryCodec.class) != null
+          || elements.getTypeElement(codec.toString()) != null) {
+        return Optional.of(new Scalar(Encoding.CODEC, Optional.of(codec)));
+      }
+    }
+    return Optional.empty();
+  }
+
+  /** Returns the codec generated for {@code type}, whether or not it exists yet. */
+  private static QualifiedName codecFor(TypeElement type) {
+    QualifiedName name = QualifiedName.of(type);
+    String generatedBuilder = Joiner.on('_').join(name.getSimpleNames()) + "_Builder";
+    return QualifiedName.of(name.getPackage(), generatedBuilder).nestedType("Codec");
+  }
+
+  private static final class Scalar extends ValueType {
+
+    private final Encoding encoding;
+    /** The enum type or codec class, for {@link Encoding#ENUM} and {@link Encoding#CODEC}. */
+    private final Optional<QualifiedName> type;
+
+    private Scalar(Encoding encoding, Optional<QualifiedName> type) {
+      this.encoding = encoding;
+      this.type = type;
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("encoding", encoding);
+      fields.add("type", type);
+    }
+  }
+
+  private static final class Field extends ValueType {
+
+    private final Property property;
+    private final int tag;
+    private final Presence presence;
+    private final Scalar scalar;
+    /** The type of each value written: the property type, or its element or optional value. */
+    private final TypeMirror valueType;
+    private final Optional<OptionalType> optionalType;
+
+    private Field(
+        Property property,
+        int tag,
+        Presence presence,
+        Scalar scalar,
+        TypeMirror valueType,
+        Optional<OptionalType> optionalType) {
+      this.property = property;
+      this.tag = tag;
+      this.presence = presence;
+      this.scalar = scalar;
+      this.valueType = valueType;
+      this.optionalType = optionalType;
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("property", property);
+      fields.add("tag", tag);
+      fields.add("presence", presence);
+      fields.add("scalar", scalar);
+      fields.add("valueType", valueType);
+      fields.add("optionalType", optionalType);
+    }
+  }
+
+  private static final class Codec extends ValueType implements Excerpt {
+
+    private final Datatype datatype;
+    private final List<Field> fields;
+
+    private Codec(Datatype datatype, List<Field> fields) {
+      this.datatype = datatype;
+      this.fields = fields;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      Set<Encoding> encodings = EnumSet.noneOf(Encoding.class);
+      Map<QualifiedName, String> enumValues = new LinkedHashMap<>();
+      for (Field field : fields) {
+        encodings.add(field.scalar.encoding);
+        if (field.scalar.encoding == Encoding.ENUM) {
+          QualifiedName enumType = field.scalar.type.get();
+          if (!enumValues.containsKey(enumType)) {
+            enumValues.put(enumType, valuesConstantName(enumType, enumValues.size()));
+          }
+        }
+      }
+      code.addLine("")
+          .addLine("/**")
+          .addLine(" * Reads and writes %s instances in a compact, tagged binary format.",
+              datatype.getType().javadocLink())
+          .addLine(" */")
+          .addLine("public static final class Codec {")
+          .addLine("");
+      enumValues.forEach((enumType, constant) -> {
+        code.addLine("  private static final %s[] %s = %s.values();", enumType, constant, enumType);
+      });
+      if (!enumValues.isEmpty()) {
+        code.addLine("");
+      }
+      code.addLine("  private Codec() {}");
+      addWrite(code, enumValues);
+      addRead(code, enumValues);
+      addVarintMethods(code);
+      if (encodings.contains(Encoding.INT)) {
+        addSignedVarintMethods(code);
+      }
+      if (encodings.contains(Encoding.LONG)) {
+        addSignedVarlongMethods(code);
+      }
+      if (encodings.contains(Encoding.STRING)) {
+        addStringMethods(code);
+      }
+      if (encodings.contains(Encoding.ENUM)) {
+        addEnumMethods(code);
+      }
+      if (fields.stream().anyMatch(field -> field.presence == Presence.REPEATED)) {
+        addCountMethods(code);
+      }
+      code.addLine("}");
+    }
+
+    private void addWrite(SourceBuilder code, Map<QualifiedName, String> enumValues) {
+      Variable element = new Variable("element");
+      code.addLine("")
+          .addLine("  /** Writes {@code value} to {@code out}. */")
+          .addLine("  public static void write(%s value, %s out) throws %s {",
+              datatype.getType(), DataOutput.class, IOException.class);
+      for (Field field : fields) {
+        Excerpt getter = Excerpts.add("value.%s()", field.property.getGetterName());
+        switch (field.presence) {
+          case ALWAYS:
+            addWriteTag(code, "    ", field.tag);
+            code.addLine("    %s;", encode(field.scalar, getter));
+            break;
+
+          case UNLESS_DEFAULT:
+            code.addLine("    if (%s) {", isNotDefault(field.scalar, getter));
+            addWriteTag(code, "      ", field.tag);
+            code.addLine("      %s;", encode(field.scalar, getter))
+                .addLine("    }");
+            break;
+
+          case NULLABLE: {
+            Variable temporary = new Variable(field.property.getName());
+            code.addLine("    %s %s = %s;", field.property.getType(), temporary, getter)
+                .addLine("    if (%s != null) {", temporary);
+            addWriteTag(code, "      ", field.tag);
+            code.addLine("      %s;", encode(field.scalar, temporary))
+                .addLine("    }");
+            break;
+          }
+
+          case OPTIONAL: {
+            Variable temporary = new Variable(field.property.getName());
+            code.addLine("    %s %s = %s;", field.property.getType(), temporary, getter)
+                .addLine("    if (%s.isPresent()) {", temporary);
+            addWriteTag(code, "      ", field.tag);
+            code.addLine("      %s;", encode(field.scalar, Excerpts.add(
+                    "%s.%s()", temporary, field.optionalType.get().getter())))
+                .addLine("    }");
+            break;
+          }
+
+          case REPEATED: {
+            Variable temporary = new Variable(field.property.getName());
+            code.addLine("    %s %s = %s;", field.property.getType(), temporary, getter)
+                .addLine("    if (!%s.isEmpty()) {", temporary);
+            addWriteTag(code, "      ", field.tag);
+            code.addLine("      writeVarint(out, %s.size());", temporary)
+                .addLine("      for (%s %s : %s) {", field.valueType, element, temporary)
+                .addLine("        %s;", encode(field.scalar, element))
+                .addLine("      }")
+                .addLine("    }");
+            break;
+          }
+        }
+      }
+      code.addLine("    out.writeByte(0);")
+          .addLine("  }");
+    }
+
+    private void addRead(SourceBuilder code, Map<QualifiedName, String> enumValues) {
+      Variable builder = new Variable("builder");
+      Variable tag = new Variable("tag");
+      Variable remaining = new Variable("remaining");
+      Map<Field, Variable> readFlags = new LinkedHashMap<>();
+      code.addLine("")
+          .addLine("  /** Reads a value previously written by {@link #write}. */")
+          .addLine("  public static %s read(%s in) throws %s {",
+              datatype.getType(), DataInput.class, IOException.class)
+          .addLine("    %s %s = %s;",
+              datatype.getBuilder(),
+              builder,
+              datatype.getBuilderFactory().get()
+                  .newBuilder(datatype.getBuilder(), TypeInference.INFERRED_TYPES));
+      // Skipped properties must read back as empty, whatever the builder's defaults
+      for (Field field : fields) {
+        switch (field.presence) {
+          case NULLABLE:
+            code.addLine("    %s.%s(null);", builder, setter(field.property));
+            break;
+
+          case OPTIONAL:
+          case REPEATED:
+            code.addLine("    %s.%s();", builder, clearMethod(field.property));
+            break;
+
+          case UNLESS_DEFAULT: {
+            // Only set skipped defaults after reading, so setters never see a spurious zero
+            Variable readFlag = new Variable(field.property.getName() + "Read");
+            code.addLine("    boolean %s = false;", readFlag);
+            readFlags.put(field, readFlag);
+            break;
+          }
+
+          default:
+            break;
+        }
+      }
+      code.addLine("    for (int %1$s = readVarint(in); %1$s != 0; %1$s = readVarint(in)) {", tag)
+          .addLine("      switch (%s) {", tag);
+      for (Field field : fields) {
+        Excerpt decoded = decode(field.scalar, enumValues);
+        code.addLine("        case %s:", field.tag);
+        if (field.presence == Presence.REPEATED) {
+          code.addLine("          for (int %1$s = readCount(in); %1$s > 0; %1$s--) {", remaining)
+              .addLine("            %s.%s(%s);", builder, addMethod(field.property), decoded)
+              .addLine("          }");
+        } else {
+          code.addLine("          %s.%s(%s);", builder, setter(field.property), decoded);
+          if (readFlags.containsKey(field)) {
+            code.addLine("          %s = true;", readFlags.get(field));
+          }
+        }
+        code.addLine("          break;");
+      }
+      code.addLine("        default:")
+          .addLine("          throw new %s(\"Unknown property tag \" + %s);",
+              StreamCorruptedException.class, tag)
+          .addLine("      }")
+          .addLine("    }");
+      readFlags.forEach((field, readFlag) -> {
+        code.addLine("    if (!%s) {", readFlag)
+            .addLine("      %s.%s(%s);",
+                builder, setter(field.property), defaultValue(field.scalar))
+            .addLine("    }");
+      });
+      code.addLine("    return %s.%s();", builder, datatype.getBuildMethod().name())
+          .addLine("  }");
+    }
+
+    private static void addWriteTag(SourceBuilder code, String indent, int tag) {
+      if (tag < 0x80) {
+        code.addLine("%sout.writeByte(%s);", indent, tag);
+      } else {
+        code.addLine("%swriteVarint(out, %s);", indent, tag);
+      }
+    }
+
+    private static Excerpt encode(Scalar scalar, Excerpt value) {
+      switch (scalar.encoding) {
+        case BOOLEAN:
+          return Excerpts.add("out.writeBoolean(%s)", value);
+        case BYTE:
+          return Excerpts.add("out.writeByte(%s)", value);
+        case SHORT:
+          return Excerpts.add("out.writeShort(%s)", value);
+        case CHAR:
+          return Excerpts.add("out.writeChar(%s)", value);
+        case INT:
+          return Excerpts.add("writeSignedVarint(out, %s)", value);
+        case LONG:
+          return Excerpts.add("writeSignedVarlong(out, %s)", value);
+        case FLOAT:
+          return Excerpts.add("out.writeFloat(%s)", value);
+        case DOUBLE:
+          return Excerpts.add("out.writeDouble(%s)", value);
+        case STRING:
+          return Excerpts.add("writeString(out, %s)", value);
+        case ENUM:
+          return Excerpts.add("writeVarint(out, %s.ordinal())", value);
+        case CODEC:
+          return Excerpts.add("%s.write(%s, out)", scalar.type.get(), value);
+      }
+      throw new AssertionError("Unexpected encoding " + scalar.encoding);
+    }
+
+    private static Excerpt isNotDefault(Scalar scalar, Excerpt value) {
+      switch (scalar.encoding) {
+        case BOOLEAN:
+          return value;
+        case FLOAT:
+          // Compare bits, so -0.0 is still written
+          return Excerpts.add("%s.floatToRawIntBits(%s) != 0", Float.class, value);
+        case DOUBLE:
+          return Excerpts.add("%s.doubleToRawLongBits(%s) != 0", Double.class, value);
+        default:
+          return Excerpts.add("%s != 0", value);
+      }
+    }
+
+    private static String defaultValue(Scalar scalar) {
+      switch (scalar.encoding) {
+        case BOOLEAN:
+          return "false";
+        case BYTE:
+          return "(byte) 0";
+        case SHORT:
+          return "(short) 0";
+        case CHAR:
+          return "(char) 0";
+        case INT:
+          return "0";
+        case LONG:
+          return "0L";
+        case FLOAT:
+          return "0.0f";
+        case DOUBLE:
+          return "0.0";
+        default:
+          throw new AssertionError("No primitive default for " + scalar.encoding);
+      }
+    }
+
+    private static Excerpt decode(Scalar scalar, Map<QualifiedName, String> enumValues) {
+      switch (scalar.encoding) {
+        case BOOLEAN:
+          return Excerpts.add("in.readBoolean()");
+        case BYTE:
+          return Excerpts.add("in.readByte()");
+        case SHORT:
+          return Excerpts.add("in.readShort()");
+        case CHAR:
+          return Excerpts.add("in.readChar()");
+        case INT:
+          return Excerpts.add("readSignedVarint(in)");
+        case LONG:
+          return Excerpts.add("readSignedVarlong(in)");
+        case FLOAT:
+          return Excerpts.add("in.readFloat()");
+        case DOUBLE:
+          return Excerpts.add("in.readDouble()");
+        case STRING:
+          return Excerpts.add("readString(in)");
+        case ENUM:
+          return Excerpts.add("readEnum(in, %s)", enumValues.get(scalar.type.get()));
+        case CODEC:
+          return Excerpts.add("%s.read(in)", scalar.type.get());
+      }
+      throw new AssertionError("Unexpected encoding " + scalar.encoding);
+    }
+
+    private static String valuesConstantName(QualifiedName enumType, int index) {
+      String name = enumType.getSimpleName().replaceAll("([a-z0-9])([A-Z])", "$1_$2");
+      return name.toUpperCase() + "_VALUES" + (index == 0 ? "" : "_" + index);
+    }
+
+    private static void addVarintMethods(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  private static void writeVarint(%s out, int value) throws %s {",
+              DataOutput.class, IOException.class)
+          .addLine("    while ((value & ~0x7F) != 0) {")
+          .addLine("      out.writeByte((value & 0x7F) | 0x80);")
+          .addLine("      value >>>= 7;")
+          .addLine("    }")
+          .addLine("    out.writeByte(value);")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  private static int readVarint(%s in) throws %s {",
+              DataInput.class, IOException.class)
+          .addLine("    int value = 0;")
+          .addLine("    for (int shift = 0; shift < 32; shift += 7) {")
+          .addLine("      byte b = in.readByte();")
+          .addLine("      value |= (b & 0x7F) << shift;")
+          .addLine("      if (b >= 0) {")
+          .addLine("        return value;")
+          .addLine("      }")
+          .addLine("    }")
+          .addLine("    throw new %s(\"Malformed varint\");", StreamCorruptedException.class)
+          .addLine("  }");
+    }
+
+    private static void addSignedVarintMethods(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  private static void writeSignedVarint(%s out, int value) throws %s {",
+              DataOutput.class, IOException.class)
+          .addLine("    writeVarint(out, (value << 1) ^ (value >> 31));")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  private static int readSignedVarint(%s in) throws %s {",
+              DataInput.class, IOException.class)
+          .addLine("    int value = readVarint(in);")
+          .addLine("    return (value >>> 1) ^ -(value & 1);")
+          .addLine("  }");
+    }
+
+    private static void addSignedVarlongMethods(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  private static void writeSignedVarlong(%s out, long value) throws %s {",
+              DataOutput.class, IOException.class)
+          .addLine("    long zigzag = (value << 1) ^ (value >> 63);")
+          .addLine("    while ((zigzag & ~0x7FL) != 0) {")
+          .addLine("      out.writeByte((int) ((zigzag & 0x7F) | 0x80));")
+          .addLine("      zigzag >>>= 7;")
+          .addLine("    }")
+          .addLine("    out.writeByte((int) zigzag);")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  private static long readSignedVarlong(%s in) throws %s {",
+              DataInput.class, IOException.class)
+          .addLine("    long value = 0;")
+          .addLine("    for (int shift = 0; shift < 64; shift += 7) {")
+          .addLine("      byte b = in.readByte();")
+          .addLine("      value |= (long) (b & 0x7F) << shift;")
+          .addLine("      if (b >= 0) {")
+          .addLine("        return (value >>> 1) ^ -(value & 1);")
+          .addLine("      }")
+          .addLine("    }")
+          .addLine("    throw new %s(\"Malformed varint\");", StreamCorruptedException.class)
+          .addLine("  }");
+    }
+
+    private static void addStringMethods(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  private static void writeString(%s out, String value) throws %s {",
+              DataOutput.class, IOException.class)
+          .addLine("    byte[] bytes = value.getBytes(%s.UTF_8);", StandardCharsets.class)
+          .addLine("    writeVarint(out, bytes.length);")
+          .addLine("    out.write(bytes);")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  private static String readString(%s in) throws %s {",
+              DataInput.class, IOException.class)
+          .addLine("    int length = readVarint(in);")
+          .addLine("    if (length < 0) {")
+          .addLine("      throw new %s(\"Invalid string length \" + length);",
+              StreamCorruptedException.class)
+          .addLine("    }")
+          .addLine("    // Grow the buffer as bytes arrive, so a bad length cannot exhaust memory")
+          .addLine("    byte[] bytes = new byte[Math.min(length, %s)];", STRING_CHUNK_SIZE)
+          .addLine("    in.readFully(bytes);")
+          .addLine("    while (bytes.length < length) {")
+          .addLine("      int read = bytes.length;")
+          .addLine("      bytes = %s.copyOf(bytes, (int) Math.min(length, 2L * read));",
+              Arrays.class)
+          .addLine("      in.readFully(bytes, read, bytes.length - read);")
+          .addLine("    }")
+          .addLine("    return new String(bytes, %s.UTF_8);", StandardCharsets.class)
+          .addLine("  }");
+    }
+
+    private static void addEnumMethods(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  private static <E> E readEnum(%s in, E[] values) throws %s {",
+              DataInput.class, IOException.class)
+          .addLine("    int ordinal = readVarint(in);")
+          .addLine("    if (ordinal < 0 || ordinal >= values.length) {")
+          .addLine("      throw new %s(\"Invalid enum ordinal \" + ordinal);",
+              StreamCorruptedException.class)
+          .addLine("    }")
+          .addLine("    return values[ordinal];")
+          .addLine("  }");
+    }
+
+    private static void addCountMethods(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  private static int readCount(%s in) throws %s {",
+              DataInput.class, IOException.class)
+          .addLine("    int count = readVarint(in);")
+          .addLine("    if (count < 0) {")
+          .addLine("      throw new %s(\"Invalid element count \" + count);",
+              StreamCorruptedException.class)
+          .addLine("    }")
+          .addLine("    return count;")
+          .addLine("  }");
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("datatype", datatype);
+      fields.add("fields", this.fields);
+    }
+  }
+}
@@ -26,6 +26,7 @@ import static javax.lang.model.element.Modifier.PUBLIC;
 
 import org.inferred.freebuilder.FreeBuilder;
 import org.inferred.freebuilder.processor.Datatype.Visibility;
+import org.inferred.freebuilder.processor.model.MethodFinder;
 import org.inferred.freebuilder.processor.source.Excerpt;
 import org.inferred.freebuilder.processor.source.Excerpts;
 import org.inferred.freebuilder.processor.source.Type;
@@ -138,12 +139,14 @@ public abstract class BuildableType {
      */
     if (findAnnotationMirror(element, FreeBuilder.class).isPresent()) {
       // Make sure the user isn't preventing us generating required methods.
-      if (methodIsObscured(builderMirror, elements, types, type, "build")
-         || methodIsObscured(builderMirror, elements, types, type, "buildPartial")
-         || methodIsObscured(builderMirror, elements, types, builderMirror, "clear")
+      MethodFinder methodFinder = new MethodFinder(elements);
+      if (methodIsObscured(builderMirror, methodFinder, types, type, "build")
+         || methodIsObscured(builderMirror, methodFinder, types, type, "buildPartial")
+         || methodIsObscured(builderMirror, methodFinder, types, builderMirror, "clear")
          || methodIsObscured(
-             builderMirror, elements, types, builderMirror, "mergeFrom", builderMirror)
-         || methodIsObscured(builderMirror, elements, types, builderMirror, "mergeFrom", type)) {
+             builderMirror, methodFinder, types, builderMirror, "mergeFrom", builderMirror)
+         || methodIsObscured(
+             builderMirror, methodFinder, types, builderMirror, "mergeFrom", type)) {
         return Optional.empty();
       }
     } else {
@@ -179,13 +182,13 @@ public abstract class BuildableType {
 
   private static boolean methodIsObscured(
       DeclaredType targetType,
-      Elements elements,
+      MethodFinder methodFinder,
       Types types,
       DeclaredType returnType,
       String methodName,
       DeclaredType... parameterTypes) {
     NameAndVisibility buildMethod =
-        pickName(targetType, elements, types, returnType, methodName, parameterTypes);
+        pickName(targetType, methodFinder, types, returnType, methodName, parameterTypes);
     return buildMethod.name() != methodName || buildMethod.visibility() != Visibility.PUBLIC;
   }
 
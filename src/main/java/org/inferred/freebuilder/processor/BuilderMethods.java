@@ -25,6 +25,10 @@ public class BuilderMethods {
     }
   }
 
+  public static String lazySetter(Property property) {
+    return setter(property) + "Lazily";
+  }
+
   public static String getBuilderMethod(Property property) {
     if (property.isUsingBeanConvention()) {
       return "get" + property.getCapitalizedName() + "Builder";
@@ -0,0 +1,432 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import static org.inferred.freebuilder.processor.ViewMethods.addViewMethods;
+import static org.inferred.freebuilder.processor.ViewMethods.checkViewable;
+import static org.inferred.freebuilder.processor.model.ModelUtils.maybeUnbox;
+
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import org.inferred.freebuilder.GenerateColumns;
+import org.inferred.freebuilder.processor.property.Property;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator;
+import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
+import org.inferred.freebuilder.processor.source.FieldAccess;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.ValueType;
+import org.inferred.freebuilder.processor.source.Variable;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+
+class ColumnsSupport {
+
+  /** How a single property's values are stored. */
+  private enum Storage {
+    BOOLEAN(null),
+    BYTE(ByteBuffer.class),
+    SHORT(ShortBuffer.class),
+    CHAR(CharBuffer.class),
+    INT(IntBuffer.class),
+    LONG(LongBuffer.class),
+    FLOAT(FloatBuffer.class),
+    DOUBLE(DoubleBuffer.class),
+    OBJECT(null);
+
+    /** The read-only buffer type returned by bulk accessors of primitive columns. */
+    private final Class<?> bufferType;
+
+    Storage(Class<?> bufferType) {
+      this.bufferType = bufferType;
+    }
+  }
+
+  public static Datatype.Builder columnsMetadata(
+      TypeElement type,
+      Datatype datatype,
+      Set<ExecutableElement> methods,
+      Map<Property, PropertyCodeGenerator> generatorsByProperty,
+      Types types,
+      Messager messager) {
+    Datatype.Builder extraMetadata = new Datatype.Builder();
+    if (type.getAnnotation(GenerateColumns.class) == null) {
+      return extraMetadata;
+    }
+    if (datatype.getType().isParameterized()) {
+      messager.printMessage(ERROR, "@GenerateColumns is not supported on generic types", type);
+      return extraMetadata;
+    }
+    ImmutableList.Builder<Column> columns = ImmutableList.builder();
+    boolean supported = checkViewable(
+        type, datatype, GenerateColumns.class, methods, types, messager);
+    for (Property property : generatorsByProperty.keySet()) {
+      Optional<Column> column = column(property, generatorsByProperty.get(property), types);
+      if (column.isPresent()) {
+        columns.add(column.get());
+      } else {
+        messager.printMessage(
+            ERROR,
+            "@GenerateColumns does not support property '" + property.getName()
+                + "' of type " + property.getType(),
+            type);
+        supported = false;
+      }
+    }
+    if (supported) {
+      List<Column> allColumns = columns.build();
+      extraMetadata.addNestedClasses(new Columns(datatype, allColumns));
+      extraMetadata.addNestedClasses(new ColumnsView(datatype, allColumns));
+    }
+    return extraMetadata;
+  }
+
+  private static Optional<Column> column(
+      Property property, PropertyCodeGenerator generator, Types types) {
+    TypeMirror type = maybeUnbox(property.getType(), types).orElse(property.getType());
+    return ScalarKind.of(generator, type).map(kind -> new Column(property, storage(kind), type));
+  }
+
+  private static Storage storage(ScalarKind kind) {
+    switch (kind) {
+      case BOOLEAN:
+        return Storage.BOOLEAN;
+      case BYTE:
+        return Storage.BYTE;
+      case SHORT:
+        return Storage.SHORT;
+      case CHAR:
+        return Storage.CHAR;
+      case INT:
+        return Storage.INT;
+      case LONG:
+        return Storage.LONG;
+      case FLOAT:
+        return Storage.FLOAT;
+      case DOUBLE:
+        return Storage.DOUBLE;
+      case ENUM:
+      case STRING:
+        return Storage.OBJECT;
+    }
+    throw new AssertionError("Unexpected kind " + kind);
+  }
+
+  private static final class Column extends ValueType {
+
+    private final Property property;
+    private final Storage storage;
+    /** The type of each stored value: the property type, unboxed. */
+    private final TypeMirror elementType;
+
+    private Column(Property property, Storage storage, TypeMirror elementType) {
+      this.property = property;
+      this.storage = storage;
+      this.elementType = elementType;
+    }
+
+    /** Returns the name of the field holding this column. */
+    String field() {
+      return property.getName() + "Values";
+    }
+
+    /** Returns an excerpt storing {@code value} at index {@code index}. */
+    Excerpt store(Object index, Object value) {
+      FieldAccess field = new FieldAccess(field());
+      if (storage == Storage.BOOLEAN) {
+        return Excerpts.add("%s.set(%s, %s)", field, index, value);
+      }
+      return Excerpts.add("%s[%s] = %s", field, index, value);
+    }
+
+    /** Returns an excerpt reading the value at {@code index} in the column of {@code columns}. */
+    Excerpt load(String columns, String index) {
+      if (storage == Storage.BOOLEAN) {
+        return Excerpts.add("%s.%s.get(%s)", columns, field(), index);
+      }
+      return Excerpts.add("%s.%s[%s]", columns, field(), index);
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("property", property);
+      fields.add("storage", storage);
+      fields.add("elementType", elementType);
+    }
+  }
+
+  private static final class Columns extends ValueType implements Excerpt {
+
+    private final Datatype datatype;
+    private final List<Column> columns;
+
+    private Columns(Datatype datatype, List<Column> columns) {
+      this.datatype = datatype;
+      this.columns = columns;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      code.addLine("")
+          .addLine("/**")
+          .addLine(" * Growable, columnar storage of %s values, holding each property in its own",
+              datatype.getType().javadocLink())
+          .addLine(" * array.")
+          .addLine(" *")
+          .addLine(" * <p>As the generated builder is package-protected, subclass this in your")
+          .addLine(" * type if other packages need to use it.")
+          .addLine(" */")
+          .addLine("public static class Columns {")
+          .addLine("")
+          .addLine("  private static final int DEFAULT_CAPACITY = 16;")
+          .addLine("")
+          .addLine("  private int size = 0;")
+          .addLine("  private int capacity;");
+      for (Column column : columns) {
+        if (column.storage == Storage.BOOLEAN) {
+          code.addLine("  private final %1$s %2$s = new %1$s();", BitSet.class, column.field());
+        } else {
+          code.addLine("  private %s[] %s;", column.elementType, column.field());
+        }
+      }
+      addConstructors(code);
+      code.addLine("")
+          .addLine("  /** Returns the number of values in this container. */")
+          .addLine("  public int size() {")
+          .addLine("    return size;")
+          .addLine("  }");
+      addAdd(code, false);
+      addAdd(code, true);
+      addGet(code);
+      addClear(code);
+      addColumnAccessors(code);
+      addEnsureCapacity(code);
+      code.addLine("}");
+    }
+
+    private void addConstructors(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  /** Creates an empty container. */")
+          .addLine("  public Columns() {")
+          .addLine("    this(DEFAULT_CAPACITY);")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  /**")
+          .addLine("   * Creates an empty container with room for {@code initialCapacity} values.")
+          .addLine("   *")
+          .addLine("   * @throws IllegalArgumentException if {@code initialCapacity} is negative")
+          .addLine("   */")
+          .addLine("  public Columns(int initialCapacity) {")
+          .addLine("    if (initialCapacity < 0) {")
+          .addLine("      throw new %s(\"initialCapacity must be non-negative, was \""
+              + " + initialCapacity);", IllegalArgumentException.class)
+          .addLine("    }")
+          .addLine("    capacity = initialCapacity;");
+      for (Column column : columns) {
+        if (column.storage != Storage.BOOLEAN) {
+          code.addLine("    %s = new %s[initialCapacity];", column.field(), column.elementType);
+        }
+      }
+      code.addLine("  }");
+    }
+
+    private void addAdd(SourceBuilder code, boolean fromBuilder) {
+      String name = fromBuilder ? "builder" : "value";
+      code.addLine("")
+          .addLine("  /**");
+      if (fromBuilder) {
+        code.addLine("   * Appends the current properties of {@code builder}. The builder is not")
+            .addLine("   * built, so only constraints checked by its setters apply.")
+            .addLine("   *")
+            .addLine("   * @throws IllegalStateException if a required property is unset");
+      } else {
+        code.addLine("   * Appends {@code value}.");
+      }
+      code.addLine("   */")
+          .addLine("  public void add(%s %s) {",
+              fromBuilder ? datatype.getBuilder() : datatype.getType(), name);
+      // Read every property before storing any, so a getter throwing leaves no partial row
+      List<Variable> values = new ArrayList<>();
+      for (Column column : columns) {
+        Variable value = new Variable(column.property.getName());
+        values.add(value);
+        code.addLine("    %s %s = %s.%s();",
+            column.elementType, value, name, column.property.getGetterName());
+      }
+      FieldAccess size = new FieldAccess("size");
+      code.addLine("    ensureCapacity(%s + 1);", size);
+      for (int i = 0; i < columns.size(); i++) {
+        code.addLine("    %s;", columns.get(i).store(size, values.get(i)));
+      }
+      code.addLine("    %s++;", size)
+          .addLine("  }");
+    }
+
+    private void addGet(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  /**")
+          .addLine("   * Returns a view of the value at {@code index}, which reads its properties")
+          .addLine("   * from this container. Views are invalidated by {@link #clear()}.")
+          .addLine("   *")
+          .addLine("   * @throws IndexOutOfBoundsException if {@code index} is negative, or not")
+          .addLine("   *     less than {@link #size()}")
+          .addLine("   */")
+          .addLine("  public %s get(int index) {", datatype.getType())
+          .addLine("    if (index < 0 || index >= size) {")
+          .addLine("      throw new %s(", IndexOutOfBoundsException.class)
+          .addLine("          \"index \" + index + \" out of range for size \" + size);")
+          .addLine("    }")
+          .addLine("    return new ColumnsView(this, index);")
+          .addLine("  }");
+    }
+
+    private void addClear(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  /** Removes all values from this container. */")
+          .addLine("  public void clear() {");
+      for (Column column : columns) {
+        if (column.storage == Storage.BOOLEAN) {
+          code.addLine("    %s.clear();", column.field());
+        } else if (column.storage == Storage.OBJECT) {
+          code.addLine("    %s.fill(%s, 0, size, null);", Arrays.class, column.field());
+        }
+      }
+      code.addLine("    size = 0;")
+          .addLine("  }");
+    }
+
+    private void addColumnAccessors(SourceBuilder code) {
+      for (Column column : columns) {
+        String name = column.property.getName();
+        code.addLine("");
+        switch (column.storage) {
+          case BOOLEAN:
+            code.addLine("  /** Returns a copy of the indices of values whose %s is true. */", name)
+                .addLine("  public %s %sColumn() {", BitSet.class, name)
+                .addLine("    return (%s) %s.clone();", BitSet.class, column.field())
+                .addLine("  }");
+            break;
+
+          case OBJECT:
+            code.addLine("  /** Returns a read-only view of the %s of each value added so far. */",
+                    name)
+                .addLine("  public %s<%s> %sColumn() {", List.class, column.elementType, name)
+                .addLine("    return %s.unmodifiableList(%s.asList(%s).subList(0, size));",
+                    Collections.class, Arrays.class, column.field())
+                .addLine("  }");
+            break;
+
+          default:
+            code.addLine("  /** Returns a read-only view of the %s of each value added so far. */",
+                    name)
+                .addLine("  public %s %sColumn() {", column.storage.bufferType, name)
+                .addLine("    return %s.wrap(%s, 0, size).asReadOnlyBuffer();",
+                    column.storage.bufferType, column.field())
+                .addLine("  }");
+            break;
+        }
+      }
+    }
+
+    private void addEnsureCapacity(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  private void ensureCapacity(int minCapacity) {")
+          .addLine("    if (minCapacity > capacity) {")
+          .addLine("      capacity = %s.max(minCapacity, capacity + (capacity >> 1) + 1);",
+              Math.class);
+      for (Column column : columns) {
+        if (column.storage != Storage.BOOLEAN) {
+          code.addLine("      %1$s = %2$s.copyOf(%1$s, capacity);", column.field(), Arrays.class);
+        }
+      }
+      code.addLine("    }")
+          .addLine("  }");
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("datatype", datatype);
+      fields.add("columns", columns);
+    }
+  }
+
+  private static final class ColumnsView extends ValueType implements Excerpt {
+
+    private final Datatype datatype;
+    private final List<Column> columns;
+
+    private ColumnsView(Datatype datatype, List<Column> columns) {
+      this.datatype = datatype;
+      this.columns = columns;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      code.addLine("")
+          .addLine("private static final class ColumnsView %s {",
+              Excerpts.add(datatype.isInterfaceType() ? "implements %s" : "extends %s",
+                  datatype.getType()))
+          .addLine("")
+          .addLine("  private final Columns columns;")
+          .addLine("  private final int index;")
+          .addLine("")
+          .addLine("  private ColumnsView(Columns columns, int index) {")
+          .addLine("    this.columns = columns;")
+          .addLine("    this.index = index;")
+          .addLine("  }");
+      for (Column column : columns) {
+        code.addLine("")
+            .addLine("  @%s", Override.class)
+            .addLine("  public %s %s() {",
+                column.property.getType(), column.property.getGetterName())
+            .addLine("    return %s;", column.load("columns", "index"))
+            .addLine("  }");
+      }
+      addViewMethods(
+          code, datatype, "ColumnsView", Lists.transform(columns, column -> column.property));
+      code.addLine("}");
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("datatype", datatype);
+      fields.add("columns", columns);
+    }
+  }
+}
@@ -108,6 +108,9 @@ public abstract class Datatype {
   /** Returns the Rebuildable interface that should be generated, if any. */
   public abstract Optional<TypeClass> getRebuildableType();
 
+  /** Returns the Metrics class that builds should be reported to, if any. */
+  public abstract Optional<TypeClass> getMetricsType();
+
   /** Returns the Property enum that may be generated. */
   public abstract TypeClass getPropertyEnum();
 
@@ -121,9 +124,27 @@ public abstract class Datatype {
   /** Returns whether the builder type should be serializable. */
   public abstract boolean isBuilderSerializable();
 
+  /**
+   * Returns whether the user asked for the value type to be generated as a record, where the
+   * source level and the type's properties allow.
+   */
+  public abstract boolean isRecordValueRequested();
+
+  /**
+   * Returns whether the user asked for build to return the value the builder was created from,
+   * or last built, when nothing has changed since.
+   */
+  public abstract boolean isValueReuseRequested();
+
   /** Returns whether the value type has a toBuilder method that needs to be generated. */
   public abstract boolean getHasToBuilderMethod();
 
+  /**
+   * Returns whether the value type has an {@code appendTo(StringBuilder)} method that needs to be
+   * generated, which toString will delegate to.
+   */
+  public abstract boolean getHasAppendToMethod();
+
   /** Returns the build method to be generated. */
   public abstract NameAndVisibility getBuildMethod();
 
@@ -148,6 +169,15 @@ public abstract class Datatype {
   /** Returns the visibility of the generated value class. */
   public abstract Visibility getValueTypeVisibility();
 
+  /** Returns a list of extra members that should be added to the generated value class. */
+  public abstract ImmutableList<Excerpt> getValueTypeMembers();
+
+  /** Returns a list of extra members that should be added to the generated builder class. */
+  public abstract ImmutableList<Excerpt> getBuilderMembers();
+
+  /** Returns a list of extra members that should be added to the generated partial class. */
+  public abstract ImmutableList<Excerpt> getPartialTypeMembers();
+
   /** Returns a list of nested classes that should be added to the generated builder class. */
   public abstract ImmutableList<Excerpt> getNestedClasses();
 
@@ -166,6 +196,9 @@ public abstract class Datatype {
       super.setMergeFromValueMethod(NameAndVisibility.of("mergeFrom", Visibility.PUBLIC));
       super.setValueTypeVisibility(Visibility.PRIVATE);
       super.setHasToBuilderMethod(false);
+      super.setHasAppendToMethod(false);
+      super.setRecordValueRequested(false);
+      super.setValueReuseRequested(false);
     }
 
     /**
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import static org.inferred.freebuilder.processor.BuilderMethods.clearMethod;
+
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.inferred.freebuilder.GenerateDiff;
+import org.inferred.freebuilder.processor.property.Property;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator;
+import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
+import org.inferred.freebuilder.processor.source.FieldAccess;
+import org.inferred.freebuilder.processor.source.ObjectsExcerpts;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.ValueType;
+import org.inferred.freebuilder.processor.source.Variable;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.TypeElement;
+
+class DiffSupport {
+
+  /** Methods every generated Diff declares, which a property accessor would clash with. */
+  private static final Set<String> RESERVED_DIFF_METHODS =
+      ImmutableSet.of("changedProperties", "isEmpty");
+
+  public static Datatype.Builder diffMetadata(
+      TypeElement type,
+      Datatype datatype,
+      Map<Property, PropertyCodeGenerator> generatorsByProperty,
+      Messager messager) {
+    Datatype.Builder extraMetadata = new Datatype.Builder();
+    if (type.getAnnotation(GenerateDiff.class) == null) {
+      return extraMetadata;
+    }
+    if (datatype.getType().isParameterized()) {
+      messager.printMessage(ERROR, "@GenerateDiff is not supported on generic types", type);
+      return extraMetadata;
+    }
+    if (generatorsByProperty.size() > Long.SIZE) {
+      messager.printMessage(
+          ERROR, "@GenerateDiff supports at most " + Long.SIZE + " properties", type);
+      return extraMetadata;
+    }
+    for (Property property : generatorsByProperty.keySet()) {
+      if (RESERVED_DIFF_METHODS.contains(property.getGetterName())) {
+        messager.printMessage(ERROR, "@GenerateDiff does not support a property named "
+            + property.getGetterName() + "(), as it clashes with Diff." + property.getGetterName()
+            + "()", type);
+        return extraMetadata;
+      }
+    }
+    ImmutableList.Builder<DiffProperty> properties = ImmutableList.builder();
+    generatorsByProperty.forEach((property, generator) -> properties.add(new DiffProperty(
+        property, generator, generator.isCollection())));
+    List<DiffProperty> allProperties = properties.build();
+    extraMetadata.addBuilderMembers(new DiffMethods(datatype, allProperties));
+    extraMetadata.addNestedClasses(new Diff(datatype, allProperties));
+    return extraMetadata;
+  }
+
+  private static final class DiffProperty extends ValueType {
+
+    private final Property property;
+    private final PropertyCodeGenerator generator;
+    /** Whether the builder merges into this property, so it must be cleared before patching. */
+    private final boolean collection;
+
+    private DiffProperty(Property property, PropertyCodeGenerator generator, boolean collection) {
+      this.property = property;
+      this.generator = generator;
+      this.collection = collection;
+    }
+
+    /** Returns the name of the constant holding this property's bit. */
+    String bit() {
+      return property.getAllCapsName();
+    }
+
+    /**
+     * Returns an excerpt testing whether this property is set in the bitmask {@code mask}, using
+     * {@code constants} to qualify the bit constant.
+     */
+    Excerpt isSetIn(Object mask, String constants) {
+      return Excerpts.add("(%s & %s%s) != 0", mask, constants, bit());
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("property", property);
+      fields.add("generator", generator);
+      fields.add("collection", collection);
+    }
+  }
+
+  /** The static diff and instance applyDiff methods of the generated builder. */
+  private static final class DiffMethods extends ValueType implements Excerpt {
+
+    private final Datatype datatype;
+    private final List<DiffProperty> properties;
+
+    private DiffMethods(Datatype datatype, List<DiffProperty> properties) {
+      this.datatype = datatype;
+      this.properties = properties;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      addDiff(code);
+      addApplyDiff(code);
+    }
+
+    private void addDiff(SourceBuilder code) {
+      Variable diff = new Variable("diff");
+      code.addLine("")
+          .addLine("/**")
+          .addLine(" * Returns the properties that differ between {@code before} and")
+          .addLine(" * {@code after}, with their values in {@code after}.")
+          .addLine(" *")
+          .addLine(" * @throws UnsupportedOperationException if either value is a partial with")
+          .addLine(" *     required properties unset")
+          .addLine(" */")
+          .addLine("public static Diff diff(%1$s before, %1$s after) {", datatype.getType())
+          .addLine("  Diff %1$s = new Diff();", diff);
+      for (DiffProperty property : properties) {
+        String getter = property.property.getGetterName() + "()";
+        code.addLine("  if (%s) {", ObjectsExcerpts.notEquals(
+                "before." + getter, "after." + getter, property.property.getType().getKind()))
+            .addLine("    %s._changed |= Diff.%s;", diff, property.bit())
+            .addLine("    %s.%s = after.%s;", diff, property.property.getName(), getter)
+            .addLine("  }");
+      }
+      code.addLine("  return %s;", diff)
+          .addLine("}");
+    }
+
+    private void addApplyDiff(SourceBuilder code) {
+      Excerpt self = Excerpts.add("this");
+      code.addLine("")
+          .addLine("/**")
+          .addLine(" * Sets each property that differs in {@code diff} to its new value.")
+          .addLine(" * Collection properties are replaced, not merged.")
+          .addLine(" *")
+          .addLine(" * @return this {@code %s} object", datatype.getBuilder().getSimpleName())
+          .addLine(" * @throws NullPointerException if {@code diff} is null")
+          .addLine(" */")
+          .addLine("public %s applyDiff(Diff diff) {", datatype.getBuilder());
+      for (DiffProperty property : properties) {
+        code.addLine("  if (%s) {", property.isSetIn("diff._changed", "Diff."));
+        if (property.collection) {
+          code.addLine("    %s.%s();", self, clearMethod(property.property));
+        }
+        code.add("    ");
+        property.generator.addSetFromResult(
+            code, self, Excerpts.add("diff.%s", property.property.getName()));
+        code.addLine("  }");
+      }
+      code.addLine("  return (%s) this;", datatype.getBuilder())
+          .addLine("}");
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("datatype", datatype);
+      fields.add("properties", properties);
+    }
+  }
+
+  /** The Diff class nested in the generated builder. */
+  private static final class Diff extends ValueType implements Excerpt {
+
+    private final Datatype datatype;
+    private final List<DiffProperty> properties;
+
+    private Diff(Datatype datatype, List<DiffProperty> properties) {
+      this.datatype = datatype;
+      this.properties = properties;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      code.addLine("")
+          .addLine("/**")
+          .addLine(" * The properties that differ between two %s values, with their values in the",
+              datatype.getType().javadocLink())
+          .addLine(" * second. Returned by {@code diff(before, after)}, and applied to a builder")
+          .addLine(" * by {@code applyDiff(diff)}. Serializable, so it can be sent to a replica,")
+          .addLine(" * if the changed values are.")
+          .addLine(" */")
+          .addLine("public static final class Diff implements %s {", Serializable.class)
+          .addLine("");
+      for (int i = 0; i < properties.size(); i++) {
+        DiffProperty property = properties.get(i);
+        code.addLine("  /** Set in {@link #changedProperties()} if {@code %s} differs. */",
+                property.property.getName())
+            .addLine("  public static final long %s = 1L << %s;", property.bit(), i);
+      }
+      code.addLine("")
+          .addLine("  private static final long serialVersionUID = 1L;")
+          .addLine("")
+          .addLine("  private long _changed = 0;");
+      for (DiffProperty property : properties) {
+        code.addLine("  private %s %s;", property.property.getType(), property.property.getName());
+      }
+      code.addLine("")
+          .addLine("  private Diff() {}")
+          .addLine("")
+          .addLine("  /** Returns a bitmask of the properties that differ. */")
+          .addLine("  public long changedProperties() {")
+          .addLine("    return _changed;")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  /** Returns true if no properties differ. */")
+          .addLine("  public boolean isEmpty() {")
+          .addLine("    return _changed == 0;")
+          .addLine("  }");
+      for (DiffProperty property : properties) {
+        code.addLine("")
+            .addLine("  /**")
+            .addLine("   * Returns the new value of {@code %s}.", property.property.getName())
+            .addLine("   *")
+            .addLine("   * @throws IllegalStateException if {@code %s} is unchanged",
+                property.property.getName())
+            .addLine("   */")
+            .addLine("  public %s %s() {",
+                property.property.getType(), property.property.getGetterName())
+            .addLine("    if (!(%s)) {", property.isSetIn("_changed", ""))
+            .addLine("      throw new %s(\"%s is unchanged\");",
+                IllegalStateException.class, property.property.getName())
+            .addLine("    }")
+            .addLine("    return %s;", property.property.getName())
+            .addLine("  }");
+      }
+      addEquals(code);
+      addHashCode(code);
+      addToString(code);
+      code.addLine("}");
+    }
+
+    private void addEquals(SourceBuilder code) {
+      Variable other = new Variable("other");
+      FieldAccess changed = new FieldAccess("_changed");
+      code.addLine("")
+          .addLine("  @%s", Override.class)
+          .addLine("  public boolean equals(Object obj) {")
+          .addLine("    if (!(obj instanceof Diff)) {")
+          .addLine("      return false;")
+          .addLine("    }")
+          .addLine("    Diff %s = (Diff) obj;", other)
+          .add("    return %s == %s", changed, changed.on(other));
+      for (DiffProperty property : properties) {
+        FieldAccess field = new FieldAccess(property.property.getName());
+        code.add("\n        && %s", ObjectsExcerpts.equals(
+            field, field.on(other), property.property.getType().getKind()));
+      }
+      code.add(";\n")
+          .addLine("  }");
+    }
+
+    private void addHashCode(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  @%s", Override.class)
+          .addLine("  public int hashCode() {")
+          .add("    return %s.hash(%s", Objects.class, new FieldAccess("_changed"));
+      for (DiffProperty property : properties) {
+        code.add(", %s", new FieldAccess(property.property.getName()));
+      }
+      code.add(");\n")
+          .addLine("  }");
+    }
+
+    private void addToString(SourceBuilder code) {
+      Variable result = new Variable("result");
+      Variable separator = new Variable("separator");
+      code.addLine("")
+          .addLine("  @%s", Override.class)
+          .addLine("  public %s toString() {", String.class)
+          .addLine("    %1$s %2$s = new %1$s(\"%3$s.Diff{\");",
+              StringBuilder.class, result, datatype.getType().getSimpleName())
+          .addLine("    %s %s = \"\";", String.class, separator);
+      for (DiffProperty property : properties) {
+        String name = property.property.getName();
+        code.addLine("    if (%s) {", property.isSetIn(new FieldAccess("_changed"), ""))
+            .addLine("      %s.append(%s).append(\"%s=\").append(%s);",
+                result, separator, name, new FieldAccess(name))
+            .addLine("      %s = \", \";", separator)
+            .addLine("    }");
+      }
+      code.addLine("    return %s.append(\"}\").toString();", result)
+          .addLine("  }");
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("datatype", datatype);
+      fields.add("properties", properties);
+    }
+  }
+}
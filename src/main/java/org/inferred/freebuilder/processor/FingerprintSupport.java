@@ -0,0 +1,426 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import static org.inferred.freebuilder.processor.model.ModelUtils.asElement;
+import static org.inferred.freebuilder.processor.model.ModelUtils.maybeUnbox;
+import static org.inferred.freebuilder.processor.model.ModelUtils.typeArgumentsOf;
+
+import static javax.lang.model.util.ElementFilter.methodsIn;
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import com.google.common.collect.ImmutableList;
+
+import org.inferred.freebuilder.GenerateFingerprint;
+import org.inferred.freebuilder.processor.property.Property;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator.Initially;
+import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
+import org.inferred.freebuilder.processor.source.QualifiedName;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.ValueType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+class FingerprintSupport {
+
+  private static final String METHOD = "fingerprint64";
+
+  /**
+   * Returns whether {@code method} is the {@code long fingerprint64()} method of a
+   * {@code @GenerateFingerprint} type, rather than a property getter.
+   */
+  public static boolean isFingerprintMethod(TypeElement type, ExecutableElement method) {
+    return type.getAnnotation(GenerateFingerprint.class) != null && isFingerprintMethod(method);
+  }
+
+  public static Datatype.Builder fingerprintMetadata(
+      TypeElement type,
+      Datatype datatype,
+      Set<ExecutableElement> methods,
+      Map<Property, PropertyCodeGenerator> generatorsByProperty,
+      Elements elements,
+      Types types,
+      Messager messager) {
+    Datatype.Builder extraMetadata = new Datatype.Builder();
+    if (type.getAnnotation(GenerateFingerprint.class) == null) {
+      return extraMetadata;
+    }
+    if (datatype.getType().isParameterized()) {
+      messager.printMessage(ERROR, "@GenerateFingerprint is not supported on generic types", type);
+      return extraMetadata;
+    }
+    boolean declared = methods.stream()
+        .anyMatch(method -> isFingerprintMethod(method)
+            && method.getModifiers().contains(Modifier.ABSTRACT));
+    if (!declared) {
+      messager.printMessage(
+          ERROR, "@GenerateFingerprint requires an abstract long " + METHOD + "() method", type);
+      return extraMetadata;
+    }
+    ImmutableList.Builder<Excerpt> fingerprints = ImmutableList.builder();
+    boolean supported = true;
+    for (Property property : generatorsByProperty.keySet()) {
+      if (!property.isInEqualsAndHashCode()) {
+        continue;
+      }
+      Excerpt getter = Excerpts.add("value.%s()", property.getGetterName());
+      Optional<Excerpt> fingerprint = fingerprintOf(property.getType(), getter, 1, elements, types);
+      if (fingerprint.isPresent()) {
+        boolean nullable = property.getType().getKind() == TypeKind.DECLARED
+            && !OptionalType.of(property.getType()).isPresent()
+            && generatorsByProperty.get(property).initialState() == Initially.OPTIONAL;
+        fingerprints.add(nullable
+            ? Excerpts.add("%s == null ? NULL : %s", getter, fingerprint.get())
+            : fingerprint.get());
+      } else {
+        messager.printMessage(
+            ERROR,
+            "@GenerateFingerprint does not support property '" + property.getName()
+                + "' of type " + property.getType(),
+            type);
+        supported = false;
+      }
+    }
+    if (supported) {
+      extraMetadata.addNestedClasses(new Fingerprint(datatype, fingerprints.build()));
+      extraMetadata.addValueTypeMembers(new ValueFingerprintMethod(fingerprintClass(datatype)));
+      extraMetadata.addPartialTypeMembers(
+          new PartialFingerprintMethod(fingerprintClass(datatype)));
+    }
+    return extraMetadata;
+  }
+
+  private static boolean isFingerprintMethod(ExecutableElement method) {
+    return method.getSimpleName().contentEquals(METHOD)
+        && method.getParameters().isEmpty()
+        && method.getReturnType().getKind() == TypeKind.LONG;
+  }
+
+  private static QualifiedName fingerprintClass(Datatype datatype) {
+    return datatype.getGeneratedBuilder().getQualifiedName().nestedType("Fingerprint");
+  }
+
+  /**
+   * Returns an excerpt evaluating to a {@code long} fingerprint of {@code value}, an expression of
+   * type {@code type}, within the generated Fingerprint class; or empty if {@code type} has no
+   * defined fingerprint. {@code depth} numbers the parameters of any lambdas, so nested ones do
+   * not clash.
+   */
+  private static Optional<Excerpt> fingerprintOf(
+      TypeMirror type, Excerpt value, int depth, Elements elements, Types types) {
+    switch (type.getKind()) {
+      case BOOLEAN:
+        return Optional.of(Excerpts.add("(%s ? 1 : 0)", value));
+      case BYTE:
+      case SHORT:
+      case CHAR:
+      case INT:
+      case LONG:
+        return Optional.of(value);
+      case FLOAT:
+        return Optional.of(Excerpts.add("%s.floatToIntBits(%s)", Float.class, value));
+      case DOUBLE:
+        return Optional.of(Excerpts.add("%s.doubleToLongBits(%s)", Double.class, value));
+      case DECLARED:
+        break;
+      default:
+        return Optional.empty();
+    }
+    Optional<TypeMirror> unboxedType = maybeUnbox(type, types);
+    if (unboxedType.isPresent()) {
+      return fingerprintOf(unboxedType.get(), value, depth, elements, types);
+    }
+    TypeElement element = asElement((DeclaredType) type);
+    if (element.getQualifiedName().contentEquals(String.class.getName())) {
+      return Optional.of(Excerpts.add("ofChars(%s)", value));
+    }
+    if (element.getKind() == ElementKind.ENUM) {
+      return Optional.of(Excerpts.add("ofChars(%s.name())", value));
+    }
+    if (methodsIn(elements.getAllMembers(element)).stream()
+        .anyMatch(method -> isFingerprintMethod(method)
+            && !method.getModifiers().contains(Modifier.STATIC))) {
+      return Optional.of(Excerpts.add("%s.%s()", value, METHOD));
+    }
+    Optional<OptionalType> optionalType = OptionalType.of(type);
+    if (optionalType.isPresent()) {
+      TypeMirror valueType = optionalType.get().primitiveKind()
+          .map(kind -> (TypeMirror) types.getPrimitiveType(kind))
+          .orElseGet(() -> typeArgumentsOf(
+                  type, element.getQualifiedName().toString(), elements, types)
+              .map(arguments -> arguments.get(0))
+              .orElse(null));
+      if (valueType == null) {
+        return Optional.empty();
+      }
+      Excerpt presentValue = Excerpts.add("%s.%s()", value, optionalType.get().getter());
+      return fingerprintOf(valueType, presentValue, depth, elements, types)
+          .map(present -> Excerpts.add(
+              "(%s.isPresent() ? mix(SEED, %s) : NULL)", value, present));
+    }
+    Optional<List<TypeMirror>> mapArguments =
+        typeArgumentsOf(type, Map.class.getName(), elements, types);
+    if (mapArguments.isPresent()) {
+      return fingerprintOfMap(value, mapArguments.get(), depth, elements, types);
+    }
+    Optional<List<TypeMirror>> multimapArguments =
+        typeArgumentsOf(type, "com.google.common.collect.Multimap", elements, types);
+    if (multimapArguments.isPresent()) {
+      // Hash each key's values as a Collection, without regard to order, which is consistent
+      // with the equality of any multimap
+      TypeMirror valuesType = types.getDeclaredType(
+          elements.getTypeElement(Collection.class.getName()), multimapArguments.get().get(1));
+      return fingerprintOfMap(
+          Excerpts.add("%s.asMap()", value),
+          ImmutableList.of(multimapArguments.get().get(0), valuesType),
+          depth,
+          elements,
+          types);
+    }
+    Optional<List<TypeMirror>> listArguments =
+        typeArgumentsOf(type, List.class.getName(), elements, types);
+    if (listArguments.isPresent()) {
+      return fingerprintOfElements(
+          value, listArguments.get().get(0), "ofList", depth, elements, types);
+    }
+    Optional<List<TypeMirror>> iterableArguments =
+        typeArgumentsOf(type, Iterable.class.getName(), elements, types);
+    if (iterableArguments.isPresent()) {
+      return fingerprintOfElements(
+          value, iterableArguments.get().get(0), "ofSet", depth, elements, types);
+    }
+    return Optional.empty();
+  }
+
+  private static Optional<Excerpt> fingerprintOfElements(
+      Excerpt value,
+      TypeMirror elementType,
+      String method,
+      int depth,
+      Elements elements,
+      Types types) {
+    Excerpt element = Excerpts.add("e%s", depth);
+    return fingerprintOf(elementType, element, depth + 1, elements, types)
+        .map(elementFingerprint -> Excerpts.add(
+            "%s(%s, %s -> %s)", method, value, element, elementFingerprint));
+  }
+
+  private static Optional<Excerpt> fingerprintOfMap(
+      Excerpt value, List<TypeMirror> typeArguments, int depth, Elements elements, Types types) {
+    Excerpt key = Excerpts.add("k%s", depth);
+    Excerpt mapValue = Excerpts.add("v%s", depth);
+    Optional<Excerpt> keyFingerprint =
+        fingerprintOf(typeArguments.get(0), key, depth + 1, elements, types);
+    Optional<Excerpt> valueFingerprint =
+        fingerprintOf(typeArguments.get(1), mapValue, depth + 1, elements, types);
+    if (!keyFingerprint.isPresent() || !valueFingerprint.isPresent()) {
+      return Optional.empty();
+    }
+    return Optional.of(Excerpts.add("ofMap(%s, %s -> %s, %s -> %s)",
+        value, key, keyFingerprint.get(), mapValue, valueFingerprint.get()));
+  }
+
+  /** The Fingerprint class nested in the generated builder. */
+  private static final class Fingerprint extends ValueType implements Excerpt {
+
+    private final Datatype datatype;
+    private final List<Excerpt> fingerprints;
+
+    private Fingerprint(Datatype datatype, List<Excerpt> fingerprints) {
+      this.datatype = datatype;
+      this.fingerprints = fingerprints;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      code.addLine("")
+          .addLine("/**")
+          .addLine(" * Computes the stable fingerprint of %s, mixing each property in with a",
+              datatype.getType().javadocLink())
+          .addLine(" * fixed-seed MurmurHash3.")
+          .addLine(" */")
+          .addLine("private static final class Fingerprint {")
+          .addLine("")
+          .addLine("  private static final long SEED = 0x2545F4914F6CDD1DL;")
+          .addLine("  private static final long NULL = 0x9E3779B97F4A7C15L;")
+          .addLine("")
+          .addLine("  private Fingerprint() {}")
+          .addLine("")
+          .addLine("  static long of(%s value) {", datatype.getType())
+          .addLine("    long hash = SEED;");
+      for (Excerpt fingerprint : fingerprints) {
+        code.addLine("    hash = mix(hash, %s);", fingerprint);
+      }
+      code.addLine("    return finish(hash, %s);", fingerprints.size())
+          .addLine("  }")
+          .addLine("")
+          .addLine("  /** Mixes {@code block} into {@code hash}, as one block of MurmurHash3. */")
+          .addLine("  static long mix(long hash, long block) {")
+          .addLine("    block *= 0x87C37B91114253D5L;")
+          .addLine("    block = Long.rotateLeft(block, 31);")
+          .addLine("    block *= 0x4CF5AD432745937FL;")
+          .addLine("    hash ^= block;")
+          .addLine("    return Long.rotateLeft(hash, 27) * 5 + 0x52DCE729;")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  /** Finishes a hash of {@code length} blocks, as MurmurHash3's fmix64. */")
+          .addLine("  static long finish(long hash, long length) {")
+          .addLine("    hash ^= length;")
+          .addLine("    hash ^= hash >>> 33;")
+          .addLine("    hash *= 0xFF51AFD7ED558CCDL;")
+          .addLine("    hash ^= hash >>> 33;")
+          .addLine("    hash *= 0xC4CEB9FE1A85EC53L;")
+          .addLine("    hash ^= hash >>> 33;")
+          .addLine("    return hash;")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  static long ofChars(%s chars) {", CharSequence.class)
+          .addLine("    long hash = SEED;")
+          .addLine("    int length = chars.length();")
+          .addLine("    int i = 0;")
+          .addLine("    for (; i + 4 <= length; i += 4) {")
+          .addLine("      hash = mix(hash, chars.charAt(i)")
+          .addLine("          | (long) chars.charAt(i + 1) << 16")
+          .addLine("          | (long) chars.charAt(i + 2) << 32")
+          .addLine("          | (long) chars.charAt(i + 3) << 48);")
+          .addLine("    }")
+          .addLine("    long tail = 0;")
+          .addLine("    for (int shift = 0; i < length; i++, shift += 16) {")
+          .addLine("      tail |= (long) chars.charAt(i) << shift;")
+          .addLine("    }")
+          .addLine("    return finish(mix(hash, tail), length);")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  static <E> long ofList(%s<E> elements, %s<? super E> fingerprint) {",
+              Iterable.class, ToLongFunction.class)
+          .addLine("    long hash = SEED;")
+          .addLine("    long size = 0;")
+          .addLine("    for (E element : elements) {")
+          .addLine("      hash = mix(hash, fingerprint.applyAsLong(element));")
+          .addLine("      size++;")
+          .addLine("    }")
+          .addLine("    return finish(hash, size);")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  static <E> long ofSet(%s<E> elements, %s<? super E> fingerprint) {",
+              Iterable.class, ToLongFunction.class)
+          .addLine("    // Sum the finished element hashes, so iteration order does not matter")
+          .addLine("    long sum = 0;")
+          .addLine("    long size = 0;")
+          .addLine("    for (E element : elements) {")
+          .addLine("      sum += finish(fingerprint.applyAsLong(element), 1);")
+          .addLine("      size++;")
+          .addLine("    }")
+          .addLine("    return finish(mix(SEED, sum), size);")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  static <K, V> long ofMap(")
+          .addLine("      %s<K, V> map,", Map.class)
+          .addLine("      %s<? super K> keyFingerprint,", ToLongFunction.class)
+          .addLine("      %s<? super V> valueFingerprint) {", ToLongFunction.class)
+          .addLine("    // Sum the finished entry hashes, so iteration order does not matter")
+          .addLine("    long sum = 0;")
+          .addLine("    for (%s.Entry<K, V> entry : map.entrySet()) {", Map.class)
+          .addLine("      long hash = mix(SEED, keyFingerprint.applyAsLong(entry.getKey()));")
+          .addLine("      hash = mix(hash, valueFingerprint.applyAsLong(entry.getValue()));")
+          .addLine("      sum += finish(hash, 2);")
+          .addLine("    }")
+          .addLine("    return finish(mix(SEED, sum), map.size());")
+          .addLine("  }")
+          .addLine("}");
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("datatype", datatype);
+      fields.add("fingerprints", fingerprints);
+    }
+  }
+
+  /** The value type's fingerprint64 method, caching its result. */
+  private static final class ValueFingerprintMethod extends ValueType implements Excerpt {
+
+    private final QualifiedName fingerprintClass;
+
+    private ValueFingerprintMethod(QualifiedName fingerprintClass) {
+      this.fingerprintClass = fingerprintClass;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  private transient volatile long _%s;", METHOD)
+          .addLine("")
+          .addLine("  @%s", Override.class)
+          .addLine("  public long %s() {", METHOD)
+          .addLine("    // Zero marks an uncomputed fingerprint; a true zero is just recomputed")
+          .addLine("    long fingerprint = _%s;", METHOD)
+          .addLine("    if (fingerprint == 0) {")
+          .addLine("      fingerprint = %s.of(this);", fingerprintClass)
+          .addLine("      _%s = fingerprint;", METHOD)
+          .addLine("    }")
+          .addLine("    return fingerprint;")
+          .addLine("  }");
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("fingerprintClass", fingerprintClass);
+    }
+  }
+
+  /** The partial type's fingerprint64 method, which throws if a required property is unset. */
+  private static final class PartialFingerprintMethod extends ValueType implements Excerpt {
+
+    private final QualifiedName fingerprintClass;
+
+    private PartialFingerprintMethod(QualifiedName fingerprintClass) {
+      this.fingerprintClass = fingerprintClass;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  @%s", Override.class)
+          .addLine("  public long %s() {", METHOD)
+          .addLine("    return %s.of(this);", fingerprintClass)
+          .addLine("  }");
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("fingerprintClass", fingerprintClass);
+    }
+  }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import static org.inferred.freebuilder.processor.ViewMethods.addViewMethods;
+import static org.inferred.freebuilder.processor.ViewMethods.checkViewable;
+import static org.inferred.freebuilder.processor.model.ModelUtils.asElement;
+import static org.inferred.freebuilder.processor.model.ModelUtils.maybeUnbox;
+
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import org.inferred.freebuilder.GenerateFlyweight;
+import org.inferred.freebuilder.processor.property.Property;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator;
+import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
+import org.inferred.freebuilder.processor.source.QualifiedName;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.ValueType;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+
+class FlyweightSupport {
+
+  /** How a single property is stored, and how many bytes it occupies. */
+  private enum Encoding {
+    BOOLEAN(1, "", "%s != 0", "(byte) (%s ? 1 : 0)"),
+    BYTE(1, "", "%s", "%s"),
+    SHORT(2, "Short", "%s", "%s"),
+    CHAR(2, "Char", "%s", "%s"),
+    INT(4, "Int", "%s", "%s"),
+    FLOAT(4, "Float", "%s", "%s"),
+    LONG(8, "Long", "%s", "%s"),
+    DOUBLE(8, "Double", "%s", "%s"),
+    /** Ordinal of an enum with at most 256 constants, stored unsigned. */
+    SMALL_ENUM(1, "", "%s & 0xFF", "(byte) %s.ordinal()"),
+    /** Ordinal of an enum with at most 65536 constants, stored as an unsigned char. */
+    ENUM(2, "Char", "%s", "(char) %s.ordinal()"),
+    LARGE_ENUM(4, "Int", "%s", "%s.ordinal()");
+
+    private final int size;
+    /** Suffix of the ByteBuffer get/put methods, e.g. getInt. */
+    private final String accessor;
+    /** Format converting the raw value read from the buffer. */
+    private final String decode;
+    /** Format converting the property value to the raw value put into the buffer. */
+    private final String encode;
+
+    Encoding(int size, String accessor, String decode, String encode) {
+      this.size = size;
+      this.accessor = accessor;
+      this.decode = decode;
+      this.encode = encode;
+    }
+
+    boolean isEnum() {
+      return this == SMALL_ENUM || this == ENUM || this == LARGE_ENUM;
+    }
+  }
+
+  public static Datatype.Builder flyweightMetadata(
+      TypeElement type,
+      Datatype datatype,
+      Set<ExecutableElement> methods,
+      Map<Property, PropertyCodeGenerator> generatorsByProperty,
+      Types types,
+      Messager messager) {
+    Datatype.Builder extraMetadata = new Datatype.Builder();
+    if (type.getAnnotation(GenerateFlyweight.class) == null) {
+      return extraMetadata;
+    }
+    if (datatype.getType().isParameterized()) {
+      messager.printMessage(ERROR, "@GenerateFlyweight is not supported on generic types", type);
+      return extraMetadata;
+    }
+    List<Slot> slots = new ArrayList<>();
+    boolean supported = checkViewable(
+        type, datatype, GenerateFlyweight.class, methods, types, messager);
+    for (Property property : generatorsByProperty.keySet()) {
+      Optional<Slot> slot = slot(property, generatorsByProperty.get(property), types);
+      if (slot.isPresent()) {
+        slots.add(slot.get());
+      } else {
+        messager.printMessage(
+            ERROR,
+            "@GenerateFlyweight does not support property '" + property.getName()
+                + "' of type " + property.getType(),
+            type);
+        supported = false;
+      }
+    }
+    if (supported) {
+      extraMetadata.addNestedClasses(new Flyweight(datatype, layOut(slots)));
+    }
+    return extraMetadata;
+  }
+
+  private static Optional<Slot> slot(
+      Property property, PropertyCodeGenerator generator, Types types) {
+    TypeMirror type = maybeUnbox(property.getType(), types).orElse(property.getType());
+    Optional<ScalarKind> kind = ScalarKind.of(generator, type);
+    if (!kind.isPresent()) {
+      return Optional.empty();
+    }
+    switch (kind.get()) {
+      case BOOLEAN:
+        return Optional.of(new Slot(property, Encoding.BOOLEAN, Optional.empty()));
+      case BYTE:
+        return Optional.of(new Slot(property, Encoding.BYTE, Optional.empty()));
+      case SHORT:
+        return Optional.of(new Slot(property, Encoding.SHORT, Optional.empty()));
+      case CHAR:
+        return Optional.of(new Slot(property, Encoding.CHAR, Optional.empty()));
+      case INT:
+        return Optional.of(new Slot(property, Encoding.INT, Optional.empty()));
+      case FLOAT:
+        return Optional.of(new Slot(property, Encoding.FLOAT, Optional.empty()));
+      case LONG:
+        return Optional.of(new Slot(property, Encoding.LONG, Optional.empty()));
+      case DOUBLE:
+        return Optional.of(new Slot(property, Encoding.DOUBLE, Optional.empty()));
+      case ENUM:
+        break;
+      default:
+        return Optional.empty();
+    }
+    TypeElement element = asElement((DeclaredType) type);
+    long constants = element.getEnclosedElements()
+        .stream()
+        .map(Element::getKind)
+        .filter(elementKind -> elementKind == ElementKind.ENUM_CONSTANT)
+        .count();
+    Encoding encoding = (constants <= 0x100)
+        ? Encoding.SMALL_ENUM
+        : (constants <= 0x10000) ? Encoding.ENUM : Encoding.LARGE_ENUM;
+    return Optional.of(new Slot(property, encoding, Optional.of(QualifiedName.of(element))));
+  }
+
+  /**
+   * Assigns each slot an offset, widest first, so every slot is naturally aligned whenever the
+   * value itself is. Returns the slots in declaration order.
+   */
+  private static List<Slot> layOut(List<Slot> slots) {
+    Map<Property, Integer> offsets = new LinkedHashMap<>();
+    int offset = 0;
+    List<Slot> widestFirst = new ArrayList<>(slots);
+    widestFirst.sort(Comparator.comparing((Slot slot) -> slot.encoding.size).reversed());
+    for (Slot slot : widestFirst) {
+      offsets.put(slot.property, offset);
+      offset += slot.encoding.size;
+    }
+    ImmutableList.Builder<Slot> result = ImmutableList.builder();
+    for (Slot slot : slots) {
+      result.add(slot.at(offsets.get(slot.property)));
+    }
+    return result.build();
+  }
+
+  private static final class Slot extends ValueType {
+
+    private final Property property;
+    private final Encoding encoding;
+    /** The enum type, for enum encodings. */
+    private final Optional<QualifiedName> enumType;
+    private final int offset;
+
+    private Slot(Property property, Encoding encoding, Optional<QualifiedName> enumType) {
+      this(property, encoding, enumType, 0);
+    }
+
+    private Slot(
+        Property property, Encoding encoding, Optional<QualifiedName> enumType, int offset) {
+      this.property = property;
+      this.encoding = encoding;
+      this.enumType = enumType;
+      this.offset = offset;
+    }
+
+    Slot at(int offset) {
+      return new Slot(property, encoding, enumType, offset);
+    }
+
+    /** Returns an excerpt of the buffer position of this slot. */
+    Excerpt position() {
+      return (offset == 0) ? Excerpts.add("offset") : Excerpts.add("offset + %s", offset);
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("property", property);
+      fields.add("encoding", encoding);
+      fields.add("enumType", enumType);
+      fields.add("offset", offset);
+    }
+  }
+
+  private static final class Flyweight extends ValueType implements Excerpt {
+
+    private final Datatype datatype;
+    private final List<Slot> slots;
+
+    private Flyweight(Datatype datatype, List<Slot> slots) {
+      this.datatype = datatype;
+      this.slots = slots;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      Map<QualifiedName, String> enumValues = new LinkedHashMap<>();
+      int size = 0;
+      for (Slot slot : slots) {
+        size += slot.encoding.size;
+        slot.enumType.ifPresent(enumType -> {
+          if (!enumValues.containsKey(enumType)) {
+            enumValues.put(enumType, valuesConstantName(enumType, enumValues.size()));
+          }
+        });
+      }
+      code.addLine("")
+          .addLine("/**")
+          .addLine(" * Fixed-width view of a %s encoded in a {@link %s}.",
+              datatype.getType().javadocLink(), ByteBuffer.class)
+          .addLine(" *")
+          .addLine(" * <p>Each property is decoded when its getter is called, using absolute")
+          .addLine(" * reads, so views never change the buffer's position. Flyweights are only")
+          .addLine(" * equal to other flyweights.")
+          .addLine(" */")
+          .addLine("public static final class Flyweight %s {",
+              Excerpts.add(datatype.isInterfaceType() ? "implements %s" : "extends %s",
+                  datatype.getType()))
+          .addLine("")
+          .addLine("  /** The number of bytes each encoded value occupies. */")
+          .addLine("  public static final int SIZE = %s;", size)
+          .addLine("");
+      enumValues.forEach((enumType, constant) -> {
+        code.addLine("  private static final %s[] %s = %s.values();", enumType, constant, enumType);
+      });
+      if (!enumValues.isEmpty()) {
+        code.addLine("");
+      }
+      code.addLine("  private final %s buffer;", ByteBuffer.class)
+          .addLine("  private final int offset;")
+          .addLine("")
+          .addLine("  private Flyweight(%s buffer, int offset) {", ByteBuffer.class)
+          .addLine("    this.buffer = buffer;")
+          .addLine("    this.offset = offset;")
+          .addLine("  }");
+      addAt(code);
+      addWrite(code);
+      addGetters(code, enumValues);
+      addViewMethods(code, datatype, "Flyweight", Lists.transform(slots, slot -> slot.property));
+      code.addLine("}");
+    }
+
+    private static void addAt(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  /**")
+          .addLine("   * Returns a view of the value encoded at {@code offset} in {@code buffer}.")
+          .addLine("   *")
+          .addLine("   * @throws IndexOutOfBoundsException if fewer than {@link #SIZE} bytes of")
+          .addLine("   *     {@code buffer} follow {@code offset}")
+          .addLine("   */")
+          .addLine("  public static Flyweight at(%s buffer, int offset) {", ByteBuffer.class)
+          .addLine("    if (offset < 0 || offset > buffer.limit() - SIZE) {")
+          .addLine("      throw new %s(", IndexOutOfBoundsException.class)
+          .addLine("          \"No \" + SIZE + \"-byte value at offset \" + offset")
+          .addLine("              + \" of a buffer with limit \" + buffer.limit());")
+          .addLine("    }")
+          .addLine("    return new Flyweight(buffer, offset);")
+          .addLine("  }");
+    }
+
+    private void addWrite(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  /**")
+          .addLine("   * Writes {@code value} to the {@link #SIZE} bytes at {@code offset} in")
+          .addLine("   * {@code buffer}, without changing its position.")
+          .addLine("   */")
+          .addLine("  public static void write(%s value, %s buffer, int offset) {",
+              datatype.getType(), ByteBuffer.class);
+      for (Slot slot : slots) {
+        Excerpt getter = Excerpts.add("value.%s()", slot.property.getGetterName());
+        code.addLine("    buffer.put%s(%s, %s);",
+            slot.encoding.accessor,
+            slot.position(),
+            Excerpts.add(slot.encoding.encode, getter));
+      }
+      code.addLine("  }");
+    }
+
+    private void addGetters(SourceBuilder code, Map<QualifiedName, String> enumValues) {
+      for (Slot slot : slots) {
+        Excerpt raw = Excerpts.add("buffer.get%s(%s)", slot.encoding.accessor, slot.position());
+        Excerpt decoded = Excerpts.add(slot.encoding.decode, raw);
+        if (slot.encoding.isEnum()) {
+          decoded = Excerpts.add("%s[%s]", enumValues.get(slot.enumType.get()), decoded);
+        }
+        code.addLine("")
+            .addLine("  @%s", Override.class)
+            .addLine("  public %s %s() {", slot.property.getType(), slot.property.getGetterName())
+            .addLine("    return %s;", decoded)
+            .addLine("  }");
+      }
+    }
+
+    private static String valuesConstantName(QualifiedName enumType, int index) {
+      String name = enumType.getSimpleName().replaceAll("([a-z0-9])([A-Z])", "$1_$2");
+      return name.toUpperCase() + "_VALUES" + (index == 0 ? "" : "_" + index);
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("datatype", datatype);
+      fields.add("slots", slots);
+    }
+  }
+}
@@ -19,11 +19,13 @@ import static org.inferred.freebuilder.processor.BuilderFactory.TypeInference.EX
 import static org.inferred.freebuilder.processor.BuilderFactory.TypeInference.INFERRED_TYPES;
 import static org.inferred.freebuilder.processor.Datatype.UnderrideLevel.ABSENT;
 import static org.inferred.freebuilder.processor.Datatype.UnderrideLevel.FINAL;
+import static org.inferred.freebuilder.processor.ToStringGenerator.addAppendTo;
 import static org.inferred.freebuilder.processor.ToStringGenerator.addToString;
 import static org.inferred.freebuilder.processor.property.DefaultProperty.UNSET_PROPERTIES;
 import static org.inferred.freebuilder.processor.property.MergeAction.addActionsTo;
 import static org.inferred.freebuilder.processor.source.LazyName.addLazyDefinitions;
 import static org.inferred.freebuilder.processor.source.feature.GuavaLibrary.GUAVA;
+import static org.inferred.freebuilder.processor.source.feature.SourceLevel.SOURCE_LEVEL;
 
 import static java.util.stream.Collectors.toSet;
 
@@ -46,6 +48,8 @@ import org.inferred.freebuilder.processor.source.TypeClass;
 import org.inferred.freebuilder.processor.source.Variable;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
@@ -56,6 +60,8 @@ import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.lang.model.type.TypeKind;
+
 /**
  * Code generation for the &#64;{@link FreeBuilder} annotation.
  */
@@ -105,6 +111,7 @@ public class GeneratedBuilder extends GeneratedType {
     addClearMethod(code);
     addBuildMethod(code);
     addBuildPartialMethod(code);
+    datatype.getBuilderMembers().forEach(code::add);
 
     addRebuildableSuperclass(code);
     addValueType(code);
@@ -166,6 +173,36 @@ public class GeneratedBuilder extends GeneratedType {
               EnumSet.class, datatype.getPropertyEnum(), UNSET_PROPERTIES)
           .addLine("    %s.allOf(%s.class);", EnumSet.class, datatype.getPropertyEnum());
     }
+    if (unchangedSinceSource(code).isPresent()) {
+      code.addLine("// The value this builder last built, or was created from by toBuilder, if any")
+          .addLine("private %s%s %s;",
+              datatype.isBuilderSerializable() ? "transient " : "",
+              datatype.getValueType(),
+              SOURCE);
+    }
+  }
+
+  /**
+   * Returns conditions that together hold if the builder's fields are unchanged since the value
+   * in {@link #SOURCE}, checked without constructing anything; or empty if the user has not
+   * asked for unchanged values to be reused, or some property cannot be compared cheaply, in
+   * which case build always returns a new value.
+   */
+  private Optional<List<Excerpt>> unchangedSinceSource(SourceBuilder code) {
+    if (!datatype.isValueReuseRequested()
+        || !datatype.getBuilderFactory().isPresent()
+        || (!datatype.getHasToBuilderMethod() && !datatype.getRebuildableType().isPresent())) {
+      return Optional.empty();
+    }
+    List<Excerpt> conditions = new ArrayList<>();
+    for (PropertyCodeGenerator generator : generatorsByProperty.values()) {
+      Optional<Excerpt> condition = generator.unchangedSince(code, SOURCE);
+      if (!condition.isPresent()) {
+        return Optional.empty();
+      }
+      conditions.add(condition.get());
+    }
+    return Optional.of(conditions);
   }
 
   private void addAccessors(SourceBuilder body) {
@@ -174,10 +211,20 @@ public class GeneratedBuilder extends GeneratedType {
 
   private void addBuildMethod(SourceBuilder code) {
     boolean hasRequiredProperties = generatorsByProperty.values().stream().anyMatch(IS_REQUIRED);
+    Variable value = new Variable("value");
+    Optional<List<Excerpt>> unchanged = unchangedSinceSource(code);
     code.addLine("")
-        .addLine("/**")
-        .addLine(" * Returns a newly-created %s based on the contents of this {@code %s}.",
-            datatype.getType().javadocLink(), datatype.getBuilder().getSimpleName());
+        .addLine("/**");
+    if (unchanged.isPresent()) {
+      code.addLine(" * Returns a %s based on the contents of this {@code %s}.",
+              datatype.getType().javadocLink(), datatype.getBuilder().getSimpleName())
+          .addLine(" *")
+          .addLine(" * <p>If nothing has changed since this builder last built a value, or was")
+          .addLine(" * created from one by {@code toBuilder}, that value is returned again.");
+    } else {
+      code.addLine(" * Returns a newly-created %s based on the contents of this {@code %s}.",
+          datatype.getType().javadocLink(), datatype.getBuilder().getSimpleName());
+    }
     if (hasRequiredProperties) {
       code.addLine(" *")
           .addLine(" * @throws IllegalStateException if any field has not been set");
@@ -187,12 +234,79 @@ public class GeneratedBuilder extends GeneratedType {
             datatype.getBuildMethod().visibility(),
             datatype.getType(),
             datatype.getBuildMethod().name());
-    if (hasRequiredProperties) {
-      code.add(PreconditionExcerpts.checkState(
-          "%1$s.isEmpty()", "Not set: %1$s", UNSET_PROPERTIES));
+    Excerpt newValue = newValueFromBuilder(code);
+    if (datatype.getMetricsType().isPresent()) {
+      // Count every failure, whether of a required property or a constraint in the value type
+      Variable e = new Variable("e");
+      code.addLine("  %s %s;", datatype.getValueType(), value)
+          .addLine("  try {");
+      if (hasRequiredProperties) {
+        code.add(PreconditionExcerpts.checkState(
+            "%1$s.isEmpty()", "Not set: %1$s", UNSET_PROPERTIES));
+      }
+      if (unchanged.isPresent()) {
+        addUnchangedCheck(code, "    ", unchanged.get());
+        code.addLine("      %s = %s;", value, SOURCE)
+            .addLine("    } else {")
+            .addLine("      %s = %s;", value, newValue)
+            .addLine("      %s = %s;", SOURCE, value)
+            .addLine("    }");
+      } else {
+        code.addLine("    %s = %s;", value, newValue);
+      }
+      code.addLine("  } catch (%s %s) {", RuntimeException.class, e);
+      addMetricsEvent(code, "    ", Excerpts.add("buildFailed(%s.getMessage())", e));
+      code.addLine("    throw %s;", e)
+          .addLine("  }");
+      addMetricsEvent(code, "  ", Excerpts.add("built(%s)", value));
+      code.addLine("  return %s;", value);
+    } else {
+      if (hasRequiredProperties) {
+        code.add(PreconditionExcerpts.checkState(
+            "%1$s.isEmpty()", "Not set: %1$s", UNSET_PROPERTIES));
+      }
+      if (unchanged.isPresent()) {
+        addUnchangedCheck(code, "  ", unchanged.get());
+        code.addLine("    return %s;", SOURCE)
+            .addLine("  }")
+            .addLine("  %s %s = %s;", datatype.getValueType(), value, newValue)
+            .addLine("  %s = %s;", SOURCE, value)
+            .addLine("  return %s;", value);
+      } else {
+        code.addLine("  return %s;", newValue);
+      }
     }
-    code.addLine("  return %s(this);", datatype.getValueType().constructor())
-        .addLine("}");
+    code.addLine("}");
+  }
+
+  /**
+   * Opens an if statement that holds if {@link #SOURCE} is set and the builder's fields are
+   * unchanged since, so build can return it without constructing a new value.
+   */
+  private static void addUnchangedCheck(
+      SourceBuilder code, String indent, List<Excerpt> unchanged) {
+    code.add("%sif (%s != null", indent, SOURCE);
+    unchanged.forEach(condition -> code.add("\n%s    && %s", indent, condition));
+    code.add(") {\n");
+  }
+
+  /** Returns an excerpt creating a value type instance from the builder's current state. */
+  private Excerpt newValueFromBuilder(SourceBuilder code) {
+    if (valueTypeIsRecord(code)) {
+      return Excerpts.add("%s.of(this)", datatype.getValueType().getQualifiedName());
+    }
+    return Excerpts.add("%s(this)", datatype.getValueType().constructor());
+  }
+
+  /**
+   * Adds a call to the Metrics class, if any, guarded by its ENABLED constant, so the JIT removes
+   * the call entirely when metrics are off.
+   */
+  private void addMetricsEvent(SourceBuilder code, String indent, Excerpt call) {
+    datatype.getMetricsType().ifPresent(metrics -> code
+        .addLine("%sif (%s.ENABLED) {", indent, metrics)
+        .addLine("%s  %s.%s;", indent, metrics, call)
+        .addLine("%s}", indent));
   }
 
   private void addMergeFromValueMethod(SourceBuilder code) {
@@ -208,6 +322,7 @@ public class GeneratedBuilder extends GeneratedType {
             datatype.getBuilder(),
             datatype.getMergeFromValueMethod().name(),
             datatype.getType());
+    addMetricsEvent(code, "  ", Excerpts.add("merged()"));
     generatorsByProperty.values().forEach(generator -> generator.addMergeFromValue(code, "value"));
     code.addLine("  return (%s) this;", datatype.getBuilder())
         .addLine("}");
@@ -225,6 +340,7 @@ public class GeneratedBuilder extends GeneratedType {
             datatype.getMergeFromBuilderMethod().visibility(),
             datatype.getBuilder(),
             datatype.getMergeFromBuilderMethod().name());
+    addMetricsEvent(code, "  ", Excerpts.add("merged()"));
     generatorsByProperty.values().forEach(generator -> {
       generator.addMergeFromBuilder(code, "template");
     });
@@ -296,10 +412,11 @@ public class GeneratedBuilder extends GeneratedType {
       code.addLine("@%s()", VisibleForTesting.class);
     }
     code.addLine("%s%s %s() {",
-            datatype.getBuildPartialMethod().visibility(),
-            datatype.getType(),
-            datatype.getBuildPartialMethod().name())
-        .addLine("  return %s(this);", datatype.getPartialType().constructor())
+        datatype.getBuildPartialMethod().visibility(),
+        datatype.getType(),
+        datatype.getBuildPartialMethod().name());
+    addMetricsEvent(code, "  ", Excerpts.add("builtPartial()"));
+    code.addLine("  return %s(this);", datatype.getPartialType().constructor())
         .addLine("}");
   }
 
@@ -328,6 +445,15 @@ public class GeneratedBuilder extends GeneratedType {
 
   private void addRebuildableSuperclass(SourceBuilder code) {
     datatype.getRebuildableType().ifPresent(rebuildable -> {
+      if (valueTypeIsRecord(code)) {
+        // Records cannot extend classes
+        code.addLine("")
+            .addLine("private interface %s extends %s {",
+                rebuildable.declaration(), datatype.getType())
+            .addLine("  %s toBuilder();", datatype.getBuilder())
+            .addLine("}");
+        return;
+      }
       code.addLine("")
           .addLine("private abstract static class %s %s {",
               rebuildable.declaration(), extending(datatype.getType(), datatype.isInterfaceType()))
@@ -337,23 +463,43 @@ public class GeneratedBuilder extends GeneratedType {
   }
 
   private void addValueType(SourceBuilder code) {
+    boolean isRecord = valueTypeIsRecord(code);
     code.addLine("");
     datatype.getValueTypeAnnotations().forEach(code::add);
-    code.addLine("%s static final class %s %s {",
-        datatype.getValueTypeVisibility(),
-        datatype.getValueType().declaration(),
-        datatype.getRebuildableType()
-            .map(rebuildable -> extending(rebuildable, false))
-            .orElse(extending(datatype.getType(), datatype.isInterfaceType())));
-    generatorsByProperty.values().forEach(generator -> generator.addValueFieldDeclaration(code));
-    addValueTypeConstructor(code);
+    if (isRecord) {
+      code.add("%srecord %s(",
+          datatype.getValueTypeVisibility(), datatype.getValueType().declaration());
+      String separator = "";
+      for (Property property : generatorsByProperty.keySet()) {
+        code.add("%s%s %s", separator, property.getType(), property.getName());
+        separator = ", ";
+      }
+      code.add(") %s {\n", datatype.getRebuildableType()
+          .map(rebuildable -> extending(rebuildable, true))
+          .orElse(extending(datatype.getType(), true)));
+      addValueTypeFactory(code);
+    } else {
+      code.addLine("%s static final class %s %s {",
+          datatype.getValueTypeVisibility(),
+          datatype.getValueType().declaration(),
+          datatype.getRebuildableType()
+              .map(rebuildable -> extending(rebuildable, false))
+              .orElse(extending(datatype.getType(), datatype.isInterfaceType())));
+      generatorsByProperty.values().forEach(generator -> generator.addValueFieldDeclaration(code));
+      addValueTypeConstructor(code);
+    }
     addValueTypeGetters(code);
     if (datatype.getHasToBuilderMethod() || datatype.getRebuildableType().isPresent()) {
       addValueTypeToBuilder(code);
     }
+    // A record's own equals and hashCode compare every component
+    boolean recordEquality = isRecord
+        && generatorsByProperty.keySet().stream().allMatch(Property::isInEqualsAndHashCode);
     switch (datatype.standardMethodUnderride(StandardMethod.EQUALS)) {
       case ABSENT:
-        addValueTypeEquals(code);
+        if (!recordEquality) {
+          addValueTypeEquals(code);
+        }
         break;
 
       case OVERRIDEABLE:
@@ -365,13 +511,17 @@ public class GeneratedBuilder extends GeneratedType {
         break;
     }
     // Hash code
-    if (datatype.standardMethodUnderride(StandardMethod.HASH_CODE) == ABSENT) {
+    if (datatype.standardMethodUnderride(StandardMethod.HASH_CODE) == ABSENT && !recordEquality) {
       addValueTypeHashCode(code);
     }
     // toString
+    if (datatype.getHasAppendToMethod()) {
+      addAppendTo(code, datatype, generatorsByProperty, false);
+    }
     if (datatype.standardMethodUnderride(StandardMethod.TO_STRING) == ABSENT) {
       addToString(code, datatype, generatorsByProperty, false);
     }
+    datatype.getValueTypeMembers().forEach(code::add);
     code.addLine("}");
   }
 
@@ -386,6 +536,50 @@ public class GeneratedBuilder extends GeneratedType {
     code.addLine("  }");
   }
 
+  /**
+   * Adds a static factory method creating a record value from a builder. Unlike classes, records
+   * cannot assign their fields in a constructor taking the builder.
+   */
+  private void addValueTypeFactory(SourceBuilder code) {
+    code.addLine("")
+        .addLine("  private static %s %s of(%s builder) {",
+            datatype.getValueType().declarationParameters(),
+            datatype.getValueType(),
+            datatype.getGeneratedBuilder());
+    List<Variable> components = new ArrayList<>();
+    generatorsByProperty.forEach((property, generator) -> {
+      Variable component = new Variable(property.getName());
+      code.addLine("    %s %s;", property.getType(), component);
+      generator.addFinalFieldAssignment(code, component, "builder");
+      components.add(component);
+    });
+    code.add("    return %s(", datatype.getValueType().constructor());
+    String separator = "";
+    for (Variable component : components) {
+      code.add("%s%s", separator, component);
+      separator = ", ";
+    }
+    code.add(");\n")
+        .addLine("  }");
+  }
+
+  /**
+   * Returns whether the value type should be declared as a record. This changes its hashCode and
+   * serialized form, so the user must opt in. Records cannot extend classes, so the type must be
+   * an interface; nor declare instance fields beyond their components, so every getter must be
+   * the accessor of a component.
+   */
+  private boolean valueTypeIsRecord(SourceBuilder code) {
+    return datatype.isRecordValueRequested()
+        && code.feature(SOURCE_LEVEL).hasRecords()
+        && datatype.isInterfaceType()
+        && datatype.getValueTypeAnnotations().isEmpty()
+        && datatype.getValueTypeMembers().isEmpty()
+        && generatorsByProperty.entrySet().stream().allMatch(entry ->
+            entry.getValue().isRecordComponent()
+                && entry.getKey().getGetterName().equals(entry.getKey().getName()));
+  }
+
   private void addValueTypeGetters(SourceBuilder code) {
     generatorsByProperty.forEach((property, generator) -> {
       code.addLine("")
@@ -407,6 +601,7 @@ public class GeneratedBuilder extends GeneratedType {
         .addLine("  public %s toBuilder() {", datatype.getBuilder());
     BuilderFactory builderFactory = datatype.getBuilderFactory().orElse(null);
     if (builderFactory != null) {
+      addMetricsEvent(code, "    ", Excerpts.add("copiedToBuilder()"));
       Variable builder = new Variable("builder");
       code.addLine("    %s %s = %s;",
           datatype.getGeneratedBuilder(),
@@ -418,6 +613,9 @@ public class GeneratedBuilder extends GeneratedType {
       if (hasRequiredProperties) {
         code.addLine("    %s.clear();", UNSET_PROPERTIES.on(builder));
       }
+      if (unchangedSinceSource(code).isPresent()) {
+        code.addLine("    %s = this;", SOURCE.on(builder));
+      }
       code.addLine("    return (%s) %s;", datatype.getBuilder(), builder);
     } else {
       code.addLine("    throw new %s();", UnsupportedOperationException.class);
@@ -430,24 +628,20 @@ public class GeneratedBuilder extends GeneratedType {
     code.addLine("")
         .addLine("  @%s", Override.class)
         .addLine("  public boolean equals(Object obj) {")
+        .addLine("    if (obj == this) {")
+        .addLine("      return true;")
+        .addLine("    }")
         .addLine("    if (!(obj instanceof %s)) {", datatype.getValueType().getQualifiedName())
         .addLine("      return false;")
         .addLine("    }")
         .addLine("    %1$s other = (%1$s) obj;", datatype.getValueType().withWildcards());
-    List<Property> properties = generatorsByProperty.keySet()
-        .stream()
-        .filter(Property::isInEqualsAndHashCode)
-        .collect(Collectors.toList());
-    if (properties.isEmpty()) {
+    List<Excerpt> checks = getEqualityChecks();
+    if (checks.isEmpty()) {
       code.addLine("    return true;");
     } else {
       String prefix = "    return ";
-      for (Property property : properties) {
-        code.add(prefix);
-        code.add(ObjectsExcerpts.equals(
-            property.getField(),
-            property.getField().on("other"),
-            property.getType().getKind()));
+      for (Excerpt check : checks) {
+        code.add(prefix).add(check);
         prefix = "\n        && ";
       }
       code.add(";\n");
@@ -466,10 +660,11 @@ public class GeneratedBuilder extends GeneratedType {
   }
 
   private void addValueTypeHashCode(SourceBuilder code) {
-    FieldAccessList fields = getFields(
-        generatorsByProperty.keySet()
+    ValueList fields = getValues(
+        generatorsByProperty.entrySet()
             .stream()
-            .filter(Property::isInEqualsAndHashCode)
+            .filter(entry -> entry.getKey().isInEqualsAndHashCode())
+            .map(entry -> entry.getValue().valueOn("this"))
     );
     code.addLine("")
         .addLine("  @%s", Override.class)
@@ -483,7 +678,7 @@ public class GeneratedBuilder extends GeneratedType {
         .addLine("private static final class %s %s {",
             datatype.getPartialType().declaration(),
             datatype.getRebuildableType()
-                .map(rebuildable -> extending(rebuildable, false))
+                .map(rebuildable -> extending(rebuildable, valueTypeIsRecord(code)))
                 .orElse(extending(datatype.getType(), datatype.isInterfaceType())));
     addPartialFields(code);
     addPartialConstructor(code);
@@ -495,9 +690,13 @@ public class GeneratedBuilder extends GeneratedType {
     if (datatype.standardMethodUnderride(StandardMethod.HASH_CODE) != FINAL) {
       addPartialHashCode(code);
     }
+    if (datatype.getHasAppendToMethod()) {
+      addAppendTo(code, datatype, generatorsByProperty, true);
+    }
     if (datatype.standardMethodUnderride(StandardMethod.TO_STRING) != FINAL) {
       addToString(code, datatype, generatorsByProperty, true);
     }
+    datatype.getPartialTypeMembers().forEach(code::add);
     code.addLine("}");
   }
 
@@ -565,6 +764,7 @@ public class GeneratedBuilder extends GeneratedType {
         .addLine("  public %s toBuilder() {", datatype.getBuilder());
     Variable builder = new Variable("builder");
     if (datatype.isExtensible()) {
+      addMetricsEvent(code, "    ", Excerpts.add("copiedToBuilder()"));
       code.addLine("    %s builder = new PartialBuilder%s();",
               datatype.getGeneratedBuilder(), datatype.getBuilder().diamondOperator());
       generatorsByProperty.values().forEach(generator -> {
@@ -586,24 +786,20 @@ public class GeneratedBuilder extends GeneratedType {
     code.addLine("")
         .addLine("  @%s", Override.class)
         .addLine("  public boolean equals(Object obj) {")
+        .addLine("    if (obj == this) {")
+        .addLine("      return true;")
+        .addLine("    }")
         .addLine("    if (!(obj instanceof %s)) {", datatype.getPartialType().getQualifiedName())
         .addLine("      return false;")
         .addLine("    }")
         .addLine("    %1$s other = (%1$s) obj;", datatype.getPartialType().withWildcards());
-    List<Property> properties = generatorsByProperty.keySet()
-        .stream()
-        .filter(Property::isInEqualsAndHashCode)
-        .collect(Collectors.toList());
-    if (properties.isEmpty()) {
+    List<Excerpt> checks = getEqualityChecks();
+    if (checks.isEmpty()) {
       code.addLine("    return true;");
     } else {
       String prefix = "    return ";
-      for (Property property : properties) {
-        code.add(prefix);
-        code.add(ObjectsExcerpts.equals(
-            property.getField(),
-            property.getField().on("other"),
-            property.getType().getKind()));
+      for (Excerpt check : checks) {
+        code.add(prefix).add(check);
         prefix = "\n        && ";
       }
       if (hasRequiredProperties) {
@@ -620,10 +816,11 @@ public class GeneratedBuilder extends GeneratedType {
     code.addLine("")
         .addLine("  @%s", Override.class)
         .addLine("  public int hashCode() {");
-    FieldAccessList fields = getFields(
-        generatorsByProperty.keySet()
+    ValueList fields = getValues(
+        generatorsByProperty.entrySet()
             .stream()
-            .filter(Property::isInEqualsAndHashCode)
+            .filter(entry -> entry.getKey().isInEqualsAndHashCode())
+            .map(entry -> entry.getValue().valueOn("this"))
     );
     if (generatorsByProperty.values().stream().anyMatch(IS_REQUIRED)) {
       fields = fields.plus(UNSET_PROPERTIES);
@@ -633,41 +830,75 @@ public class GeneratedBuilder extends GeneratedType {
         .addLine("  }");
   }
 
+  /**
+   * Returns the property comparisons for equals, cheapest first, so that most mismatches are
+   * found without comparing strings or collections element by element.
+   */
+  private List<Excerpt> getEqualityChecks() {
+    return generatorsByProperty.entrySet()
+        .stream()
+        .filter(entry -> entry.getKey().isInEqualsAndHashCode())
+        .sorted(Comparator.comparing(entry -> entry.getValue().equalityCost()))
+        .map(entry -> equalityCheck(entry.getKey(), entry.getValue()))
+        .collect(Collectors.toList());
+  }
+
+  private static Excerpt equalityCheck(Property property, PropertyCodeGenerator generator) {
+    Excerpt value = generator.valueOn("this");
+    Excerpt otherValue = generator.valueOn("other");
+    TypeKind kind = property.getType().getKind();
+    switch (generator.equalityCost()) {
+      case IDENTITY:
+        if (kind == TypeKind.DECLARED) {
+          // Enum constants are singletons
+          return Excerpts.add("%s == %s", value, otherValue);
+        }
+        return ObjectsExcerpts.equals(value, otherValue, kind);
+
+      case COLLECTION:
+        return Excerpts.add("%1$s.size() == %2$s.size() && %1$s.equals(%2$s)", value, otherValue);
+
+      default:
+        return ObjectsExcerpts.equals(value, otherValue, kind);
+    }
+  }
+
   /** Returns an {@link Excerpt} of "implements/extends {@code type}". */
   private static Excerpt extending(Object type, boolean isInterface) {
     return Excerpts.add(isInterface ? "implements %s" : "extends %s", type);
   }
 
-  private static class FieldAccessList implements Excerpt {
-    private final List<FieldAccess> fieldAccesses;
+  private static class ValueList implements Excerpt {
+    private final List<Excerpt> values;
 
-    FieldAccessList(List<FieldAccess> fieldAccesses) {
-      this.fieldAccesses = ImmutableList.copyOf(fieldAccesses);
+    ValueList(List<Excerpt> values) {
+      this.values = ImmutableList.copyOf(values);
     }
 
     @Override
     public void addTo(SourceBuilder source) {
       String separator = "";
-      for (FieldAccess field : fieldAccesses) {
-        source.add(separator).add(field);
+      for (Excerpt value : values) {
+        source.add(separator).add(value);
         separator = ", ";
       }
     }
 
-    public FieldAccessList plus(FieldAccess fieldAccess) {
-      return new FieldAccessList(ImmutableList.<FieldAccess>builder()
-          .addAll(fieldAccesses)
-          .add(fieldAccess)
+    public ValueList plus(Excerpt value) {
+      return new ValueList(ImmutableList.<Excerpt>builder()
+          .addAll(values)
+          .add(value)
           .build());
     }
   }
 
-  private static FieldAccessList getFields(Stream<Property> properties) {
-    ImmutableList.Builder<FieldAccess> fieldAccesses = ImmutableList.builder();
-    properties.forEach(property -> fieldAccesses.add(property.getField()));
-    return new FieldAccessList(fieldAccesses.build());
+  private static ValueList getValues(Stream<Excerpt> values) {
+    return new ValueList(values.collect(Collectors.toList()));
   }
 
   private static final Predicate<PropertyCodeGenerator> IS_REQUIRED =
       generator -> generator.initialState() == Initially.REQUIRED;
+
+  /** The builder field holding the value it last built, or was created from by toBuilder. */
+  private static final FieldAccess SOURCE = new FieldAccess("_source");
 }
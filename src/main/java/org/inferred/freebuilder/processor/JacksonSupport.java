@@ -1,20 +1,52 @@
 package org.inferred.freebuilder.processor;
 
+import static com.google.common.collect.Iterables.filter;
+
+import static org.inferred.freebuilder.processor.BuilderMethods.addMethod;
+import static org.inferred.freebuilder.processor.BuilderMethods.clearMethod;
+import static org.inferred.freebuilder.processor.BuilderMethods.setter;
+import static org.inferred.freebuilder.processor.model.ModelUtils.asElement;
 import static org.inferred.freebuilder.processor.model.ModelUtils.findAnnotationMirror;
+import static org.inferred.freebuilder.processor.model.ModelUtils.findProperty;
+import static org.inferred.freebuilder.processor.source.Quotes.escapeJava;
+
+import static javax.tools.Diagnostic.Kind.ERROR;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
+import org.inferred.freebuilder.GenerateJsonDeserializer;
+import org.inferred.freebuilder.GenerateJsonSerializer;
+import org.inferred.freebuilder.processor.BuilderFactory.TypeInference;
 import org.inferred.freebuilder.processor.property.Property;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator.Initially;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator;
+import org.inferred.freebuilder.processor.source.Excerpt;
 import org.inferred.freebuilder.processor.source.Excerpts;
 import org.inferred.freebuilder.processor.source.QualifiedName;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.ValueType;
+import org.inferred.freebuilder.processor.source.Variable;
 
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+import javax.annotation.processing.Messager;
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Name;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 
 class JacksonSupport {
@@ -27,6 +59,28 @@ class JacksonSupport {
 
   private static final String JSON_DESERIALIZE =
       "com.fasterxml.jackson.databind.annotation.JsonDeserialize";
+  private static final QualifiedName DESERIALIZATION_CONTEXT =
+      QualifiedName.of("com.fasterxml.jackson.databind", "DeserializationContext");
+  private static final QualifiedName JAVA_TYPE =
+      QualifiedName.of("com.fasterxml.jackson.databind", "JavaType");
+  private static final QualifiedName JSON_PARSER =
+      QualifiedName.of("com.fasterxml.jackson.core", "JsonParser");
+  private static final QualifiedName JSON_GENERATOR =
+      QualifiedName.of("com.fasterxml.jackson.core", "JsonGenerator");
+  private static final QualifiedName JSON_TOKEN =
+      QualifiedName.of("com.fasterxml.jackson.core", "JsonToken");
+  private static final QualifiedName SERIALIZED_STRING =
+      QualifiedName.of("com.fasterxml.jackson.core.io", "SerializedString");
+  private static final QualifiedName SERIALIZER_PROVIDER =
+      QualifiedName.of("com.fasterxml.jackson.databind", "SerializerProvider");
+  private static final QualifiedName STD_DESERIALIZER =
+      QualifiedName.of("com.fasterxml.jackson.databind.deser.std", "StdDeserializer");
+  private static final QualifiedName STD_SERIALIZER =
+      QualifiedName.of("com.fasterxml.jackson.databind.ser.std", "StdSerializer");
+  private static final QualifiedName TYPE_FACTORY =
+      QualifiedName.of("com.fasterxml.jackson.databind.type", "TypeFactory");
+  private static final QualifiedName TYPE_REFERENCE =
+      QualifiedName.of("com.fasterxml.jackson.core.type", "TypeReference");
   private static final QualifiedName JSON_PROPERTY =
       QualifiedName.of("com.fasterxml.jackson.annotation", "JsonProperty");
   private static final String JACKSON_XML_ANNOTATION_PACKAGE =
@@ -37,9 +91,11 @@ class JacksonSupport {
       QualifiedName.of("com.fasterxml.jackson.annotation", "JsonAnyGetter");
   private static final QualifiedName JSON_ANY_SETTER =
       QualifiedName.of("com.fasterxml.jackson.annotation", "JsonAnySetter");
+  private static final QualifiedName JSON_IGNORE =
+      QualifiedName.of("com.fasterxml.jackson.annotation", "JsonIgnore");
   /** Annotations which disable automatic generation of JsonProperty annotations. */
   private static final Set<QualifiedName> DISABLE_PROPERTY_ANNOTATIONS = ImmutableSet.of(
-      QualifiedName.of("com.fasterxml.jackson.annotation", "JsonIgnore"),
+      JSON_IGNORE,
       QualifiedName.of("com.fasterxml.jackson.annotation", "JsonUnwrapped"),
       QualifiedName.of("com.fasterxml.jackson.annotation", "JsonValue"));
 
@@ -49,6 +105,12 @@ class JacksonSupport {
   }
 
   private final Elements elements;
+  /** JSON field names, including aliases, of each property read by a generated deserializer. */
+  private final Map<String, List<String>> fieldNames = new LinkedHashMap<>();
+  /** JSON field names of ignored properties, which a generated deserializer skips over. */
+  private final List<String> ignoredFieldNames = new ArrayList<>();
+  /** Properties a generated deserializer cannot read, with the annotation responsible. */
+  private final Map<String, QualifiedName> unsupportedProperties = new LinkedHashMap<>();
 
   private JacksonSupport(Elements elements) {
     this.elements = elements;
@@ -59,20 +121,34 @@ class JacksonSupport {
       ExecutableElement getterMethod) {
     Optional<AnnotationMirror> jsonPropertyAnnotation =
         findAnnotationMirror(getterMethod, JSON_PROPERTY);
+    String propertyName = resultBuilder.getName();
     if (jsonPropertyAnnotation.isPresent()) {
       resultBuilder.addAccessorAnnotations(Excerpts.add("%s%n", jsonPropertyAnnotation.get()));
+      String fieldName = findProperty(jsonPropertyAnnotation.get(), "value")
+          .map(value -> (String) value.getValue())
+          .filter(value -> !value.isEmpty())
+          .orElse(propertyName);
+      fieldNames.put(propertyName, fieldNamesWithAliases(fieldName, getterMethod));
     } else {
       switch (generateDefaultAnnotations(getterMethod)) {
         case DEFAULT:
           resultBuilder.addAccessorAnnotations(
-              Excerpts.add("@%s(\"%s\")%n", JSON_PROPERTY, resultBuilder.getName()));
+              Excerpts.add("@%s(\"%s\")%n", JSON_PROPERTY, propertyName));
+          fieldNames.put(propertyName, fieldNamesWithAliases(propertyName, getterMethod));
           break;
         case JSON_ANY:
           resultBuilder.addPutAnnotations(Excerpts.add("@%s%n", JSON_ANY_SETTER));
           resultBuilder.addGetterAnnotations(Excerpts.add("@%s%n", JSON_ANY_GETTER));
+          unsupportedProperties.put(propertyName, JSON_ANY_GETTER);
           break;
         case NONE:
         default:
+          QualifiedName disablingAnnotation = disablingAnnotation(getterMethod);
+          if (disablingAnnotation.equals(JSON_IGNORE)) {
+            ignoredFieldNames.add(propertyName);
+          } else {
+            unsupportedProperties.put(propertyName, disablingAnnotation);
+          }
           break;
       }
     }
@@ -86,6 +162,87 @@ class JacksonSupport {
         });
   }
 
+  /**
+   * Returns metadata for the Jackson serializer and deserializer the user requested with
+   * {@link GenerateJsonSerializer} and {@link GenerateJsonDeserializer}, which work straight
+   * on Jackson's token stream.
+   */
+  public Datatype.Builder streamingMetadata(
+      TypeElement type,
+      Datatype datatype,
+      Map<Property, PropertyCodeGenerator> generatorsByProperty,
+      Messager messager) {
+    Datatype.Builder extraMetadata = new Datatype.Builder();
+    if (type.getAnnotation(GenerateJsonDeserializer.class) != null
+        && canGenerate(GenerateJsonDeserializer.class, type, datatype, messager)) {
+      if (!datatype.getBuilderFactory().isPresent()) {
+        messager.printMessage(
+            ERROR, "@GenerateJsonDeserializer requires a no-args Builder constructor", type);
+      } else {
+        extraMetadata.addNestedClasses(new StreamingDeserializer(
+            datatype,
+            generatorsByProperty,
+            ImmutableMap.copyOf(fieldNames),
+            ImmutableList.copyOf(ignoredFieldNames)));
+      }
+    }
+    if (type.getAnnotation(GenerateJsonSerializer.class) != null
+        && canGenerate(GenerateJsonSerializer.class, type, datatype, messager)) {
+      extraMetadata.addNestedClasses(new StreamingSerializer(
+          datatype, generatorsByProperty, ImmutableMap.copyOf(fieldNames)));
+    }
+    return extraMetadata;
+  }
+
+  /**
+   * Reports an error if the user requested a streaming serializer or deserializer on a type
+   * without {@code @JsonDeserialize}.
+   */
+  public static void checkStreamingNotRequested(TypeElement type, Messager messager) {
+    for (Class<? extends Annotation> annotation :
+        ImmutableList.of(GenerateJsonDeserializer.class, GenerateJsonSerializer.class)) {
+      if (type.getAnnotation(annotation) != null) {
+        messager.printMessage(
+            ERROR, "@" + annotation.getSimpleName() + " requires @JsonDeserialize", type);
+      }
+    }
+  }
+
+  private boolean canGenerate(
+      Class<? extends Annotation> annotation,
+      TypeElement type,
+      Datatype datatype,
+      Messager messager) {
+    if (datatype.getType().isParameterized()) {
+      messager.printMessage(
+          ERROR, "@" + annotation.getSimpleName() + " is not supported on generic types", type);
+      return false;
+    }
+    unsupportedProperties.forEach((propertyName, disablingAnnotation) -> {
+      messager.printMessage(
+          ERROR,
+          "@" + annotation.getSimpleName() + " does not support @"
+              + disablingAnnotation.getSimpleName() + " properties ('" + propertyName + "')",
+          type);
+    });
+    return unsupportedProperties.isEmpty();
+  }
+
+  private static List<String> fieldNamesWithAliases(
+      String fieldName,
+      ExecutableElement getterMethod) {
+    ImmutableList.Builder<String> names = ImmutableList.builder();
+    names.add(fieldName);
+    findAnnotationMirror(getterMethod, JSON_ALIAS)
+        .flatMap(annotation -> findProperty(annotation, "value"))
+        .ifPresent(aliases -> {
+          for (Object alias : (List<?>) aliases.getValue()) {
+            names.add((String) ((AnnotationValue) alias).getValue());
+          }
+        });
+    return names.build();
+  }
+
   private boolean shouldCopyAnnotation(AnnotationMirror mirror) {
     TypeElement annotationTypeElement = (TypeElement) mirror.getAnnotationType().asElement();
     Name qualifiedName = annotationTypeElement.getQualifiedName();
@@ -94,6 +251,18 @@ class JacksonSupport {
         || qualifiedName.contentEquals(JSON_ALIAS);
   }
 
+  private static QualifiedName disablingAnnotation(ExecutableElement getterMethod) {
+    for (AnnotationMirror annotationMirror : getterMethod.getAnnotationMirrors()) {
+      TypeElement annotationTypeElement =
+          (TypeElement) (annotationMirror.getAnnotationType().asElement());
+      QualifiedName annotationType = QualifiedName.of(annotationTypeElement);
+      if (DISABLE_PROPERTY_ANNOTATIONS.contains(annotationType)) {
+        return annotationType;
+      }
+    }
+    throw new IllegalStateException("No disabling annotation on " + getterMethod);
+  }
+
   private static GenerateAnnotation generateDefaultAnnotations(ExecutableElement getterMethod) {
     for (AnnotationMirror annotationMirror : getterMethod.getAnnotationMirrors()) {
       TypeElement annotationTypeElement =
@@ -108,4 +277,358 @@ class JacksonSupport {
     }
     return GenerateAnnotation.DEFAULT;
   }
+
+  private static final class StreamingDeserializer extends ValueType implements Excerpt {
+
+    private final Datatype datatype;
+    private final Map<Property, PropertyCodeGenerator> generatorsByProperty;
+    private final Map<String, List<String>> fieldNames;
+    private final List<String> ignoredFieldNames;
+
+    private StreamingDeserializer(
+        Datatype datatype,
+        Map<Property, PropertyCodeGenerator> generatorsByProperty,
+        Map<String, List<String>> fieldNames,
+        List<String> ignoredFieldNames) {
+      this.datatype = datatype;
+      this.generatorsByProperty = generatorsByProperty;
+      this.fieldNames = fieldNames;
+      this.ignoredFieldNames = ignoredFieldNames;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      String parser = "parser";
+      String context = "context";
+      Variable builder = new Variable("builder");
+      Variable token = new Variable("token");
+      Variable fieldName = new Variable("fieldName");
+      code.addLine("")
+          .addLine("/**")
+          .addLine(" * Reads %s instances straight from a Jackson token stream, calling",
+              datatype.getType().javadocLink())
+          .addLine(" * builder methods directly rather than through reflection.")
+          .addLine(" */")
+          .addLine("public static class Deserializer extends %s<%s> {",
+              STD_DESERIALIZER, datatype.getType())
+          .addLine("")
+          .addLine("  private static final long serialVersionUID = 1L;");
+      for (Property property : readProperties()) {
+        if (!readValue(property.getType(), parser, context).isPresent()) {
+          code.addLine("  private static final %s %s =", JAVA_TYPE, javaTypeField(property))
+              .addLine("      %s.defaultInstance().constructType(new %s<%s>() { });",
+                  TYPE_FACTORY, TYPE_REFERENCE, property.getType());
+        }
+      }
+      code.addLine("")
+          .addLine("  public Deserializer() {")
+          .addLine("    super(%s.class);", datatype.getType())
+          .addLine("  }")
+          .addLine("")
+          .addLine("  @%s", Override.class)
+          .addLine("  public %s deserialize(%s %s, %s %s) throws %s {",
+              datatype.getType(),
+              JSON_PARSER,
+              parser,
+              DESERIALIZATION_CONTEXT,
+              context,
+              IOException.class)
+          .addLine("    %s %s = %s;",
+              datatype.getBuilder(),
+              builder,
+              datatype.getBuilderFactory().get()
+                  .newBuilder(datatype.getBuilder(), TypeInference.INFERRED_TYPES))
+          .addLine("    %s %s = %s.getCurrentToken();", JSON_TOKEN, token, parser)
+          .addLine("    if (%s == %s.START_OBJECT) {", token, JSON_TOKEN)
+          .addLine("      %s = %s.nextToken();", token, parser)
+          .addLine("    } else if (%1$s != %2$s.FIELD_NAME && %1$s != %2$s.END_OBJECT) {",
+              token, JSON_TOKEN)
+          .addLine("      return (%s) %s.handleUnexpectedToken(%s.class, %s);",
+              datatype.getType(), context, datatype.getType(), parser)
+          .addLine("    }")
+          .addLine("    for (; %1$s == %2$s.FIELD_NAME; %1$s = %3$s.nextToken()) {",
+              token, JSON_TOKEN, parser)
+          .addLine("      %s %s = %s.getCurrentName();", String.class, fieldName, parser)
+          .addLine("      %s.nextToken();", parser)
+          .addLine("      switch (%s) {", fieldName);
+      for (Property property : readProperties()) {
+        for (String name : fieldNames.get(property.getName())) {
+          code.addLine("        case \"%s\":", escapeJava(name));
+        }
+        addReadProperty(code, property, parser, context, builder);
+        code.addLine("          break;");
+      }
+      if (!ignoredFieldNames.isEmpty()) {
+        for (String name : ignoredFieldNames) {
+          code.addLine("        case \"%s\":", escapeJava(name));
+        }
+        code.addLine("          %s.skipChildren();", parser)
+            .addLine("          break;");
+      }
+      code.addLine("        default:")
+          .addLine("          %s.handleUnknownProperty(%s, this, %s.class, %s);",
+              context, parser, datatype.getType(), fieldName)
+          .addLine("      }")
+          .addLine("    }")
+          .addLine("    return %s.%s();", builder, datatype.getBuildMethod().name())
+          .addLine("  }");
+      if (readProperties().stream()
+          .anyMatch(property -> property.getType().getKind() == TypeKind.CHAR)) {
+        // Character.class reads null as null, which would NPE when unboxed
+        code.addLine("")
+            .addLine("  private static char parseCharPrimitive(%s %s, %s %s) throws %s {",
+                JSON_PARSER, parser, DESERIALIZATION_CONTEXT, context, IOException.class)
+            .addLine("    if (%s.getCurrentToken() == %s.VALUE_NULL) {", parser, JSON_TOKEN)
+            .addLine("      return %s.reportInputMismatch(char.class,", context)
+            .addLine("          \"Cannot map JSON null into type char\");")
+            .addLine("    }")
+            .addLine("    return %s.readValue(%s, %s.class);", context, parser, Character.class)
+            .addLine("  }");
+      }
+      code.addLine("}");
+    }
+
+    private void addReadProperty(
+        SourceBuilder code,
+        Property property,
+        String parser,
+        String context,
+        Variable builder) {
+      PropertyCodeGenerator generator = generatorsByProperty.get(property);
+      if (generator.initialState() == Initially.OPTIONAL) {
+        // An explicit JSON null unsets Optional properties and nulls @Nullable ones
+        code.addLine("          if (%s.getCurrentToken() == %s.VALUE_NULL) {", parser, JSON_TOKEN);
+        if (OptionalType.of(property.getType()).isPresent()) {
+          code.addLine("            %s.%s();", builder, clearMethod(property));
+        } else {
+          code.addLine("            %s.%s(null);", builder, setter(property));
+        }
+        code.addLine("            break;")
+            .addLine("          }");
+      }
+      Optional<Excerpt> readElement = generator.getAddElementType()
+          .flatMap(elementType -> readValue(elementType, parser, context));
+      if (readElement.isPresent()) {
+        // Stream array elements straight into the builder, without an intermediate collection
+        code.addLine("          if (%s.isExpectedStartArrayToken()) {", parser)
+            .addLine("            while (%s.nextToken() != %s.END_ARRAY) {", parser, JSON_TOKEN)
+            .addLine("              %s.%s(%s);", builder, addMethod(property), readElement.get())
+            .addLine("            }")
+            .addLine("            break;")
+            .addLine("          }");
+      }
+      Variable temporary = new Variable(property.getName());
+      Excerpt readProperty = readValue(property.getType(), parser, context)
+          .orElse(Excerpts.add("%s.readValue(%s, %s)", context, parser, javaTypeField(property)));
+      code.addLine("          %s %s = %s;", property.getType(), temporary, readProperty)
+          .add("          ");
+      generator.addSetFromResult(code, builder, temporary);
+    }
+
+    private List<Property> readProperties() {
+      return ImmutableList.copyOf(filter(
+          generatorsByProperty.keySet(), property -> fieldNames.containsKey(property.getName())));
+    }
+
+    private static String javaTypeField(Property property) {
+      return property.getAllCapsName() + "_TYPE";
+    }
+
+    /**
+     * Returns an expression reading a value of {@code type} from {@code parser}, or empty if the
+     * type is generic and must be read via a {@code JavaType}.
+     */
+    private static Optional<Excerpt> readValue(
+        TypeMirror type,
+        String parser,
+        String context) {
+      switch (type.getKind()) {
+        case BOOLEAN:
+          return Optional.of(Excerpts.add("_parseBooleanPrimitive(%s, %s)", parser, context));
+        case BYTE:
+          return Optional.of(Excerpts.add("_parseBytePrimitive(%s, %s)", parser, context));
+        case SHORT:
+          return Optional.of(Excerpts.add("_parseShortPrimitive(%s, %s)", parser, context));
+        case INT:
+          return Optional.of(Excerpts.add("_parseIntPrimitive(%s, %s)", parser, context));
+        case LONG:
+          return Optional.of(Excerpts.add("_parseLongPrimitive(%s, %s)", parser, context));
+        case FLOAT:
+          return Optional.of(Excerpts.add("_parseFloatPrimitive(%s, %s)", parser, context));
+        case DOUBLE:
+          return Optional.of(Excerpts.add("_parseDoublePrimitive(%s, %s)", parser, context));
+        case CHAR:
+          return Optional.of(Excerpts.add("parseCharPrimitive(%s, %s)", parser, context));
+        case DECLARED:
+          DeclaredType declaredType = (DeclaredType) type;
+          if (!declaredType.getTypeArguments().isEmpty()) {
+            return Optional.empty();
+          }
+          QualifiedName name = QualifiedName.of(asElement(declaredType));
+          if (name.equals(QualifiedName.of(String.class))) {
+            return Optional.of(Excerpts.add("_parseString(%s, %s)", parser, context));
+          }
+          return Optional.of(Excerpts.add("%s.readValue(%s, %s.class)", context, parser, name));
+        default:
+          return Optional.empty();
+      }
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("datatype", datatype);
+      fields.add("generatorsByProperty", generatorsByProperty);
+      fields.add("fieldNames", fieldNames);
+      fields.add("ignoredFieldNames", ignoredFieldNames);
+    }
+  }
+
+  private static final class StreamingSerializer extends ValueType implements Excerpt {
+
+    private final Datatype datatype;
+    private final Map<Property, PropertyCodeGenerator> generatorsByProperty;
+    private final Map<String, List<String>> fieldNames;
+
+    private StreamingSerializer(
+        Datatype datatype,
+        Map<Property, PropertyCodeGenerator> generatorsByProperty,
+        Map<String, List<String>> fieldNames) {
+      this.datatype = datatype;
+      this.generatorsByProperty = generatorsByProperty;
+      this.fieldNames = fieldNames;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      List<Property> properties = ImmutableList.copyOf(filter(
+          generatorsByProperty.keySet(), property -> fieldNames.containsKey(property.getName())));
+      code.addLine("")
+          .addLine("/**")
+          .addLine(" * Writes %s instances straight to a Jackson token stream, calling",
+              datatype.getType().javadocLink())
+          .addLine(" * getters directly rather than through reflection.")
+          .addLine(" */")
+          .addLine("public static class Serializer extends %s<%s> {",
+              STD_SERIALIZER, datatype.getType())
+          .addLine("")
+          .addLine("  private static final long serialVersionUID = 1L;");
+      for (Property property : properties) {
+        code.addLine("  private static final %s %s =",
+                SERIALIZED_STRING, fieldNameConstant(property))
+            .addLine("      new %s(\"%s\");",
+                SERIALIZED_STRING, escapeJava(fieldNames.get(property.getName()).get(0)));
+      }
+      code.addLine("")
+          .addLine("  public Serializer() {")
+          .addLine("    super(%s.class);", datatype.getType())
+          .addLine("  }")
+          .addLine("")
+          .addLine("  @%s", Override.class)
+          .addLine("  public void serialize(%s value, %s generator, %s provider)",
+              datatype.getType(), JSON_GENERATOR, SERIALIZER_PROVIDER)
+          .addLine("      throws %s {", IOException.class)
+          .addLine("    generator.writeStartObject();");
+      // Reused by every loop over a collection property
+      Variable element = new Variable("element");
+      for (Property property : properties) {
+        addWriteProperty(code, property, element);
+      }
+      code.addLine("    generator.writeEndObject();")
+          .addLine("  }")
+          .addLine("}");
+    }
+
+    private void addWriteProperty(SourceBuilder code, Property property, Variable element) {
+      Excerpt getter = Excerpts.add("value.%s()", property.getGetterName());
+      Optional<OptionalType> optional = OptionalType.of(property.getType());
+      if (optional.isPresent()) {
+        // Skip empty optionals
+        Variable temporary = new Variable(property.getName());
+        code.addLine("    %s %s = %s;", property.getType(), temporary, getter)
+            .addLine("    if (%s.isPresent()) {", temporary)
+            .addLine("      generator.writeFieldName(%s);", fieldNameConstant(property))
+            .addLine("      %s;",
+                writeOptionalValue(property.getType(), optional.get(), temporary))
+            .addLine("    }");
+      } else if (generatorsByProperty.get(property).initialState() == Initially.OPTIONAL) {
+        // Skip unset nullables
+        Variable temporary = new Variable(property.getName());
+        code.addLine("    %s %s = %s;", property.getType(), temporary, getter)
+            .addLine("    if (%s != null) {", temporary)
+            .addLine("      generator.writeFieldName(%s);", fieldNameConstant(property))
+            .addLine("      %s;", writeValue(property.getType(), temporary))
+            .addLine("    }");
+      } else {
+        code.addLine("    generator.writeFieldName(%s);", fieldNameConstant(property));
+        Optional<TypeMirror> elementType = generatorsByProperty.get(property).getAddElementType();
+        if (elementType.isPresent() && isScalar(elementType.get())) {
+          code.addLine("    generator.writeStartArray();")
+              .addLine("    for (%s %s : %s) {", elementType.get(), element, getter)
+              .addLine("      %s;", writeValue(elementType.get(), element))
+              .addLine("    }")
+              .addLine("    generator.writeEndArray();");
+        } else {
+          code.addLine("    %s;", writeValue(property.getType(), getter));
+        }
+      }
+    }
+
+    private static String fieldNameConstant(Property property) {
+      return property.getAllCapsName() + "_NAME";
+    }
+
+    private static Excerpt writeOptionalValue(
+        TypeMirror type,
+        OptionalType optionalType,
+        Variable optional) {
+      Excerpt value = Excerpts.add("%s.%s()", optional, optionalType.getter());
+      if (optionalType.primitiveKind().isPresent()) {
+        return Excerpts.add("generator.writeNumber(%s)", value);
+      }
+      List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
+      if (typeArguments.isEmpty()) {
+        return writeValue(type, value);
+      }
+      return writeValue(typeArguments.get(0), value);
+    }
+
+    private static boolean isScalar(TypeMirror type) {
+      return type.getKind().isPrimitive() || isString(type);
+    }
+
+    private static boolean isString(TypeMirror type) {
+      return type.getKind() == TypeKind.DECLARED
+          && QualifiedName.of(asElement((DeclaredType) type))
+              .equals(QualifiedName.of(String.class));
+    }
+
+    /** Returns a statement writing {@code value}, of type {@code type}, to the generator. */
+    private static Excerpt writeValue(TypeMirror type, Excerpt value) {
+      switch (type.getKind()) {
+        case BOOLEAN:
+          return Excerpts.add("generator.writeBoolean(%s)", value);
+        case BYTE:
+        case SHORT:
+        case INT:
+        case LONG:
+        case FLOAT:
+        case DOUBLE:
+          return Excerpts.add("generator.writeNumber(%s)", value);
+        case CHAR:
+          return Excerpts.add("generator.writeString(%s.valueOf(%s))", String.class, value);
+        default:
+          if (isString(type)) {
+            return Excerpts.add("generator.writeString(%s)", value);
+          }
+          return Excerpts.add("provider.defaultSerializeValue(%s, generator)", value);
+      }
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("datatype", datatype);
+      fields.add("generatorsByProperty", generatorsByProperty);
+      fields.add("fieldNames", fieldNames);
+    }
+  }
 }
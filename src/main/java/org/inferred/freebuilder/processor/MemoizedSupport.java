@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import com.google.common.collect.ImmutableList;
+
+import org.inferred.freebuilder.Memoized;
+import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.ValueType;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+
+/**
+ * Overrides methods annotated {@link Memoized} in the generated value type with a lazily
+ * computed, cached result.
+ */
+class MemoizedSupport {
+
+  public static Datatype.Builder memoizedMetadata(
+      TypeElement type,
+      Datatype datatype,
+      Set<ExecutableElement> methods,
+      Types types,
+      Messager messager) {
+    Datatype.Builder extraMetadata = new Datatype.Builder();
+    for (ExecutableElement method : methods) {
+      if (method.getAnnotation(Memoized.class) == null || !isValid(method, messager)) {
+        continue;
+      }
+      ExecutableType methodType =
+          (ExecutableType) types.asMemberOf((DeclaredType) type.asType(), method);
+      extraMetadata.addValueTypeMembers(new MemoizedMethod(
+          datatype,
+          method.getSimpleName().toString(),
+          visibility(method.getModifiers()),
+          methodType.getReturnType(),
+          ImmutableList.copyOf(methodType.getThrownTypes())));
+    }
+    return extraMetadata;
+  }
+
+  private static boolean isValid(ExecutableElement method, Messager messager) {
+    Set<Modifier> modifiers = method.getModifiers();
+    String error;
+    if (modifiers.contains(Modifier.STATIC)) {
+      error = "@Memoized methods must not be static";
+    } else if (modifiers.contains(Modifier.ABSTRACT)) {
+      error = "@Memoized methods must have an implementation";
+    } else if (!method.getParameters().isEmpty()) {
+      error = "@Memoized methods must not take parameters";
+    } else if (method.getReturnType().getKind() == TypeKind.VOID) {
+      error = "@Memoized methods must return a value";
+    } else if (!method.getTypeParameters().isEmpty()) {
+      error = "@Memoized methods must not be generic";
+    } else if (modifiers.contains(Modifier.FINAL)) {
+      error = "@Memoized methods must not be final";
+    } else if (modifiers.contains(Modifier.PRIVATE)) {
+      error = "@Memoized methods must not be private";
+    } else {
+      return true;
+    }
+    messager.printMessage(ERROR, error, method);
+    return false;
+  }
+
+  private static String visibility(Set<Modifier> modifiers) {
+    if (modifiers.contains(Modifier.PUBLIC)) {
+      return "public ";
+    } else if (modifiers.contains(Modifier.PROTECTED)) {
+      return "protected ";
+    } else {
+      return "";
+    }
+  }
+
+  private static final class MemoizedMethod extends ValueType implements Excerpt {
+
+    private final Datatype datatype;
+    private final String name;
+    private final String visibility;
+    private final TypeMirror returnType;
+    private final List<TypeMirror> thrownTypes;
+
+    private MemoizedMethod(
+        Datatype datatype,
+        String name,
+        String visibility,
+        TypeMirror returnType,
+        List<TypeMirror> thrownTypes) {
+      this.datatype = datatype;
+      this.name = name;
+      this.visibility = visibility;
+      this.returnType = returnType;
+      this.thrownTypes = thrownTypes;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      String field = "_" + name;
+      String flag = "_" + name + "Memoized";
+      // Interface default methods must be invoked through the interface, unless the value type
+      // extends the generated Rebuildable class
+      boolean implementsInterface =
+          datatype.isInterfaceType() && !datatype.getRebuildableType().isPresent();
+      Excerpt superclass = implementsInterface
+          ? Excerpts.add("%s.super", datatype.getType().getQualifiedName())
+          : Excerpts.add("super");
+      code.addLine("")
+          .addLine("  private transient volatile boolean %s;", flag)
+          .addLine("  private transient %s %s;", returnType, field)
+          .addLine("")
+          .addLine("  @%s", Override.class)
+          .add("  %s%s %s()", visibility, returnType, name);
+      String separator = " throws ";
+      for (TypeMirror thrownType : thrownTypes) {
+        code.add("%s%s", separator, thrownType);
+        separator = ", ";
+      }
+      code.add(" {\n")
+          .addLine("    if (!%s) {", flag)
+          .addLine("      synchronized (this) {")
+          .addLine("        if (!%s) {", flag)
+          .addLine("          %s = %s.%s();", field, superclass, name)
+          .addLine("          %s = true;", flag)
+          .addLine("        }")
+          .addLine("      }")
+          .addLine("    }")
+          .addLine("    return %s;", field)
+          .addLine("  }");
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("datatype", datatype);
+      fields.add("name", name);
+      fields.add("visibility", visibility);
+      fields.add("returnType", returnType);
+      fields.add("thrownTypes", thrownTypes);
+    }
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import static java.util.stream.Collectors.toList;
+
+import org.inferred.freebuilder.GenerateMetrics;
+import org.inferred.freebuilder.processor.property.Property;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator;
+import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.ValueType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.lang.model.element.TypeElement;
+
+class MetricsSupport {
+
+  /** The system property that turns on metrics for every {@code @GenerateMetrics} type. */
+  static final String ENABLED_PROPERTY = "org.inferred.freebuilder.metrics";
+  /** Enough histogram buckets for every power of two an int can hold, plus zero. */
+  private static final int BUCKETS = 32;
+
+  public static Datatype.Builder metricsMetadata(
+      TypeElement type,
+      Datatype datatype,
+      Map<Property, PropertyCodeGenerator> generatorsByProperty) {
+    Datatype.Builder extraMetadata = new Datatype.Builder();
+    if (type.getAnnotation(GenerateMetrics.class) == null) {
+      return extraMetadata;
+    }
+    List<Property> collections = generatorsByProperty.entrySet()
+        .stream()
+        .filter(entry -> entry.getValue().isCollection())
+        .map(Map.Entry::getKey)
+        .collect(toList());
+    extraMetadata.setMetricsType(
+        datatype.getGeneratedBuilder().getQualifiedName().nestedType("Metrics").withParameters());
+    extraMetadata.addNestedClasses(new Metrics(datatype, collections));
+    return extraMetadata;
+  }
+
+  /** The Metrics class nested in the generated builder. */
+  private static final class Metrics extends ValueType implements Excerpt {
+
+    private final Datatype datatype;
+    private final List<Property> collections;
+
+    private Metrics(Datatype datatype, List<Property> collections) {
+      this.datatype = datatype;
+      this.collections = collections;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      code.addLine("")
+          .addLine("/**")
+          .addLine(" * Counts builds of %s, and the sizes of its collection properties,",
+              datatype.getType().javadocLink())
+          .addLine(" * if the JVM was started with {@code -D%s=true}.", ENABLED_PROPERTY)
+          .addLine(" */")
+          .addLine("public static final class Metrics {")
+          .addLine("")
+          .addLine("  /** Receives each event as it is counted. Methods do nothing by default. */")
+          .addLine("  public interface Listener {")
+          .addLine("    default void onBuild(%s<?> type) {}", Class.class)
+          .addLine("    default void onBuildFailure(%s<?> type, %s message) {}",
+              Class.class, String.class)
+          .addLine("    default void onBuildPartial(%s<?> type) {}", Class.class)
+          .addLine("    default void onMergeFrom(%s<?> type) {}", Class.class)
+          .addLine("    default void onToBuilder(%s<?> type) {}", Class.class)
+          .addLine("    default void onCollectionSize(%s<?> type, %s property, int size) {}",
+              Class.class, String.class)
+          .addLine("  }")
+          .addLine("")
+          .addLine("  /**")
+          .addLine("   * Whether metrics are recorded. Being a constant, the JIT removes the hooks")
+          .addLine("   * entirely when it is false.")
+          .addLine("   */")
+          .addLine("  public static final boolean ENABLED = Boolean.getBoolean(\"%s\");",
+              ENABLED_PROPERTY)
+          .addLine("")
+          .addLine("  private static final %1$s BUILDS = new %1$s();", LongAdder.class)
+          .addLine("  private static final %1$s BUILD_FAILURES = new %1$s();", LongAdder.class)
+          .addLine("  private static final %1$s PARTIAL_BUILDS = new %1$s();", LongAdder.class)
+          .addLine("  private static final %1$s MERGES = new %1$s();", LongAdder.class)
+          .addLine("  private static final %1$s TO_BUILDERS = new %1$s();", LongAdder.class);
+      for (Property property : collections) {
+        code.addLine("  private static final %1$s %2$s = new %1$s(%3$s);",
+            AtomicLongArray.class, sizesConstant(property), BUCKETS);
+      }
+      code.addLine("  private static volatile Listener listener = new Listener() {};")
+          .addLine("")
+          .addLine("  private Metrics() {}")
+          .addLine("")
+          .addLine("  /** Reports future events to {@code listener}, replacing any other. */")
+          .addLine("  public static void setListener(Listener listener) {")
+          .addLine("    Metrics.listener = %s.requireNonNull(listener);", Objects.class)
+          .addLine("  }");
+      addCounter(code, "builds", "BUILDS", "values built");
+      addCounter(code, "buildFailures", "BUILD_FAILURES",
+          "calls to {@code build()} that threw an exception");
+      addCounter(code, "partialBuilds", "PARTIAL_BUILDS", "partial values built");
+      addCounter(code, "merges", "MERGES", "calls to either {@code mergeFrom} method");
+      addCounter(code, "toBuilders", "TO_BUILDERS", "calls to {@code toBuilder()}");
+      for (Property property : collections) {
+        code.addLine("")
+            .addLine("  /**")
+            .addLine("   * Returns a histogram of the sizes of %s in built values.",
+                datatype.getType().javadocNoArgMethodLink(property.getGetterName()))
+            .addLine("   * Element 0 counts empty collections, and element {@code i} sizes from")
+            .addLine("   * {@code 2^(i-1)} to {@code 2^i - 1}.")
+            .addLine("   */")
+            .addLine("  public static long[] %sSizeHistogram() {", property.getName())
+            .addLine("    return snapshot(%s);", sizesConstant(property))
+            .addLine("  }");
+      }
+      addEvents(code);
+      code.addLine("}");
+    }
+
+    private static void addCounter(
+        SourceBuilder code, String method, String constant, String description) {
+      code.addLine("")
+          .addLine("  /** Returns the number of %s. */", description)
+          .addLine("  public static long %s() {", method)
+          .addLine("    return %s.sum();", constant)
+          .addLine("  }");
+    }
+
+    private void addEvents(SourceBuilder code) {
+      Excerpt type = Excerpts.add("%s.class", datatype.getType().getQualifiedName());
+      code.addLine("")
+          .addLine("  static %s void built(%s value) {",
+              datatype.getType().declarationParameters(), datatype.getType())
+          .addLine("    BUILDS.increment();")
+          .addLine("    listener.onBuild(%s);", type);
+      for (Property property : collections) {
+        code.addLine("    recordSize(%s, \"%s\", value.%s().size());",
+            sizesConstant(property), property.getName(), property.getGetterName());
+      }
+      code.addLine("  }")
+          .addLine("")
+          .addLine("  static void buildFailed(%s message) {", String.class)
+          .addLine("    BUILD_FAILURES.increment();")
+          .addLine("    listener.onBuildFailure(%s, message);", type)
+          .addLine("  }")
+          .addLine("")
+          .addLine("  static void builtPartial() {")
+          .addLine("    PARTIAL_BUILDS.increment();")
+          .addLine("    listener.onBuildPartial(%s);", type)
+          .addLine("  }")
+          .addLine("")
+          .addLine("  static void merged() {")
+          .addLine("    MERGES.increment();")
+          .addLine("    listener.onMergeFrom(%s);", type)
+          .addLine("  }")
+          .addLine("")
+          .addLine("  static void copiedToBuilder() {")
+          .addLine("    TO_BUILDERS.increment();")
+          .addLine("    listener.onToBuilder(%s);", type)
+          .addLine("  }");
+      if (!collections.isEmpty()) {
+        code.addLine("")
+            .addLine("  private static void recordSize(")
+            .addLine("      %s histogram, %s property, int size) {",
+                AtomicLongArray.class, String.class)
+            .addLine("    histogram.incrementAndGet(%s - Integer.numberOfLeadingZeros(size));",
+                BUCKETS)
+            .addLine("    listener.onCollectionSize(%s, property, size);", type)
+            .addLine("  }")
+            .addLine("")
+            .addLine("  private static long[] snapshot(%s histogram) {", AtomicLongArray.class)
+            .addLine("    long[] counts = new long[histogram.length()];")
+            .addLine("    for (int i = 0; i < counts.length; i++) {")
+            .addLine("      counts[i] = histogram.get(i);")
+            .addLine("    }")
+            .addLine("    return counts;")
+            .addLine("  }");
+      }
+    }
+
+    private static String sizesConstant(Property property) {
+      return property.getAllCapsName() + "_SIZES";
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("datatype", datatype);
+      fields.add("collections", collections);
+    }
+  }
+}
@@ -1,12 +1,12 @@
 package org.inferred.freebuilder.processor;
 
-import static org.inferred.freebuilder.processor.model.MethodFinder.methodsOn;
 import static org.inferred.freebuilder.processor.model.ModelUtils.asElement;
 import static org.inferred.freebuilder.processor.model.ModelUtils.getReturnType;
 
 import static java.util.stream.Collectors.toMap;
 
 import org.inferred.freebuilder.processor.Datatype.Visibility;
+import org.inferred.freebuilder.processor.model.MethodFinder;
 
 import java.util.Map;
 import java.util.function.Predicate;
@@ -17,7 +17,6 @@ import javax.lang.model.element.Modifier;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeMirror;
-import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 
 public class NamePicker {
@@ -25,13 +24,13 @@ public class NamePicker {
   /** Find an available name and visibility for a method. */
   public static NameAndVisibility pickName(
       DeclaredType targetType,
-      Elements elements,
+      MethodFinder methodFinder,
       Types types,
       TypeMirror returnType,
       String preferredName,
       TypeMirror... parameterTypes) {
     Map<String, ExecutableElement> methodsByName =
-        methodsOn(asElement(targetType), elements, errorType -> { })
+        methodFinder.methodsOn(asElement(targetType), errorType -> { })
             .stream()
             .filter(matchingErasedParameters(types, parameterTypes))
             .collect(byName());
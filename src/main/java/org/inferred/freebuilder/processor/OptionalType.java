@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import static org.inferred.freebuilder.processor.model.ModelUtils.asElement;
+
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+
+import javax.lang.model.element.Name;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Optional types FreeBuilder recognizes, with how to unwrap a present value.
+ *
+ * <p>Shared by the primitive optional property generator and the codecs, which skip empty values.
+ */
+public enum OptionalType {
+  JAVA(Optional.class, "get", null, null),
+  GUAVA(com.google.common.base.Optional.class, "get", null, null),
+  INT(OptionalInt.class, "getAsInt", int.class, TypeKind.INT),
+  LONG(OptionalLong.class, "getAsLong", long.class, TypeKind.LONG),
+  DOUBLE(OptionalDouble.class, "getAsDouble", double.class, TypeKind.DOUBLE);
+
+  private final Class<?> optionalClass;
+  private final String getter;
+  private final Optional<Class<?>> primitiveType;
+  private final Optional<TypeKind> primitiveKind;
+
+  OptionalType(
+      Class<?> optionalClass,
+      String getter,
+      Class<?> primitiveType,
+      TypeKind primitiveKind) {
+    this.optionalClass = optionalClass;
+    this.getter = getter;
+    this.primitiveType = Optional.ofNullable(primitiveType);
+    this.primitiveKind = Optional.ofNullable(primitiveKind);
+  }
+
+  /** Returns the optional type {@code type} erases to, if any. */
+  public static Optional<OptionalType> of(TypeMirror type) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return Optional.empty();
+    }
+    Name name = asElement((DeclaredType) type).getQualifiedName();
+    for (OptionalType optionalType : values()) {
+      if (name.contentEquals(optionalType.optionalClass.getName())) {
+        return Optional.of(optionalType);
+      }
+    }
+    return Optional.empty();
+  }
+
+  /** Returns the optional class itself. */
+  public Class<?> optionalClass() {
+    return optionalClass;
+  }
+
+  /** Returns the name of the method returning a present value. */
+  public String getter() {
+    return getter;
+  }
+
+  /** Returns the primitive type held, or empty if the value type is the type argument. */
+  public Optional<Class<?>> primitiveType() {
+    return primitiveType;
+  }
+
+  /** Returns the kind of primitive held, or empty if the value type is the type argument. */
+  public Optional<TypeKind> primitiveKind() {
+    return primitiveKind;
+  }
+}
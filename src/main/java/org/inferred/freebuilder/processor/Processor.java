@@ -28,8 +28,12 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.MapMaker;
 
 import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.processor.model.MethodFinder;
+import org.inferred.freebuilder.processor.model.MethodIntrospector;
 import org.inferred.freebuilder.processor.source.FilerUtils;
 import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.feature.EmissionMode;
+import org.inferred.freebuilder.processor.source.feature.EnvironmentFeatureSet;
 import org.inferred.freebuilder.processor.source.feature.FeatureSet;
 
 import java.io.IOException;
@@ -62,7 +66,11 @@ public class Processor extends AbstractProcessor {
       new MapMaker().weakKeys().weakValues().concurrencyLevel(1).initialCapacity(1).makeMap();
 
   private Analyser analyser;
+  /** Finds methods on types, caching results until the end of the current round. */
+  private MethodFinder methodFinder;
   private final FeatureSet features;
+  /** Features detected once per environment, unless overridden for testing. */
+  private EnvironmentFeatureSet environmentFeatures;
 
   public Processor() {
     this.features = null;
@@ -78,6 +86,11 @@ public class Processor extends AbstractProcessor {
     return ImmutableSet.of(FreeBuilder.class.getName());
   }
 
+  @Override
+  public Set<String> getSupportedOptions() {
+    return ImmutableSet.of(EmissionMode.COMPACT_OPTION);
+  }
+
   @Override
   public SourceVersion getSupportedSourceVersion() {
     return SourceVersion.latestSupported();
@@ -91,7 +104,11 @@ public class Processor extends AbstractProcessor {
           Kind.NOTE, "FreeBuilder processor registered twice; disabling duplicate instance");
       return;
     }
-    analyser = new Analyser(processingEnv, processingEnv.getMessager());
+    methodFinder = new MethodFinder(processingEnv.getElementUtils());
+    analyser = new Analyser(processingEnv, processingEnv.getMessager(), methodFinder);
+    if (features == null) {
+      environmentFeatures = new EnvironmentFeatureSet(processingEnv);
+    }
   }
 
   @Override
@@ -102,7 +119,8 @@ public class Processor extends AbstractProcessor {
     }
     for (TypeElement type : typesIn(annotatedElementsIn(roundEnv, FreeBuilder.class))) {
       try {
-        SourceBuilder code = SourceBuilder.forEnvironment(processingEnv, features);
+        SourceBuilder code = SourceBuilder.forEnvironment(
+            processingEnv, (features != null) ? features : environmentFeatures);
         code.add(analyser.analyse(type));
         FilerUtils.writeCompilationUnit(processingEnv.getFiler(), code, type);
       } catch (Analyser.CannotGenerateCodeException e) {
@@ -127,6 +145,16 @@ public class Processor extends AbstractProcessor {
             findAnnotationMirror(type, "org.inferred.freebuilder.FreeBuilder").get());
       }
     }
+    // Types generated this round may resolve missing supertypes, so only cache within a round.
+    methodFinder.clearCaches();
+    MethodIntrospector.clearCaches(processingEnv);
+    if (roundEnv.processingOver() && environmentFeatures != null) {
+      String detectedFeatures = environmentFeatures.toString();
+      if (!detectedFeatures.isEmpty()) {
+        processingEnv.getMessager().printMessage(
+            Kind.NOTE, "FreeBuilder detected features: " + detectedFeatures);
+      }
+    }
     return false;
   }
 
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import static org.inferred.freebuilder.processor.BuilderMethods.clearMethod;
+
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import com.google.common.collect.ImmutableList;
+
+import org.inferred.freebuilder.GeneratePropertyTable;
+import org.inferred.freebuilder.processor.property.Property;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator;
+import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.ValueType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+
+class PropertyTableSupport {
+
+  public static Datatype.Builder propertyTableMetadata(
+      TypeElement type,
+      Datatype datatype,
+      Map<Property, PropertyCodeGenerator> generatorsByProperty,
+      Types types,
+      Messager messager) {
+    Datatype.Builder extraMetadata = new Datatype.Builder();
+    if (type.getAnnotation(GeneratePropertyTable.class) == null) {
+      return extraMetadata;
+    }
+    if (datatype.getType().isParameterized()) {
+      messager.printMessage(
+          ERROR, "@GeneratePropertyTable is not supported on generic types", type);
+      return extraMetadata;
+    }
+    ImmutableList.Builder<TableProperty> properties = ImmutableList.builder();
+    generatorsByProperty.forEach((property, generator) -> properties.add(new TableProperty(
+        property,
+        generator,
+        types.erasure(property.getType()),
+        generator.isCollection())));
+    extraMetadata.addNestedClasses(new PropertyTable(datatype, properties.build()));
+    return extraMetadata;
+  }
+
+  private static final class TableProperty extends ValueType {
+
+    private final Property property;
+    private final PropertyCodeGenerator generator;
+    private final TypeMirror erasedType;
+    /** Whether the builder merges into this property, so it must be cleared before setting. */
+    private final boolean collection;
+
+    private TableProperty(
+        Property property,
+        PropertyCodeGenerator generator,
+        TypeMirror erasedType,
+        boolean collection) {
+      this.property = property;
+      this.generator = generator;
+      this.erasedType = erasedType;
+      this.collection = collection;
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("property", property);
+      fields.add("generator", generator);
+      fields.add("erasedType", erasedType.toString());
+      fields.add("collection", collection);
+    }
+  }
+
+  /** The PropertyTable class nested in the generated builder. */
+  private static final class PropertyTable extends ValueType implements Excerpt {
+
+    private final Datatype datatype;
+    private final List<TableProperty> properties;
+
+    private PropertyTable(Datatype datatype, List<TableProperty> properties) {
+      this.datatype = datatype;
+      this.properties = properties;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      code.addLine("")
+          .addLine("/**")
+          .addLine(" * Describes the properties of %s, and reads and writes them by ordinal",
+              datatype.getType().javadocLink())
+          .addLine(" * without reflection.")
+          .addLine(" */")
+          .addLine("public static final class PropertyTable {")
+          .addLine("");
+      for (int i = 0; i < properties.size(); i++) {
+        Property property = properties.get(i).property;
+        code.addLine("  /** The ordinal of %s. */",
+                datatype.getType().javadocNoArgMethodLink(property.getGetterName()))
+            .addLine("  public static final int %s = %s;", property.getAllCapsName(), i);
+      }
+      code.addLine("")
+          .add("  private static final %s<%s> _NAMES = %s.unmodifiableList(%s.asList(",
+              List.class, String.class, Collections.class, Arrays.class);
+      String separator = "";
+      for (TableProperty property : properties) {
+        code.add("%s\"%s\"", separator, property.property.getName());
+        separator = ", ";
+      }
+      code.add("));\n")
+          .add("  private static final %1$s<%2$s<?>> _TYPES =", List.class, Class.class)
+          .add(" %s.unmodifiableList(%s.<%s<?>>asList(",
+              Collections.class, Arrays.class, Class.class);
+      separator = "";
+      for (TableProperty property : properties) {
+        code.add("%s%s.class", separator, property.erasedType);
+        separator = ", ";
+      }
+      code.add("));\n")
+          .addLine("")
+          .addLine("  private PropertyTable() {}")
+          .addLine("")
+          .addLine("  /** Returns the names of the properties, indexed by ordinal. */")
+          .addLine("  public static %s<%s> propertyNames() {", List.class, String.class)
+          .addLine("    return _NAMES;")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  /** Returns the erased types of the properties, indexed by ordinal. */")
+          .addLine("  public static %s<%s<?>> propertyTypes() {", List.class, Class.class)
+          .addLine("    return _TYPES;")
+          .addLine("  }");
+      addOrdinalOf(code);
+      addGet(code);
+      addSet(code);
+      code.addLine("}");
+    }
+
+    private void addOrdinalOf(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  /**")
+          .addLine("   * Returns the ordinal of the property called {@code name}.")
+          .addLine("   *")
+          .addLine("   * @throws IllegalArgumentException if there is no such property")
+          .addLine("   */")
+          .addLine("  public static int ordinalOf(%s name) {", String.class)
+          .addLine("    switch (name) {");
+      for (TableProperty property : properties) {
+        code.addLine("      case \"%s\":", property.property.getName())
+            .addLine("        return %s;", property.property.getAllCapsName());
+      }
+      code.addLine("      default:")
+          .addLine("        throw new %s(\"No property \" + name);",
+              IllegalArgumentException.class)
+          .addLine("    }")
+          .addLine("  }");
+    }
+
+    private void addGet(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  /**")
+          .addLine("   * Returns the property with ordinal {@code ordinal} of {@code value},")
+          .addLine("   * boxing primitives.")
+          .addLine("   *")
+          .addLine("   * @throws IndexOutOfBoundsException if {@code ordinal} is not a property")
+          .addLine("   *     ordinal")
+          .addLine("   */")
+          .addLine("  public static Object get(%s value, int ordinal) {", datatype.getType())
+          .addLine("    switch (ordinal) {");
+      for (TableProperty property : properties) {
+        code.addLine("      case %s:", property.property.getAllCapsName())
+            .addLine("        return value.%s();", property.property.getGetterName());
+      }
+      addNoSuchOrdinal(code);
+    }
+
+    private void addSet(SourceBuilder code) {
+      Excerpt builder = Excerpts.add("builder");
+      Excerpt propertyValue = Excerpts.add("propertyValue");
+      code.addLine("")
+          .addLine("  /**")
+          .addLine("   * Sets the property with ordinal {@code ordinal} on {@code builder} to")
+          .addLine("   * {@code propertyValue}, unboxing primitives. Collection properties are")
+          .addLine("   * replaced, not merged.")
+          .addLine("   *")
+          .addLine("   * @throws IndexOutOfBoundsException if {@code ordinal} is not a property")
+          .addLine("   *     ordinal")
+          .addLine("   * @throws ClassCastException if {@code propertyValue} is not of the")
+          .addLine("   *     property's type")
+          .addLine("   */")
+          .addLine("  @%s(\"unchecked\")", SuppressWarnings.class)
+          .addLine("  public static void set(%s %s, int ordinal, Object %s) {",
+              datatype.getBuilder(), builder, propertyValue)
+          .addLine("    switch (ordinal) {");
+      for (TableProperty property : properties) {
+        code.addLine("      case %s:", property.property.getAllCapsName());
+        if (property.collection) {
+          code.addLine("        %s.%s();", builder, clearMethod(property.property));
+        }
+        code.add("        ");
+        property.generator.addSetFromResult(code, builder, Excerpts.add(
+            "(%s) %s", property.property.getType(), propertyValue));
+        code.addLine("        return;");
+      }
+      addNoSuchOrdinal(code);
+    }
+
+    private static void addNoSuchOrdinal(SourceBuilder code) {
+      code.addLine("      default:")
+          .addLine("        throw new %s(\"No property with ordinal \" + ordinal);",
+              IndexOutOfBoundsException.class)
+          .addLine("    }")
+          .addLine("  }");
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("datatype", datatype);
+      fields.add("properties", properties);
+    }
+  }
+}
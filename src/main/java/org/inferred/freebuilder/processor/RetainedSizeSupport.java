@@ -0,0 +1,356 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import static org.inferred.freebuilder.processor.model.ModelUtils.asElement;
+import static org.inferred.freebuilder.processor.model.ModelUtils.maybeUnbox;
+import static org.inferred.freebuilder.processor.model.ModelUtils.typeArgumentsOf;
+
+import static javax.lang.model.util.ElementFilter.methodsIn;
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import com.google.common.collect.ImmutableList;
+
+import org.inferred.freebuilder.GenerateRetainedSize;
+import org.inferred.freebuilder.processor.property.Property;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator.Initially;
+import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
+import org.inferred.freebuilder.processor.source.QualifiedName;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.ValueType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+class RetainedSizeSupport {
+
+  private static final String METHOD = "estimatedRetainedBytes";
+  /** The size of an object header on a 64-bit JVM with compressed class pointers. */
+  private static final int OBJECT_HEADER_BYTES = 12;
+
+  /**
+   * Returns whether {@code method} is the {@code long estimatedRetainedBytes()} method of a
+   * {@code @GenerateRetainedSize} type, rather than a property getter.
+   */
+  public static boolean isRetainedSizeMethod(TypeElement type, ExecutableElement method) {
+    return type.getAnnotation(GenerateRetainedSize.class) != null
+        && isRetainedSizeMethod(method);
+  }
+
+  public static Datatype.Builder retainedSizeMetadata(
+      TypeElement type,
+      Datatype datatype,
+      Set<ExecutableElement> methods,
+      Map<Property, PropertyCodeGenerator> generatorsByProperty,
+      Elements elements,
+      Types types,
+      Messager messager) {
+    Datatype.Builder extraMetadata = new Datatype.Builder();
+    if (type.getAnnotation(GenerateRetainedSize.class) == null) {
+      return extraMetadata;
+    }
+    boolean declared = methods.stream()
+        .anyMatch(method -> isRetainedSizeMethod(method)
+            && method.getModifiers().contains(Modifier.ABSTRACT));
+    if (!declared) {
+      messager.printMessage(
+          ERROR, "@GenerateRetainedSize requires an abstract long " + METHOD + "() method", type);
+      return extraMetadata;
+    }
+    QualifiedName retainedSize =
+        datatype.getGeneratedBuilder().getQualifiedName().nestedType("RetainedSize");
+    ImmutableList.Builder<Excerpt> retainedBytes = ImmutableList.builder();
+    ImmutableList.Builder<Excerpt> partialRetainedBytes = ImmutableList.builder();
+    generatorsByProperty.forEach((property, generator) -> {
+      Optional<Excerpt> bytes = generator.retainedBytes(
+          Excerpts.add("this"),
+          (propertyType, value) ->
+              retainedBytesOf(retainedSize, propertyType, value, 1, elements, types));
+      if (!bytes.isPresent()) {
+        return;
+      }
+      retainedBytes.add(bytes.get());
+      // Required properties may be unset, and so null, on a partial
+      if (generator.initialState() == Initially.REQUIRED) {
+        partialRetainedBytes.add(Excerpts.add(
+            "(%s == null ? 0 : %s)", property.getField().on("this"), bytes.get()));
+      } else {
+        partialRetainedBytes.add(bytes.get());
+      }
+    });
+    int fieldBytes = OBJECT_HEADER_BYTES + generatorsByProperty.values().stream()
+        .mapToInt(PropertyCodeGenerator::valueFieldBytes)
+        .sum();
+    int shallowBytes = (fieldBytes + 7) & ~7;
+    extraMetadata.addNestedClasses(new RetainedSize());
+    extraMetadata.addValueTypeMembers(
+        new EstimatedRetainedBytesMethod(shallowBytes, retainedBytes.build()));
+    extraMetadata.addPartialTypeMembers(
+        new EstimatedRetainedBytesMethod(shallowBytes, partialRetainedBytes.build()));
+    return extraMetadata;
+  }
+
+  private static boolean isRetainedSizeMethod(ExecutableElement method) {
+    return method.getSimpleName().contentEquals(METHOD)
+        && method.getParameters().isEmpty()
+        && method.getReturnType().getKind() == TypeKind.LONG;
+  }
+
+  /**
+   * Returns an excerpt estimating the bytes retained by {@code value}, an expression of type
+   * {@code type}, or empty if it retains nothing beyond the reference to it. {@code depth} numbers
+   * the parameters of any lambdas, so nested ones do not clash.
+   */
+  private static Optional<Excerpt> retainedBytesOf(
+      QualifiedName retainedSize,
+      TypeMirror type,
+      Excerpt value,
+      int depth,
+      Elements elements,
+      Types types) {
+    if (type.getKind().isPrimitive()) {
+      return Optional.empty();
+    }
+    if (type.getKind() != TypeKind.DECLARED) {
+      return Optional.of(Excerpts.add("16"));
+    }
+    if (maybeUnbox(type, types).isPresent()) {
+      return Optional.of(Excerpts.add("16"));
+    }
+    TypeElement element = asElement((DeclaredType) type);
+    if (element.getQualifiedName().contentEquals(String.class.getName())) {
+      return Optional.of(Excerpts.add("%s.ofString(%s)", retainedSize, value));
+    }
+    if (element.getKind() == ElementKind.ENUM) {
+      // Enum constants are shared
+      return Optional.empty();
+    }
+    if (methodsIn(elements.getAllMembers(element)).stream()
+        .anyMatch(method -> isRetainedSizeMethod(method)
+            && !method.getModifiers().contains(Modifier.STATIC))) {
+      return Optional.of(Excerpts.add("%s.%s()", value, METHOD));
+    }
+    Optional<OptionalType> optionalType = OptionalType.of(type);
+    if (optionalType.isPresent()) {
+      if (optionalType.get().primitiveKind().isPresent()) {
+        // A header, a flag and a value, padded; the empty instance is shared
+        return Optional.of(Excerpts.add("(%s.isPresent() ? 24 : 0)", value));
+      }
+      Optional<Excerpt> presentBytes = typeArgumentsOf(
+              type, element.getQualifiedName().toString(), elements, types)
+          .flatMap(arguments -> retainedBytesOf(
+              retainedSize,
+              arguments.get(0),
+              Excerpts.add("%s.get()", value),
+              depth,
+              elements,
+              types));
+      return Optional.of(Excerpts.add("(%s.isPresent() ? 16 + %s : 0)",
+          value, presentBytes.orElse(Excerpts.add("0"))));
+    }
+    Optional<List<TypeMirror>> mapArguments =
+        typeArgumentsOf(type, Map.class.getName(), elements, types);
+    if (mapArguments.isPresent()) {
+      return Optional.of(retainedBytesOfMap(
+          retainedSize, value, mapArguments.get(), depth, elements, types));
+    }
+    Optional<List<TypeMirror>> multimapArguments =
+        typeArgumentsOf(type, "com.google.common.collect.Multimap", elements, types);
+    if (multimapArguments.isPresent()) {
+      TypeMirror valuesType = types.getDeclaredType(
+          elements.getTypeElement(Collection.class.getName()), multimapArguments.get().get(1));
+      return Optional.of(retainedBytesOfMap(
+          retainedSize,
+          Excerpts.add("%s.asMap()", value),
+          ImmutableList.of(multimapArguments.get().get(0), valuesType),
+          depth,
+          elements,
+          types));
+    }
+    Optional<List<TypeMirror>> listArguments =
+        typeArgumentsOf(type, List.class.getName(), elements, types);
+    if (listArguments.isPresent()) {
+      return Optional.of(retainedBytesOfElements(
+          retainedSize, value, listArguments.get().get(0), "ofList", depth, elements, types));
+    }
+    Optional<List<TypeMirror>> collectionArguments =
+        typeArgumentsOf(type, Collection.class.getName(), elements, types);
+    if (collectionArguments.isPresent()) {
+      return Optional.of(retainedBytesOfElements(
+          retainedSize, value, collectionArguments.get().get(0), "ofSet", depth, elements, types));
+    }
+    // Count anything else as a minimal object
+    return Optional.of(Excerpts.add("16"));
+  }
+
+  private static Excerpt retainedBytesOfElements(
+      QualifiedName retainedSize,
+      Excerpt value,
+      TypeMirror elementType,
+      String method,
+      int depth,
+      Elements elements,
+      Types types) {
+    Excerpt element = Excerpts.add("e%s", depth);
+    Excerpt elementBytes =
+        retainedBytesOf(retainedSize, elementType, element, depth + 1, elements, types)
+            .orElse(Excerpts.add("0"));
+    return Excerpts.add(
+        "%s.%s(%s, %s -> %s)", retainedSize, method, value, element, elementBytes);
+  }
+
+  private static Excerpt retainedBytesOfMap(
+      QualifiedName retainedSize,
+      Excerpt value,
+      List<TypeMirror> typeArguments,
+      int depth,
+      Elements elements,
+      Types types) {
+    Excerpt key = Excerpts.add("k%s", depth);
+    Excerpt mapValue = Excerpts.add("v%s", depth);
+    Excerpt keyBytes =
+        retainedBytesOf(retainedSize, typeArguments.get(0), key, depth + 1, elements, types)
+            .orElse(Excerpts.add("0"));
+    Excerpt valueBytes =
+        retainedBytesOf(retainedSize, typeArguments.get(1), mapValue, depth + 1, elements, types)
+            .orElse(Excerpts.add("0"));
+    return Excerpts.add("%s.ofMap(%s, %s -> %s, %s -> %s)",
+        retainedSize, value, key, keyBytes, mapValue, valueBytes);
+  }
+
+  /** The RetainedSize class nested in the generated builder. */
+  private static final class RetainedSize extends ValueType implements Excerpt {
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      code.addLine("")
+          .addLine("/**")
+          .addLine(" * Estimates the memory retained by common types, assuming a 64-bit JVM with")
+          .addLine(" * compressed references and compact strings.")
+          .addLine(" */")
+          .addLine("private static final class RetainedSize {")
+          .addLine("")
+          .addLine("  private RetainedSize() {}")
+          .addLine("")
+          .addLine("  /** Rounds {@code bytes} up to the 8-byte alignment of objects. */")
+          .addLine("  static long align(long bytes) {")
+          .addLine("    return (bytes + 7) & ~7;")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  static long ofString(%s string) {", String.class)
+          .addLine("    // The String object, and its array of Latin-1 characters")
+          .addLine("    return 24 + align(16 + string.length());")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  static <E> long ofList(")
+          .addLine("      %s<E> elements, %s<? super E> retainedBytes) {",
+              Collection.class, ToLongFunction.class)
+          .addLine("    if (elements.isEmpty()) {")
+          .addLine("      return 0;  // Empty collections are shared")
+          .addLine("    }")
+          .addLine("    long bytes = 16 + align(16 + 4L * elements.size());")
+          .addLine("    for (E element : elements) {")
+          .addLine("      bytes += retainedBytes.applyAsLong(element);")
+          .addLine("    }")
+          .addLine("    return bytes;")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  static <E> long ofSet(")
+          .addLine("      %s<E> elements, %s<? super E> retainedBytes) {",
+              Collection.class, ToLongFunction.class)
+          .addLine("    if (elements.isEmpty()) {")
+          .addLine("      return 0;  // Empty collections are shared")
+          .addLine("    }")
+          .addLine("    // An array of elements, and a hash table twice its size")
+          .addLine("    long bytes = 24 + align(16 + 4L * elements.size())")
+          .addLine("        + align(16 + 8L * elements.size());")
+          .addLine("    for (E element : elements) {")
+          .addLine("      bytes += retainedBytes.applyAsLong(element);")
+          .addLine("    }")
+          .addLine("    return bytes;")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  static <K, V> long ofMap(")
+          .addLine("      %s<K, V> map,", Map.class)
+          .addLine("      %s<? super K> keyRetainedBytes,", ToLongFunction.class)
+          .addLine("      %s<? super V> valueRetainedBytes) {", ToLongFunction.class)
+          .addLine("    if (map.isEmpty()) {")
+          .addLine("      return 0;  // Empty collections are shared")
+          .addLine("    }")
+          .addLine("    // An array of 24-byte entries, and a hash table twice its size")
+          .addLine("    long bytes = 24 + align(16 + 4L * map.size()) + 24L * map.size()")
+          .addLine("        + align(16 + 8L * map.size());")
+          .addLine("    for (%s.Entry<K, V> entry : map.entrySet()) {", Map.class)
+          .addLine("      bytes += keyRetainedBytes.applyAsLong(entry.getKey());")
+          .addLine("      bytes += valueRetainedBytes.applyAsLong(entry.getValue());")
+          .addLine("    }")
+          .addLine("    return bytes;")
+          .addLine("  }")
+          .addLine("}");
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {}
+  }
+
+  /** The estimatedRetainedBytes method of the value and partial types. */
+  private static final class EstimatedRetainedBytesMethod extends ValueType implements Excerpt {
+
+    private final int shallowBytes;
+    private final List<Excerpt> retainedBytes;
+
+    private EstimatedRetainedBytesMethod(int shallowBytes, List<Excerpt> retainedBytes) {
+      this.shallowBytes = shallowBytes;
+      this.retainedBytes = retainedBytes;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  @%s", Override.class)
+          .addLine("  public long %s() {", METHOD)
+          .addLine("    long bytes = %s;", shallowBytes);
+      for (Excerpt bytes : retainedBytes) {
+        code.addLine("    bytes += %s;", bytes);
+      }
+      code.addLine("    return bytes;")
+          .addLine("  }");
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("shallowBytes", shallowBytes);
+      fields.add("retainedBytes", retainedBytes);
+    }
+  }
+}
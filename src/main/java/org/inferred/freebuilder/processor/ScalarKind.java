@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import static org.inferred.freebuilder.processor.model.ModelUtils.asElement;
+
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator.Initially;
+
+import java.util.Optional;
+
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Kinds of single, required property value that can be stored inline, without a reference to a
+ * boxed value.
+ *
+ * <p>Shared by the flyweight and columnar layouts, which each pick a storage for every kind they
+ * support.
+ */
+enum ScalarKind {
+  BOOLEAN, BYTE, SHORT, CHAR, INT, LONG, FLOAT, DOUBLE, ENUM, STRING;
+
+  /**
+   * Returns the kind of value held by a property of (unboxed) type {@code type}, or empty if the
+   * property may be unset, is a collection, or is of any other type.
+   */
+  static Optional<ScalarKind> of(PropertyCodeGenerator generator, TypeMirror type) {
+    if (generator.initialState() == Initially.OPTIONAL
+        || generator.getAddElementType().isPresent()) {
+      return Optional.empty();
+    }
+    switch (type.getKind()) {
+      case BOOLEAN:
+        return Optional.of(BOOLEAN);
+      case BYTE:
+        return Optional.of(BYTE);
+      case SHORT:
+        return Optional.of(SHORT);
+      case CHAR:
+        return Optional.of(CHAR);
+      case INT:
+        return Optional.of(INT);
+      case LONG:
+        return Optional.of(LONG);
+      case FLOAT:
+        return Optional.of(FLOAT);
+      case DOUBLE:
+        return Optional.of(DOUBLE);
+      case DECLARED:
+        break;
+      default:
+        return Optional.empty();
+    }
+    TypeElement element = asElement((DeclaredType) type);
+    if (element.getKind() == ElementKind.ENUM) {
+      return Optional.of(ENUM);
+    } else if (element.getQualifiedName().contentEquals(String.class.getName())) {
+      return Optional.of(STRING);
+    }
+    return Optional.empty();
+  }
+}
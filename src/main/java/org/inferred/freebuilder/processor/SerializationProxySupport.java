@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import static org.inferred.freebuilder.processor.BuilderFactory.TypeInference.INFERRED_TYPES;
+import static org.inferred.freebuilder.processor.model.ModelUtils.findAnnotationMirror;
+
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import com.google.common.annotations.GwtCompatible;
+
+import org.inferred.freebuilder.GenerateSerializationProxy;
+import org.inferred.freebuilder.processor.property.Property;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator;
+import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.FieldAccess;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.ValueType;
+import org.inferred.freebuilder.processor.source.Variable;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+import java.util.Map;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Replaces the default serialized form of serializable value types annotated
+ * {@link GenerateSerializationProxy} with a compact {@link Externalizable} proxy, which writes
+ * each property positionally and is read back through the user's builder, so any constraints the
+ * builder enforces are re-checked on deserialization.
+ */
+class SerializationProxySupport {
+
+  public static Datatype.Builder serializationProxyMetadata(
+      TypeElement type,
+      Datatype datatype,
+      Map<Property, PropertyCodeGenerator> generatorsByProperty,
+      Elements elements,
+      Types types,
+      Messager messager) {
+    Datatype.Builder extraMetadata = new Datatype.Builder();
+    if (type.getAnnotation(GenerateSerializationProxy.class) == null) {
+      return extraMetadata;
+    }
+    TypeElement serializable = elements.getTypeElement(Serializable.class.getName());
+    if (!types.isAssignable(type.asType(), serializable.asType())) {
+      messager.printMessage(
+          ERROR, "@GenerateSerializationProxy requires a Serializable type", type);
+      return extraMetadata;
+    }
+    if (datatype.getType().isParameterized()) {
+      messager.printMessage(
+          ERROR, "@GenerateSerializationProxy is not supported on generic types", type);
+      return extraMetadata;
+    }
+    if (!datatype.getBuilderFactory().isPresent()) {
+      messager.printMessage(
+          ERROR, "@GenerateSerializationProxy requires a no-args Builder constructor", type);
+      return extraMetadata;
+    }
+    if (findAnnotationMirror(type, GwtCompatible.class).isPresent()) {
+      messager.printMessage(
+          ERROR, "@GenerateSerializationProxy is not supported on @GwtCompatible types", type);
+      return extraMetadata;
+    }
+    if (declaresWriteReplace(type, elements)) {
+      messager.printMessage(
+          ERROR, "@GenerateSerializationProxy cannot be used with a custom writeReplace method",
+          type);
+      return extraMetadata;
+    }
+    extraMetadata.addValueTypeMembers(new WriteReplaceMethod());
+    extraMetadata.addNestedClasses(new SerializedForm(datatype, generatorsByProperty));
+    return extraMetadata;
+  }
+
+  private static boolean declaresWriteReplace(TypeElement type, Elements elements) {
+    for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+      if (method.getSimpleName().contentEquals("writeReplace")
+          && method.getParameters().isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final class WriteReplaceMethod extends ValueType implements Excerpt {
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      code.addLine("")
+          .addLine("  private Object writeReplace() {")
+          .addLine("    return new SerializedForm(this);")
+          .addLine("  }");
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {}
+  }
+
+  private static final class SerializedForm extends ValueType implements Excerpt {
+
+    private final Datatype datatype;
+    private final Map<Property, PropertyCodeGenerator> generatorsByProperty;
+
+    private SerializedForm(
+        Datatype datatype,
+        Map<Property, PropertyCodeGenerator> generatorsByProperty) {
+      this.datatype = datatype;
+      this.generatorsByProperty = generatorsByProperty;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      FieldAccess value = new FieldAccess("value");
+      Variable builder = new Variable("builder");
+      // Parameters are entered into the method scope, so properties cannot shadow them
+      String out = "out";
+      String in = "in";
+      code.addLine("")
+          .addLine("/**")
+          .addLine(" * Compact serialized form of %s, read back through %s.",
+              datatype.getType().javadocLink(), datatype.getBuilder().javadocLink())
+          .addLine(" */")
+          .addLine("private static final class SerializedForm implements %s {",
+              Externalizable.class)
+          .addLine("")
+          .addLine("  private static final long serialVersionUID = 1L;")
+          .addLine("")
+          .addLine("  private %s value;", datatype.getType())
+          .addLine("")
+          .addLine("  /** Used by deserialization. */")
+          .addLine("  public SerializedForm() {}")
+          .addLine("")
+          .addLine("  SerializedForm(%s value) {", datatype.getType())
+          .addLine("    this.value = value;")
+          .addLine("  }")
+          .addLine("")
+          .addLine("  @%s", Override.class)
+          .addLine("  public void writeExternal(%s %s) throws %s {",
+              ObjectOutput.class, out, IOException.class);
+      generatorsByProperty.values().forEach(generator -> {
+        generator.addWriteExternal(code, value, out);
+      });
+      code.addLine("  }")
+          .addLine("")
+          .addLine("  @%s", Override.class)
+          .addLine("  @%s(\"unchecked\")", SuppressWarnings.class)
+          .addLine("  public void readExternal(%s %s) throws %s, %s {",
+              ObjectInput.class, in, IOException.class, ClassNotFoundException.class)
+          .addLine("    %s %s = %s;",
+              datatype.getBuilder(),
+              builder,
+              datatype.getBuilderFactory().get().newBuilder(datatype.getBuilder(), INFERRED_TYPES));
+      generatorsByProperty.values().forEach(generator -> {
+        generator.addReadExternal(code, builder, in);
+      });
+      code.addLine("    %s = %s.%s();", value, builder, datatype.getBuildMethod().name())
+          .addLine("  }")
+          .addLine("")
+          .addLine("  private Object readResolve() {")
+          .addLine("    return value;")
+          .addLine("  }")
+          .addLine("}");
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("datatype", datatype);
+      fields.add("generatorsByProperty", generatorsByProperty);
+    }
+  }
+}
@@ -5,6 +5,8 @@ import static com.google.common.collect.Iterables.getLast;
 
 import static org.inferred.freebuilder.processor.property.DefaultProperty.UNSET_PROPERTIES;
 
+import static javax.lang.model.util.ElementFilter.methodsIn;
+
 import org.inferred.freebuilder.processor.property.Property;
 import org.inferred.freebuilder.processor.property.PropertyCodeGenerator;
 import org.inferred.freebuilder.processor.property.PropertyCodeGenerator.Initially;
@@ -17,36 +19,25 @@ import java.util.Map;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import javax.lang.model.element.Element;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
 class ToStringGenerator {
 
   /**
-   * Generates a toString method using concatenation or a StringBuilder.
+   * Generates a toString method using concatenation or a StringBuilder, or delegating to the
+   * appendTo method if the user has declared one.
    */
   public static void addToString(
       SourceBuilder code,
       Datatype datatype,
       Map<Property, PropertyCodeGenerator> generatorsByProperty,
       boolean forPartial) {
-    // This code is to ensure entry order is preserved.
-    // Specifically this code is boiler plate from Collectors.toMap.
-    // Except with a LinkedHashMap supplier.
-    generatorsByProperty = generatorsByProperty.entrySet().stream()
-        .filter(e -> e.getKey().isInToString())
-        .collect(
-            Collectors.toMap(
-                Map.Entry::getKey,
-                Map.Entry::getValue,
-                (u, v) -> {
-                  throw new IllegalStateException(String.format("Duplicate key %s", u));
-                },
-                LinkedHashMap::new
-            )
-        );
-    String typename = (forPartial ? "partial " : "") + datatype.getType().getSimpleName();
-    Predicate<PropertyCodeGenerator> isOptional = generator -> {
-      Initially initially = generator.initialState();
-      return (initially == Initially.OPTIONAL || (initially == Initially.REQUIRED && forPartial));
-    };
+    generatorsByProperty = inToString(generatorsByProperty);
+    String typename = typename(datatype, forPartial);
+    Predicate<PropertyCodeGenerator> isOptional = isOptional(forPartial);
     boolean anyOptional = generatorsByProperty.values().stream().anyMatch(isOptional);
     boolean allOptional = generatorsByProperty.values().stream().allMatch(isOptional)
         && !generatorsByProperty.isEmpty();
@@ -54,7 +45,9 @@ class ToStringGenerator {
     code.addLine("")
         .addLine("@%s", Override.class)
         .addLine("public %s toString() {", String.class);
-    if (allOptional) {
+    if (datatype.getHasAppendToMethod()) {
+      code.addLine("  return appendTo(new %s()).toString();", StringBuilder.class);
+    } else if (allOptional) {
       bodyWithBuilderAndSeparator(code, datatype, generatorsByProperty, typename);
     } else if (anyOptional) {
       bodyWithBuilder(code, datatype, generatorsByProperty, typename, isOptional);
@@ -238,5 +231,139 @@ class ToStringGenerator {
     code.addLine("  return %s.append(\"}\").toString();", result);
   }
 
+  /**
+   * Generates an appendTo method, writing the same output as toString into a caller-supplied
+   * StringBuilder.
+   *
+   * <p>Properties whose type also declares {@code appendTo(StringBuilder)}, such as nested
+   * FreeBuilder types, are asked to append themselves, so a whole tree of values is written into
+   * one buffer without creating an intermediate string per value.
+   *
+   * <p>Separators are handled as in {@link #bodyWithBuilder}: properties before the first one that
+   * is always present append a trailing comma, and properties after it prepend one. If every
+   * property is optional, a runtime separator variable is used instead, as in
+   * {@link #bodyWithBuilderAndSeparator}.
+   */
+  public static void addAppendTo(
+      SourceBuilder code,
+      Datatype datatype,
+      Map<Property, PropertyCodeGenerator> generatorsByProperty,
+      boolean forPartial) {
+    generatorsByProperty = inToString(generatorsByProperty);
+    Predicate<PropertyCodeGenerator> isOptional = isOptional(forPartial);
+    boolean allOptional = generatorsByProperty.values().stream().allMatch(isOptional)
+        && !generatorsByProperty.isEmpty();
+    // Parameter names are registered in the method scope, so field references will not clash
+    String result = "result";
+    Variable separator = new Variable("separator");
+
+    code.addLine("")
+        .addLine("@%s", Override.class)
+        .addLine("public %1$s appendTo(%1$s %2$s) {", StringBuilder.class, result)
+        .addLine("  %s.append(\"%s{\");", result, typename(datatype, forPartial));
+    if (allOptional && generatorsByProperty.size() > 1) {
+      code.addLine("  %s %s = \"\";", String.class, separator);
+    }
+    boolean prependCommas = false;
+    Property first = generatorsByProperty.keySet().stream().findFirst().orElse(null);
+    Property last = generatorsByProperty.isEmpty() ? null : getLast(generatorsByProperty.keySet());
+    for (Property property : generatorsByProperty.keySet()) {
+      PropertyCodeGenerator generator = generatorsByProperty.get(property);
+      boolean optional = isOptional.test(generator);
+      String indent = "  ";
+      if (optional) {
+        code.add("  if (");
+        if (generator.initialState() == Initially.OPTIONAL) {
+          generator.addToStringCondition(code);
+        } else {
+          code.add("!%s.contains(%s.%s)",
+              UNSET_PROPERTIES, datatype.getPropertyEnum(), property.getAllCapsName());
+        }
+        code.add(") {%n");
+        indent = "    ";
+      }
+      code.add("%s%s", indent, result);
+      if (allOptional) {
+        if (property != first) {
+          code.add(".append(%s)", separator);
+        }
+        code.add(".append(\"%s=\")", property.getName());
+      } else {
+        code.add(".append(\"%s%s=\")", prependCommas ? ", " : "", property.getName());
+      }
+      Excerpt value = generator::addToStringValue;
+      if (hasAppendToMethod(property.getType())) {
+        code.add(";%n%s%s.appendTo(%s)", indent, value, result);
+        if (optional && !allOptional && !prependCommas) {
+          code.add(";%n%s%s", indent, result);
+        }
+      } else {
+        code.add(".append(%s)", value);
+      }
+      if (optional && !allOptional && !prependCommas) {
+        code.add(".append(\", \")");
+      }
+      code.add(";%n");
+      if (allOptional && property != last) {
+        code.addLine("%s%s = \", \";", indent, separator);
+      }
+      if (optional) {
+        code.addLine("  }");
+      } else {
+        prependCommas = true;
+      }
+    }
+    code.addLine("  return %s.append(\"}\");", result)
+        .addLine("}");
+  }
+
+  /** Returns whether {@code type} declares an {@code appendTo(StringBuilder)} method. */
+  private static boolean hasAppendToMethod(TypeMirror type) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    Element element = ((DeclaredType) type).asElement();
+    return methodsIn(element.getEnclosedElements()).stream().anyMatch(method ->
+        method.getSimpleName().contentEquals("appendTo")
+            && method.getParameters().size() == 1
+            && isStringBuilder(method.getParameters().get(0).asType())
+            && isStringBuilder(method.getReturnType()));
+  }
+
+  private static boolean isStringBuilder(TypeMirror type) {
+    return type.toString().equals(StringBuilder.class.getName());
+  }
+
+  /** Returns the properties to include in toString, in order. */
+  private static Map<Property, PropertyCodeGenerator> inToString(
+      Map<Property, PropertyCodeGenerator> generatorsByProperty) {
+    // This code is to ensure entry order is preserved.
+    // Specifically this code is boiler plate from Collectors.toMap.
+    // Except with a LinkedHashMap supplier.
+    return generatorsByProperty.entrySet().stream()
+        .filter(e -> e.getKey().isInToString())
+        .collect(
+            Collectors.toMap(
+                Map.Entry::getKey,
+                Map.Entry::getValue,
+                (u, v) -> {
+                  throw new IllegalStateException(String.format("Duplicate key %s", u));
+                },
+                LinkedHashMap::new
+            )
+        );
+  }
+
+  private static String typename(Datatype datatype, boolean forPartial) {
+    return (forPartial ? "partial " : "") + datatype.getType().getSimpleName();
+  }
+
+  private static Predicate<PropertyCodeGenerator> isOptional(boolean forPartial) {
+    return generator -> {
+      Initially initially = generator.initialState();
+      return (initially == Initially.OPTIONAL || (initially == Initially.REQUIRED && forPartial));
+    };
+  }
+
   private ToStringGenerator() { }
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import static org.inferred.freebuilder.processor.BuilderFactory.TypeInference.INFERRED_TYPES;
+import static org.inferred.freebuilder.processor.BuilderMethods.setter;
+import static org.inferred.freebuilder.processor.Datatype.UnderrideLevel.ABSENT;
+import static org.inferred.freebuilder.processor.FingerprintSupport.isFingerprintMethod;
+import static org.inferred.freebuilder.processor.RetainedSizeSupport.isRetainedSizeMethod;
+import static org.inferred.freebuilder.processor.WithMethodsSupport.isWithMethod;
+
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import org.inferred.freebuilder.processor.Datatype.StandardMethod;
+import org.inferred.freebuilder.processor.property.Property;
+import org.inferred.freebuilder.processor.source.ObjectsExcerpts;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.Variable;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Types;
+
+/**
+ * Generates the standard methods of nested classes that implement the user's type on top of
+ * some other storage, calling their own getters rather than reading fields.
+ */
+class ViewMethods {
+
+  /**
+   * Adds toBuilder (if the user's type declares one), equals, hashCode and toString to the view
+   * class {@code viewClass}, skipping any standard method the user has already implemented.
+   * Views are only equal to other instances of {@code viewClass}.
+   */
+  public static void addViewMethods(
+      SourceBuilder code, Datatype datatype, String viewClass, List<Property> properties) {
+    if (datatype.getHasToBuilderMethod()) {
+      addToBuilder(code, datatype, properties);
+    }
+    if (datatype.standardMethodUnderride(StandardMethod.EQUALS) == ABSENT) {
+      addEquals(code, viewClass, properties);
+    }
+    if (datatype.standardMethodUnderride(StandardMethod.HASH_CODE) == ABSENT) {
+      addHashCode(code, properties);
+    }
+    if (datatype.standardMethodUnderride(StandardMethod.TO_STRING) == ABSENT) {
+      addToString(code, datatype, properties);
+    }
+  }
+
+  /**
+   * Reports an error on {@code type} for each abstract method, other than a property getter or
+   * standard method, that the view classes generated for {@code annotation} cannot implement.
+   * Returns whether there were none.
+   */
+  public static boolean checkViewable(
+      TypeElement type,
+      Datatype datatype,
+      Class<? extends Annotation> annotation,
+      Set<ExecutableElement> methods,
+      Types types,
+      Messager messager) {
+    boolean viewable = true;
+    if (datatype.getHasAppendToMethod()) {
+      messager.printMessage(ERROR, unsupportedMethodMessage(annotation, "appendTo"), type);
+      viewable = false;
+    }
+    for (ExecutableElement method : methods) {
+      if (method.getModifiers().contains(Modifier.ABSTRACT)
+          && (isWithMethod(type, method, types)
+              || isFingerprintMethod(type, method)
+              || isRetainedSizeMethod(type, method))) {
+        messager.printMessage(
+            ERROR, unsupportedMethodMessage(annotation, method.getSimpleName()), type);
+        viewable = false;
+      }
+    }
+    return viewable;
+  }
+
+  private static String unsupportedMethodMessage(
+      Class<? extends Annotation> annotation, CharSequence methodName) {
+    return "@" + annotation.getSimpleName() + " does not support " + methodName
+        + "(), as its views cannot implement it";
+  }
+
+  private static void addToBuilder(
+      SourceBuilder code, Datatype datatype, List<Property> properties) {
+    code.addLine("")
+        .addLine("  @%s", Override.class)
+        .addLine("  public %s toBuilder() {", datatype.getBuilder());
+    BuilderFactory builderFactory = datatype.getBuilderFactory().orElse(null);
+    if (builderFactory != null) {
+      Variable builder = new Variable("builder");
+      code.addLine("    %s %s = %s;",
+          datatype.getBuilder(),
+          builder,
+          builderFactory.newBuilder(datatype.getBuilder(), INFERRED_TYPES));
+      for (Property property : properties) {
+        code.addLine("    %s.%s(%s());", builder, setter(property), property.getGetterName());
+      }
+      code.addLine("    return %s;", builder);
+    } else {
+      code.addLine("    throw new %s();", UnsupportedOperationException.class);
+    }
+    code.addLine("  }");
+  }
+
+  private static void addEquals(SourceBuilder code, String viewClass, List<Property> properties) {
+    code.addLine("")
+        .addLine("  @%s", Override.class)
+        .addLine("  public boolean equals(Object obj) {")
+        .addLine("    if (!(obj instanceof %s)) {", viewClass)
+        .addLine("      return false;")
+        .addLine("    }")
+        .addLine("    %1$s other = (%1$s) obj;", viewClass);
+    String prefix = "    return ";
+    boolean any = false;
+    for (Property property : properties) {
+      if (!property.isInEqualsAndHashCode()) {
+        continue;
+      }
+      String getter = property.getGetterName() + "()";
+      code.add(prefix).add(ObjectsExcerpts.equals(
+          getter, "other." + getter, property.getType().getKind()));
+      prefix = "\n        && ";
+      any = true;
+    }
+    if (any) {
+      code.add(";\n");
+    } else {
+      code.addLine("    return true;");
+    }
+    code.addLine("  }");
+  }
+
+  private static void addHashCode(SourceBuilder code, List<Property> properties) {
+    code.addLine("")
+        .addLine("  @%s", Override.class)
+        .addLine("  public int hashCode() {")
+        .add("    return %s.hash(", Objects.class);
+    String separator = "";
+    for (Property property : properties) {
+      if (property.isInEqualsAndHashCode()) {
+        code.add("%s%s()", separator, property.getGetterName());
+        separator = ", ";
+      }
+    }
+    code.add(");\n")
+        .addLine("  }");
+  }
+
+  private static void addToString(
+      SourceBuilder code, Datatype datatype, List<Property> properties) {
+    code.addLine("")
+        .addLine("  @%s", Override.class)
+        .addLine("  public %s toString() {", String.class)
+        .add("    return \"%s{", datatype.getType().getSimpleName());
+    String separator = "";
+    for (Property property : properties) {
+      if (property.isInToString()) {
+        code.add("%s%s=\" + %s() + \"", separator, property.getName(), property.getGetterName());
+        separator = ", ";
+      }
+    }
+    code.add("}\";\n")
+        .addLine("  }");
+  }
+
+  private ViewMethods() {}
+}
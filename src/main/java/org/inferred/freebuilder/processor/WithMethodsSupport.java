@@ -0,0 +1,268 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import static org.inferred.freebuilder.processor.BuilderMethods.setter;
+import static org.inferred.freebuilder.processor.model.ModelUtils.overrides;
+
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import com.google.common.collect.ImmutableList;
+
+import org.inferred.freebuilder.processor.property.Property;
+import org.inferred.freebuilder.processor.property.PropertyCodeGenerator;
+import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.ValueType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.util.Types;
+
+/**
+ * Implements abstract {@code withX(newValue)} methods, returning a copy of the value with one
+ * property replaced, without going through a builder.
+ */
+class WithMethodsSupport {
+
+  private static final String PREFIX = "with";
+
+  /**
+   * Returns whether {@code method} is an abstract {@code withX} method of {@code type}: it takes a
+   * single parameter and returns {@code type}.
+   */
+  public static boolean isWithMethod(TypeElement type, ExecutableElement method, Types types) {
+    String name = method.getSimpleName().toString();
+    return name.length() > PREFIX.length()
+        && name.startsWith(PREFIX)
+        && Character.isUpperCase(name.charAt(PREFIX.length()))
+        && method.getModifiers().contains(Modifier.ABSTRACT)
+        && method.getParameters().size() == 1
+        && types.isSameType(method.getReturnType(), type.asType());
+  }
+
+  public static Datatype.Builder withMethodsMetadata(
+      TypeElement type,
+      Datatype datatype,
+      DeclaredType builder,
+      Set<ExecutableElement> methods,
+      Map<Property, PropertyCodeGenerator> generatorsByProperty,
+      Types types,
+      Messager messager) {
+    Datatype.Builder extraMetadata = new Datatype.Builder();
+    ImmutableList.Builder<WithMethod> withMethods = ImmutableList.builder();
+    for (ExecutableElement method : methods) {
+      if (!isWithMethod(type, method, types)) {
+        continue;
+      }
+      Property property = findProperty(method, generatorsByProperty.keySet(), types).orElse(null);
+      if (property == null) {
+        messager.printMessage(
+            ERROR, method.getSimpleName() + " does not match any property", method);
+        continue;
+      }
+      boolean setterOverridden = overrides(builder, types, setter(property), property.getType());
+      if (setterOverridden && !datatype.getBuilderFactory().isPresent()) {
+        messager.printMessage(
+            ERROR,
+            "No accessible no-args Builder constructor available to call " + setter(property)
+                + " from " + method.getSimpleName(),
+            method);
+        continue;
+      }
+      PropertyCodeGenerator generator = generatorsByProperty.get(property);
+      if (!setterOverridden && !generator.checkedValueField(Excerpts.add("")).isPresent()) {
+        messager.printMessage(
+            ERROR,
+            method.getSimpleName() + " is only supported on plain and @Nullable properties",
+            method);
+        continue;
+      }
+      withMethods.add(new WithMethod(property, setterOverridden));
+    }
+    List<WithMethod> allWithMethods = withMethods.build();
+    if (!allWithMethods.isEmpty()) {
+      extraMetadata.addValueTypeMembers(
+          new ValueWithMethods(datatype, generatorsByProperty, allWithMethods));
+      extraMetadata.addPartialTypeMembers(new PartialWithMethods(datatype, allWithMethods));
+    }
+    return extraMetadata;
+  }
+
+  private static Optional<Property> findProperty(
+      ExecutableElement method, Set<Property> properties, Types types) {
+    String capitalizedName = method.getSimpleName().toString().substring(PREFIX.length());
+    return properties.stream()
+        .filter(property -> property.getCapitalizedName().equals(capitalizedName))
+        .filter(property -> types.isSameType(
+            property.getType(), method.getParameters().get(0).asType()))
+        .findAny();
+  }
+
+  private static final class WithMethod extends ValueType {
+
+    private final Property property;
+    /** Whether the user overrides the builder's setter, so it must be called to validate. */
+    private final boolean setterOverridden;
+
+    private WithMethod(Property property, boolean setterOverridden) {
+      this.property = property;
+      this.setterOverridden = setterOverridden;
+    }
+
+    String name() {
+      return PREFIX + property.getCapitalizedName();
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("property", property);
+      fields.add("setterOverridden", setterOverridden);
+    }
+  }
+
+  /**
+   * The with methods of the value type, and the private constructor they call that copies every
+   * other field from an existing instance.
+   */
+  private static final class ValueWithMethods extends ValueType implements Excerpt {
+
+    private final Datatype datatype;
+    private final Map<Property, PropertyCodeGenerator> generatorsByProperty;
+    private final List<WithMethod> withMethods;
+
+    private ValueWithMethods(
+        Datatype datatype,
+        Map<Property, PropertyCodeGenerator> generatorsByProperty,
+        List<WithMethod> withMethods) {
+      this.datatype = datatype;
+      this.generatorsByProperty = generatorsByProperty;
+      this.withMethods = withMethods;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      List<Property> replaced = new ArrayList<>();
+      for (WithMethod withMethod : withMethods) {
+        if (!withMethod.setterOverridden) {
+          replaced.add(withMethod.property);
+        }
+      }
+      if (!replaced.isEmpty()) {
+        addCopyConstructor(code, replaced);
+      }
+      for (WithMethod withMethod : withMethods) {
+        Property property = withMethod.property;
+        code.addLine("")
+            .addLine("  @%s", Override.class)
+            .addLine("  public %s %s(%s %s) {",
+                datatype.getType(), withMethod.name(), property.getType(), property.getName());
+        if (withMethod.setterOverridden) {
+          code.addLine("    return toBuilder().%s(%s).%s();",
+              setter(property), property.getName(), datatype.getBuildMethod().name());
+        } else {
+          code.add("    return %s(this", datatype.getValueType().constructor());
+          for (Property copied : replaced) {
+            if (copied.equals(property)) {
+              code.add(", %s", generatorsByProperty.get(copied)
+                  .checkedValueField(Excerpts.add("%s", property.getName())).get());
+            } else {
+              code.add(", %s", copied.getField().on("this"));
+            }
+          }
+          code.add(");\n");
+        }
+        code.addLine("  }");
+      }
+    }
+
+    /**
+     * Adds a constructor taking the new value of every property a with method can replace, and
+     * copying every other field from {@code base}.
+     */
+    private void addCopyConstructor(SourceBuilder code, List<Property> replaced) {
+      Excerpt base = Excerpts.add("base");
+      code.addLine("")
+          .add("  private %s(%s %s",
+              datatype.getValueType().getSimpleName(), datatype.getValueType(), base);
+      for (Property property : replaced) {
+        code.add(", %s %s", property.getType(), property.getName());
+      }
+      code.add(") {\n");
+      generatorsByProperty.forEach((property, generator) -> {
+        if (replaced.contains(property)) {
+          code.addLine("    %s = %s;", property.getField().on("this"), property.getName());
+        } else {
+          generator.addCopyFromValue(code, base);
+        }
+      });
+      code.addLine("  }");
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("datatype", datatype);
+      fields.add("generatorsByProperty", generatorsByProperty);
+      fields.add("withMethods", withMethods);
+    }
+  }
+
+  /** The with methods of the partial type, which go through a builder to track unset fields. */
+  private static final class PartialWithMethods extends ValueType implements Excerpt {
+
+    private final Datatype datatype;
+    private final List<WithMethod> withMethods;
+
+    private PartialWithMethods(Datatype datatype, List<WithMethod> withMethods) {
+      this.datatype = datatype;
+      this.withMethods = withMethods;
+    }
+
+    @Override
+    public void addTo(SourceBuilder code) {
+      for (WithMethod withMethod : withMethods) {
+        Property property = withMethod.property;
+        code.addLine("")
+            .addLine("  @%s", Override.class)
+            .addLine("  public %s %s(%s %s) {",
+                datatype.getType(), withMethod.name(), property.getType(), property.getName());
+        if (datatype.getBuilderFactory().isPresent()) {
+          code.addLine("    return toBuilder().%s(%s).%s();",
+              setter(property), property.getName(), datatype.getBuildMethod().name());
+        } else {
+          code.addLine("    throw new %s();", UnsupportedOperationException.class);
+        }
+        code.addLine("  }");
+      }
+    }
+
+    @Override
+    protected void addFields(FieldReceiver fields) {
+      fields.add("datatype", datatype);
+      fields.add("withMethods", withMethods);
+    }
+  }
+}
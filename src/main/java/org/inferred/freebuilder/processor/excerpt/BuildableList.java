@@ -41,14 +41,21 @@ import java.util.RandomAccess;
  */
 public class BuildableList extends ValueType implements Excerpt {
 
-  public static LazyName of(BuildableType element) {
-    return new BuildableList(element).name();
+  /**
+   * Returns the name of a list class holding {@code element} values or builders. If
+   * {@code reuseUnchanged} is set, its build method returns the list it last built if every
+   * element still builds the same instance.
+   */
+  public static LazyName of(BuildableType element, boolean reuseUnchanged) {
+    return new BuildableList(element, reuseUnchanged).name();
   }
 
   private final BuildableType element;
+  private final boolean reuseUnchanged;
 
-  private BuildableList(BuildableType element) {
+  private BuildableList(BuildableType element, boolean reuseUnchanged) {
     this.element = element;
+    this.reuseUnchanged = reuseUnchanged;
   }
 
   LazyName name() {
@@ -70,6 +77,10 @@ public class BuildableList extends ValueType implements Excerpt {
     } else {
       code.addLine("  private final %1$s elements = new %1$s();", ArrayList.class);
     }
+    if (reuseUnchanged) {
+      code.addLine("  // The list last returned by build(), if any")
+          .addLine("  private %s<%s> built = null;", listType(code), element.type());
+    }
     addSize(code);
     addGet(code);
     addSet(code);
@@ -78,7 +89,11 @@ public class BuildableList extends ValueType implements Excerpt {
     addEnsureCapacity(code);
     addAddValue(code);
     addAddAllValues(code);
-    addBuild(code, "build");
+    if (reuseUnchanged) {
+      addMemoizedBuild(code);
+    } else {
+      addBuild(code, "build");
+    }
     addBuild(code, "buildPartial");
     code.addLine("}");
   }
@@ -181,6 +196,46 @@ public class BuildableList extends ValueType implements Excerpt {
         .addLine("}");
   }
 
+  private Class<?> listType(SourceBuilder code) {
+    return code.feature(GUAVA).isAvailable() ? ImmutableList.class : List.class;
+  }
+
+  private void addMemoizedBuild(SourceBuilder code) {
+    code.addLine("")
+        .addLine("%s<%s> build() {", listType(code), element.type());
+    if (code.feature(GUAVA).isAvailable()) {
+      code.addLine("  if (elements instanceof %s) {", ImmutableList.class)
+          .addLine("    return (%s<%s>) elements;", ImmutableList.class, element.type())
+          .addLine("  }");
+    }
+    code.addLine("  // Reuse the last list built, without allocating, if every element still")
+        .addLine("  // builds the same instance as before")
+        .addLine("  int size = elements.size();")
+        .addLine("  int unchanged = 0;")
+        .addLine("  if (built != null && built.size() == size) {")
+        .addLine("    while (unchanged < size")
+        .addLine("        && build(elements.get(unchanged)) == built.get(unchanged)) {")
+        .addLine("      unchanged++;")
+        .addLine("    }")
+        .addLine("    if (unchanged == size) {")
+        .addLine("      return built;")
+        .addLine("    }")
+        .addLine("  }")
+        .addLine("  Object[] values = new Object[size];")
+        .addLine("  for (int i = 0; i < size; i++) {")
+        .addLine("    values[i] = (i < unchanged) ? built.get(i) : build(elements.get(i));")
+        .addLine("  }");
+    if (code.feature(GUAVA).isAvailable()) {
+      code.addLine("  built = (%1$s) %1$s.copyOf(values);", ImmutableList.class);
+    } else {
+      code.addLine("  built = (%s) %s.unmodifiableList(%s.asList(values));",
+          List.class, Collections.class, Arrays.class);
+    }
+    code.addLine("  return built;")
+        .addLine("}");
+    addBuildElement(code, "build");
+  }
+
   private void addBuild(SourceBuilder code, String buildMethod) {
     code.addLine("");
     if (code.feature(GUAVA).isAvailable()) {
@@ -212,8 +267,12 @@ public class BuildableList extends ValueType implements Excerpt {
               Collections.class, Arrays.class)
           .addLine("  }");
     }
-    code.addLine("}")
-        .addLine("")
+    code.addLine("}");
+    addBuildElement(code, buildMethod);
+  }
+
+  private void addBuildElement(SourceBuilder code, String buildMethod) {
+    code.addLine("")
         .addLine("private %s %s(Object element) {", element.type(), buildMethod)
         .addLine("  if (element instanceof %s) {", element.type().getQualifiedName())
         .addLine("    return (%s) element;", element.type())
@@ -234,6 +293,7 @@ public class BuildableList extends ValueType implements Excerpt {
   @Override
   protected void addFields(FieldReceiver fields) {
     fields.add("type", element);
+    fields.add("reuseUnchanged", reuseUnchanged);
   }
 
   private void convertToBuilder(String variable, SourceBuilder code) {
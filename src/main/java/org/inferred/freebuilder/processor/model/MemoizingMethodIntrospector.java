@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor.model;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Name;
+
+/**
+ * {@link MethodIntrospector} that walks the source tree of each method at most once, replaying
+ * the recorded results on subsequent calls.
+ */
+class MemoizingMethodIntrospector extends MethodIntrospector {
+
+  /** A method invocation found by {@link #visitAllOwnMethodInvocations}. */
+  private static class Invocation {
+    private final Name methodName;
+    private final OwnMethodInvocationVisitor.Logger logger;
+
+    Invocation(Name methodName, OwnMethodInvocationVisitor.Logger logger) {
+      this.methodName = methodName;
+      this.logger = logger;
+    }
+  }
+
+  private final MethodIntrospector delegate;
+  private final Map<ExecutableElement, Set<Name>> ownMethodInvocations = new ConcurrentHashMap<>();
+  private final Map<ExecutableElement, List<Invocation>> allOwnMethodInvocations =
+      new ConcurrentHashMap<>();
+
+  MemoizingMethodIntrospector(MethodIntrospector delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Set<Name> getOwnMethodInvocations(ExecutableElement method) {
+    return ownMethodInvocations.computeIfAbsent(method, delegate::getOwnMethodInvocations);
+  }
+
+  @Override
+  public void visitAllOwnMethodInvocations(
+      ExecutableElement method,
+      OwnMethodInvocationVisitor visitor) {
+    List<Invocation> invocations = allOwnMethodInvocations.computeIfAbsent(method, m -> {
+      ImmutableList.Builder<Invocation> result = ImmutableList.builder();
+      delegate.visitAllOwnMethodInvocations(
+          m, (methodName, logger) -> result.add(new Invocation(methodName, logger)));
+      return result.build();
+    });
+    for (Invocation invocation : invocations) {
+      visitor.visitInvocation(invocation.methodName, invocation.logger);
+    }
+  }
+}
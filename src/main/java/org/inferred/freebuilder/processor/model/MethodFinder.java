@@ -21,6 +21,7 @@ import static javax.lang.model.util.ElementFilter.methodsIn;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 
@@ -29,6 +30,7 @@ import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
@@ -41,7 +43,11 @@ import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 
 /**
- * Static utility method for finding all methods, declared and inherited, on a type.
+ * Finds all methods, declared and inherited, on a type.
+ *
+ * <p>Instances cache their results, and are owned by the processor, which clears them at the end
+ * of each round. The static {@link #methodsOn(TypeElement, Elements, ErrorTypeHandling)} method
+ * caches nothing.
  */
 public class MethodFinder {
 
@@ -62,11 +68,44 @@ public class MethodFinder {
       TypeElement type,
       Elements elements,
       ErrorTypeHandling<E> errorTypeHandling) throws E {
+    return new MethodFinder(elements).methodsOn(type, errorTypeHandling);
+  }
+
+  private final Elements elements;
+  /**
+   * Methods found on types whose hierarchy contained no error types, and are therefore stable for
+   * the rest of the round.
+   */
+  private final ConcurrentMap<TypeElement, ImmutableSet<ExecutableElement>> methodsCache =
+      new MapMaker().weakKeys().makeMap();
+  /** Supertypes of types whose hierarchy contained no error types, including the type itself. */
+  private final ConcurrentMap<TypeElement, ImmutableSet<TypeElement>> supertypesCache =
+      new MapMaker().weakKeys().makeMap();
+
+  public MethodFinder(Elements elements) {
+    this.elements = elements;
+  }
+
+  /**
+   * Returns all methods, declared and inherited, on {@code type}, as
+   * {@link #methodsOn(TypeElement, Elements, ErrorTypeHandling)} does.
+   *
+   * <p>Results are cached until {@link #clearCaches()} is called, unless the type hierarchy
+   * contains error types, in which case {@code errorTypeHandling} is called every time.
+   */
+  public <E extends Exception> ImmutableSet<ExecutableElement> methodsOn(
+      TypeElement type,
+      ErrorTypeHandling<E> errorTypeHandling) throws E {
+    ImmutableSet<ExecutableElement> cached = methodsCache.get(type);
+    if (cached != null) {
+      return cached;
+    }
+    ErrorTypeTracker<E> errorTypeTracker = new ErrorTypeTracker<>(errorTypeHandling);
     TypeElement objectType = elements.getTypeElement(Object.class.getCanonicalName());
     Map<Signature, ExecutableElement> objectMethods = Maps.uniqueIndex(
         methodsIn(objectType.getEnclosedElements()), Signature::new);
     SetMultimap<Signature, ExecutableElement> methods = LinkedHashMultimap.create();
-    for (TypeElement supertype : getSupertypes(type, errorTypeHandling)) {
+    for (TypeElement supertype : getSupertypes(type, errorTypeTracker)) {
       for (ExecutableElement method : methodsIn(supertype.getEnclosedElements())) {
         Signature signature = new Signature(method);
         if (method.getEnclosingElement().equals(objectType)) {
@@ -89,33 +128,70 @@ public class MethodFinder {
         methods.put(signature, method);
       }
     }
-    return ImmutableSet.copyOf(methods.values());
+    ImmutableSet<ExecutableElement> result = ImmutableSet.copyOf(methods.values());
+    if (!errorTypeTracker.sawErrorType) {
+      methodsCache.put(type, result);
+    }
+    return result;
   }
 
-  private static <E extends Exception> ImmutableSet<TypeElement> getSupertypes(
-      TypeElement type,
-      ErrorTypeHandling<E> errorTypeHandling) throws E {
-    Set<TypeElement> supertypes = new LinkedHashSet<>();
-    addSupertypesToSet(type, supertypes, errorTypeHandling);
-    return ImmutableSet.copyOf(supertypes);
+  /**
+   * Discards cached results. Called by the processor at the end of each round, as types generated
+   * in a round may resolve missing supertypes.
+   */
+  public void clearCaches() {
+    methodsCache.clear();
+    supertypesCache.clear();
   }
 
-  private static <E extends Exception> void addSupertypesToSet(
+  /**
+   * Returns the supertypes of {@code type}, and {@code type} itself, in depth-first order.
+   * Reuses the cached supertypes of any supertype, so shared parts of a hierarchy are only
+   * walked once.
+   */
+  private <E extends Exception> ImmutableSet<TypeElement> getSupertypes(
       TypeElement type,
-      Set<TypeElement> mutableSet,
       ErrorTypeHandling<E> errorTypeHandling) throws E {
+    ImmutableSet<TypeElement> cached = supertypesCache.get(type);
+    if (cached != null) {
+      return cached;
+    }
+    ErrorTypeTracker<E> errorTypeTracker = new ErrorTypeTracker<>(errorTypeHandling);
+    Set<TypeElement> supertypes = new LinkedHashSet<>();
     for (TypeMirror iface : type.getInterfaces()) {
-      TypeElement typeElement = maybeTypeElement(iface, errorTypeHandling).orElse(null);
+      TypeElement typeElement = maybeTypeElement(iface, errorTypeTracker).orElse(null);
       if (typeElement != null) {
-        addSupertypesToSet(typeElement, mutableSet, errorTypeHandling);
+        supertypes.addAll(getSupertypes(typeElement, errorTypeTracker));
       }
     }
     TypeElement superclassElement =
-        maybeTypeElement(type.getSuperclass(), errorTypeHandling).orElse(null);
+        maybeTypeElement(type.getSuperclass(), errorTypeTracker).orElse(null);
     if (superclassElement != null) {
-      addSupertypesToSet(superclassElement, mutableSet, errorTypeHandling);
+      supertypes.addAll(getSupertypes(superclassElement, errorTypeTracker));
+    }
+    supertypes.add(type);
+    ImmutableSet<TypeElement> result = ImmutableSet.copyOf(supertypes);
+    if (!errorTypeTracker.sawErrorType) {
+      supertypesCache.put(type, result);
+    }
+    return result;
+  }
+
+  /** Forwards error types to a delegate, recording whether any were seen. */
+  private static class ErrorTypeTracker<E extends Exception> implements ErrorTypeHandling<E> {
+
+    private final ErrorTypeHandling<E> delegate;
+    private boolean sawErrorType = false;
+
+    ErrorTypeTracker(ErrorTypeHandling<E> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void handleErrorType(ErrorType type) throws E {
+      sawErrorType = true;
+      delegate.handleErrorType(type);
     }
-    mutableSet.add(type);
   }
 
   private static <E extends Exception> Optional<TypeElement> maybeTypeElement(
@@ -154,6 +230,4 @@ public class MethodFinder {
       return (name.equals(other.name) && params == other.params);
     }
   }
-
-  private MethodFinder() {}
 }
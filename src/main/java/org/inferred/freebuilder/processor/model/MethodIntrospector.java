@@ -18,6 +18,7 @@ package org.inferred.freebuilder.processor.model;
 import static java.util.Objects.requireNonNull;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
 import com.google.common.io.ByteStreams;
 
 import org.inferred.freebuilder.processor.model.javac.JavacMethodIntrospector;
@@ -26,6 +27,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.ExecutableElement;
@@ -63,8 +65,33 @@ public abstract class MethodIntrospector {
       ExecutableElement method,
       OwnMethodInvocationVisitor visitor);
 
-  /** Returns a {@link MethodIntrospector} implementation for the given environment. */
+  /**
+   * Introspectors for the current round, keyed by environment. Some compilers create a new
+   * context, and new elements, each round, so entries are discarded by {@link #clearCaches}.
+   */
+  private static final ConcurrentMap<ProcessingEnvironment, MethodIntrospector> instances =
+      new MapMaker().weakKeys().concurrencyLevel(1).initialCapacity(1).makeMap();
+
+  /**
+   * Returns a {@link MethodIntrospector} implementation for the given environment.
+   *
+   * <p>The same instance is returned for a given environment until {@link #clearCaches} is
+   * called. Results are memoized per method, so repeated analysis of a method in a round does not
+   * walk its source tree again.
+   */
   public static MethodIntrospector instance(ProcessingEnvironment env) {
+    return instances.computeIfAbsent(env, e -> new MemoizingMethodIntrospector(create(e)));
+  }
+
+  /**
+   * Discards the introspector for {@code env}, and with it any memoized results and compiler
+   * trees. Called by the processor at the end of each round.
+   */
+  public static void clearCaches(ProcessingEnvironment env) {
+    instances.remove(env);
+  }
+
+  private static MethodIntrospector create(ProcessingEnvironment env) {
     try {
       try {
         return JavacMethodIntrospector.instance(env);
@@ -19,12 +19,14 @@ import static org.inferred.freebuilder.processor.source.Shading.unshadedName;
 
 import static javax.lang.model.util.ElementFilter.methodsIn;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
 import org.inferred.freebuilder.processor.source.QualifiedName;
 import org.inferred.freebuilder.processor.source.Shading;
 
 import java.lang.annotation.Annotation;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
@@ -162,6 +164,23 @@ public class ModelUtils {
     return overrides(asElement(type), types, methodName, params);
   }
 
+  /**
+   * Returns true if {@link java.util.Arrays#spliterator} accepts an array of {@code elementType},
+   * letting a varargs method delegate straight to a spliterator one.
+   */
+  public static boolean hasArraySpliterator(TypeMirror elementType) {
+    switch (elementType.getKind()) {
+      case BOOLEAN:
+      case BYTE:
+      case SHORT:
+      case CHAR:
+      case FLOAT:
+        return false;
+      default:
+        return true;
+    }
+  }
+
   /**
    * Returns true if a method with a variable number of {@code elementType} arguments needs a
    * {@code &#64;SafeVarargs} annotation to avoid compiler warnings in Java 7+.
@@ -344,6 +363,35 @@ public class ModelUtils {
     return type;
   }
 
+  /**
+   * Returns the type arguments {@code type} passes to {@code supertype}, with wildcards replaced
+   * by their upper bounds, or empty if {@code type} is not a parameterized subtype of it.
+   */
+  public static Optional<List<TypeMirror>> typeArgumentsOf(
+      TypeMirror type, String supertype, Elements elements, Types types) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return Optional.empty();
+    }
+    DeclaredType declaredType = (DeclaredType) type;
+    if (asElement(declaredType).getQualifiedName().contentEquals(supertype)) {
+      if (declaredType.getTypeArguments().isEmpty()) {
+        return Optional.empty();
+      }
+      ImmutableList.Builder<TypeMirror> arguments = ImmutableList.builder();
+      declaredType.getTypeArguments()
+          .forEach(argument -> arguments.add(upperBound(elements, argument)));
+      return Optional.of(arguments.build());
+    }
+    for (TypeMirror directSupertype : types.directSupertypes(type)) {
+      Optional<List<TypeMirror>> arguments =
+          typeArgumentsOf(directSupertype, supertype, elements, types);
+      if (arguments.isPresent()) {
+        return arguments;
+      }
+    }
+    return Optional.empty();
+  }
+
   /** Returns true if {@code type} erases to any of {@code possibilities}. */
   public static boolean erasesToAnyOf(DeclaredType type, QualifiedName... possibilities) {
     if (type == null) {
@@ -45,7 +45,9 @@ import org.inferred.freebuilder.processor.Datatype;
 import org.inferred.freebuilder.processor.Declarations;
 import org.inferred.freebuilder.processor.excerpt.CheckedBiMap;
 import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
 import org.inferred.freebuilder.processor.source.FunctionalType;
+import org.inferred.freebuilder.processor.source.QualifiedName;
 import org.inferred.freebuilder.processor.source.SourceBuilder;
 import org.inferred.freebuilder.processor.source.Type;
 import org.inferred.freebuilder.processor.source.Variable;
@@ -71,6 +73,11 @@ class BiMapProperty extends PropertyCodeGenerator {
 
   static class Factory implements PropertyCodeGenerator.Factory {
 
+    @Override
+    public Set<QualifiedName> supportedTypes() {
+      return ImmutableSet.of(QualifiedName.of(BiMap.class), QualifiedName.of(ImmutableBiMap.class));
+    }
+
     @Override
     public Optional<BiMapProperty> create(Config config) {
       Property property = config.getProperty();
@@ -102,7 +109,7 @@ class BiMapProperty extends PropertyCodeGenerator {
           config.getBuilder(),
           mutator(property),
           consumer(biMap(keyType, valueType, config.getElements(), config.getTypes())),
-          config.getElements(),
+          config.getMethodFinder(),
           config.getTypes());
 
       return Optional.of(new BiMapProperty(
@@ -428,11 +435,39 @@ class BiMapProperty extends PropertyCodeGenerator {
     return ImmutableSet.of(appendingToCollections());
   }
 
+  @Override
+  public EqualityCost equalityCost() {
+    return EqualityCost.COLLECTION;
+  }
+
   @Override
   public void addSetFromResult(SourceBuilder code, Excerpt builder, Excerpt variable) {
     code.addLine("%s.%s(%s);", builder, putAllMethod(property), variable);
   }
 
+  @Override
+  public boolean isCollection() {
+    return true;
+  }
+
+  @Override
+  public void addWriteExternal(SourceBuilder code, Excerpt value, String out) {
+    addWriteEntriesExternal(
+        code,
+        Excerpts.add("%s.%s().entrySet()", value, property.getGetterName()),
+        out,
+        keyType,
+        unboxedKeyType,
+        valueType,
+        unboxedValueType);
+  }
+
+  @Override
+  public void addReadExternal(SourceBuilder code, Excerpt builder, String in) {
+    addReadEntriesExternal(
+        code, builder, in, unboxedKeyType.orElse(keyType), unboxedValueType.orElse(valueType));
+  }
+
   @Override
   public void addClearField(SourceBuilder code) {
     code.addLine("%s.clear();", property.getField());
@@ -24,6 +24,8 @@ import org.inferred.freebuilder.processor.Datatype;
 import org.inferred.freebuilder.processor.Declarations;
 import org.inferred.freebuilder.processor.excerpt.BuildableList;
 import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
+import org.inferred.freebuilder.processor.source.QualifiedName;
 import org.inferred.freebuilder.processor.source.SourceBuilder;
 import org.inferred.freebuilder.processor.source.Type;
 import org.inferred.freebuilder.processor.source.Variable;
@@ -49,6 +51,14 @@ class BuildableListProperty extends PropertyCodeGenerator {
 
   static class Factory implements PropertyCodeGenerator.Factory {
 
+    @Override
+    public Set<QualifiedName> supportedTypes() {
+      return ImmutableSet.of(
+          QualifiedName.of(Collection.class),
+          QualifiedName.of(List.class),
+          QualifiedName.of(ImmutableList.class));
+    }
+
     @Override
     public Optional<BuildableListProperty> create(Config config) {
       DeclaredType type = maybeDeclared(config.getProperty().getType()).orElse(null);
@@ -85,6 +95,7 @@ class BuildableListProperty extends PropertyCodeGenerator {
           needsSafeVarargs,
           overridesValueInstanceVarargsAddMethod,
           overridesBuilderVarargsAddMethod,
+          elementType,
           element));
     }
 
@@ -117,6 +128,7 @@ class BuildableListProperty extends PropertyCodeGenerator {
   private final boolean needsSafeVarargs;
   private final boolean overridesValueInstanceVarargsAddMethod;
   private final boolean overridesBuilderVarargsAddMethod;
+  private final TypeMirror elementType;
   private final BuildableType element;
 
   private BuildableListProperty(
@@ -125,11 +137,13 @@ class BuildableListProperty extends PropertyCodeGenerator {
       boolean needsSafeVarargs,
       boolean overridesValueInstanceVarargsAddMethod,
       boolean overridesBuilderVarargsAddMethod,
+      TypeMirror elementType,
       BuildableType element) {
     super(datatype, property);
     this.needsSafeVarargs = needsSafeVarargs;
     this.overridesValueInstanceVarargsAddMethod = overridesValueInstanceVarargsAddMethod;
     this.overridesBuilderVarargsAddMethod = overridesBuilderVarargsAddMethod;
+    this.elementType = elementType;
     this.element = element;
   }
 
@@ -144,7 +158,8 @@ class BuildableListProperty extends PropertyCodeGenerator {
   @Override
   public void addBuilderFieldDeclaration(SourceBuilder code) {
     code.addLine("private final %1$s %2$s = new %1$s();",
-        BuildableList.of(element), property.getField());
+        BuildableList.of(element, datatype.isValueReuseRequested()),
+        property.getField());
   }
 
   @Override
@@ -447,6 +462,13 @@ class BuildableListProperty extends PropertyCodeGenerator {
     code.addLine("%s.%s(%s);", builder, addAllMethod(property), property.getField());
   }
 
+  @Override
+  public Optional<Excerpt> unchangedSince(SourceBuilder code, Excerpt source) {
+    // The list builder returns its previous list, without allocating, if no element has changed
+    return Optional.of(Excerpts.add(
+        "%s.build() == %s", property.getField(), property.getField().on(source)));
+  }
+
   @Override
   public void addMergeFromValue(SourceBuilder code, String value) {
     code.addLine("%s(%s.%s());", addAllMethod(property), value, property.getGetterName());
@@ -468,6 +490,16 @@ class BuildableListProperty extends PropertyCodeGenerator {
     code.addLine("%s.%s(%s);", builder, addAllMethod(property), variable);
   }
 
+  @Override
+  public boolean isCollection() {
+    return true;
+  }
+
+  @Override
+  public Optional<TypeMirror> getAddElementType() {
+    return Optional.of(elementType);
+  }
+
   @Override
   public void addClearField(SourceBuilder code) {
     code.addLine("%s();", clearMethod(property));
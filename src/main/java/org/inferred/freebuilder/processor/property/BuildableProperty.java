@@ -36,6 +36,7 @@ import org.inferred.freebuilder.processor.source.Excerpt;
 import org.inferred.freebuilder.processor.source.Excerpts;
 import org.inferred.freebuilder.processor.source.FunctionalType;
 import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.Type;
 import org.inferred.freebuilder.processor.source.Variable;
 
 import java.util.Objects;
@@ -72,7 +73,7 @@ class BuildableProperty extends PropertyCodeGenerator {
           config.getBuilder(),
           mutator(config.getProperty()),
           consumer(builder),
-          config.getElements(),
+          config.getMethodFinder(),
           config.getTypes());
 
       return Optional.of(new BuildableProperty(
@@ -98,6 +99,11 @@ class BuildableProperty extends PropertyCodeGenerator {
     code.addLine("private final %s %s;", property.getType(), property.getField());
   }
 
+  @Override
+  public boolean isRecordComponent() {
+    return true;
+  }
+
   @Override
   public void addBuilderFieldDeclaration(SourceBuilder code) {
     code.addLine("private Object %s = null;", property.getField());
@@ -261,6 +267,18 @@ class BuildableProperty extends PropertyCodeGenerator {
     }
   }
 
+  @Override
+  public Optional<Excerpt> unchangedSince(SourceBuilder code, Excerpt source) {
+    // A nested builder is unchanged if it builds the same instance, which it can do without
+    // allocating if its own type reuses unchanged values
+    Type builderType = type.builderType().withWildcards();
+    return Optional.of(Excerpts.add(
+        "(%1$s == %2$s || (%1$s instanceof %3$s && ((%3$s) %1$s).build() == %2$s))",
+        property.getField(),
+        property.getField().on(source),
+        builderType));
+  }
+
   @Override
   public void addMergeFromValue(SourceBuilder code, String value) {
     code.addLine("if (%s == null) {", property.getField())
@@ -60,7 +60,7 @@ public class DefaultProperty extends PropertyCodeGenerator {
           config.getBuilder(),
           mapper(property),
           unboxedUnaryOperator(property.getType(), config.getTypes()),
-          config.getElements(),
+          config.getMethodFinder(),
           config.getTypes());
       return Optional.of(new DefaultProperty(
           config.getDatatype(), property, hasDefault, mapperType));
@@ -119,6 +119,11 @@ public class DefaultProperty extends PropertyCodeGenerator {
     code.addLine("private final %s %s;", property.getType(), property.getField());
   }
 
+  @Override
+  public boolean isRecordComponent() {
+    return true;
+  }
+
   @Override
   public void addBuilderFieldDeclaration(SourceBuilder code) {
     code.addLine("private %s %s;", property.getType(), property.getField());
@@ -163,7 +168,7 @@ public class DefaultProperty extends PropertyCodeGenerator {
     code.addLine("}");
   }
 
-  private void addMapper(SourceBuilder code) {
+  void addMapper(SourceBuilder code) {
     code.addLine("")
         .addLine("/**")
         .addLine(" * Replaces the value to be returned by %s",
@@ -224,6 +229,19 @@ public class DefaultProperty extends PropertyCodeGenerator {
     code.addLine("%s = %s;", property.getField().on(builder), property.getField());
   }
 
+  @Override
+  public Optional<Excerpt> checkedValueField(Excerpt newValue) {
+    if (kind.isPrimitive()) {
+      return Optional.of(newValue);
+    }
+    return Optional.of(Excerpts.add("%s.requireNonNull(%s)", Objects.class, newValue));
+  }
+
+  @Override
+  public Optional<Excerpt> unchangedSince(SourceBuilder code, Excerpt source) {
+    return Optional.of(fieldIsUnchangedSince(source));
+  }
+
   @Override
   public void addMergeFromValue(SourceBuilder code, String value) {
     Excerpt defaults = Declarations.freshBuilder(code, datatype).orElse(null);
@@ -1,8 +1,21 @@
 package org.inferred.freebuilder.processor.property;
 
+import static com.google.common.collect.Iterables.filter;
+
+import static org.inferred.freebuilder.processor.model.ModelUtils.maybeDeclared;
+import static org.inferred.freebuilder.processor.source.Shading.unshadedName;
+
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.inferred.freebuilder.processor.source.QualifiedName;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
 
 public class Factories {
 
@@ -12,6 +25,7 @@ public class Factories {
    */
   public static final List<PropertyCodeGenerator.Factory> PROPERTY_FACTORIES = ImmutableList.of(
       new NullableProperty.Factory(), // Must be first, as no other factory supports nulls
+      new LazyProperty.Factory(), // Must be before any factory supporting the property's type
       new BuildableListProperty.Factory(), // Must be before ListProperty
       new ListProperty.Factory(),
       new SetProperty.Factory(),
@@ -26,5 +40,44 @@ public class Factories {
       new BuildableProperty.Factory(),
       new DefaultProperty.Factory()); // Must be last, as it will always return a CodeGenerator
 
+  /** Factories in {@link #PROPERTY_FACTORIES} that may support properties of any type. */
+  private static final List<PropertyCodeGenerator.Factory> FACTORIES_FOR_ANY_TYPE =
+      ImmutableList.copyOf(
+          filter(PROPERTY_FACTORIES, factory -> factory.supportedTypes().isEmpty()));
+
+  /**
+   * Factories in {@link #PROPERTY_FACTORIES} that may support properties of a given erased type,
+   * keyed by the erased type's qualified name. Types not in this map are only supported by
+   * {@link #FACTORIES_FOR_ANY_TYPE}.
+   */
+  private static final Map<String, List<PropertyCodeGenerator.Factory>> FACTORIES_BY_TYPE =
+      indexByType();
+
+  /**
+   * Returns the factories in {@link #PROPERTY_FACTORIES} that may support a property of type
+   * {@code type}, in order. The last will always be the default factory.
+   */
+  public static List<PropertyCodeGenerator.Factory> factoriesFor(TypeMirror type) {
+    DeclaredType declaredType = maybeDeclared(type).orElse(null);
+    if (declaredType != null) {
+      String erasedType = declaredType.asElement().toString();
+      return FACTORIES_BY_TYPE.getOrDefault(erasedType, FACTORIES_FOR_ANY_TYPE);
+    }
+    return FACTORIES_FOR_ANY_TYPE;
+  }
+
+  private static Map<String, List<PropertyCodeGenerator.Factory>> indexByType() {
+    Map<String, List<PropertyCodeGenerator.Factory>> index = new HashMap<>();
+    for (PropertyCodeGenerator.Factory factory : PROPERTY_FACTORIES) {
+      for (QualifiedName type : factory.supportedTypes()) {
+        index.putIfAbsent(unshadedName(type.toString()), ImmutableList.copyOf(filter(
+            PROPERTY_FACTORIES,
+            candidate -> candidate.supportedTypes().isEmpty()
+                || candidate.supportedTypes().contains(type))));
+      }
+    }
+    return ImmutableMap.copyOf(index);
+  }
+
   private Factories() { }
 }
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2014 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor.property;
+
+import static org.inferred.freebuilder.processor.BuilderMethods.getter;
+import static org.inferred.freebuilder.processor.BuilderMethods.lazySetter;
+import static org.inferred.freebuilder.processor.BuilderMethods.mapper;
+import static org.inferred.freebuilder.processor.BuilderMethods.setter;
+import static org.inferred.freebuilder.processor.model.ModelUtils.findAnnotationMirror;
+import static org.inferred.freebuilder.processor.source.FunctionalType.functionalTypeAcceptedByMethod;
+import static org.inferred.freebuilder.processor.source.FunctionalType.unboxedUnaryOperator;
+
+import com.google.common.annotations.GwtCompatible;
+
+import org.inferred.freebuilder.Lazy;
+import org.inferred.freebuilder.processor.Datatype;
+import org.inferred.freebuilder.processor.Declarations;
+import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
+import org.inferred.freebuilder.processor.source.FieldAccess;
+import org.inferred.freebuilder.processor.source.FunctionalType;
+import org.inferred.freebuilder.processor.source.PreconditionExcerpts;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.Variable;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * {@link PropertyCodeGenerator} for {@link Lazy} properties, which may be given a
+ * {@link Supplier} that the value type calls on first access.
+ *
+ * <p>Both the builder and the value type hold a plain field and a supplier field; the supplier
+ * takes precedence while non-null. The value type's fields cannot be final, so both are volatile:
+ * otherwise a value shared through a data race could be seen with neither an eagerly set value
+ * nor a supplier. The supplier field is only cleared once the computed value has been written,
+ * under the instance lock.
+ */
+class LazyProperty extends DefaultProperty {
+
+  static class Factory implements PropertyCodeGenerator.Factory {
+
+    @Override
+    public Optional<LazyProperty> create(Config config) {
+      if (config.getSourceElement().getAnnotation(Lazy.class) == null) {
+        return Optional.empty();
+      }
+      Element type = config.getBuilder().asElement().getEnclosingElement();
+      if (findAnnotationMirror(type, GwtCompatible.class).isPresent()) {
+        config.getEnvironment().getMessager().printMessage(
+            Kind.ERROR,
+            "@Lazy properties are not supported on @GwtCompatible types",
+            config.getSourceElement());
+        return Optional.empty();
+      }
+      Property property = config.getProperty();
+      boolean hasDefault = config.getMethodsInvokedInBuilderConstructor()
+          .contains(setter(property))
+          || config.getMethodsInvokedInBuilderConstructor().contains(lazySetter(property));
+      FunctionalType mapperType = functionalTypeAcceptedByMethod(
+          config.getBuilder(),
+          mapper(property),
+          unboxedUnaryOperator(property.getType(), config.getTypes()),
+          config.getMethodFinder(),
+          config.getTypes());
+      return Optional.of(new LazyProperty(
+          config.getDatatype(), property, hasDefault, mapperType));
+    }
+  }
+
+  private final FieldAccess supplierField;
+  private final String valueMethod;
+
+  LazyProperty(
+      Datatype datatype,
+      Property property,
+      boolean hasDefault,
+      FunctionalType mapperType) {
+    super(datatype, property, hasDefault, mapperType);
+    this.supplierField = new FieldAccess("_" + property.getName() + "Supplier");
+    this.valueMethod = "_" + property.getName() + "Value";
+  }
+
+  @Override
+  public void addValueFieldDeclaration(SourceBuilder code) {
+    code.addLine("private volatile %s %s;", property.getType(), property.getField())
+        .addLine("private volatile %s %s;", supplierType(), supplierField)
+        .addLine("")
+        .addLine("private %s %s() {", property.getType(), valueMethod)
+        .addLine("  if (%s != null) {", supplierField)
+        .addLine("    synchronized (this) {")
+        .addLine("      %s supplier = %s;", supplierType(), supplierField)
+        .addLine("      if (supplier != null) {");
+    addEvaluate(code, "        ", "supplier");
+    code.addLine("      }")
+        .addLine("    }")
+        .addLine("  }")
+        .addLine("  return %s;", property.getField())
+        .addLine("}");
+  }
+
+  @Override
+  public void addBuilderFieldDeclaration(SourceBuilder code) {
+    code.addLine("private %s %s;", property.getType(), property.getField())
+        .addLine("private %s %s;", supplierType(), supplierField);
+  }
+
+  @Override
+  public void addBuilderFieldAccessors(SourceBuilder code) {
+    addSetter(code);
+    addLazySetter(code);
+    addMapper(code);
+    addGetter(code);
+  }
+
+  private void addSetter(SourceBuilder code) {
+    code.addLine("")
+        .addLine("/**")
+        .addLine(" * Sets the value to be returned by %s.",
+            datatype.getType().javadocNoArgMethodLink(property.getGetterName()))
+        .addLine(" *")
+        .addLine(" * @return this {@code %s} object", datatype.getBuilder().getSimpleName());
+    if (!isPrimitive()) {
+      code.addLine(" * @throws NullPointerException if {@code %s} is null", property.getName());
+    }
+    code.addLine(" */");
+    addAccessorAnnotations(code);
+    code.addLine("public %s %s(%s %s) {",
+        datatype.getBuilder(), setter(property), property.getType(), property.getName());
+    if (isPrimitive()) {
+      code.addLine("  %s = %s;", property.getField(), property.getName());
+    } else {
+      code.addLine("  %s = %s.requireNonNull(%s);",
+          property.getField(), Objects.class, property.getName());
+    }
+    code.addLine("  %s = null;", supplierField);
+    addSetterTail(code);
+  }
+
+  private void addLazySetter(SourceBuilder code) {
+    code.addLine("")
+        .addLine("/**")
+        .addLine(" * Sets the value to be returned by %s to the result of calling",
+            datatype.getType().javadocNoArgMethodLink(property.getGetterName()))
+        .addLine(" * {@code supplier}, deferring the call until the value is first needed.")
+        .addLine(" * {@code supplier} will be called at most once per value built, and must")
+        .addLine(" * not return null.")
+        .addLine(" *")
+        .addLine(" * @return this {@code %s} object", datatype.getBuilder().getSimpleName())
+        .addLine(" * @throws NullPointerException if {@code supplier} is null")
+        .addLine(" */")
+        .addLine("public %s %s(%s supplier) {",
+            datatype.getBuilder(), lazySetter(property), supplierType())
+        .addLine("  %s = %s.requireNonNull(supplier);", supplierField, Objects.class);
+    addSetterTail(code);
+  }
+
+  private void addSetterTail(SourceBuilder code) {
+    if (!hasDefault()) {
+      code.addLine("  %s.remove(%s.%s);",
+          UNSET_PROPERTIES, datatype.getPropertyEnum(), property.getAllCapsName());
+    }
+    if ((datatype.getBuilder() == datatype.getGeneratedBuilder())) {
+      code.addLine("  return this;");
+    } else {
+      code.addLine("  return (%s) this;", datatype.getBuilder());
+    }
+    code.addLine("}");
+  }
+
+  private void addGetter(SourceBuilder code) {
+    code.addLine("")
+        .addLine("/**")
+        .addLine(" * Returns the value that will be returned by %s,",
+            datatype.getType().javadocNoArgMethodLink(property.getGetterName()))
+        .addLine(" * calling the supplier passed to {@link #%s} if necessary.",
+            lazySetter(property));
+    if (!hasDefault()) {
+      code.addLine(" *")
+          .addLine(" * @throws IllegalStateException if the field has not been set");
+    }
+    code.addLine(" */")
+        .addLine("public %s %s() {", property.getType(), getter(property));
+    if (!hasDefault()) {
+      code.add(PreconditionExcerpts.checkState(
+          "!%s.contains(%s.%s)",
+          property.getName() + " not set",
+          UNSET_PROPERTIES,
+          datatype.getPropertyEnum(),
+          property.getAllCapsName()));
+    }
+    code.addLine("  if (%s != null) {", supplierField);
+    addEvaluate(code, "    ", supplierField);
+    code.addLine("  }")
+        .addLine("  return %s;", property.getField())
+        .addLine("}");
+  }
+
+  private void addEvaluate(SourceBuilder code, String indent, Object supplier) {
+    if (isPrimitive()) {
+      code.addLine("%s%s = %s.get();", indent, property.getField(), supplier);
+    } else {
+      code.addLine("%s%s = %s.requireNonNull(%s.get(), \"%s supplier returned null\");",
+          indent, property.getField(), Objects.class, supplier, property.getName());
+    }
+    code.addLine("%s%s = null;", indent, supplierField);
+  }
+
+  @Override
+  public void addFinalFieldAssignment(SourceBuilder code, Excerpt finalField, String builder) {
+    code.addLine("%s = %s;", finalField, property.getField().on(builder))
+        .addLine("%s = %s;", supplierField.on("this"), supplierField.on(builder));
+  }
+
+  @Override
+  public void addAssignToBuilder(SourceBuilder code, Variable builder) {
+    // Share this instance's result rather than calling the supplier again
+    code.addLine("if (%s == null) {", supplierField)
+        .addLine("  %s = %s;", property.getField().on(builder), property.getField())
+        .addLine("} else {")
+        .addLine("  %s = this::%s;", supplierField.on(builder), valueMethod)
+        .addLine("}");
+  }
+
+  @Override
+  public void addCopyFromValue(SourceBuilder code, Excerpt base) {
+    // Share the base instance's result rather than calling the supplier again
+    code.addLine("    if (%s == null) {", supplierField.on(base))
+        .addLine("      %s = %s;", property.getField().on("this"), property.getField().on(base))
+        .addLine("    } else {")
+        .addLine("      %s = %s::%s;", supplierField.on("this"), base, valueMethod)
+        .addLine("    }");
+  }
+
+  @Override
+  public Optional<Excerpt> checkedValueField(Excerpt newValue) {
+    // The value type holds a supplier alongside the field
+    return Optional.empty();
+  }
+
+  @Override
+  public int valueFieldBytes() {
+    // Add a reference to the supplier
+    return super.valueFieldBytes() + 4;
+  }
+
+  @Override
+  public Optional<Excerpt> retainedBytes(
+      Excerpt value, BiFunction<TypeMirror, Excerpt, Optional<Excerpt>> estimator) {
+    // Count a pending supplier as a small object, rather than calling it
+    Excerpt bytes = estimator.apply(property.getType(), property.getField().on(value))
+        .orElse(Excerpts.add("0"));
+    return Optional.of(Excerpts.add(
+        "(%s != null ? 16 : %s)", supplierField.on(value), bytes));
+  }
+
+  @Override
+  public Optional<Excerpt> unchangedSince(SourceBuilder code, Excerpt source) {
+    // The field is set lazily, so it may change after build
+    return Optional.empty();
+  }
+
+  @Override
+  public void addReadValueFragment(SourceBuilder code, Excerpt finalField) {
+    code.add("%s()", valueMethod);
+  }
+
+  @Override
+  public Excerpt valueOn(String instance) {
+    return instance.equals("this")
+        ? Excerpts.add("%s()", valueMethod)
+        : Excerpts.add("%s.%s()", instance, valueMethod);
+  }
+
+  @Override
+  public void addClearField(SourceBuilder code) {
+    Optional<Variable> defaults = Declarations.freshBuilder(code, datatype);
+    // Cannot clear property without defaults
+    if (defaults.isPresent()) {
+      code.addLine("%s = %s;", property.getField(), property.getField().on(defaults.get()))
+          .addLine("%s = %s;", supplierField, supplierField.on(defaults.get()));
+    }
+  }
+
+  @Override
+  public void addToStringValue(SourceBuilder code) {
+    if (property.getType().getKind() == TypeKind.ARRAY) {
+      code.add("%s.toString(%s())", Arrays.class, valueMethod);
+    } else {
+      code.add("%s()", valueMethod);
+    }
+  }
+
+  private boolean hasDefault() {
+    return initialState() == Initially.HAS_DEFAULT;
+  }
+
+  private boolean isPrimitive() {
+    return property.getType().getKind().isPrimitive();
+  }
+
+  private Excerpt supplierType() {
+    return Excerpts.add("%s<? extends %s>",
+        Supplier.class, property.getBoxedType().orElse(property.getType()));
+  }
+}
@@ -44,7 +44,9 @@ import org.inferred.freebuilder.processor.Datatype;
 import org.inferred.freebuilder.processor.Declarations;
 import org.inferred.freebuilder.processor.excerpt.CheckedListMultimap;
 import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
 import org.inferred.freebuilder.processor.source.FunctionalType;
+import org.inferred.freebuilder.processor.source.QualifiedName;
 import org.inferred.freebuilder.processor.source.SourceBuilder;
 import org.inferred.freebuilder.processor.source.Variable;
 
@@ -66,6 +68,15 @@ class ListMultimapProperty extends PropertyCodeGenerator {
 
   static class Factory implements PropertyCodeGenerator.Factory {
 
+    @Override
+    public Set<QualifiedName> supportedTypes() {
+      return ImmutableSet.of(
+          QualifiedName.of(Multimap.class),
+          QualifiedName.of(ImmutableMultimap.class),
+          QualifiedName.of(ListMultimap.class),
+          QualifiedName.of(ImmutableListMultimap.class));
+    }
+
     @Override
     public Optional<ListMultimapProperty> create(Config config) {
       Property property = config.getProperty();
@@ -89,7 +100,7 @@ class ListMultimapProperty extends PropertyCodeGenerator {
           config.getBuilder(),
           mutator(property),
           consumer(listMultimap(keyType, valueType, config.getElements(), config.getTypes())),
-          config.getElements(),
+          config.getMethodFinder(),
           config.getTypes());
 
       return Optional.of(new ListMultimapProperty(
@@ -415,11 +426,39 @@ class ListMultimapProperty extends PropertyCodeGenerator {
     return ImmutableSet.of(appendingToCollections());
   }
 
+  @Override
+  public EqualityCost equalityCost() {
+    return EqualityCost.COLLECTION;
+  }
+
   @Override
   public void addSetFromResult(SourceBuilder code, Excerpt builder, Excerpt variable) {
     code.addLine("%s.%s(%s);", builder, putAllMethod(property), variable);
   }
 
+  @Override
+  public boolean isCollection() {
+    return true;
+  }
+
+  @Override
+  public void addWriteExternal(SourceBuilder code, Excerpt value, String out) {
+    addWriteEntriesExternal(
+        code,
+        Excerpts.add("%s.%s().entries()", value, property.getGetterName()),
+        out,
+        keyType,
+        unboxedKeyType,
+        valueType,
+        unboxedValueType);
+  }
+
+  @Override
+  public void addReadExternal(SourceBuilder code, Excerpt builder, String in) {
+    addReadEntriesExternal(
+        code, builder, in, unboxedKeyType.orElse(keyType), unboxedValueType.orElse(valueType));
+  }
+
   @Override
   public void addClearField(SourceBuilder code) {
     code.addLine("%s.clear();", property.getField());
@@ -21,6 +21,7 @@ import static org.inferred.freebuilder.processor.BuilderMethods.clearMethod;
 import static org.inferred.freebuilder.processor.BuilderMethods.getter;
 import static org.inferred.freebuilder.processor.BuilderMethods.mutator;
 import static org.inferred.freebuilder.processor.model.ModelUtils.erasesToAnyOf;
+import static org.inferred.freebuilder.processor.model.ModelUtils.hasArraySpliterator;
 import static org.inferred.freebuilder.processor.model.ModelUtils.maybeDeclared;
 import static org.inferred.freebuilder.processor.model.ModelUtils.maybeUnbox;
 import static org.inferred.freebuilder.processor.model.ModelUtils.needsSafeVarargs;
@@ -29,6 +30,7 @@ import static org.inferred.freebuilder.processor.model.ModelUtils.upperBound;
 import static org.inferred.freebuilder.processor.property.MergeAction.appendingToCollections;
 import static org.inferred.freebuilder.processor.source.FunctionalType.consumer;
 import static org.inferred.freebuilder.processor.source.FunctionalType.functionalTypeAcceptedByMethod;
+import static org.inferred.freebuilder.processor.source.feature.EmissionMode.EMISSION_MODE;
 import static org.inferred.freebuilder.processor.source.feature.GuavaLibrary.GUAVA;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -42,6 +44,7 @@ import org.inferred.freebuilder.processor.source.Excerpt;
 import org.inferred.freebuilder.processor.source.Excerpts;
 import org.inferred.freebuilder.processor.source.FunctionalType;
 import org.inferred.freebuilder.processor.source.LazyName;
+import org.inferred.freebuilder.processor.source.QualifiedName;
 import org.inferred.freebuilder.processor.source.SourceBuilder;
 import org.inferred.freebuilder.processor.source.Type;
 import org.inferred.freebuilder.processor.source.ValueType;
@@ -71,6 +74,14 @@ import javax.lang.model.util.Types;
 class ListProperty extends PropertyCodeGenerator {
   static class Factory implements PropertyCodeGenerator.Factory {
 
+    @Override
+    public Set<QualifiedName> supportedTypes() {
+      return ImmutableSet.of(
+          QualifiedName.of(Collection.class),
+          QualifiedName.of(List.class),
+          QualifiedName.of(ImmutableList.class));
+    }
+
     @Override
     public Optional<ListProperty> create(Config config) {
       DeclaredType type = maybeDeclared(config.getProperty().getType()).orElse(null);
@@ -89,7 +100,7 @@ class ListProperty extends PropertyCodeGenerator {
           config.getBuilder(),
           mutator(config.getProperty()),
           consumer(wildcardSuperList(elementType, config.getElements(), config.getTypes())),
-          config.getElements(),
+          config.getMethodFinder(),
           config.getTypes());
 
       return Optional.of(new ListProperty(
@@ -249,7 +260,10 @@ class ListProperty extends PropertyCodeGenerator {
             addMethod(property),
             unboxedType.orElse(elementType));
     Optional<Class<?>> arrayUtils = code.feature(GUAVA).arrayUtils(unboxedType.orElse(elementType));
-    if (arrayUtils.isPresent()) {
+    if (code.feature(EMISSION_MODE).isCompact()
+        && hasArraySpliterator(unboxedType.orElse(elementType))) {
+      code.addLine("  return %s(%s.spliterator(elements));", addAllMethod(property), Arrays.class);
+    } else if (arrayUtils.isPresent()) {
       code.addLine("  return %s(%s.asList(elements));", addAllMethod(property), arrayUtils.get());
     } else {
       // Primitive type, Guava not available
@@ -417,6 +431,15 @@ class ListProperty extends PropertyCodeGenerator {
     }
   }
 
+  @Override
+  public Optional<Excerpt> unchangedSince(SourceBuilder code, Excerpt source) {
+    if (!code.feature(GUAVA).isAvailable()) {
+      // build copies into a new collection
+      return Optional.empty();
+    }
+    return Optional.of(fieldIsUnchangedSince(source));
+  }
+
   @Override
   public void addMergeFromValue(SourceBuilder code, String value) {
     if (code.feature(GUAVA).isAvailable()) {
@@ -452,6 +475,16 @@ class ListProperty extends PropertyCodeGenerator {
     code.addLine("%s.%s(%s);", builder, addAllMethod(property), variable);
   }
 
+  @Override
+  public boolean isCollection() {
+    return true;
+  }
+
+  @Override
+  public Optional<TypeMirror> getAddElementType() {
+    return Optional.of(unboxedType.orElse(elementType));
+  }
+
   @Override
   public void addClearField(SourceBuilder code) {
     code.addLine("%s();", clearMethod(property));
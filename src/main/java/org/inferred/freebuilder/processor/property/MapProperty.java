@@ -41,6 +41,7 @@ import org.inferred.freebuilder.processor.source.Excerpt;
 import org.inferred.freebuilder.processor.source.Excerpts;
 import org.inferred.freebuilder.processor.source.FunctionalType;
 import org.inferred.freebuilder.processor.source.LazyName;
+import org.inferred.freebuilder.processor.source.QualifiedName;
 import org.inferred.freebuilder.processor.source.SourceBuilder;
 import org.inferred.freebuilder.processor.source.Type;
 import org.inferred.freebuilder.processor.source.ValueType;
@@ -67,6 +68,11 @@ class MapProperty extends PropertyCodeGenerator {
 
   static class Factory implements PropertyCodeGenerator.Factory {
 
+    @Override
+    public Set<QualifiedName> supportedTypes() {
+      return ImmutableSet.of(QualifiedName.of(Map.class), QualifiedName.of(ImmutableMap.class));
+    }
+
     @Override
     public Optional<MapProperty> create(Config config) {
       Property property = config.getProperty();
@@ -85,7 +91,7 @@ class MapProperty extends PropertyCodeGenerator {
           config.getBuilder(),
           mutator(property),
           consumer(wildcardSuperMap(keyType, valueType, config.getElements(), config.getTypes())),
-          config.getElements(),
+          config.getMethodFinder(),
           config.getTypes());
 
       return Optional.of(new MapProperty(
@@ -347,11 +353,39 @@ class MapProperty extends PropertyCodeGenerator {
     return ImmutableSet.of(appendingToCollections());
   }
 
+  @Override
+  public EqualityCost equalityCost() {
+    return EqualityCost.COLLECTION;
+  }
+
   @Override
   public void addSetFromResult(SourceBuilder code, Excerpt builder, Excerpt variable) {
     code.addLine("%s.%s(%s);", builder, putAllMethod(property), variable);
   }
 
+  @Override
+  public boolean isCollection() {
+    return true;
+  }
+
+  @Override
+  public void addWriteExternal(SourceBuilder code, Excerpt value, String out) {
+    addWriteEntriesExternal(
+        code,
+        Excerpts.add("%s.%s().entrySet()", value, property.getGetterName()),
+        out,
+        keyType,
+        unboxedKeyType,
+        valueType,
+        unboxedValueType);
+  }
+
+  @Override
+  public void addReadExternal(SourceBuilder code, Excerpt builder, String in) {
+    addReadEntriesExternal(
+        code, builder, in, unboxedKeyType.orElse(keyType), unboxedValueType.orElse(valueType));
+  }
+
   @Override
   public void addClearField(SourceBuilder code) {
     code.addLine("%s.clear();", property.getField());
@@ -44,6 +44,7 @@ import org.inferred.freebuilder.processor.Declarations;
 import org.inferred.freebuilder.processor.excerpt.CheckedMultiset;
 import org.inferred.freebuilder.processor.source.Excerpt;
 import org.inferred.freebuilder.processor.source.FunctionalType;
+import org.inferred.freebuilder.processor.source.QualifiedName;
 import org.inferred.freebuilder.processor.source.SourceBuilder;
 import org.inferred.freebuilder.processor.source.Type;
 import org.inferred.freebuilder.processor.source.Variable;
@@ -68,6 +69,13 @@ class MultisetProperty extends PropertyCodeGenerator {
 
   static class Factory implements PropertyCodeGenerator.Factory {
 
+    @Override
+    public Set<QualifiedName> supportedTypes() {
+      return ImmutableSet.of(
+          QualifiedName.of(Multiset.class),
+          QualifiedName.of(ImmutableMultiset.class));
+    }
+
     @Override
     public Optional<MultisetProperty> create(Config config) {
       DeclaredType type = maybeDeclared(config.getProperty().getType()).orElse(null);
@@ -87,7 +95,7 @@ class MultisetProperty extends PropertyCodeGenerator {
           config.getBuilder(),
           mutator(config.getProperty()),
           consumer(multiset(elementType, config.getElements(), config.getTypes())),
-          config.getElements(),
+          config.getMethodFinder(),
           config.getTypes());
 
       return Optional.of(new MultisetProperty(
@@ -423,6 +431,16 @@ class MultisetProperty extends PropertyCodeGenerator {
     code.addLine("%s.%s(%s);", builder, addAllMethod(property), variable);
   }
 
+  @Override
+  public boolean isCollection() {
+    return true;
+  }
+
+  @Override
+  public Optional<TypeMirror> getAddElementType() {
+    return Optional.of(unboxedType.orElse(elementType));
+  }
+
   @Override
   public void addClearField(SourceBuilder code) {
     code.addLine("%s.clear();", property.getField());
@@ -38,9 +38,11 @@ import org.inferred.freebuilder.processor.source.Variable;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiFunction;
 
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
 
 /** {@link PropertyCodeGenerator} providing reference semantics for Nullable properties. */
 class NullableProperty extends PropertyCodeGenerator {
@@ -59,7 +61,7 @@ class NullableProperty extends PropertyCodeGenerator {
           config.getBuilder(),
           mapper(property),
           unaryOperator(property.getBoxedType().orElse(property.getType())),
-          config.getElements(),
+          config.getMethodFinder(),
           config.getTypes());
       return Optional.of(new NullableProperty(
           config.getDatatype(), property, nullableAnnotations, mapperType));
@@ -103,6 +105,11 @@ class NullableProperty extends PropertyCodeGenerator {
     code.add("private final %s %s;%n", property.getType(), property.getField());
   }
 
+  @Override
+  public boolean isRecordComponent() {
+    return true;
+  }
+
   @Override
   public void addBuilderFieldDeclaration(SourceBuilder code) {
     addGetterAnnotations(code);
@@ -177,6 +184,24 @@ class NullableProperty extends PropertyCodeGenerator {
     code.addLine("%s = %s;", property.getField().on(builder), property.getField());
   }
 
+  @Override
+  public Optional<Excerpt> checkedValueField(Excerpt newValue) {
+    return Optional.of(newValue);
+  }
+
+  @Override
+  public Optional<Excerpt> retainedBytes(
+      Excerpt value, BiFunction<TypeMirror, Excerpt, Optional<Excerpt>> estimator) {
+    Excerpt field = property.getField().on(value);
+    return estimator.apply(property.getType(), field)
+        .map(bytes -> Excerpts.add("(%s == null ? 0 : %s)", field, bytes));
+  }
+
+  @Override
+  public Optional<Excerpt> unchangedSince(SourceBuilder code, Excerpt source) {
+    return Optional.of(fieldIsUnchangedSince(source));
+  }
+
   @Override
   public void addMergeFromValue(SourceBuilder code, String value) {
     Excerpt defaults = Declarations.freshBuilder(code, datatype).orElse(null);
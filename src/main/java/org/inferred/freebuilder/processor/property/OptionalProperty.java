@@ -28,21 +28,26 @@ import static org.inferred.freebuilder.processor.property.MergeAction.skippingEm
 import static org.inferred.freebuilder.processor.source.FunctionalType.functionalTypeAcceptedByMethod;
 import static org.inferred.freebuilder.processor.source.FunctionalType.unaryOperator;
 
+import static java.util.stream.Collectors.toSet;
+
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 
 import org.inferred.freebuilder.processor.Datatype;
 import org.inferred.freebuilder.processor.Declarations;
 import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
 import org.inferred.freebuilder.processor.source.FunctionalType;
 import org.inferred.freebuilder.processor.source.QualifiedName;
 import org.inferred.freebuilder.processor.source.SourceBuilder;
 import org.inferred.freebuilder.processor.source.Variable;
 import org.inferred.freebuilder.processor.source.feature.Jsr305;
 
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiFunction;
 import java.util.function.UnaryOperator;
 
 import javax.lang.model.type.DeclaredType;
@@ -132,6 +137,13 @@ class OptionalProperty extends PropertyCodeGenerator {
 
   static class Factory implements PropertyCodeGenerator.Factory {
 
+    @Override
+    public Set<QualifiedName> supportedTypes() {
+      return Arrays.stream(OptionalType.values())
+          .map(optionalType -> optionalType.cls)
+          .collect(toSet());
+    }
+
     @Override
     public Optional<OptionalProperty> create(Config config) {
       Property property = config.getProperty();
@@ -148,7 +160,7 @@ class OptionalProperty extends PropertyCodeGenerator {
           config.getBuilder(),
           mapper(property),
           unaryOperator(elementType),
-          config.getElements(),
+          config.getMethodFinder(),
           config.getTypes());
 
       return Optional.of(new OptionalProperty(
@@ -202,6 +214,15 @@ class OptionalProperty extends PropertyCodeGenerator {
         .addLine("private final %s %s;", elementType, property.getField());
   }
 
+  @Override
+  public Optional<Excerpt> retainedBytes(
+      Excerpt value, BiFunction<TypeMirror, Excerpt, Optional<Excerpt>> estimator) {
+    // The field holds the element itself, not an Optional
+    Excerpt field = property.getField().on(value);
+    return estimator.apply(elementType, field)
+        .map(bytes -> Excerpts.add("(%s == null ? 0 : %s)", field, bytes));
+  }
+
   @Override
   public void addBuilderFieldDeclaration(SourceBuilder code) {
     code.addLine("// Store a nullable object instead of an Optional. Escape analysis then")
@@ -349,6 +370,11 @@ class OptionalProperty extends PropertyCodeGenerator {
     code.addLine("%s = %s;", property.getField().on(builder), property.getField());
   }
 
+  @Override
+  public Optional<Excerpt> unchangedSince(SourceBuilder code, Excerpt source) {
+    return Optional.of(fieldIsUnchangedSince(source));
+  }
+
   @Override
   public void addMergeFromValue(SourceBuilder code, String value) {
     String propertyValue = value + "." + property.getGetterName() + "()";
@@ -376,6 +402,28 @@ class OptionalProperty extends PropertyCodeGenerator {
     code.addLine("%s.%s(%s);", builder, setter(property), variable);
   }
 
+  @Override
+  public void addWriteExternal(SourceBuilder code, Excerpt value, String out) {
+    Variable temporary = new Variable(property.getName());
+    code.addLine("%s %s = %s.%s();",
+            property.getType(), temporary, value, property.getGetterName())
+        .addLine("%s.writeBoolean(%s.isPresent());", out, temporary)
+        .addLine("if (%s.isPresent()) {", temporary)
+        .addLine("  %s;", writeExternal(
+            unboxedType.orElse(elementType), out, Excerpts.add("%s.get()", temporary)))
+        .addLine("}");
+  }
+
+  @Override
+  public void addReadExternal(SourceBuilder code, Excerpt builder, String in) {
+    code.addLine("if (%s.readBoolean()) {", in)
+        .addLine("  %s.%s(%s);",
+            builder, setter(property), readExternal(unboxedType.orElse(elementType), in))
+        .addLine("} else {")
+        .addLine("  %s.%s();", builder, clearMethod(property))
+        .addLine("}");
+  }
+
   @Override
   public void addClearField(SourceBuilder code) {
     Optional<Variable> defaults = Declarations.freshBuilder(code, datatype);
@@ -6,7 +6,6 @@ import static org.inferred.freebuilder.processor.BuilderMethods.clearMethod;
 import static org.inferred.freebuilder.processor.BuilderMethods.getter;
 import static org.inferred.freebuilder.processor.BuilderMethods.mapper;
 import static org.inferred.freebuilder.processor.BuilderMethods.setter;
-import static org.inferred.freebuilder.processor.model.ModelUtils.asElement;
 import static org.inferred.freebuilder.processor.model.ModelUtils.maybeDeclared;
 import static org.inferred.freebuilder.processor.model.ModelUtils.override;
 import static org.inferred.freebuilder.processor.property.MergeAction.skippingEmptyOptionals;
@@ -15,11 +14,14 @@ import static org.inferred.freebuilder.processor.source.FunctionalType.isAssigna
 import static org.inferred.freebuilder.processor.source.FunctionalType.primitiveUnaryOperator;
 import static org.inferred.freebuilder.processor.source.FunctionalType.unaryOperator;
 
+import static java.util.stream.Collectors.toSet;
+
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 
 import org.inferred.freebuilder.processor.Datatype;
 import org.inferred.freebuilder.processor.Declarations;
+import org.inferred.freebuilder.processor.OptionalType;
 import org.inferred.freebuilder.processor.model.MethodIntrospector;
 import org.inferred.freebuilder.processor.source.Excerpt;
 import org.inferred.freebuilder.processor.source.FunctionalType;
@@ -50,6 +52,14 @@ import javax.tools.Diagnostic.Kind;
 public class PrimitiveOptionalProperty extends PropertyCodeGenerator {
   static class Factory implements PropertyCodeGenerator.Factory {
 
+    @Override
+    public Set<QualifiedName> supportedTypes() {
+      return Arrays.stream(OptionalType.values())
+          .filter(optionalType -> optionalType.primitiveKind().isPresent())
+          .map(optionalType -> QualifiedName.of(optionalType.optionalClass()))
+          .collect(toSet());
+    }
+
     @Override
     public Optional<PrimitiveOptionalProperty> create(Config config) {
       DeclaredType type = maybeDeclared(config.getProperty().getType()).orElse(null);
@@ -57,10 +67,8 @@ public class PrimitiveOptionalProperty extends PropertyCodeGenerator {
         return Optional.empty();
       }
 
-      QualifiedName typename = QualifiedName.of(asElement(type));
-      OptionalType optionalType = Arrays.stream(OptionalType.values())
-          .filter(candidate -> candidate.type.getQualifiedName().equals(typename))
-          .findAny()
+      OptionalType optionalType = OptionalType.of(type)
+          .filter(candidate -> candidate.primitiveKind().isPresent())
           .orElse(null);
       if (optionalType == null) {
         return Optional.empty();
@@ -69,13 +77,14 @@ public class PrimitiveOptionalProperty extends PropertyCodeGenerator {
       checkForInfiniteLoop(config, optionalType);
 
       // Implement mapper methods for primitive, boxed and/or optional unary operators
-      PrimitiveType primitiveType = config.getTypes().getPrimitiveType(optionalType.primitiveKind);
+      PrimitiveType primitiveType =
+          config.getTypes().getPrimitiveType(optionalType.primitiveKind().get());
       FunctionalType primitiveOperator = primitiveUnaryOperator(primitiveType);
       FunctionalType optionalOperator = unaryOperator(type);
       List<FunctionalType> declaredOperators = functionalTypesAcceptedByMethod(
           config.getBuilder(),
           mapper(config.getProperty()),
-          config.getElements(),
+          config.getMethodFinder(),
           config.getTypes());
       Optional<FunctionalType> declaredPrimitiveOperator = declaredOperators.stream()
           .filter(t -> isAssignable(t, primitiveOperator, config.getTypes()))
@@ -100,7 +109,7 @@ public class PrimitiveOptionalProperty extends PropertyCodeGenerator {
           config.getBuilder(),
           config.getTypes(),
           setter(config.getProperty()),
-          config.getTypes().getPrimitiveType(optional.primitiveKind)).orElse(null);
+          config.getTypes().getPrimitiveType(optional.primitiveKind().get())).orElse(null);
       if (override == null) {
         return;
       }
@@ -113,30 +122,10 @@ public class PrimitiveOptionalProperty extends PropertyCodeGenerator {
     }
   }
 
-  @VisibleForTesting
-  enum OptionalType {
-    INT(OptionalInt.class, int.class, TypeKind.INT, "getAsInt"),
-    LONG(OptionalLong.class, long.class, TypeKind.LONG, "getAsLong"),
-    DOUBLE(OptionalDouble.class, double.class, TypeKind.DOUBLE, "getAsDouble");
-
-    private final TypeClass type;
-    private final Class<?> primitiveType;
-    private final TypeKind primitiveKind;
-    private final String getter;
-
-    OptionalType(
-        Class<?> optionalType,
-        Class<?> primitiveType,
-        TypeKind primitiveKind,
-        String getter) {
-      this.type = TypeClass.fromNonGeneric(optionalType);
-      this.primitiveType = primitiveType;
-      this.primitiveKind = primitiveKind;
-      this.getter = getter;
-    }
-  }
-
   private final OptionalType optional;
+  private final TypeClass type;
+  private final Class<?> primitiveType;
+  private final TypeKind primitiveKind;
   private final Optional<FunctionalType> primitiveOperator;
   private final Optional<FunctionalType> optionalOperator;
 
@@ -149,6 +138,9 @@ public class PrimitiveOptionalProperty extends PropertyCodeGenerator {
       Optional<FunctionalType> optionalOperator) {
     super(datatype, property);
     this.optional = optional;
+    this.type = TypeClass.fromNonGeneric(optional.optionalClass());
+    this.primitiveType = optional.primitiveType().get();
+    this.primitiveKind = optional.primitiveKind().get();
     this.primitiveOperator = primitiveOperator;
     this.optionalOperator = optionalOperator;
   }
@@ -160,12 +152,12 @@ public class PrimitiveOptionalProperty extends PropertyCodeGenerator {
 
   @Override
   public void addValueFieldDeclaration(SourceBuilder code) {
-    code.addLine("private final %s %s;", optional.type, property.getField());
+    code.addLine("private final %s %s;", type, property.getField());
   }
 
   @Override
   public void addBuilderFieldDeclaration(SourceBuilder code) {
-    code.addLine("private %1$s %2$s = %1$s.empty();", optional.type, property.getField());
+    code.addLine("private %1$s %2$s = %1$s.empty();", type, property.getField());
   }
 
   @Override
@@ -187,8 +179,8 @@ public class PrimitiveOptionalProperty extends PropertyCodeGenerator {
         .addLine(" * @return this {@code %s} object", datatype.getBuilder().getSimpleName())
         .addLine(" */")
         .addLine("public %s %s(%s %s) {",
-            datatype.getBuilder(), setter(property), optional.primitiveType, property.getName())
-        .addLine("  %s = %s.of(%s);", property.getField(), optional.type, property.getName())
+            datatype.getBuilder(), setter(property), primitiveType, property.getName())
+        .addLine("  %s = %s.of(%s);", property.getField(), type, property.getName())
         .addLine("  return (%s) this;", datatype.getBuilder())
         .addLine("}");
   }
@@ -205,9 +197,9 @@ public class PrimitiveOptionalProperty extends PropertyCodeGenerator {
         .addLine(" */");
     addAccessorAnnotations(code);
     code.addLine("public %s %s(%s %s) {",
-            datatype.getBuilder(), setter(property), optional.type, property.getName())
+            datatype.getBuilder(), setter(property), type, property.getName())
         .addLine("  if (%s.isPresent()) {", property.getName())
-        .addLine("    return %s(%s.%s());", setter(property), property.getName(), optional.getter)
+        .addLine("    return %s(%s.%s());", setter(property), property.getName(), optional.getter())
         .addLine("  } else {")
         .addLine("    return %s();", clearMethod(property))
         .addLine("  }")
@@ -236,7 +228,7 @@ public class PrimitiveOptionalProperty extends PropertyCodeGenerator {
       Variable result = new Variable("result");
       code.addLine("  %s.ifPresent(%s -> {", property.getField(), value)
           .addLine("    %s %s = mapper.%s(%s);",
-              wrap(optional.primitiveType), result, mapperType.getMethodName(), value)
+              wrap(primitiveType), result, mapperType.getMethodName(), value)
           .addLine("    if (%s != null) {", result)
           .addLine("      %s(%s);", setter(property), result)
           .addLine("    } else {")
@@ -273,12 +265,12 @@ public class PrimitiveOptionalProperty extends PropertyCodeGenerator {
         .addLine("/**")
         .addLine(" * Sets the value to be returned by %s to %s.",
             datatype.getType().javadocNoArgMethodLink(property.getGetterName()),
-            optional.type.javadocNoArgMethodLink("empty"))
+            type.javadocNoArgMethodLink("empty"))
         .addLine(" *")
         .addLine(" * @return this {@code %s} object", datatype.getBuilder().getSimpleName())
         .addLine(" */")
         .addLine("public %s %s() {", datatype.getBuilder(), clearMethod(property))
-        .addLine("  %s = %s.empty();", property.getField(), optional.type)
+        .addLine("  %s = %s.empty();", property.getField(), type)
         .addLine("  return (%s) this;", datatype.getBuilder())
         .addLine("}");
   }
@@ -304,6 +296,11 @@ public class PrimitiveOptionalProperty extends PropertyCodeGenerator {
     code.addLine("%s = %s;", property.getField().on(builder), property.getField());
   }
 
+  @Override
+  public Optional<Excerpt> unchangedSince(SourceBuilder code, Excerpt source) {
+    return Optional.of(fieldIsUnchangedSince(source));
+  }
+
   @Override
   public void addMergeFromValue(SourceBuilder code, String value) {
     code.addLine("%s.%s().ifPresent(this::%s);", value, property.getGetterName(), setter(property));
@@ -324,13 +321,34 @@ public class PrimitiveOptionalProperty extends PropertyCodeGenerator {
     code.addLine("%s.%s(%s);", builder, setter(property), variable);
   }
 
+  @Override
+  public void addWriteExternal(SourceBuilder code, Excerpt value, String out) {
+    Variable temporary = new Variable(property.getName());
+    code.addLine("%s %s = %s.%s();", type, temporary, value, property.getGetterName())
+        .addLine("%s.writeBoolean(%s.isPresent());", out, temporary)
+        .addLine("if (%s.isPresent()) {", temporary)
+        .addLine("  %s.write%s(%s.%s());",
+            out, primitiveName(primitiveKind), temporary, optional.getter())
+        .addLine("}");
+  }
+
+  @Override
+  public void addReadExternal(SourceBuilder code, Excerpt builder, String in) {
+    code.addLine("if (%s.readBoolean()) {", in)
+        .addLine("  %s.%s(%s.read%s());",
+            builder, setter(property), in, primitiveName(primitiveKind))
+        .addLine("} else {")
+        .addLine("  %s.%s();", builder, clearMethod(property))
+        .addLine("}");
+  }
+
   @Override
   public void addClearField(SourceBuilder code) {
     Optional<Variable> defaults = Declarations.freshBuilder(code, datatype);
     if (defaults.isPresent()) {
       code.addLine("%s = %s;", property.getField(), property.getField().on(defaults.get()));
     } else {
-      code.addLine("%s = %s.empty();", property.getField(), optional.type);
+      code.addLine("%s = %s.empty();", property.getField(), type);
     }
   }
 
@@ -341,6 +359,6 @@ public class PrimitiveOptionalProperty extends PropertyCodeGenerator {
 
   @Override
   public void addToStringValue(SourceBuilder code) {
-    code.add("%s.%s()", property.getField(), optional.getter);
+    code.add("%s.%s()", property.getField(), optional.getter());
   }
 }
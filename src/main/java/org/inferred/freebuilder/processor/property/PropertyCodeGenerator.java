@@ -17,13 +17,23 @@ package org.inferred.freebuilder.processor.property;
 
 import static com.google.common.base.Preconditions.checkState;
 
+import static org.inferred.freebuilder.processor.BuilderMethods.addMethod;
+import static org.inferred.freebuilder.processor.BuilderMethods.clearMethod;
+import static org.inferred.freebuilder.processor.BuilderMethods.putMethod;
+import static org.inferred.freebuilder.processor.BuilderMethods.setter;
+
 import com.google.common.base.MoreObjects;
 import com.google.common.base.MoreObjects.ToStringHelper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 import org.inferred.freebuilder.processor.Datatype;
+import org.inferred.freebuilder.processor.model.MethodFinder;
 import org.inferred.freebuilder.processor.source.Excerpt;
+import org.inferred.freebuilder.processor.source.Excerpts;
+import org.inferred.freebuilder.processor.source.ObjectsExcerpts;
+import org.inferred.freebuilder.processor.source.QualifiedName;
 import org.inferred.freebuilder.processor.source.SourceBuilder;
 import org.inferred.freebuilder.processor.source.Variable;
 
@@ -32,11 +42,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiFunction;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 
@@ -78,10 +94,22 @@ public abstract class PropertyCodeGenerator {
 
     /** The compiler's {@link Types} implementation. */
     Types getTypes();
+
+    /** Finds methods on types, caching results for the current round. */
+    MethodFinder getMethodFinder();
   }
 
   /** Factory interface for {@link PropertyCodeGenerator}. */
   public interface Factory {
+    /**
+     * Returns the erased types of the properties this factory supports, or an empty set if it may
+     * support properties of any type. Factories are only asked to {@link #create} generators for
+     * properties they may support.
+     */
+    default Set<QualifiedName> supportedTypes() {
+      return ImmutableSet.of();
+    }
+
     /**
      * Create a new {@link PropertyCodeGenerator} for the property described in {@code config}.
      *
@@ -129,6 +157,22 @@ public abstract class PropertyCodeGenerator {
     HAS_DEFAULT
   }
 
+  /** Relative cost of comparing two values of a property, cheapest first. */
+  public enum EqualityCost {
+
+    /** Primitives, enums and arrays, which are compared with {@code ==}. */
+    IDENTITY,
+
+    /** Strings. */
+    STRING,
+
+    /** Any other object, such as a nested value type. */
+    OBJECT,
+
+    /** Collections and maps, which are never null, and are compared by size first. */
+    COLLECTION
+  }
+
   /** Returns whether the property is required, optional, or has a default. */
   public Initially initialState() {
     return Initially.HAS_DEFAULT;
@@ -137,6 +181,15 @@ public abstract class PropertyCodeGenerator {
   /** Add the field declaration for the property to the value's source code. */
   public abstract void addValueFieldDeclaration(SourceBuilder code);
 
+  /**
+   * Returns whether the value's only member for this property is a final field of the property's
+   * type, which the getter returns unchanged, so the value type may declare it as a record
+   * component instead.
+   */
+  public boolean isRecordComponent() {
+    return false;
+  }
+
   /** Add the field declaration for the property to the builder's source code. */
   public abstract void addBuilderFieldDeclaration(SourceBuilder code);
 
@@ -153,9 +206,80 @@ public abstract class PropertyCodeGenerator {
     addFinalFieldAssignment(code, finalField, builder);
   }
 
+  /** Adds an assignment to the field on the value type from another instance, {@code base}. */
+  public void addCopyFromValue(SourceBuilder code, Excerpt base) {
+    code.addLine("    %s = %s;", property.getField().on("this"), property.getField().on(base));
+  }
+
+  /**
+   * Returns an excerpt that checks {@code newValue} as the builder's setter would, and evaluates
+   * to it, for a with method to store directly in the value type's field; or empty if the field
+   * cannot be set directly from a value of the property's type.
+   */
+  public Optional<Excerpt> checkedValueField(Excerpt newValue) {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns an estimate of the bytes this property's fields occupy in each value type instance,
+   * assuming a 64-bit JVM with compressed references.
+   */
+  public int valueFieldBytes() {
+    switch (property.getType().getKind()) {
+      case LONG:
+      case DOUBLE:
+        return 8;
+      case INT:
+      case FLOAT:
+        return 4;
+      case SHORT:
+      case CHAR:
+        return 2;
+      case BYTE:
+      case BOOLEAN:
+        return 1;
+      default:
+        return 4;
+    }
+  }
+
+  /**
+   * Returns an excerpt estimating the bytes retained by the objects this property's fields on
+   * {@code value} reference, or empty if there are none. {@code estimator} returns the same for an
+   * expression of a given type.
+   */
+  public Optional<Excerpt> retainedBytes(
+      Excerpt value, BiFunction<TypeMirror, Excerpt, Optional<Excerpt>> estimator) {
+    return estimator.apply(property.getType(), property.getField().on(value));
+  }
+
   /** Adds an assignment to the field on the builder from the Value/Partial implementation. */
   public abstract void addAssignToBuilder(SourceBuilder code, Variable builder);
 
+  /**
+   * Returns a condition that holds if the builder still holds the same field for this property as
+   * the Value instance {@code source}, checked without allocating; or empty if build always
+   * creates a fresh field, or the field cannot be compared cheaply. If every property can be
+   * compared, builders of types annotated {@code @ReuseUnchangedValues} return the value they last
+   * built, or were created from by toBuilder, when nothing has changed since.
+   */
+  public Optional<Excerpt> unchangedSince(SourceBuilder code, Excerpt source) {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns a condition comparing the builder's field with that of {@code source}: by value for
+   * primitives, and by identity otherwise, so a setter call that replaces the field with an equal
+   * but distinct object counts as a change.
+   */
+  protected Excerpt fieldIsUnchangedSince(Excerpt source) {
+    TypeKind kind = property.getType().getKind();
+    if (kind.isPrimitive()) {
+      return ObjectsExcerpts.equals(property.getField(), property.getField().on(source), kind);
+    }
+    return Excerpts.add("%s == %s", property.getField(), property.getField().on(source));
+  }
+
   /** Add a merge from value for the property to the builder's source code. */
   public abstract void addMergeFromValue(SourceBuilder code, String value);
 
@@ -177,9 +301,92 @@ public abstract class PropertyCodeGenerator {
     code.add("%s", finalField);
   }
 
+  /**
+   * Returns the property's value on {@code instance}, a Value or Partial implementation, as
+   * compared by equals and hashCode. Defaults to reading the field, unqualified for "this".
+   */
+  public Excerpt valueOn(String instance) {
+    return instance.equals("this") ? property.getField() : property.getField().on(instance);
+  }
+
+  /**
+   * Returns the cost of comparing the property's values, used to order the checks in equals so
+   * that cheap mismatches are found first.
+   */
+  public EqualityCost equalityCost() {
+    TypeMirror type = property.getType();
+    if (getAddElementType().isPresent()) {
+      return EqualityCost.COLLECTION;
+    } else if (type.getKind().isPrimitive() || type.getKind() == TypeKind.ARRAY) {
+      return EqualityCost.IDENTITY;
+    } else if (type.getKind() == TypeKind.DECLARED) {
+      Element element = ((DeclaredType) type).asElement();
+      if (element.getKind() == ElementKind.ENUM) {
+        return EqualityCost.IDENTITY;
+      } else if (((TypeElement) element).getQualifiedName().contentEquals("java.lang.String")) {
+        return EqualityCost.STRING;
+      }
+    }
+    return EqualityCost.OBJECT;
+  }
+
   /** Adds a set call for the property from a function result to the builder's source code. */
   public abstract void addSetFromResult(SourceBuilder code, Excerpt builder, Excerpt variable);
 
+  /**
+   * Returns whether the property is a collection, map or multimap. Such values have a
+   * {@code size()}, and {@link #addSetFromResult} adds to the builder's current contents rather
+   * than replacing them.
+   */
+  public boolean isCollection() {
+    return false;
+  }
+
+  /**
+   * Returns the type accepted by the builder's single-element {@code add} method, if the property
+   * is a collection that can be populated one element at a time.
+   */
+  public Optional<TypeMirror> getAddElementType() {
+    return Optional.empty();
+  }
+
+  /**
+   * Adds code writing the property of {@code value} to the {@code ObjectOutput} {@code out}, for
+   * the value type's compact serialized form.
+   */
+  public void addWriteExternal(SourceBuilder code, Excerpt value, String out) {
+    Excerpt getter = Excerpts.add("%s.%s()", value, property.getGetterName());
+    Optional<TypeMirror> elementType = getAddElementType();
+    if (elementType.isPresent()) {
+      Variable element = new Variable("element");
+      code.addLine("%s.writeInt(%s.size());", out, getter)
+          .addLine("for (%s %s : %s) {", elementType.get(), element, getter)
+          .addLine("  %s;", writeExternal(elementType.get(), out, element))
+          .addLine("}");
+    } else {
+      code.addLine("%s;", writeExternal(property.getType(), out, getter));
+    }
+  }
+
+  /**
+   * Adds code reading the property, as written by {@link #addWriteExternal}, from the
+   * {@code ObjectInput} {@code in} into {@code builder}.
+   */
+  public void addReadExternal(SourceBuilder code, Excerpt builder, String in) {
+    Optional<TypeMirror> elementType = getAddElementType();
+    if (elementType.isPresent()) {
+      Variable remaining = new Variable("remaining");
+      code.addLine("%s.%s();", builder, clearMethod(property))
+          .addLine("for (int %1$s = %2$s.readInt(); %1$s > 0; %1$s--) {", remaining, in)
+          .addLine("  %s.%s(%s);",
+              builder, addMethod(property), readExternal(elementType.get(), in))
+          .addLine("}");
+    } else {
+      code.addLine("%s.%s(%s);",
+          builder, setter(property), readExternal(property.getType(), in));
+    }
+  }
+
   /** Adds a clear call for the property given a template builder to the builder's source code. */
   public abstract void addClearField(SourceBuilder code);
 
@@ -213,6 +420,69 @@ public abstract class PropertyCodeGenerator {
     }
   }
 
+  /**
+   * Adds code writing {@code entries}, the map entries of a map or multimap property, to
+   * {@code out}, as a count followed by each key and value.
+   */
+  protected static void addWriteEntriesExternal(
+      SourceBuilder code,
+      Excerpt entries,
+      String out,
+      TypeMirror keyType,
+      Optional<TypeMirror> unboxedKeyType,
+      TypeMirror valueType,
+      Optional<TypeMirror> unboxedValueType) {
+    Variable entry = new Variable("entry");
+    code.addLine("%s.writeInt(%s.size());", out, entries)
+        .addLine("for (%s<%s, %s> %s : %s) {",
+            Map.Entry.class, keyType, valueType, entry, entries)
+        .addLine("  %s;", writeExternal(
+            unboxedKeyType.orElse(keyType), out, Excerpts.add("%s.getKey()", entry)))
+        .addLine("  %s;", writeExternal(
+            unboxedValueType.orElse(valueType), out, Excerpts.add("%s.getValue()", entry)))
+        .addLine("}");
+  }
+
+  /**
+   * Adds code reading entries, as written by {@link #addWriteEntriesExternal}, from {@code in}
+   * into {@code builder} via the property's put method.
+   */
+  protected void addReadEntriesExternal(
+      SourceBuilder code,
+      Excerpt builder,
+      String in,
+      TypeMirror keyType,
+      TypeMirror valueType) {
+    Variable remaining = new Variable("remaining");
+    code.addLine("%s.%s();", builder, clearMethod(property))
+        .addLine("for (int %1$s = %2$s.readInt(); %1$s > 0; %1$s--) {", remaining, in)
+        .addLine("  %s.%s(%s, %s);",
+            builder, putMethod(property), readExternal(keyType, in), readExternal(valueType, in))
+        .addLine("}");
+  }
+
+  /** Returns an excerpt writing {@code value} of type {@code type} to {@code out}. */
+  protected static Excerpt writeExternal(TypeMirror type, String out, Object value) {
+    if (type.getKind().isPrimitive()) {
+      return Excerpts.add("%s.write%s(%s)", out, primitiveName(type.getKind()), value);
+    }
+    return Excerpts.add("%s.writeObject(%s)", out, value);
+  }
+
+  /** Returns an excerpt reading a value of type {@code type} from {@code in}. */
+  protected static Excerpt readExternal(TypeMirror type, String in) {
+    if (type.getKind().isPrimitive()) {
+      return Excerpts.add("%s.read%s()", in, primitiveName(type.getKind()));
+    }
+    return Excerpts.add("(%s) %s.readObject()", type, in);
+  }
+
+  /** Returns the name of {@code kind} as used in DataOutput and DataInput methods, e.g. Int. */
+  protected static String primitiveName(TypeKind kind) {
+    String name = kind.name();
+    return name.charAt(0) + name.substring(1).toLowerCase();
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (obj == null || !getClass().isInstance(obj)) {
@@ -22,6 +22,8 @@ import static org.inferred.freebuilder.processor.BuilderMethods.getter;
 import static org.inferred.freebuilder.processor.BuilderMethods.mutator;
 import static org.inferred.freebuilder.processor.BuilderMethods.removeMethod;
 import static org.inferred.freebuilder.processor.model.ModelUtils.erasesToAnyOf;
+import static org.inferred.freebuilder.processor.model.ModelUtils.hasArraySpliterator;
+import static org.inferred.freebuilder.processor.model.ModelUtils.maybeAsTypeElement;
 import static org.inferred.freebuilder.processor.model.ModelUtils.maybeDeclared;
 import static org.inferred.freebuilder.processor.model.ModelUtils.maybeUnbox;
 import static org.inferred.freebuilder.processor.model.ModelUtils.needsSafeVarargs;
@@ -30,10 +32,13 @@ import static org.inferred.freebuilder.processor.model.ModelUtils.upperBound;
 import static org.inferred.freebuilder.processor.property.MergeAction.appendingToCollections;
 import static org.inferred.freebuilder.processor.source.FunctionalType.consumer;
 import static org.inferred.freebuilder.processor.source.FunctionalType.functionalTypeAcceptedByMethod;
+import static org.inferred.freebuilder.processor.source.feature.EmissionMode.EMISSION_MODE;
 import static org.inferred.freebuilder.processor.source.feature.GuavaLibrary.GUAVA;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
+import org.inferred.freebuilder.UseEnumSet;
 import org.inferred.freebuilder.processor.Datatype;
 import org.inferred.freebuilder.processor.Declarations;
 import org.inferred.freebuilder.processor.excerpt.CheckedSet;
@@ -41,13 +46,16 @@ import org.inferred.freebuilder.processor.source.Excerpt;
 import org.inferred.freebuilder.processor.source.Excerpts;
 import org.inferred.freebuilder.processor.source.FunctionalType;
 import org.inferred.freebuilder.processor.source.LazyName;
+import org.inferred.freebuilder.processor.source.QualifiedName;
 import org.inferred.freebuilder.processor.source.SourceBuilder;
 import org.inferred.freebuilder.processor.source.Type;
 import org.inferred.freebuilder.processor.source.ValueType;
 import org.inferred.freebuilder.processor.source.Variable;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.LinkedHashSet;
 import java.util.Objects;
 import java.util.Optional;
@@ -55,11 +63,13 @@ import java.util.Set;
 import java.util.Spliterator;
 import java.util.stream.BaseStream;
 
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
 
 /**
  * {@link PropertyCodeGenerator} providing fluent methods for {@link Set} properties.
@@ -68,6 +78,11 @@ class SetProperty extends PropertyCodeGenerator {
 
   static class Factory implements PropertyCodeGenerator.Factory {
 
+    @Override
+    public Set<QualifiedName> supportedTypes() {
+      return ImmutableSet.of(QualifiedName.of(Set.class), QualifiedName.of(ImmutableSet.class));
+    }
+
     @Override
     public Optional<SetProperty> create(Config config) {
       DeclaredType type = maybeDeclared(config.getProperty().getType()).orElse(null);
@@ -81,12 +96,25 @@ class SetProperty extends PropertyCodeGenerator {
       boolean overridesAddMethod = hasAddMethodOverride(config, unboxedType.orElse(elementType));
       boolean overridesVarargsAddMethod =
           hasVarargsAddMethodOverride(config, unboxedType.orElse(elementType));
+      boolean useEnumSet = false;
+      if (config.getSourceElement().getAnnotation(UseEnumSet.class) != null) {
+        if (maybeAsTypeElement(elementType)
+            .filter(element -> element.getKind() == ElementKind.ENUM)
+            .isPresent()) {
+          useEnumSet = true;
+        } else {
+          config.getEnvironment().getMessager().printMessage(
+              Kind.ERROR,
+              "@UseEnumSet is only supported on sets of enum constants",
+              config.getSourceElement());
+        }
+      }
 
       FunctionalType mutatorType = functionalTypeAcceptedByMethod(
           config.getBuilder(),
           mutator(config.getProperty()),
           consumer(wildcardSuperSet(elementType, config.getElements(), config.getTypes())),
-          config.getElements(),
+          config.getMethodFinder(),
           config.getTypes());
 
       return Optional.of(new SetProperty(
@@ -97,7 +125,8 @@ class SetProperty extends PropertyCodeGenerator {
           mutatorType,
           needsSafeVarargs,
           overridesAddMethod,
-          overridesVarargsAddMethod));
+          overridesVarargsAddMethod,
+          useEnumSet));
     }
 
     private static boolean hasAddMethodOverride(Config config, TypeMirror elementType) {
@@ -131,6 +160,8 @@ class SetProperty extends PropertyCodeGenerator {
   private final boolean needsSafeVarargs;
   private final boolean overridesAddMethod;
   private final boolean overridesVarargsAddMethod;
+  /** Whether to store the enum elements in an {@link EnumSet}, as requested by the user. */
+  private final boolean useEnumSet;
 
   SetProperty(
       Datatype datatype,
@@ -140,7 +171,8 @@ class SetProperty extends PropertyCodeGenerator {
       FunctionalType mutatorType,
       boolean needsSafeVarargs,
       boolean overridesAddMethod,
-      boolean overridesVarargsAddMethod) {
+      boolean overridesVarargsAddMethod,
+      boolean useEnumSet) {
     super(datatype, property);
     this.elementType = elementType;
     this.unboxedType = unboxedType;
@@ -148,6 +180,7 @@ class SetProperty extends PropertyCodeGenerator {
     this.needsSafeVarargs = needsSafeVarargs;
     this.overridesAddMethod = overridesAddMethod;
     this.overridesVarargsAddMethod = overridesVarargsAddMethod;
+    this.useEnumSet = useEnumSet;
   }
 
   @Override
@@ -163,6 +196,9 @@ class SetProperty extends PropertyCodeGenerator {
     if (code.feature(GUAVA).isAvailable()) {
       code.addLine("private %s<%s> %s = %s.of();",
           Set.class, elementType, property.getField(), ImmutableSet.class);
+    } else if (useEnumSet) {
+      code.addLine("private final %1$s<%2$s> %3$s = %1$s.noneOf(%2$s.class);",
+          EnumSet.class, elementType, property.getField());
     } else {
       code.addLine("private final %1$s<%2$s> %3$s = new %1$s<>();",
           LinkedHashSet.class, elementType, property.getField());
@@ -200,11 +236,7 @@ class SetProperty extends PropertyCodeGenerator {
             datatype.getBuilder(),
             addMethod(property),
             unboxedType.orElse(elementType));
-    if (code.feature(GUAVA).isAvailable()) {
-      code.addLine("  if (%s instanceof %s) {", property.getField(), ImmutableSet.class)
-          .addLine("    %1$s = new %2$s<>(%1$s);", property.getField(), LinkedHashSet.class)
-          .addLine("  }");
-    }
+    addCopyIfImmutable(code);
     if (unboxedType.isPresent()) {
       code.addLine("  %s.add(element);", property.getField());
     } else {
@@ -245,7 +277,10 @@ class SetProperty extends PropertyCodeGenerator {
             addMethod(property),
             unboxedType.orElse(elementType));
     Optional<Class<?>> arrayUtils = code.feature(GUAVA).arrayUtils(unboxedType.orElse(elementType));
-    if (arrayUtils.isPresent()) {
+    if (code.feature(EMISSION_MODE).isCompact()
+        && hasArraySpliterator(unboxedType.orElse(elementType))) {
+      code.addLine("  return %s(%s.spliterator(elements));", addAllMethod(property), Arrays.class);
+    } else if (arrayUtils.isPresent()) {
       code.addLine("  return %s(%s.asList(elements));", addAllMethod(property), arrayUtils.get());
     } else {
       // Primitive type, Guava not available
@@ -287,10 +322,14 @@ class SetProperty extends PropertyCodeGenerator {
             datatype.getBuilder(),
             addAllMethod(property),
             Iterable.class,
-            elementType)
-        .addLine("  elements.forEach(this::%s);", addMethod(property))
-        .addLine("  return (%s) this;", datatype.getBuilder())
-        .addLine("}");
+            elementType);
+    if (code.feature(EMISSION_MODE).isCompact()) {
+      code.addLine("  return %s(elements.spliterator());", addAllMethod(property));
+    } else {
+      code.addLine("  elements.forEach(this::%s);", addMethod(property))
+          .addLine("  return (%s) this;", datatype.getBuilder());
+    }
+    code.addLine("}");
   }
 
   private void addJavadocForAddAll(SourceBuilder code) {
@@ -323,11 +362,7 @@ class SetProperty extends PropertyCodeGenerator {
             datatype.getBuilder(),
             removeMethod(property),
             unboxedType.orElse(elementType));
-    if (code.feature(GUAVA).isAvailable()) {
-      code.addLine("  if (%s instanceof %s) {", property.getField(), ImmutableSet.class)
-          .addLine("    %1$s = new %2$s<>(%1$s);", property.getField(), LinkedHashSet.class)
-          .addLine("  }");
-    }
+    addCopyIfImmutable(code);
     if (unboxedType.isPresent()) {
       code.addLine("  %s.remove(element);", property.getField());
     } else {
@@ -353,11 +388,7 @@ class SetProperty extends PropertyCodeGenerator {
         .addLine(" */")
         .addLine("public %s %s(%s mutator) {",
             datatype.getBuilder(), mutator(property), mutatorType.getFunctionalInterface());
-    if (code.feature(GUAVA).isAvailable()) {
-      code.addLine("  if (%s instanceof %s) {", property.getField(), ImmutableSet.class)
-          .addLine("    %1$s = new %2$s<>(%1$s);", property.getField(), LinkedHashSet.class)
-          .addLine("  }");
-    }
+    addCopyIfImmutable(code);
     if (overridesAddMethod) {
       code.addLine("  mutator.%s(new %s<%s>(%s, this::%s));",
           mutatorType.getMethodName(),
@@ -404,24 +435,44 @@ class SetProperty extends PropertyCodeGenerator {
         .addLine(" * Changes to this builder will be reflected in the view.")
         .addLine(" */")
         .addLine("public %s<%s> %s() {", Set.class, elementType, getter(property));
-    if (code.feature(GUAVA).isAvailable()) {
-      code.addLine("  if (%s instanceof %s) {", property.getField(), ImmutableSet.class)
-          .addLine("    %1$s = new %2$s<>(%1$s);", property.getField(), LinkedHashSet.class)
-          .addLine("  }");
-    }
+    addCopyIfImmutable(code);
     code.addLine("  return %s.unmodifiableSet(%s);", Collections.class, property.getField())
         .addLine("}");
   }
 
+  /**
+   * Replaces an immutable set, shared with a value in Guava mode, with a mutable copy the builder
+   * can modify.
+   */
+  private void addCopyIfImmutable(SourceBuilder code) {
+    if (!code.feature(GUAVA).isAvailable()) {
+      return;
+    }
+    code.addLine("  if (%s instanceof %s) {", property.getField(), ImmutableSet.class);
+    if (useEnumSet) {
+      code.addLine("    %1$s = %2$s.newEnumSet(%1$s, %3$s.class);",
+          property.getField(), Sets.class, elementType);
+    } else {
+      code.addLine("    %1$s = new %2$s<>(%1$s);", property.getField(), LinkedHashSet.class);
+    }
+    code.addLine("  }");
+  }
+
   @Override
   public void addFinalFieldAssignment(SourceBuilder code, Excerpt finalField, String builder) {
-    Excerpt immutableSetMethod;
-    if (code.feature(GUAVA).isAvailable()) {
-      immutableSetMethod = Excerpts.add("%s.copyOf", ImmutableSet.class);
+    Excerpt elements = property.getField().on(builder);
+    Excerpt immutableSet;
+    if (useEnumSet && code.feature(GUAVA).isAvailable()) {
+      immutableSet = Excerpts.add("%s.immutableEnumSet(%s)", Sets.class, elements);
+    } else if (useEnumSet) {
+      immutableSet = Excerpts.add(
+          "%s.unmodifiableSet(%s.copyOf(%s))", Collections.class, EnumSet.class, elements);
+    } else if (code.feature(GUAVA).isAvailable()) {
+      immutableSet = Excerpts.add("%s.copyOf(%s)", ImmutableSet.class, elements);
     } else {
-      immutableSetMethod = ImmutableSetMethod.REFERENCE;
+      immutableSet = Excerpts.add("%s(%s)", ImmutableSetMethod.REFERENCE, elements);
     }
-    code.addLine("%s = %s(%s);", finalField, immutableSetMethod, property.getField().on(builder));
+    code.addLine("%s = %s;", finalField, immutableSet);
   }
 
   @Override
@@ -433,6 +484,15 @@ class SetProperty extends PropertyCodeGenerator {
     }
   }
 
+  @Override
+  public Optional<Excerpt> unchangedSince(SourceBuilder code, Excerpt source) {
+    if (!code.feature(GUAVA).isAvailable()) {
+      // build copies into a new collection
+      return Optional.empty();
+    }
+    return Optional.of(fieldIsUnchangedSince(source));
+  }
+
   @Override
   public void addMergeFromValue(SourceBuilder code, String value) {
     if (code.feature(GUAVA).isAvailable()) {
@@ -468,6 +528,16 @@ class SetProperty extends PropertyCodeGenerator {
     code.addLine("%s.%s(%s);", builder, addAllMethod(property), variable);
   }
 
+  @Override
+  public boolean isCollection() {
+    return true;
+  }
+
+  @Override
+  public Optional<TypeMirror> getAddElementType() {
+    return Optional.of(unboxedType.orElse(elementType));
+  }
+
   @Override
   public void addClearField(SourceBuilder code) {
     code.addLine("%s();", clearMethod(property));
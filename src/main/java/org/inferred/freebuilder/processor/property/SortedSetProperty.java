@@ -42,6 +42,7 @@ import org.inferred.freebuilder.processor.excerpt.CheckedNavigableSet;
 import org.inferred.freebuilder.processor.source.Excerpt;
 import org.inferred.freebuilder.processor.source.FunctionalType;
 import org.inferred.freebuilder.processor.source.PreconditionExcerpts;
+import org.inferred.freebuilder.processor.source.QualifiedName;
 import org.inferred.freebuilder.processor.source.SourceBuilder;
 import org.inferred.freebuilder.processor.source.Type;
 import org.inferred.freebuilder.processor.source.Variable;
@@ -71,6 +72,13 @@ class SortedSetProperty extends PropertyCodeGenerator {
 
   static class Factory implements PropertyCodeGenerator.Factory {
 
+    @Override
+    public Set<QualifiedName> supportedTypes() {
+      return ImmutableSet.of(
+          QualifiedName.of(SortedSet.class),
+          QualifiedName.of(ImmutableSortedSet.class));
+    }
+
     @Override
     public Optional<SortedSetProperty> create(Config config) {
       DeclaredType type = maybeDeclared(config.getProperty().getType()).orElse(null);
@@ -89,7 +97,7 @@ class SortedSetProperty extends PropertyCodeGenerator {
           config.getBuilder(),
           mutator(config.getProperty()),
           consumer(wildcardSuperSortedSet(elementType, config.getElements(), config.getTypes())),
-          config.getElements(),
+          config.getMethodFinder(),
           config.getTypes());
 
       return Optional.of(new SortedSetProperty(
@@ -489,6 +497,15 @@ class SortedSetProperty extends PropertyCodeGenerator {
     }
   }
 
+  @Override
+  public Optional<Excerpt> unchangedSince(SourceBuilder code, Excerpt source) {
+    if (!code.feature(GUAVA).isAvailable()) {
+      // build copies into a new collection
+      return Optional.empty();
+    }
+    return Optional.of(fieldIsUnchangedSince(source));
+  }
+
   @Override
   public void addMergeFromValue(SourceBuilder code, String value) {
     if (code.feature(GUAVA).isAvailable()) {
@@ -532,6 +549,16 @@ class SortedSetProperty extends PropertyCodeGenerator {
     code.addLine("%s.%s(%s);", builder, addAllMethod(property), variable);
   }
 
+  @Override
+  public boolean isCollection() {
+    return true;
+  }
+
+  @Override
+  public Optional<TypeMirror> getAddElementType() {
+    return Optional.of(unboxedType.orElse(elementType));
+  }
+
   @Override
   public void addClearField(SourceBuilder code) {
     code.addLine("%s();", clearMethod(property));
@@ -19,6 +19,7 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Iterables.getLast;
 
 import static org.inferred.freebuilder.processor.source.ImportManager.shortenReferences;
+import static org.inferred.freebuilder.processor.source.feature.EmissionMode.EMISSION_MODE;
 
 import static java.util.stream.Collectors.joining;
 
@@ -161,6 +162,10 @@ class CompilationUnitBuilder implements QualifiedNameAppendable, SourceParser.Ev
   public String toString() {
     if (importsIndex == -1) {
       return formatSnippet(source, usages);
+    } else if (features.get(EMISSION_MODE).isCompact()) {
+      JavadocFreeSource compact = new JavadocFreeSource(source, usages);
+      return formatSource(shortenReferences(
+          compact.source, pkg, compact.offset(importsIndex), compact.usages, scopeHandler));
     } else {
       return formatSource(shortenReferences(source, pkg, importsIndex, usages, scopeHandler));
     }
@@ -198,6 +203,117 @@ class CompilationUnitBuilder implements QualifiedNameAppendable, SourceParser.Ev
     }
   }
 
+  /**
+   * A copy of the source with all Javadoc comments removed, plus the type usages that remain,
+   * moved to their new offsets.
+   */
+  private static class JavadocFreeSource {
+
+    private enum State { CODE, STRING_LITERAL, CHAR_LITERAL, LINE_COMMENT, BLOCK_COMMENT }
+
+    final StringBuilder source = new StringBuilder();
+    final List<TypeUsage> usages = new ArrayList<>();
+    /** Start and end offsets of each removed range, in the original source, in order. */
+    private final List<int[]> removed = new ArrayList<>();
+
+    JavadocFreeSource(CharSequence original, List<TypeUsage> originalUsages) {
+      findJavadoc(original);
+      int offset = 0;
+      for (int[] range : removed) {
+        source.append(original, offset, range[0]);
+        offset = range[1];
+      }
+      source.append(original, offset, original.length());
+      for (TypeUsage usage : originalUsages) {
+        if (!isRemoved(usage.start())) {
+          usages.add(new TypeUsage.Builder()
+              .mergeFrom(usage)
+              .start(offset(usage.start()))
+              .end(offset(usage.end()))
+              .build());
+        }
+      }
+    }
+
+    /** Returns the offset in the new source of {@code index} in the original source. */
+    int offset(int index) {
+      int result = index;
+      for (int[] range : removed) {
+        if (range[0] >= index) {
+          break;
+        }
+        result -= Math.min(range[1], index) - range[0];
+      }
+      return result;
+    }
+
+    private boolean isRemoved(int index) {
+      return removed.stream().anyMatch(range -> range[0] <= index && index < range[1]);
+    }
+
+    private void findJavadoc(CharSequence code) {
+      State state = State.CODE;
+      int javadocStart = -1;
+      for (int i = 0; i < code.length(); i++) {
+        char c = code.charAt(i);
+        switch (state) {
+          case CODE:
+            if (c == '"') {
+              state = State.STRING_LITERAL;
+            } else if (c == '\'') {
+              state = State.CHAR_LITERAL;
+            } else if (c == '/' && next(code, i) == '/') {
+              state = State.LINE_COMMENT;
+            } else if (c == '/' && next(code, i) == '*') {
+              state = State.BLOCK_COMMENT;
+              boolean isJavadoc = next(code, i + 1) == '*' && next(code, i + 2) != '/';
+              javadocStart = isJavadoc ? i : -1;
+              i++;
+            }
+            break;
+
+          case STRING_LITERAL:
+          case CHAR_LITERAL:
+            if (c == '\\') {
+              i++;
+            } else if (c == (state == State.STRING_LITERAL ? '"' : '\'')) {
+              state = State.CODE;
+            }
+            break;
+
+          case LINE_COMMENT:
+            if (c == '\n') {
+              state = State.CODE;
+            }
+            break;
+
+          case BLOCK_COMMENT:
+            if (c == '*' && next(code, i) == '/') {
+              state = State.CODE;
+              i++;
+              if (javadocStart != -1) {
+                // Swallow the rest of the line, so no blank line is left behind.
+                int end = i + 1;
+                while (end < code.length() && code.charAt(end) == ' ') {
+                  end++;
+                }
+                if (next(code, end - 1) == '\n') {
+                  end++;
+                }
+                removed.add(new int[] {javadocStart, end});
+                i = end - 1;
+              }
+            }
+            break;
+        }
+      }
+    }
+
+    private static char next(CharSequence code, int index) {
+      return (index + 1 < code.length()) ? code.charAt(index + 1) : 0;
+    }
+  }
+
   private static class InitialScope extends Scope {
     @Override
     protected boolean canStore(Key<?> key) {
@@ -3,7 +3,6 @@ package org.inferred.freebuilder.processor.source;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Iterables.getOnlyElement;
 
-import static org.inferred.freebuilder.processor.model.MethodFinder.methodsOn;
 import static org.inferred.freebuilder.processor.model.ModelUtils.asElement;
 import static org.inferred.freebuilder.processor.model.ModelUtils.maybeDeclared;
 import static org.inferred.freebuilder.processor.model.ModelUtils.only;
@@ -14,6 +13,8 @@ import static javax.lang.model.element.Modifier.ABSTRACT;
 
 import com.google.common.collect.ImmutableList;
 
+import org.inferred.freebuilder.processor.model.MethodFinder;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -33,7 +34,6 @@ import javax.lang.model.type.ExecutableType;
 import javax.lang.model.type.PrimitiveType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
-import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 
 /**
@@ -136,9 +136,9 @@ public class FunctionalType extends ValueType {
       DeclaredType type,
       String methodName,
       FunctionalType prototype,
-      Elements elements,
+      MethodFinder methodFinder,
       Types types) {
-    return functionalTypesAcceptedByMethod(type, methodName, elements, types)
+    return functionalTypesAcceptedByMethod(type, methodName, methodFinder, types)
         .stream()
         .filter(functionalType -> isAssignable(functionalType, prototype, types))
         .findAny()
@@ -149,17 +149,17 @@ public class FunctionalType extends ValueType {
   public static List<FunctionalType> functionalTypesAcceptedByMethod(
       DeclaredType type,
       String methodName,
-      Elements elements,
+      MethodFinder methodFinder,
       Types types) {
     TypeElement typeElement = asElement(type);
-    return methodsOn(typeElement, elements, errorType -> { })
+    return methodFinder.methodsOn(typeElement, errorType -> { })
         .stream()
         .filter(method -> method.getSimpleName().contentEquals(methodName)
             && method.getParameters().size() == 1)
         .flatMap(method -> {
           ExecutableType methodType = (ExecutableType) types.asMemberOf(type, method);
           TypeMirror parameter = getOnlyElement(methodType.getParameterTypes());
-          return maybeFunctionalType(parameter, elements, types)
+          return maybeFunctionalType(parameter, methodFinder, types)
               .map(Stream::of).orElse(Stream.of());
         })
         .collect(toList());
@@ -167,22 +167,22 @@ public class FunctionalType extends ValueType {
 
   public static Optional<FunctionalType> maybeFunctionalType(
       TypeMirror type,
-      Elements elements,
+      MethodFinder methodFinder,
       Types types) {
     return maybeDeclared(type)
-        .flatMap(declaredType -> maybeFunctionalType(declaredType, elements, types));
+        .flatMap(declaredType -> maybeFunctionalType(declaredType, methodFinder, types));
   }
 
   public static Optional<FunctionalType> maybeFunctionalType(
       DeclaredType type,
-      Elements elements,
+      MethodFinder methodFinder,
       Types types) {
     TypeElement typeElement = asElement(type);
     if (!typeElement.getKind().isInterface()) {
       return Optional.empty();
     }
     Set<ExecutableElement> abstractMethods =
-        only(ABSTRACT, methodsOn(typeElement, elements, errorType -> { }));
+        only(ABSTRACT, methodFinder.methodsOn(typeElement, errorType -> { }));
     if (abstractMethods.size() != 1) {
       return Optional.empty();
     }
@@ -31,6 +31,8 @@ class SourceParser {
   private static final Pattern PACKAGE = Pattern.compile("\\bpackage\\s([^;]*);");
   private static final Pattern TYPE = Pattern.compile(
       "\\b(class|interface|enum|@interface)\\s+([^\\s<>]+)");
+  private static final Pattern RECORD = Pattern.compile(
+      "\\brecord\\s+([^\\s<>()]+)\\s*\\([^()]*\\)");
   private static final Pattern METHOD = Pattern.compile(
       "\\b([^\\s()<>,.]+)\\s*\\(([^()]*)\\)\\s*(throws\\b|$)");
   private static final Pattern ARGUMENTS = Pattern.compile(
@@ -183,6 +185,12 @@ class SourceParser {
       eventHandler.onTypeBlockStart(typeMatcher.group(1), typeMatcher.group(2), supertypes);
       return;
     }
+    Matcher recordMatcher = RECORD.matcher(chars);
+    if (recordMatcher.find()) {
+      Set<String> supertypes = supertypes(chars.subSequence(recordMatcher.end(), chars.length()));
+      eventHandler.onTypeBlockStart("record", recordMatcher.group(1), supertypes);
+      return;
+    }
     Matcher methodMatcher = METHOD.matcher(chars);
     if (methodMatcher.find()) {
       String methodName = methodMatcher.group(1);
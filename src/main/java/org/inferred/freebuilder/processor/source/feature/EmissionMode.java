@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor.source.feature;
+
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+
+import java.util.Map;
+
+import javax.annotation.processing.ProcessingEnvironment;
+
+/**
+ * How much source to emit. Defaults to {@link #FULL} in tests.
+ *
+ * <p>{@link #COMPACT} mode is enabled by passing {@code -A}{@value #COMPACT_OPTION} to javac.
+ * Javadoc is dropped from the generated source, and redundant overloads delegate to a single
+ * implementation, so there is less source to format and compile, and less bytecode to load.
+ */
+public enum EmissionMode implements Feature<EmissionMode> {
+
+  FULL("Full source"), COMPACT("Compact source");
+
+  /** Processor option enabling {@link #COMPACT} mode. */
+  public static final String COMPACT_OPTION = "freebuilder.compact";
+
+  /**
+   * Constant to pass to {@link SourceBuilder#feature(FeatureType)} to get the current
+   * {@link EmissionMode}.
+   */
+  public static final FeatureType<EmissionMode> EMISSION_MODE = new FeatureType<EmissionMode>() {
+
+    @Override
+    protected EmissionMode testDefault(FeatureSet features) {
+      return FULL;
+    }
+
+    @Override
+    protected EmissionMode forEnvironment(ProcessingEnvironment env, FeatureSet features) {
+      Map<String, String> options = env.getOptions();
+      if (options.containsKey(COMPACT_OPTION) && !"false".equals(options.get(COMPACT_OPTION))) {
+        return COMPACT;
+      }
+      return FULL;
+    }
+  };
+
+  private final String humanReadableFormat;
+
+  EmissionMode(String humanReadableFormat) {
+    this.humanReadableFormat = humanReadableFormat;
+  }
+
+  /** Returns true if Javadoc should be dropped and overloads share a single implementation. */
+  public boolean isCompact() {
+    return this == COMPACT;
+  }
+
+  @Override
+  public String toString() {
+    return humanReadableFormat;
+  }
+}
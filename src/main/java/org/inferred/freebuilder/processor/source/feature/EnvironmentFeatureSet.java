@@ -1,18 +1,23 @@
 package org.inferred.freebuilder.processor.source.feature;
 
-import java.util.HashMap;
+import static java.util.stream.Collectors.joining;
+
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.processing.ProcessingEnvironment;
 
 /**
  * A set of {@link Feature} instances, determined dynamically by calling
  * {@link FeatureType#forEnvironment}.
+ *
+ * <p>Each feature is determined at most once, so a single instance should be shared by all code
+ * generated in the same environment. Instances are thread-safe.
  */
 public class EnvironmentFeatureSet implements FeatureSet {
 
   private final ProcessingEnvironment env;
-  private final Map<FeatureType<?>, Feature<?>> featuresByType = new HashMap<>();
+  private final Map<FeatureType<?>, Feature<?>> featuresByType = new ConcurrentHashMap<>();
 
   /** Constructs a feature set using the given processing environment. */
   public EnvironmentFeatureSet(ProcessingEnvironment env) {
@@ -22,7 +27,20 @@ public class EnvironmentFeatureSet implements FeatureSet {
   @Override
   public <T extends Feature<T>> T get(FeatureType<T> featureType) {
     @SuppressWarnings("unchecked")
-    T feature = (T) featuresByType.computeIfAbsent(featureType, $ -> $.forEnvironment(env, this));
+    T feature = (T) featuresByType.get(featureType);
+    if (feature == null) {
+      // Not computeIfAbsent, as determining one feature may require determining another.
+      T newFeature = featureType.forEnvironment(env, this);
+      @SuppressWarnings("unchecked")
+      T existingFeature = (T) featuresByType.putIfAbsent(featureType, newFeature);
+      feature = (existingFeature != null) ? existingFeature : newFeature;
+    }
     return feature;
   }
+
+  /** Returns the features determined so far, in a human-readable format. */
+  @Override
+  public String toString() {
+    return featuresByType.values().stream().map(Object::toString).sorted().collect(joining(", "));
+  }
 }
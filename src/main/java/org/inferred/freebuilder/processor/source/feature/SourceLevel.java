@@ -34,7 +34,8 @@ import javax.lang.model.SourceVersion;
  */
 public enum SourceLevel implements Feature<SourceLevel> {
 
-  JAVA_8("Java 8+", 8);
+  JAVA_8("Java 8+", 8),
+  JAVA_16("Java 16+", 16);
 
   /**
    * Constant to pass to {@link SourceBuilder#feature(FeatureType)} to get the current
@@ -49,6 +50,10 @@ public enum SourceLevel implements Feature<SourceLevel> {
 
     @Override
     protected SourceLevel forEnvironment(ProcessingEnvironment env, FeatureSet features) {
+      // RELEASE_16 is missing on older compilers, so compare ordinals, which match the version
+      if (env.getSourceVersion().ordinal() >= 16) {
+        return JAVA_16;
+      }
       return JAVA_8;
     }
   };
@@ -61,6 +66,11 @@ public enum SourceLevel implements Feature<SourceLevel> {
     this.version = version;
   }
 
+  /** Returns whether {@code record} declarations are available. */
+  public boolean hasRecords() {
+    return version >= 16;
+  }
+
   public List<String> javacArguments() {
     return ImmutableList.of("-source", Integer.toString(version));
   }
@@ -33,12 +33,22 @@ import static java.util.stream.Collectors.toMap;
 import com.google.common.annotations.GwtCompatible;
 import com.google.common.collect.ImmutableMap;
 
+import org.inferred.freebuilder.GenerateBinaryCodec;
+import org.inferred.freebuilder.GenerateColumns;
+import org.inferred.freebuilder.GenerateDiff;
+import org.inferred.freebuilder.GenerateFingerprint;
+import org.inferred.freebuilder.GenerateFlyweight;
+import org.inferred.freebuilder.GeneratePropertyTable;
+import org.inferred.freebuilder.GenerateRetainedSize;
+import org.inferred.freebuilder.GenerateSerializationProxy;
+import org.inferred.freebuilder.Memoized;
 import org.inferred.freebuilder.IgnoredByEquals;
 import org.inferred.freebuilder.NotInToString;
 import org.inferred.freebuilder.processor.Analyser.CannotGenerateCodeException;
 import org.inferred.freebuilder.processor.Datatype.StandardMethod;
 import org.inferred.freebuilder.processor.Datatype.UnderrideLevel;
 import org.inferred.freebuilder.processor.Datatype.Visibility;
+import org.inferred.freebuilder.processor.model.MethodFinder;
 import org.inferred.freebuilder.processor.property.DefaultProperty;
 import org.inferred.freebuilder.processor.property.Property;
 import org.inferred.freebuilder.processor.property.PropertyCodeGenerator;
@@ -74,7 +84,8 @@ public class AnalyserTest {
 
   @Before
   public void setup() {
-    analyser = new Analyser(model.environment(), messager);
+    analyser = new Analyser(
+        model.environment(), messager, new MethodFinder(model.elementUtils()));
   }
 
   @Test
@@ -1822,6 +1833,352 @@ public class AnalyserTest {
     messager.verifyError("Builder", "Builder has the wrong type parameters");
   }
 
+  @Test
+  public void binaryCodecRejectsUnsupportedProperty() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateBinaryCodec.class.getName(),
+        "public interface DataType {",
+        "  int getCount();",
+        "  java.util.Map<String, String> getNames();",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType",
+        "@GenerateBinaryCodec does not support property 'names' of type "
+            + "java.util.Map<java.lang.String,java.lang.String>");
+  }
+
+  @Test
+  public void serializationProxyRequiresSerializableType() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateSerializationProxy.class.getName(),
+        "public interface DataType {",
+        "  int getCount();",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError("DataType", "@GenerateSerializationProxy requires a Serializable type");
+  }
+
+  @Test
+  public void flyweightRejectsUnsupportedProperty() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateFlyweight.class.getName(),
+        "public interface DataType {",
+        "  int getCount();",
+        "  String getName();",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType", "@GenerateFlyweight does not support property 'name' of type java.lang.String");
+  }
+
+  @Test
+  public void columnsRejectsUnsupportedProperty() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateColumns.class.getName(),
+        "public interface DataType {",
+        "  int getCount();",
+        "  java.util.List<String> getNames();",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType",
+        "@GenerateColumns does not support property 'names' of type "
+            + "java.util.List<java.lang.String>");
+  }
+
+  @Test
+  public void flyweightRejectsAppendToMethod() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateFlyweight.class.getName(),
+        "public interface DataType {",
+        "  int getCount();",
+        "  StringBuilder appendTo(StringBuilder sb);",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType",
+        "@GenerateFlyweight does not support appendTo(), "
+            + "as its views cannot implement it");
+  }
+
+  @Test
+  public void flyweightRejectsWithMethod() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateFlyweight.class.getName(),
+        "public interface DataType {",
+        "  int getCount();",
+        "  DataType withCount(int count);",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType",
+        "@GenerateFlyweight does not support withCount(), "
+            + "as its views cannot implement it");
+  }
+
+  @Test
+  public void flyweightRejectsFingerprintMethod() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateFlyweight.class.getName(),
+        "@" + GenerateFingerprint.class.getName(),
+        "public interface DataType {",
+        "  int getCount();",
+        "  long fingerprint64();",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType",
+        "@GenerateFlyweight does not support fingerprint64(), "
+            + "as its views cannot implement it");
+  }
+
+  @Test
+  public void flyweightRejectsRetainedSizeMethod() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateFlyweight.class.getName(),
+        "@" + GenerateRetainedSize.class.getName(),
+        "public interface DataType {",
+        "  int getCount();",
+        "  long estimatedRetainedBytes();",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType",
+        "@GenerateFlyweight does not support estimatedRetainedBytes(), "
+            + "as its views cannot implement it");
+  }
+
+  @Test
+  public void columnsRejectsAppendToMethod() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateColumns.class.getName(),
+        "public interface DataType {",
+        "  int getCount();",
+        "  StringBuilder appendTo(StringBuilder sb);",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType",
+        "@GenerateColumns does not support appendTo(), "
+            + "as its views cannot implement it");
+  }
+
+  @Test
+  public void columnsRejectsWithMethod() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateColumns.class.getName(),
+        "public interface DataType {",
+        "  int getCount();",
+        "  DataType withCount(int count);",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType",
+        "@GenerateColumns does not support withCount(), "
+            + "as its views cannot implement it");
+  }
+
+  @Test
+  public void columnsRejectsFingerprintMethod() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateColumns.class.getName(),
+        "@" + GenerateFingerprint.class.getName(),
+        "public interface DataType {",
+        "  int getCount();",
+        "  long fingerprint64();",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType",
+        "@GenerateColumns does not support fingerprint64(), "
+            + "as its views cannot implement it");
+  }
+
+  @Test
+  public void columnsRejectsRetainedSizeMethod() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateColumns.class.getName(),
+        "@" + GenerateRetainedSize.class.getName(),
+        "public interface DataType {",
+        "  int getCount();",
+        "  long estimatedRetainedBytes();",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType",
+        "@GenerateColumns does not support estimatedRetainedBytes(), "
+            + "as its views cannot implement it");
+  }
+
+  @Test
+  public void diffRejectsGenericType() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateDiff.class.getName(),
+        "public interface DataType<T> {",
+        "  T getItem();",
+        "  class Builder<T> extends DataType_Builder<T> {}",
+        "}"));
+
+    messager.verifyError("DataType", "@GenerateDiff is not supported on generic types");
+  }
+
+  @Test
+  public void diffRejectsPropertyClashingWithDiffMethod() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateDiff.class.getName(),
+        "public interface DataType {",
+        "  boolean isEmpty();",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType",
+        "@GenerateDiff does not support a property named isEmpty(), "
+            + "as it clashes with Diff.isEmpty()");
+  }
+
+  @Test
+  public void propertyTableRejectsGenericType() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GeneratePropertyTable.class.getName(),
+        "public interface DataType<T> {",
+        "  T getItem();",
+        "  class Builder<T> extends DataType_Builder<T> {}",
+        "}"));
+
+    messager.verifyError("DataType", "@GeneratePropertyTable is not supported on generic types");
+  }
+
+  @Test
+  public void fingerprintRequiresFingerprintMethod() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateFingerprint.class.getName(),
+        "public interface DataType {",
+        "  String getName();",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType", "@GenerateFingerprint requires an abstract long fingerprint64() method");
+  }
+
+  @Test
+  public void fingerprintRejectsUnsupportedPropertyType() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateFingerprint.class.getName(),
+        "public interface DataType {",
+        "  Object getItem();",
+        "  long fingerprint64();",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType",
+        "@GenerateFingerprint does not support property 'item' of type java.lang.Object");
+  }
+
+  @Test
+  public void retainedSizeRequiresEstimateMethod() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateRetainedSize.class.getName(),
+        "public interface DataType {",
+        "  String getName();",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType",
+        "@GenerateRetainedSize requires an abstract long estimatedRetainedBytes() method");
+  }
+
+  @Test
+  public void withMethodWithoutMatchingProperty() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "public interface DataType {",
+        "  String getName();",
+        "  DataType withLabel(String label);",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError("withLabel", "withLabel does not match any property");
+  }
+
+  @Test
+  public void withMethodRejectsCollectionProperty() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "public interface DataType {",
+        "  java.util.List<String> getNames();",
+        "  DataType withNames(java.util.List<String> names);",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "withNames", "withNames is only supported on plain and @Nullable properties");
+  }
+
+  @Test
+  public void memoizedRejectsMethodWithParameters() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "public interface DataType {",
+        "  int getCount();",
+        "  @" + Memoized.class.getName() + " default int scaled(int factor) {",
+        "    return getCount() * factor;",
+        "  }",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError("scaled", "@Memoized methods must not take parameters");
+  }
+
+  @Test
+  public void memoizedRejectsStaticMethod() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "public abstract class DataType {",
+        "  public abstract int getCount();",
+        "  @" + Memoized.class.getName() + " static int defaultCount() {",
+        "    return 3;",
+        "  }",
+        "  public static class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError("defaultCount", "@Memoized methods must not be static");
+  }
+
   private static String addBuilderToClassMessage(String builder) {
     return "Add \"public static class Builder extends "
         + builder
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.GenerateBinaryCodec;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.feature.FeatureSet;
+import org.inferred.freebuilder.processor.source.testing.BehaviorTester;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory.Shared;
+import org.inferred.freebuilder.processor.source.testing.TestBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.junit.runners.Parameterized.UseParametersRunnerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+@RunWith(Parameterized.class)
+@UseParametersRunnerFactory(ParameterizedBehaviorTestFactory.class)
+public class BinaryCodecTest {
+
+  @Parameters(name = "{0}")
+  public static List<FeatureSet> featureSets() {
+    return FeatureSets.ALL;
+  }
+
+  @Parameter public FeatureSet features;
+
+  @Shared public BehaviorTester behaviorTester;
+
+  @Test
+  public void testRoundTrip() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType expected = new DataType.Builder()")
+            .addLine("    .id(-300)")
+            .addLine("    .name(\"caf\\u00e9\")")
+            .addLine("    .note(\"note\")")
+            .addLine("    .count(Long.MIN_VALUE)")
+            .addLine("    .color(DataType.Color.BLUE)")
+            .addLine("    .addScores(1, -1, 1 << 20)")
+            .addLine("    .addColors(DataType.Color.RED)")
+            .addLine("    .item(new DataType.Item.Builder().weight(0.5).build())")
+            .addLine("    .addItems(new DataType.Item.Builder().weight(2).build())")
+            .addLine("    .build();")
+            .addLine("%1$s bytes = new %1$s();", ByteArrayOutputStream.class)
+            .addLine("DataType.write(expected, new %s(bytes));",
+                DataOutputStream.class)
+            .addLine("%1$s in = new %1$s(new %2$s(bytes.toByteArray()));",
+                DataInputStream.class, ByteArrayInputStream.class)
+            .addLine("assertEquals(expected, DataType.read(in));")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testSkipsUnsetProperties() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType expected = new DataType.Builder()")
+            .addLine("    .id(1)")
+            .addLine("    .name(\"\")")
+            .addLine("    .item(new DataType.Item.Builder().weight(0).build())")
+            .addLine("    .build();")
+            .addLine("%1$s bytes = new %1$s();", ByteArrayOutputStream.class)
+            .addLine("DataType.write(expected, new %s(bytes));",
+                DataOutputStream.class)
+            .addLine("assertEquals(7, bytes.size());")
+            .addLine("%1$s in = new %1$s(new %2$s(bytes.toByteArray()));",
+                DataInputStream.class, ByteArrayInputStream.class)
+            .addLine("assertEquals(expected, DataType.read(in));")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testReadsSkippedPrimitivesAsZero() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateBinaryCodec.class)
+            .addLine("public interface DataType {")
+            .addLine("  int id();")
+            .addLine("  boolean flag();")
+            .addLine("  double weight();")
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {")
+            .addLine("    public Builder() {")
+            .addLine("      id(5);")
+            .addLine("      flag(true);")
+            .addLine("      weight(1.5);")
+            .addLine("    }")
+            .addLine("  }")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType expected = new DataType.Builder()")
+            .addLine("    .id(0)")
+            .addLine("    .flag(false)")
+            .addLine("    .weight(0)")
+            .addLine("    .build();")
+            .addLine("%1$s bytes = new %1$s();", ByteArrayOutputStream.class)
+            .addLine("DataType_Builder.Codec.write(expected, new %s(bytes));",
+                DataOutputStream.class)
+            .addLine("assertEquals(1, bytes.size());")
+            .addLine("%1$s in = new %1$s(new %2$s(bytes.toByteArray()));",
+                DataInputStream.class, ByteArrayInputStream.class)
+            .addLine("assertEquals(expected, DataType_Builder.Codec.read(in));")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testRejectsInvalidEnumOrdinal() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("byte[] bytes = { 5, 9 };")
+            .addLine("%1$s in = new %1$s(new %2$s(bytes));",
+                DataInputStream.class, ByteArrayInputStream.class)
+            .addLine("try {")
+            .addLine("  DataType.read(in);")
+            .addLine("  fail(\"Expected StreamCorruptedException\");")
+            .addLine("} catch (%s e) {", StreamCorruptedException.class)
+            .addLine("  assertEquals(\"Invalid enum ordinal 9\", e.getMessage());")
+            .addLine("}")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testRejectsInvalidStringLength() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("byte[] bytes = { 2, -1, -1, -1, -1, 0x0F };")
+            .addLine("%1$s in = new %1$s(new %2$s(bytes));",
+                DataInputStream.class, ByteArrayInputStream.class)
+            .addLine("try {")
+            .addLine("  DataType.read(in);")
+            .addLine("  fail(\"Expected StreamCorruptedException\");")
+            .addLine("} catch (%s e) {", StreamCorruptedException.class)
+            .addLine("  assertEquals(\"Invalid string length -1\", e.getMessage());")
+            .addLine("}")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testRejectsNegativeElementCount() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("// scores (tag 6) claims -1 elements")
+            .addLine("byte[] bytes = { 6, -1, -1, -1, -1, 0x0F };")
+            .addLine("%1$s in = new %1$s(new %2$s(bytes));",
+                DataInputStream.class, ByteArrayInputStream.class)
+            .addLine("try {")
+            .addLine("  DataType.read(in);")
+            .addLine("  fail(\"Expected StreamCorruptedException\");")
+            .addLine("} catch (%s e) {", StreamCorruptedException.class)
+            .addLine("  assertEquals(\"Invalid element count -1\", e.getMessage());")
+            .addLine("}")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testTruncatedLongStringFailsWithoutAllocatingItsLength() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("// Claims Integer.MAX_VALUE bytes, then ends")
+            .addLine("byte[] bytes = { 2, -1, -1, -1, -1, 0x07 };")
+            .addLine("%1$s in = new %1$s(new %2$s(bytes));",
+                DataInputStream.class, ByteArrayInputStream.class)
+            .addLine("try {")
+            .addLine("  DataType.read(in);")
+            .addLine("  fail(\"Expected EOFException\");")
+            .addLine("} catch (%s e) {", EOFException.class)
+            .addLine("  // Expected")
+            .addLine("}")
+            .build())
+        .runTest();
+  }
+
+  private static SourceBuilder dataType() {
+    return SourceBuilder.forTesting()
+        .addLine("package com.example;")
+        .addLine("@%s", FreeBuilder.class)
+        .addLine("@%s", GenerateBinaryCodec.class)
+        .addLine("public interface DataType {")
+        .addLine("  enum Color { RED, BLUE }")
+        .addLine("  int id();")
+        .addLine("  String name();")
+        .addLine("  %s<String> note();", Optional.class)
+        .addLine("  %s count();", OptionalLong.class)
+        .addLine("  @%s Color color();", Nullable.class)
+        .addLine("  %s<Integer> scores();", List.class)
+        .addLine("  %s<Color> colors();", Set.class)
+        .addLine("  Item item();")
+        .addLine("  %s<Item> items();", List.class)
+        .addLine("")
+        .addLine("")
+        .addLine("  static void write(DataType value, %s out) throws %s {",
+            DataOutput.class, IOException.class)
+        .addLine("    DataType_Builder.Codec.write(value, out);")
+        .addLine("  }")
+        .addLine("")
+        .addLine("  static DataType read(%s in) throws %s {", DataInput.class, IOException.class)
+        .addLine("    return DataType_Builder.Codec.read(in);")
+        .addLine("  }")
+        .addLine("")
+        .addLine("  class Builder extends DataType_Builder {}")
+        .addLine("")
+        .addLine("  @%s", FreeBuilder.class)
+        .addLine("  @%s", GenerateBinaryCodec.class)
+        .addLine("  interface Item {")
+        .addLine("    double weight();")
+        .addLine("    class Builder extends DataType_Item_Builder {}")
+        .addLine("  }")
+        .addLine("}");
+  }
+
+  private static TestBuilder testBuilder() {
+    return new TestBuilder().addImport("com.example.DataType");
+  }
+}
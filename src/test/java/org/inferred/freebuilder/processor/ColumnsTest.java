@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.GenerateColumns;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.feature.FeatureSet;
+import org.inferred.freebuilder.processor.source.testing.BehaviorTester;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory.Shared;
+import org.inferred.freebuilder.processor.source.testing.TestBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.junit.runners.Parameterized.UseParametersRunnerFactory;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+@RunWith(Parameterized.class)
+@UseParametersRunnerFactory(ParameterizedBehaviorTestFactory.class)
+public class ColumnsTest {
+
+  @Parameters(name = "{0}")
+  public static List<FeatureSet> featureSets() {
+    return FeatureSets.ALL;
+  }
+
+  @Parameter public FeatureSet features;
+
+  @Shared public BehaviorTester behaviorTester;
+
+  @Test
+  public void testAddAndGet() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType first = new DataType.Builder()")
+            .addLine("    .id(1)")
+            .addLine("    .active(true)")
+            .addLine("    .weight(0.5)")
+            .addLine("    .name(\"a\")")
+            .addLine("    .color(DataType.Color.BLUE)")
+            .addLine("    .build();")
+            .addLine("DataType.Builder second = first.toBuilder().id(2).active(false).name(\"b\");")
+            .addLine("DataType.Columns columns = new DataType.Columns(1);")
+            .addLine("columns.add(first);")
+            .addLine("columns.add(second);")
+            .addLine("columns.add(first);")
+            .addLine("assertEquals(3, columns.size());")
+            .addLine("assertEquals(first.toString(), columns.get(0).toString());")
+            .addLine("assertEquals(first.hashCode(), columns.get(2).hashCode());")
+            .addLine("assertEquals(columns.get(0), columns.get(2));")
+            .addLine("assertEquals(second.build(), columns.get(1).toBuilder().build());")
+            .addLine("%s ids = columns.idColumn();", IntBuffer.class)
+            .addLine("assertEquals(3, ids.remaining());")
+            .addLine("assertEquals(2, ids.get(1));")
+            .addLine("assertTrue(ids.isReadOnly());")
+            .addLine("assertEquals(%s.asList(\"a\", \"b\", \"a\"), columns.nameColumn());",
+                Arrays.class)
+            .addLine("%s active = columns.activeColumn();", BitSet.class)
+            .addLine("assertEquals(\"{0, 2}\", active.toString());")
+            .addLine("columns.clear();")
+            .addLine("assertEquals(0, columns.size());")
+            .addLine("assertEquals(0, columns.idColumn().remaining());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testAddUnsetBuilderAddsNothing() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType.Columns columns = new DataType.Columns(1);")
+            .addLine("DataType.Builder builder = new DataType.Builder()")
+            .addLine("    .id(1)")
+            .addLine("    .active(true)")
+            .addLine("    .weight(0.5)")
+            .addLine("    .name(\"a\");")
+            .addLine("try {")
+            .addLine("  columns.add(builder);")
+            .addLine("  fail(\"Expected IllegalStateException\");")
+            .addLine("} catch (IllegalStateException expected) {}")
+            .addLine("assertEquals(0, columns.size());")
+            .addLine("assertEquals(0, columns.idColumn().remaining());")
+            .addLine("columns.add(builder.id(2).color(DataType.Color.RED));")
+            .addLine("assertEquals(1, columns.size());")
+            .addLine("assertEquals(builder.build(), columns.get(0).toBuilder().build());")
+            .build())
+        .runTest();
+  }
+
+  private static SourceBuilder dataType() {
+    return SourceBuilder.forTesting()
+        .addLine("package com.example;")
+        .addLine("@%s", FreeBuilder.class)
+        .addLine("@%s", GenerateColumns.class)
+        .addLine("public interface DataType {")
+        .addLine("  enum Color { RED, BLUE }")
+        .addLine("  int id();")
+        .addLine("  boolean active();")
+        .addLine("  Double weight();")
+        .addLine("  String name();")
+        .addLine("  Color color();")
+        .addLine("")
+        .addLine("  Builder toBuilder();")
+        .addLine("")
+        .addLine("  class Builder extends DataType_Builder {}")
+        .addLine("")
+        .addLine("  class Columns extends DataType_Builder.Columns {")
+        .addLine("    public Columns(int initialCapacity) {")
+        .addLine("      super(initialCapacity);")
+        .addLine("    }")
+        .addLine("  }")
+        .addLine("}");
+  }
+
+  private static TestBuilder testBuilder() {
+    return new TestBuilder().addImport("com.example.DataType");
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import com.google.common.testing.SerializableTester;
+
+import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.GenerateDiff;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.feature.FeatureSet;
+import org.inferred.freebuilder.processor.source.testing.BehaviorTester;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory.Shared;
+import org.inferred.freebuilder.processor.source.testing.TestBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.junit.runners.Parameterized.UseParametersRunnerFactory;
+
+import java.util.List;
+import java.util.Map;
+
+@RunWith(Parameterized.class)
+@UseParametersRunnerFactory(ParameterizedBehaviorTestFactory.class)
+public class DiffTest {
+
+  @Parameters(name = "{0}")
+  public static List<FeatureSet> featureSets() {
+    return FeatureSets.ALL;
+  }
+
+  @Parameter public FeatureSet features;
+
+  @Shared public BehaviorTester behaviorTester;
+
+  @Test
+  public void testDiff() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType before = new DataType.Builder()")
+            .addLine("    .name(\"a\")")
+            .addLine("    .count(1)")
+            .addLine("    .addTags(\"x\", \"y\")")
+            .addLine("    .putScores(\"k\", 1)")
+            .addLine("    .build();")
+            .addLine("DataType after = before.toBuilder()")
+            .addLine("    .count(2)")
+            .addLine("    .clearTags()")
+            .addLine("    .addTags(\"z\")")
+            .addLine("    .build();")
+            .addLine("DataType.Builder.Diff diff = DataType.Builder.diff(before, after);")
+            .addLine("assertFalse(diff.isEmpty());")
+            .addLine("assertEquals(DataType.Builder.Diff.COUNT | DataType.Builder.Diff.TAGS,")
+            .addLine("    diff.changedProperties());")
+            .addLine("assertEquals(2, diff.count());")
+            .addLine("assertEquals(\"DataType.Diff{count=2, tags=[z]}\", diff.toString());")
+            .addLine("assertEquals(DataType.Builder.diff(before, after), diff);")
+            .addLine("assertTrue(DataType.Builder.diff(before, before).isEmpty());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testApplyDiff() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType before = new DataType.Builder()")
+            .addLine("    .name(\"a\")")
+            .addLine("    .count(1)")
+            .addLine("    .addTags(\"x\", \"y\")")
+            .addLine("    .putScores(\"k\", 1)")
+            .addLine("    .build();")
+            .addLine("DataType after = before.toBuilder()")
+            .addLine("    .name(\"b\")")
+            .addLine("    .clearTags()")
+            .addLine("    .addTags(\"z\")")
+            .addLine("    .putScores(\"k\", 2)")
+            .addLine("    .build();")
+            .addLine("DataType.Builder.Diff diff = DataType.Builder.diff(before, after);")
+            .addLine("assertEquals(after, before.toBuilder().applyDiff(diff).build());")
+            .addLine("DataType other = new DataType.Builder().name(\"c\").count(5).build();")
+            .addLine("DataType patched = other.toBuilder().applyDiff(diff).build();")
+            .addLine("assertEquals(\"b\", patched.name());")
+            .addLine("assertEquals(5, patched.count());")
+            .addLine("assertEquals(after.tags(), patched.tags());")
+            .addLine("assertEquals(after.scores(), patched.scores());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testUnchangedPropertyThrows() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder().name(\"a\").count(1).build();")
+            .addLine("DataType.Builder.Diff diff = DataType.Builder.diff(value, value);")
+            .addLine("try {")
+            .addLine("  diff.name();")
+            .addLine("  fail(\"Expected IllegalStateException\");")
+            .addLine("} catch (IllegalStateException expected) {")
+            .addLine("  assertEquals(\"name is unchanged\", expected.getMessage());")
+            .addLine("}")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testDiffIsSerializable() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType before = new DataType.Builder().name(\"a\").count(1).build();")
+            .addLine("DataType after = before.toBuilder()")
+            .addLine("    .name(\"b\")")
+            .addLine("    .addTags(\"z\")")
+            .addLine("    .build();")
+            .addLine("DataType.Builder.Diff diff = DataType.Builder.diff(before, after);")
+            .addLine("DataType.Builder.Diff copy = %s.reserializeAndAssert(diff);",
+                SerializableTester.class)
+            .addLine("assertEquals(after, before.toBuilder().applyDiff(copy).build());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testPropertiesNamedLikeLocals() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateDiff.class)
+            .addLine("public interface DataType {")
+            .addLine("  String other();")
+            .addLine("  int result();")
+            .addLine("  %s<String> separator();", List.class)
+            .addLine("  String obj();")
+            .addLine("")
+            .addLine("  Builder toBuilder();")
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType before = new DataType.Builder()")
+            .addLine("    .other(\"a\")")
+            .addLine("    .result(1)")
+            .addLine("    .obj(\"o\")")
+            .addLine("    .build();")
+            .addLine("DataType after = before.toBuilder()")
+            .addLine("    .other(\"b\")")
+            .addLine("    .addSeparator(\"x\")")
+            .addLine("    .obj(\"p\")")
+            .addLine("    .build();")
+            .addLine("DataType.Builder.Diff diff = DataType.Builder.diff(before, after);")
+            .addLine("assertEquals(\"DataType.Diff{other=b, separator=[x], obj=p}\",")
+            .addLine("    diff.toString());")
+            .addLine("assertEquals(DataType.Builder.diff(before, after), diff);")
+            .addLine("assertFalse(diff.equals(DataType.Builder.diff(before, before)));")
+            .build())
+        .runTest();
+  }
+
+  private static SourceBuilder dataType() {
+    return SourceBuilder.forTesting()
+        .addLine("package com.example;")
+        .addLine("@%s", FreeBuilder.class)
+        .addLine("@%s", GenerateDiff.class)
+        .addLine("public interface DataType {")
+        .addLine("  String name();")
+        .addLine("  int count();")
+        .addLine("  %s<String> tags();", List.class)
+        .addLine("  %s<String, Integer> scores();", Map.class)
+        .addLine("")
+        .addLine("  Builder toBuilder();")
+        .addLine("")
+        .addLine("  class Builder extends DataType_Builder {}")
+        .addLine("}");
+  }
+
+  private static TestBuilder testBuilder() {
+    return new TestBuilder().addImport("com.example.DataType");
+  }
+}
@@ -1,5 +1,6 @@
 package org.inferred.freebuilder.processor;
 
+import static org.inferred.freebuilder.processor.source.feature.SourceLevel.JAVA_16;
 import static org.inferred.freebuilder.processor.source.feature.SourceLevel.JAVA_8;
 
 import com.google.common.collect.ImmutableList;
@@ -21,5 +22,10 @@ public final class FeatureSets {
   public static final List<FeatureSet> WITH_GUAVA = ImmutableList.of(
       new StaticFeatureSet(JAVA_8, GuavaLibrary.AVAILABLE));
 
+  /** For tests of record value types, which need Java 16 or later. */
+  public static final List<FeatureSet> WITH_RECORDS = ImmutableList.of(
+      new StaticFeatureSet(JAVA_16),
+      new StaticFeatureSet(JAVA_16, GuavaLibrary.AVAILABLE));
+
   private FeatureSets() {}
 }
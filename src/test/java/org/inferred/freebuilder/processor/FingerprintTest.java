@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.GenerateFingerprint;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.feature.FeatureSet;
+import org.inferred.freebuilder.processor.source.testing.BehaviorTester;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory.Shared;
+import org.inferred.freebuilder.processor.source.testing.TestBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.junit.runners.Parameterized.UseParametersRunnerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+@RunWith(Parameterized.class)
+@UseParametersRunnerFactory(ParameterizedBehaviorTestFactory.class)
+public class FingerprintTest {
+
+  @Parameters(name = "{0}")
+  public static List<FeatureSet> featureSets() {
+    return FeatureSets.ALL;
+  }
+
+  @Parameter public FeatureSet features;
+
+  @Shared public BehaviorTester behaviorTester;
+
+  @Test
+  public void testIsStable() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder().name(\"a\").count(1).build();")
+            // Fingerprints are persisted and compared across JVMs, so must never change
+            .addLine("assertEquals(0xF4258D08F2FB8954L, value.fingerprint64());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testEqualValuesHaveEqualFingerprints() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .name(\"a\")")
+            .addLine("    .count(1)")
+            .addLine("    .addIds(1, 2, 3)")
+            .addLine("    .putScores(\"x\", 1.5)")
+            .addLine("    .putScores(\"y\", 2.5)")
+            .addLine("    .build();")
+            .addLine("DataType other = new DataType.Builder()")
+            .addLine("    .name(\"a\")")
+            .addLine("    .count(1)")
+            .addLine("    .addIds(3, 2, 1)")
+            .addLine("    .putScores(\"y\", 2.5)")
+            .addLine("    .putScores(\"x\", 1.5)")
+            .addLine("    .build();")
+            .addLine("assertEquals(value, other);")
+            .addLine("assertEquals(value.fingerprint64(), other.fingerprint64());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testDifferentValuesHaveDifferentFingerprints() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .name(\"a\")")
+            .addLine("    .count(1)")
+            .addLine("    .addTags(\"x\", \"y\")")
+            .addLine("    .build();")
+            .addLine("long fingerprint = value.fingerprint64();")
+            .addLine("assertNotEquals(fingerprint,")
+            .addLine("    value.toBuilder().name(\"b\").build().fingerprint64());")
+            .addLine("assertNotEquals(fingerprint,")
+            .addLine("    value.toBuilder().count(2).build().fingerprint64());")
+            .addLine("DataType reordered = value.toBuilder()")
+            .addLine("    .clearTags()")
+            .addLine("    .addTags(\"y\", \"x\")")
+            .addLine("    .build();")
+            .addLine("assertNotEquals(fingerprint, reordered.fingerprint64());")
+            .addLine("assertNotEquals(fingerprint,")
+            .addLine("    value.toBuilder().nickname(\"n\").build().fingerprint64());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testRecursesIntoNestedValues() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType child = new DataType.Builder().name(\"c\").count(1).build();")
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .name(\"a\")")
+            .addLine("    .count(1)")
+            .addLine("    .parent(child)")
+            .addLine("    .build();")
+            .addLine("DataType other = value.toBuilder()")
+            .addLine("    .parent(child.toBuilder().count(2).build())")
+            .addLine("    .build();")
+            .addLine("assertNotEquals(value.fingerprint64(), other.fingerprint64());")
+            .addLine("DataType copy = value.toBuilder().parent(child.toBuilder().build()).build();")
+            .addLine("assertEquals(value.fingerprint64(), copy.fingerprint64());")
+            .build())
+        .runTest();
+  }
+
+  private static SourceBuilder dataType() {
+    return SourceBuilder.forTesting()
+        .addLine("package com.example;")
+        .addLine("@%s", FreeBuilder.class)
+        .addLine("@%s", GenerateFingerprint.class)
+        .addLine("public interface DataType {")
+        .addLine("  String name();")
+        .addLine("  int count();")
+        .addLine("  @%s String nickname();", Nullable.class)
+        .addLine("  %s<DataType> parent();", Optional.class)
+        .addLine("  %s<String> tags();", List.class)
+        .addLine("  %s<Integer> ids();", Set.class)
+        .addLine("  %s<String, Double> scores();", Map.class)
+        .addLine("")
+        .addLine("  long fingerprint64();")
+        .addLine("  Builder toBuilder();")
+        .addLine("")
+        .addLine("  class Builder extends DataType_Builder {}")
+        .addLine("}");
+  }
+
+  private static TestBuilder testBuilder() {
+    return new TestBuilder().addImport("com.example.DataType");
+  }
+}
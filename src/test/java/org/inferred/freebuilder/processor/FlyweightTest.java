@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.GenerateFlyweight;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.feature.FeatureSet;
+import org.inferred.freebuilder.processor.source.testing.BehaviorTester;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory.Shared;
+import org.inferred.freebuilder.processor.source.testing.TestBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.junit.runners.Parameterized.UseParametersRunnerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+@RunWith(Parameterized.class)
+@UseParametersRunnerFactory(ParameterizedBehaviorTestFactory.class)
+public class FlyweightTest {
+
+  @Parameters(name = "{0}")
+  public static List<FeatureSet> featureSets() {
+    return FeatureSets.ALL;
+  }
+
+  @Parameter public FeatureSet features;
+
+  @Rule public final ExpectedException thrown = ExpectedException.none();
+  @Shared public BehaviorTester behaviorTester;
+
+  @Test
+  public void testRoundTrip() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType first = new DataType.Builder()")
+            .addLine("    .id(-300)")
+            .addLine("    .active(true)")
+            .addLine("    .count(Long.MIN_VALUE)")
+            .addLine("    .weight(0.5)")
+            .addLine("    .color(DataType.Color.BLUE)")
+            .addLine("    .build();")
+            .addLine("DataType second = first.toBuilder().id(7).active(false).build();")
+            .addLine("assertEquals(22, DataType.SIZE);")
+            .addLine("%1$s buffer = %1$s.allocate(2 * DataType.SIZE);", ByteBuffer.class)
+            .addLine("DataType.write(first, buffer, 0);")
+            .addLine("DataType.write(second, buffer, DataType.SIZE);")
+            .addLine("assertEquals(0, buffer.position());")
+            .addLine("DataType view = DataType.at(buffer, DataType.SIZE);")
+            .addLine("assertEquals(7, view.id());")
+            .addLine("assertFalse(view.active());")
+            .addLine("assertEquals(Long.MIN_VALUE, view.count());")
+            .addLine("assertEquals(0.5, view.weight(), 0.0);")
+            .addLine("assertEquals(DataType.Color.BLUE, view.color());")
+            .addLine("assertEquals(second.toString(), view.toString());")
+            .addLine("assertEquals(second.hashCode(), view.hashCode());")
+            .addLine("assertEquals(second, view.toBuilder().build());")
+            .addLine("assertEquals(view, DataType.at(buffer.duplicate(), DataType.SIZE));")
+            .addLine("assertFalse(view.equals(DataType.at(buffer, 0)));")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testOutOfBounds() {
+    thrown.expect(IndexOutOfBoundsException.class);
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("%1$s buffer = %1$s.allocate(DataType.SIZE + 1);", ByteBuffer.class)
+            .addLine("DataType.at(buffer, 1);")
+            .addLine("DataType.at(buffer, 2);")
+            .build())
+        .runTest();
+  }
+
+  private static SourceBuilder dataType() {
+    return SourceBuilder.forTesting()
+        .addLine("package com.example;")
+        .addLine("@%s", FreeBuilder.class)
+        .addLine("@%s", GenerateFlyweight.class)
+        .addLine("public interface DataType {")
+        .addLine("  enum Color { RED, BLUE }")
+        .addLine("  int id();")
+        .addLine("  boolean active();")
+        .addLine("  Long count();")
+        .addLine("  double weight();")
+        .addLine("  Color color();")
+        .addLine("")
+        .addLine("  Builder toBuilder();")
+        .addLine("")
+        .addLine("  int SIZE = DataType_Builder.Flyweight.SIZE;")
+        .addLine("")
+        .addLine("  static void write(DataType value, %s buffer, int offset) {", ByteBuffer.class)
+        .addLine("    DataType_Builder.Flyweight.write(value, buffer, offset);")
+        .addLine("  }")
+        .addLine("")
+        .addLine("  static DataType at(%s buffer, int offset) {", ByteBuffer.class)
+        .addLine("    return DataType_Builder.Flyweight.at(buffer, offset);")
+        .addLine("  }")
+        .addLine("")
+        .addLine("  class Builder extends DataType_Builder {}")
+        .addLine("}");
+  }
+
+  private static TestBuilder testBuilder() {
+    return new TestBuilder().addImport("com.example.DataType");
+  }
+}
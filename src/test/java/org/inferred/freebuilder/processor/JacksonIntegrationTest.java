@@ -1,10 +1,19 @@
 package org.inferred.freebuilder.processor;
 
 import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
 
 import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.GenerateJsonDeserializer;
+import org.inferred.freebuilder.GenerateJsonSerializer;
 import org.inferred.freebuilder.processor.source.SourceBuilder;
 import org.inferred.freebuilder.processor.source.feature.FeatureSet;
 import org.inferred.freebuilder.processor.source.feature.StaticFeatureSet;
@@ -13,6 +22,12 @@ import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTe
 import org.inferred.freebuilder.processor.source.testing.TestBuilder;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
 public class JacksonIntegrationTest {
 
   @Shared public BehaviorTester behaviorTester;
@@ -48,6 +63,221 @@ public class JacksonIntegrationTest {
         .runTest();
   }
 
+  @Test
+  public void testGeneratedDeserializer() {
+    FeatureSet featureSet = new StaticFeatureSet();
+    BehaviorTester.create(featureSet)
+        .with(new Processor(featureSet))
+        .withPermittedPackage(JsonParser.class.getPackage())
+        .withPermittedPackage(ObjectMapper.class.getPackage())
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateJsonDeserializer.class)
+            .addLine("@%s(using = DataType_Builder.Deserializer.class)", JsonDeserialize.class)
+            .addLine("public interface DataType {")
+            .addLine("  @%s(\"a\")", JsonProperty.class)
+            .addLine("  int propertyA();")
+            .addLine("  @%s(\"bee\")", JsonAlias.class)
+            .addLine("  String propertyB();")
+            .addLine("  %s<String> tags();", List.class)
+            .addLine("  %s<Integer, String> names();", Map.class)
+            .addLine("  %s<String> nickname();", Optional.class)
+            .addLine("  @%s", JsonIgnore.class)
+            .addLine("  @%s String ignored();", Nullable.class)
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType expected = new DataType.Builder()")
+            .addLine("    .propertyA(13)")
+            .addLine("    .propertyB(\"hello\")")
+            .addLine("    .addTags(\"x\", \"y\")")
+            .addLine("    .putNames(1, \"one\")")
+            .addLine("    .build();")
+            .addLine("%1$s mapper = new %1$s()", ObjectMapper.class)
+            .addLine("    .configure(%s.FAIL_ON_UNKNOWN_PROPERTIES, false);",
+                DeserializationFeature.class)
+            .addLine("String json = \"{ \\\"a\\\": 13, \\\"bee\\\": \\\"hello\\\", \"")
+            .addLine("    + \"\\\"tags\\\": [\\\"x\\\", \\\"y\\\"], \"")
+            .addLine("    + \"\\\"names\\\": { \\\"1\\\": \\\"one\\\" }, \"")
+            .addLine("    + \"\\\"ignored\\\": \\\"?\\\", \\\"unknown\\\": [{}] }\";")
+            .addLine("assertEquals(expected, mapper.readValue(json, DataType.class));")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testGeneratedDeserializerFailsOnUnknownProperty() {
+    FeatureSet featureSet = new StaticFeatureSet();
+    BehaviorTester.create(featureSet)
+        .with(new Processor(featureSet))
+        .withPermittedPackage(JsonParser.class.getPackage())
+        .withPermittedPackage(ObjectMapper.class.getPackage())
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateJsonDeserializer.class)
+            .addLine("@%s(using = DataType_Builder.Deserializer.class)", JsonDeserialize.class)
+            .addLine("public interface DataType {")
+            .addLine("  int propertyA();")
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("%1$s mapper = new %1$s();", ObjectMapper.class)
+            .addLine("String json = \"{ \\\"propertyA\\\": 13, \\\"unknown\\\": 1 }\";")
+            .addLine("try {")
+            .addLine("  mapper.readValue(json, DataType.class);")
+            .addLine("  fail(\"Expected UnrecognizedPropertyException\");")
+            .addLine("} catch (%s e) {", UnrecognizedPropertyException.class)
+            .addLine("  assertEquals(\"unknown\", e.getPropertyName());")
+            .addLine("}")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testGeneratedDeserializerAcceptsNullForNullableProperty() {
+    FeatureSet featureSet = new StaticFeatureSet();
+    BehaviorTester.create(featureSet)
+        .with(new Processor(featureSet))
+        .withPermittedPackage(JsonParser.class.getPackage())
+        .withPermittedPackage(ObjectMapper.class.getPackage())
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateJsonDeserializer.class)
+            .addLine("@%s(using = DataType_Builder.Deserializer.class)", JsonDeserialize.class)
+            .addLine("public interface DataType {")
+            .addLine("  int propertyA();")
+            .addLine("  @%s String nickname();", Nullable.class)
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {")
+            .addLine("    public Builder() {")
+            .addLine("      nickname(\"default\");")
+            .addLine("    }")
+            .addLine("  }")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("%1$s mapper = new %1$s();", ObjectMapper.class)
+            .addLine("String json = \"{ \\\"propertyA\\\": 13, \\\"nickname\\\": null }\";")
+            .addLine("DataType value = mapper.readValue(json, DataType.class);")
+            .addLine("assertEquals(13, value.propertyA());")
+            .addLine("assertNull(value.nickname());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testGeneratedDeserializerAcceptsNullForOptionalProperty() {
+    FeatureSet featureSet = new StaticFeatureSet();
+    BehaviorTester.create(featureSet)
+        .with(new Processor(featureSet))
+        .withPermittedPackage(JsonParser.class.getPackage())
+        .withPermittedPackage(ObjectMapper.class.getPackage())
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateJsonDeserializer.class)
+            .addLine("@%s(using = DataType_Builder.Deserializer.class)", JsonDeserialize.class)
+            .addLine("public interface DataType {")
+            .addLine("  int propertyA();")
+            .addLine("  %s<String> nickname();", Optional.class)
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {")
+            .addLine("    public Builder() {")
+            .addLine("      nickname(\"default\");")
+            .addLine("    }")
+            .addLine("  }")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("%1$s mapper = new %1$s();", ObjectMapper.class)
+            .addLine("String json = \"{ \\\"propertyA\\\": 13, \\\"nickname\\\": null }\";")
+            .addLine("DataType value = mapper.readValue(json, DataType.class);")
+            .addLine("assertEquals(13, value.propertyA());")
+            .addLine("assertFalse(value.nickname().isPresent());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testGeneratedDeserializerRejectsNullForCharProperty() {
+    FeatureSet featureSet = new StaticFeatureSet();
+    BehaviorTester.create(featureSet)
+        .with(new Processor(featureSet))
+        .withPermittedPackage(JsonParser.class.getPackage())
+        .withPermittedPackage(ObjectMapper.class.getPackage())
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateJsonDeserializer.class)
+            .addLine("@%s(using = DataType_Builder.Deserializer.class)", JsonDeserialize.class)
+            .addLine("public interface DataType {")
+            .addLine("  char initial();")
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("%1$s mapper = new %1$s();", ObjectMapper.class)
+            .addLine("assertEquals('x', mapper.readValue(")
+            .addLine("    \"{ \\\"initial\\\": \\\"x\\\" }\", DataType.class).initial());")
+            .addLine("try {")
+            .addLine("  mapper.readValue(\"{ \\\"initial\\\": null }\", DataType.class);")
+            .addLine("  fail(\"Expected MismatchedInputException\");")
+            .addLine("} catch (%s e) {", MismatchedInputException.class)
+            .addLine("  assertEquals(char.class, e.getTargetType());")
+            .addLine("}")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testGeneratedSerializer() {
+    FeatureSet featureSet = new StaticFeatureSet();
+    BehaviorTester.create(featureSet)
+        .with(new Processor(featureSet))
+        .withPermittedPackage(JsonParser.class.getPackage())
+        .withPermittedPackage(ObjectMapper.class.getPackage())
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateJsonSerializer.class)
+            .addLine("@%s(builder = DataType.Builder.class)", JsonDeserialize.class)
+            .addLine("@%s(using = DataType_Builder.Serializer.class)", JsonSerialize.class)
+            .addLine("public interface DataType {")
+            .addLine("  @%s(\"a\")", JsonProperty.class)
+            .addLine("  int propertyA();")
+            .addLine("  String propertyB();")
+            .addLine("  %s<String> tags();", List.class)
+            .addLine("  %s<String> nickname();", Optional.class)
+            .addLine("  @%s Integer maybe();", Nullable.class)
+            .addLine("  @%s", JsonIgnore.class)
+            .addLine("  @%s String ignored();", Nullable.class)
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType.Builder builder = new DataType.Builder()")
+            .addLine("    .propertyA(13)")
+            .addLine("    .propertyB(\"hello\")")
+            .addLine("    .addTags(\"x\", \"y\")")
+            .addLine("    .ignored(\"?\");")
+            .addLine("%1$s mapper = new %1$s();", ObjectMapper.class)
+            .addLine("assertEquals(")
+            .addLine("    \"{\\\"a\\\":13,\\\"propertyB\\\":\\\"hello\\\",\"")
+            .addLine("        + \"\\\"tags\\\":[\\\"x\\\",\\\"y\\\"]}\",")
+            .addLine("    mapper.writeValueAsString(builder.build()));")
+            .addLine("builder.nickname(\"bob\").maybe(7);")
+            .addLine("assertEquals(")
+            .addLine("    \"{\\\"a\\\":13,\\\"propertyB\\\":\\\"hello\\\",\"")
+            .addLine("        + \"\\\"tags\\\":[\\\"x\\\",\\\"y\\\"],\"")
+            .addLine("        + \"\\\"nickname\\\":\\\"bob\\\",\\\"maybe\\\":7}\",")
+            .addLine("    mapper.writeValueAsString(builder.build()));")
+            .build())
+        .runTest();
+  }
+
   private static TestBuilder testBuilder() {
     return new TestBuilder().addImport("com.example.DataType");
   }
@@ -25,7 +25,10 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlText;
 
+import org.inferred.freebuilder.GenerateJsonDeserializer;
+import org.inferred.freebuilder.GenerateJsonSerializer;
 import org.inferred.freebuilder.processor.Analyser.CannotGenerateCodeException;
+import org.inferred.freebuilder.processor.model.MethodFinder;
 import org.inferred.freebuilder.processor.property.Property;
 import org.inferred.freebuilder.processor.source.Excerpt;
 import org.inferred.freebuilder.processor.source.SourceBuilder;
@@ -51,7 +54,8 @@ public class JacksonSupportTest {
 
   @Before
   public void setup() {
-    analyser = new Analyser(model.environment(), messager);
+    analyser = new Analyser(
+        model.environment(), messager, new MethodFinder(model.elementUtils()));
   }
 
   @Test
@@ -161,6 +165,49 @@ public class JacksonSupportTest {
     assertPropertyHasAnnotation(property, JsonAlias.class, "@JsonAlias({\"foo\", \"bar\"})");
   }
 
+  @Test
+  public void generatedDeserializerRequiresJsonDeserialize() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateJsonDeserializer.class.getName(),
+        "public interface DataType {",
+        "  int getFooBar();",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError("DataType", "@GenerateJsonDeserializer requires @JsonDeserialize");
+  }
+
+  @Test
+  public void generatedSerializerRequiresJsonDeserialize() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateJsonSerializer.class.getName(),
+        "public interface DataType {",
+        "  int getFooBar();",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError("DataType", "@GenerateJsonSerializer requires @JsonDeserialize");
+  }
+
+  @Test
+  public void generatedDeserializerRejectsJsonAnyGetter() throws CannotGenerateCodeException {
+    analyser.analyse(model.newType(
+        "package com.example;",
+        "@" + GenerateJsonDeserializer.class.getName(),
+        "@" + JsonDeserialize.class.getName() + "(builder = DataType.Builder.class)",
+        "public interface DataType {",
+        "  @" + JsonAnyGetter.class.getName(),
+        "  " + Map.class.getName() + "<String, String> getFooBar();",
+        "  class Builder extends DataType_Builder {}",
+        "}"));
+
+    messager.verifyError(
+        "DataType",
+        "@GenerateJsonDeserializer does not support @JsonAnyGetter properties ('fooBar')");
+  }
+
   private static void assertPropertyHasAnnotation(
       Property property, Class<? extends Annotation> annotationClass, String annotationString) {
     Excerpt annotationExcerpt = property.getAccessorAnnotations()
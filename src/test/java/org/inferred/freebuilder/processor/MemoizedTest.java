@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.Memoized;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.feature.FeatureSet;
+import org.inferred.freebuilder.processor.source.testing.BehaviorTester;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory.Shared;
+import org.inferred.freebuilder.processor.source.testing.TestBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.junit.runners.Parameterized.UseParametersRunnerFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+@RunWith(Parameterized.class)
+@UseParametersRunnerFactory(ParameterizedBehaviorTestFactory.class)
+public class MemoizedTest {
+
+  @Parameters(name = "{0}")
+  public static List<FeatureSet> featureSets() {
+    return FeatureSets.ALL;
+  }
+
+  @Parameter public FeatureSet features;
+
+  @Shared public BehaviorTester behaviorTester;
+
+  @Test
+  public void testInterfaceDefaultMethod() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("public interface DataType {")
+            .addLine("  %1$s CALLS = new %1$s();", AtomicInteger.class)
+            .addLine("")
+            .addLine("  String name();")
+            .addLine("")
+            .addLine("  @%s", Memoized.class)
+            .addLine("  default String normalizedName() {")
+            .addLine("    CALLS.incrementAndGet();")
+            .addLine("    return name().trim().toLowerCase();")
+            .addLine("  }")
+            .addLine("")
+            .addLine("  @%s @%s", Memoized.class, Nullable.class)
+            .addLine("  default String nothing() {")
+            .addLine("    CALLS.incrementAndGet();")
+            .addLine("    return null;")
+            .addLine("  }")
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder("DataType")
+            .addLine("DataType value = new DataType.Builder().name(\" Alice \").build();")
+            .addLine("assertEquals(\"alice\", value.normalizedName());")
+            .addLine("assertEquals(\"alice\", value.normalizedName());")
+            .addLine("assertNull(value.nothing());")
+            .addLine("assertNull(value.nothing());")
+            .addLine("assertEquals(2, DataType.CALLS.get());")
+            .addLine("assertEquals(\"DataType{name= Alice }\", value.toString());")
+            .addLine("assertEquals(new DataType.Builder().name(\" Alice \").build(), value);")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testAbstractClassMethod() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("public abstract class AbstractType {")
+            .addLine("  public int calls = 0;")
+            .addLine("")
+            .addLine("  public abstract int count();")
+            .addLine("")
+            .addLine("  @%s", Memoized.class)
+            .addLine("  protected long squared() {")
+            .addLine("    calls++;")
+            .addLine("    return (long) count() * count();")
+            .addLine("  }")
+            .addLine("")
+            .addLine("  public long squaredTwice() {")
+            .addLine("    return squared() + squared();")
+            .addLine("  }")
+            .addLine("")
+            .addLine("  public static class Builder extends AbstractType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder("AbstractType")
+            .addLine("AbstractType value = new AbstractType.Builder().count(3).build();")
+            .addLine("assertEquals(18L, value.squaredTwice());")
+            .addLine("assertEquals(1, value.calls);")
+            .build())
+        .runTest();
+  }
+
+  private static TestBuilder testBuilder(String name) {
+    return new TestBuilder().addImport("com.example." + name);
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.GenerateMetrics;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.feature.FeatureSet;
+import org.inferred.freebuilder.processor.source.testing.BehaviorTester;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory.Shared;
+import org.inferred.freebuilder.processor.source.testing.TestBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.junit.runners.Parameterized.UseParametersRunnerFactory;
+
+import java.util.List;
+
+@RunWith(Parameterized.class)
+@UseParametersRunnerFactory(ParameterizedBehaviorTestFactory.class)
+public class MetricsTest {
+
+  @Parameters(name = "{0}")
+  public static List<FeatureSet> featureSets() {
+    return FeatureSets.ALL;
+  }
+
+  @Parameter public FeatureSet features;
+
+  @Shared public BehaviorTester behaviorTester;
+
+  @Test
+  public void testCountsCalls() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType("CountedType"))
+        .with(testBuilder("CountedType")
+            .addLine("System.setProperty(\"org.inferred.freebuilder.metrics\", \"true\");")
+            .addLine("try {")
+            .addLine("  CountedType value = new CountedType.Builder().name(\"a\").build();")
+            .addLine("  value.toBuilder().build();")
+            .addLine("  new CountedType.Builder().mergeFrom(value).buildPartial();")
+            .addLine("  try {")
+            .addLine("    new CountedType.Builder().build();")
+            .addLine("    fail(\"Expected IllegalStateException\");")
+            .addLine("  } catch (IllegalStateException expected) {}")
+            .addLine("  assertEquals(2, CountedType.Builder.Metrics.builds());")
+            .addLine("  assertEquals(1, CountedType.Builder.Metrics.buildFailures());")
+            .addLine("  assertEquals(1, CountedType.Builder.Metrics.partialBuilds());")
+            .addLine("  assertEquals(1, CountedType.Builder.Metrics.merges());")
+            .addLine("  assertEquals(1, CountedType.Builder.Metrics.toBuilders());")
+            .addLine("} finally {")
+            .addLine("  System.clearProperty(\"org.inferred.freebuilder.metrics\");")
+            .addLine("}")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testRecordsCollectionSizes() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType("SizedType"))
+        .with(testBuilder("SizedType")
+            .addLine("System.setProperty(\"org.inferred.freebuilder.metrics\", \"true\");")
+            .addLine("try {")
+            .addLine("  new SizedType.Builder().name(\"a\").build();")
+            .addLine("  new SizedType.Builder().name(\"a\").addTags(\"x\").build();")
+            .addLine("  new SizedType.Builder().name(\"a\").addTags(\"x\", \"y\", \"z\").build();")
+            .addLine("  long[] histogram = SizedType.Builder.Metrics.tagsSizeHistogram();")
+            .addLine("  assertEquals(32, histogram.length);")
+            .addLine("  assertEquals(1, histogram[0]);")
+            .addLine("  assertEquals(1, histogram[1]);")
+            .addLine("  assertEquals(1, histogram[2]);")
+            .addLine("} finally {")
+            .addLine("  System.clearProperty(\"org.inferred.freebuilder.metrics\");")
+            .addLine("}")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testReportsToListener() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType("ListenedType"))
+        .with(testBuilder("ListenedType")
+            .addLine("System.setProperty(\"org.inferred.freebuilder.metrics\", \"true\");")
+            .addLine("try {")
+            .addLine("  StringBuilder events = new StringBuilder();")
+            .addLine("  ListenedType.Builder.Metrics.setListener(")
+            .addLine("      new ListenedType.Builder.Metrics.Listener() {")
+            .addLine("        @Override public void onBuild(Class<?> type) {")
+            .addLine("          events.append(\"build \" + type.getSimpleName() + \";\");")
+            .addLine("        }")
+            .addLine("        @Override public void onBuildFailure(Class<?> type, String msg) {")
+            .addLine("          events.append(msg + \";\");")
+            .addLine("        }")
+            .addLine("        @Override public void onCollectionSize(")
+            .addLine("            Class<?> type, String property, int size) {")
+            .addLine("          events.append(property + \"=\" + size + \";\");")
+            .addLine("        }")
+            .addLine("      });")
+            .addLine("  new ListenedType.Builder().name(\"a\").addTags(\"x\", \"y\").build();")
+            .addLine("  try {")
+            .addLine("    new ListenedType.Builder().build();")
+            .addLine("  } catch (IllegalStateException expected) {}")
+            .addLine("  assertEquals(\"build ListenedType;tags=2;Not set: [name];\",")
+            .addLine("      events.toString());")
+            .addLine("} finally {")
+            .addLine("  System.clearProperty(\"org.inferred.freebuilder.metrics\");")
+            .addLine("}")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testCountsNestedBuildFailures() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateMetrics.class)
+            .addLine("public interface NestedType {")
+            .addLine("  Item item();")
+            .addLine("")
+            .addLine("  class Builder extends NestedType_Builder {}")
+            .addLine("")
+            .addLine("  @%s", FreeBuilder.class)
+            .addLine("  interface Item {")
+            .addLine("    int id();")
+            .addLine("")
+            .addLine("    class Builder extends NestedType_Item_Builder {}")
+            .addLine("  }")
+            .addLine("}"))
+        .with(testBuilder("NestedType")
+            .addLine("System.setProperty(\"org.inferred.freebuilder.metrics\", \"true\");")
+            .addLine("try {")
+            .addLine("  NestedType.Builder builder = new NestedType.Builder();")
+            .addLine("  builder.itemBuilder();")
+            .addLine("  try {")
+            .addLine("    builder.build();")
+            .addLine("    fail(\"Expected IllegalStateException\");")
+            .addLine("  } catch (IllegalStateException expected) {}")
+            .addLine("  builder.itemBuilder().id(1);")
+            .addLine("  builder.build();")
+            .addLine("  assertEquals(1, NestedType.Builder.Metrics.builds());")
+            .addLine("  assertEquals(1, NestedType.Builder.Metrics.buildFailures());")
+            .addLine("} finally {")
+            .addLine("  System.clearProperty(\"org.inferred.freebuilder.metrics\");")
+            .addLine("}")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testRecordsNothingByDefault() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType("DisabledType"))
+        .with(testBuilder("DisabledType")
+            .addLine("DisabledType value = new DisabledType.Builder()")
+            .addLine("    .name(\"a\")")
+            .addLine("    .addTags(\"x\")")
+            .addLine("    .build();")
+            .addLine("value.toBuilder().build();")
+            .addLine("assertFalse(DisabledType.Builder.Metrics.ENABLED);")
+            .addLine("assertEquals(0, DisabledType.Builder.Metrics.builds());")
+            .addLine("assertEquals(0, DisabledType.Builder.Metrics.toBuilders());")
+            .addLine("assertEquals(0, DisabledType.Builder.Metrics.tagsSizeHistogram()[1]);")
+            .build())
+        .runTest();
+  }
+
+  /**
+   * Returns a type called {@code name} with metrics. Metrics are static, and tests may share a
+   * class loader, so each test uses its own type.
+   */
+  private static SourceBuilder dataType(String name) {
+    return SourceBuilder.forTesting()
+        .addLine("package com.example;")
+        .addLine("@%s", FreeBuilder.class)
+        .addLine("@%s", GenerateMetrics.class)
+        .addLine("public interface %s {", name)
+        .addLine("  String name();")
+        .addLine("  %s<String> tags();", List.class)
+        .addLine("")
+        .addLine("  Builder toBuilder();")
+        .addLine("")
+        .addLine("  class Builder extends %s_Builder {}", name)
+        .addLine("}");
+  }
+
+  private static TestBuilder testBuilder(String name) {
+    return new TestBuilder().addImport("com.example." + name);
+  }
+}
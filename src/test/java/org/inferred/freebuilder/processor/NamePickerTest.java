@@ -6,6 +6,7 @@ import static org.junit.Assert.assertEquals;
 import com.google.common.reflect.TypeToken;
 
 import org.inferred.freebuilder.processor.Datatype.Visibility;
+import org.inferred.freebuilder.processor.model.MethodFinder;
 import org.inferred.freebuilder.processor.source.testing.ModelRule;
 import org.junit.Before;
 import org.junit.Rule;
@@ -61,7 +62,7 @@ public class NamePickerTest {
         .collect(toArray(TypeMirror[]::new));
     return pickName(
         exampleType,
-        model.elementUtils(),
+        new MethodFinder(model.elementUtils()),
         model.typeUtils(),
         model.typeMirror(returnType),
         preferredName,
@@ -77,7 +78,7 @@ public class NamePickerTest {
         .collect(toArray(TypeMirror[]::new));
     return pickName(
         exampleType,
-        model.elementUtils(),
+        new MethodFinder(model.elementUtils()),
         model.typeUtils(),
         model.typeMirror(returnType),
         preferredName,
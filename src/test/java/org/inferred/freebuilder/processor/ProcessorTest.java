@@ -15,6 +15,9 @@
  */
 package org.inferred.freebuilder.processor;
 
+import static org.inferred.freebuilder.processor.source.feature.GuavaLibrary.GUAVA;
+import static org.inferred.freebuilder.processor.source.feature.SourceLevel.SOURCE_LEVEL;
+
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
@@ -24,10 +27,14 @@ import com.google.gwt.user.client.rpc.SerializationException;
 import com.google.gwt.user.server.rpc.RPC;
 
 import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.GenerateSerializationProxy;
 import org.inferred.freebuilder.IgnoredByEquals;
 import org.inferred.freebuilder.NotInToString;
+import org.inferred.freebuilder.ReuseUnchangedValues;
 import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.feature.EmissionMode;
 import org.inferred.freebuilder.processor.source.feature.FeatureSet;
+import org.inferred.freebuilder.processor.source.feature.StaticFeatureSet;
 import org.inferred.freebuilder.processor.source.testing.BehaviorTester;
 import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory;
 import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory.Shared;
@@ -49,7 +56,13 @@ import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.Serializable;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
 
@@ -99,6 +112,34 @@ public class ProcessorTest {
         .runTest();
   }
 
+  @Test
+  public void testCompactEmissionMode() {
+    FeatureSet compact = new StaticFeatureSet(
+        features.get(SOURCE_LEVEL), features.get(GUAVA), EmissionMode.COMPACT);
+    behaviorTester
+        .with(new Processor(compact))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("public interface DataType {")
+            .addLine("  %s<String> names();", List.class)
+            .addLine("  %s<Integer> ages();", Set.class)
+            .addLine("")
+            .addLine("  public static class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .addNames(\"a\", \"b\")")
+            .addLine("    .addAllNames(%s.of(\"c\"))", Stream.class)
+            .addLine("    .addAges(1, 2)")
+            .addLine("    .addAllAges(%s.asList(2, 3))", Arrays.class)
+            .addLine("    .build();")
+            .addLine("assertThat(value.names()).containsExactly(\"a\", \"b\", \"c\").inOrder();")
+            .addLine("assertThat(value.ages()).containsExactly(1, 2, 3).inOrder();")
+            .build())
+        .runTest();
+  }
+
   @Test
   public void testPrefixlessInterface() {
     behaviorTester
@@ -286,6 +327,169 @@ public class ProcessorTest {
         .runTest();
   }
 
+  @Test
+  public void testValueSerializability() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("public interface DataType extends %s {", Serializable.class)
+            .addLine("  int getPropertyA();")
+            .addLine("  String getPropertyB();")
+            .addLine("  @%s String getPropertyC();", Nullable.class)
+            .addLine("  %s<Integer> getPropertyD();", List.class)
+            .addLine("  %s<String> getPropertyE();", Set.class)
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {")
+            .addLine("    public Builder() {")
+            .addLine("      addPropertyD(1);")
+            .addLine("    }")
+            .addLine("  }")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .setPropertyA(11)")
+            .addLine("    .setPropertyB(\"b\")")
+            .addLine("    .clearPropertyD()")
+            .addLine("    .addPropertyD(2, 3)")
+            .addLine("    .addPropertyE(\"e\")")
+            .addLine("    .build();")
+            .addLine("DataType empty = new DataType.Builder()")
+            .addLine("    .setPropertyA(0)")
+            .addLine("    .setPropertyB(\"\")")
+            .addLine("    .clearPropertyD()")
+            .addLine("    .build();")
+            .addLine("assertEquals(value, %s.reserialize(value));", ProcessorTest.class)
+            .addLine("assertEquals(empty, %s.reserialize(empty));", ProcessorTest.class)
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testValueSerializability_keepsDefaultFormWithoutAnnotation() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("public abstract class DataType implements %s {", Serializable.class)
+            .addLine("  public abstract String getName();")
+            .addLine("")
+            .addLine("  public static int builds = 0;")
+            .addLine("")
+            .addLine("  public static class Builder extends DataType_Builder {")
+            .addLine("    @Override public DataType build() {")
+            .addLine("      builds++;")
+            .addLine("      return super.build();")
+            .addLine("    }")
+            .addLine("  }")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder().setName(\"a\").build();")
+            .addLine("DataType copy = %s.reserialize(value);", ProcessorTest.class)
+            .addLine("assertEquals(value, copy);")
+            .addLine("assertEquals(1, DataType.builds);")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testSerializationProxy() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateSerializationProxy.class)
+            .addLine("public interface DataType extends %s {", Serializable.class)
+            .addLine("  int getPropertyA();")
+            .addLine("  String getPropertyB();")
+            .addLine("  @%s String getPropertyC();", Nullable.class)
+            .addLine("  %s<Integer> getPropertyD();", List.class)
+            .addLine("  %s<String> getPropertyE();", Set.class)
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {")
+            .addLine("    public Builder() {")
+            .addLine("      addPropertyD(1);")
+            .addLine("    }")
+            .addLine("  }")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .setPropertyA(11)")
+            .addLine("    .setPropertyB(\"b\")")
+            .addLine("    .clearPropertyD()")
+            .addLine("    .addPropertyD(2, 3)")
+            .addLine("    .addPropertyE(\"e\")")
+            .addLine("    .build();")
+            .addLine("DataType empty = new DataType.Builder()")
+            .addLine("    .setPropertyA(0)")
+            .addLine("    .setPropertyB(\"\")")
+            .addLine("    .clearPropertyD()")
+            .addLine("    .build();")
+            .addLine("assertEquals(value, %s.reserialize(value));", ProcessorTest.class)
+            .addLine("assertEquals(empty, %s.reserialize(empty));", ProcessorTest.class)
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testSerializationProxy_readsThroughBuilder() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateSerializationProxy.class)
+            .addLine("public abstract class DataType implements %s {", Serializable.class)
+            .addLine("  public abstract String getName();")
+            .addLine("")
+            .addLine("  public static int builds = 0;")
+            .addLine("")
+            .addLine("  public static class Builder extends DataType_Builder {")
+            .addLine("    @Override public DataType build() {")
+            .addLine("      builds++;")
+            .addLine("      return super.build();")
+            .addLine("    }")
+            .addLine("  }")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder().setName(\"a\").build();")
+            .addLine("DataType copy = %s.reserialize(value);", ProcessorTest.class)
+            .addLine("assertEquals(value, copy);")
+            .addLine("assertEquals(2, DataType.builds);")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testSerializationProxy_propertiesNamedLikeLocals() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateSerializationProxy.class)
+            .addLine("public interface DataType extends %s {", Serializable.class)
+            .addLine("  %s<String> value();", Optional.class)
+            .addLine("  %s out();", OptionalInt.class)
+            .addLine("  %s<Integer> in();", Optional.class)
+            .addLine("  %s<String, Integer> builder();", Map.class)
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .value(\"v\")")
+            .addLine("    .out(3)")
+            .addLine("    .putBuilder(\"k\", 1)")
+            .addLine("    .build();")
+            .addLine("assertEquals(value, %s.reserialize(value));", ProcessorTest.class)
+            .build())
+        .runTest();
+  }
+
   @Test
   public void testFrom() {
     behaviorTester
@@ -742,6 +946,81 @@ public class ProcessorTest {
         .runTest();
   }
 
+  @Test
+  public void testEquality_comparesCollectionsLast() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("public abstract class DataType {")
+            .addLine("  public abstract %s<Object> getItems();", List.class)
+            .addLine("  public abstract String getName();")
+            .addLine("  public abstract int getCount();")
+            .addLine("  public abstract Builder toBuilder();")
+            .addLine("")
+            .addLine("  public static class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("Object unequal = new Object() {")
+            .addLine("  @Override public boolean equals(Object obj) {")
+            .addLine("    throw new AssertionError(\"Items compared\");")
+            .addLine("  }")
+            .addLine("};")
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .addItems(unequal)")
+            .addLine("    .setName(\"a\")")
+            .addLine("    .setCount(1)")
+            .addLine("    .build();")
+            .addLine("DataType.Builder copy = value.toBuilder()")
+            .addLine("    .clearItems()")
+            .addLine("    .addItems(new Object());")
+            .addLine("assertTrue(value.equals(value));")
+            .addLine("assertFalse(value.equals(copy.setCount(2).build()));")
+            .addLine("assertFalse(value.equals(copy.setCount(1).setName(\"b\").build()));")
+            .addLine("assertFalse(value.equals(copy.setName(\"a\").addItems(unequal).build()));")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testToString_appendTo() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("public interface Item {")
+            .addLine("  String name();")
+            .addLine("  StringBuilder appendTo(StringBuilder result);")
+            .addLine("")
+            .addLine("  class Builder extends Item_Builder {}")
+            .addLine("}"))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("public interface DataType {")
+            .addLine("  Item item();")
+            .addLine("  int count();")
+            .addLine("  StringBuilder appendTo(StringBuilder result);")
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .item(new Item.Builder().name(\"widget\").build())")
+            .addLine("    .count(3)")
+            .addLine("    .build();")
+            .addLine("assertEquals(\"DataType{item=Item{name=widget}, count=3}\",")
+            .addLine("    value.toString());")
+            .addLine("assertEquals(\"Value: DataType{item=Item{name=widget}, count=3}\",")
+            .addLine("    value.appendTo(new StringBuilder(\"Value: \")).toString());")
+            .addLine("assertEquals(\"partial DataType{item=partial Item{}, count=3}\",")
+            .addLine("    new DataType.Builder().count(3).buildPartial().toString());")
+            .build())
+        .runTest();
+  }
+
   @Test
   public void testToString_noProperties() {
     behaviorTester
@@ -1504,6 +1783,108 @@ public class ProcessorTest {
         .runTest();
   }
 
+  @Test
+  public void testToBuilder_unchanged_returnsNewValueByDefault() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("public interface DataType {")
+            .addLine("  String getName();")
+            .addLine("  int getAge();")
+            .addLine("")
+            .addLine("  Builder toBuilder();")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .setName(\"fred\")")
+            .addLine("    .setAge(30)")
+            .addLine("    .build();")
+            .addLine("DataType copy = value.toBuilder().build();")
+            .addLine("assertNotSame(value, copy);")
+            .addLine("assertEquals(value, copy);")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testToBuilder_reuseUnchangedValues_returnsOriginalValue() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", ReuseUnchangedValues.class)
+            .addLine("public interface DataType {")
+            .addLine("  String getName();")
+            .addLine("  int getAge();")
+            .addLine("")
+            .addLine("  Builder toBuilder();")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .setName(\"fred\")")
+            .addLine("    .setAge(30)")
+            .addLine("    .build();")
+            .addLine("assertSame(value, value.toBuilder().build());")
+            .addLine("assertSame(value, value.toBuilder().setAge(30).build());")
+            .addLine("assertNotSame(value, value.toBuilder().setAge(31).build());")
+            .addLine("DataType equal = value.toBuilder().setName(new String(\"fred\")).build();")
+            .addLine("assertNotSame(value, equal);")
+            .addLine("assertEquals(value, equal);")
+            .addLine("assertNotSame(value, value.toBuilder().buildPartial());")
+            .addLine("DataType.Builder builder = value.toBuilder().setAge(31);")
+            .addLine("DataType changed = builder.build();")
+            .addLine("assertSame(changed, builder.build());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testBuild_reuseUnchangedValues_reusesUnchangedNestedValues() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", ReuseUnchangedValues.class)
+            .addLine("public interface DataType {")
+            .addLine("  Item getFirst();")
+            .addLine("  Item getSecond();")
+            .addLine("")
+            .addLine("  Builder toBuilder();")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("")
+            .addLine("  @%s", FreeBuilder.class)
+            .addLine("  @%s", ReuseUnchangedValues.class)
+            .addLine("  interface Item {")
+            .addLine("    String getName();")
+            .addLine("")
+            .addLine("    Builder toBuilder();")
+            .addLine("    class Builder extends DataType_Item_Builder {}")
+            .addLine("  }")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .setFirst(new DataType.Item.Builder().setName(\"a\"))")
+            .addLine("    .setSecond(new DataType.Item.Builder().setName(\"b\"))")
+            .addLine("    .build();")
+            .addLine("DataType.Builder builder = value.toBuilder();")
+            .addLine("builder.getFirstBuilder().setName(\"a\");")
+            .addLine("assertSame(value, builder.build());")
+            .addLine("builder.getFirstBuilder().setName(\"c\");")
+            .addLine("DataType changed = builder.build();")
+            .addLine("assertNotSame(value, changed);")
+            .addLine("assertEquals(\"c\", changed.getFirst().getName());")
+            .addLine("assertSame(value.getSecond(), changed.getSecond());")
+            .addLine("assertSame(changed, builder.build());")
+            .build())
+        .runTest();
+  }
+
   @Test
   public void testToBuilder_fromPartial() {
     behaviorTester
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.GeneratePropertyTable;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.feature.FeatureSet;
+import org.inferred.freebuilder.processor.source.testing.BehaviorTester;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory.Shared;
+import org.inferred.freebuilder.processor.source.testing.TestBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.junit.runners.Parameterized.UseParametersRunnerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(Parameterized.class)
+@UseParametersRunnerFactory(ParameterizedBehaviorTestFactory.class)
+public class PropertyTableTest {
+
+  @Parameters(name = "{0}")
+  public static List<FeatureSet> featureSets() {
+    return FeatureSets.ALL;
+  }
+
+  @Parameter public FeatureSet features;
+
+  @Shared public BehaviorTester behaviorTester;
+
+  @Test
+  public void testDescribesProperties() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("assertEquals(%s.asList(\"name\", \"count\", \"tags\", \"scores\"),",
+                Arrays.class)
+            .addLine("    DataType.Builder.PropertyTable.propertyNames());")
+            .addLine("assertEquals(%s.asList(String.class, int.class, %s.class, %s.class),",
+                Arrays.class, List.class, Map.class)
+            .addLine("    DataType.Builder.PropertyTable.propertyTypes());")
+            .addLine("assertEquals(DataType.Builder.PropertyTable.COUNT,")
+            .addLine("    DataType.Builder.PropertyTable.ordinalOf(\"count\"));")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testGet() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .name(\"a\")")
+            .addLine("    .count(1)")
+            .addLine("    .addTags(\"x\", \"y\")")
+            .addLine("    .build();")
+            .addLine("assertEquals(\"a\", DataType.Builder.PropertyTable.get(value, 0));")
+            .addLine("assertEquals(1, DataType.Builder.PropertyTable.get(value, 1));")
+            .addLine("assertEquals(value.tags(), DataType.Builder.PropertyTable.get(value, 2));")
+            .addLine("assertEquals(value.scores(), DataType.Builder.PropertyTable.get(value, 3));")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testSet() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType.Builder builder = new DataType.Builder().addTags(\"x\");")
+            .addLine("DataType.Builder.PropertyTable.set(builder, 0, \"b\");")
+            .addLine("DataType.Builder.PropertyTable.set(builder, 1, 2);")
+            .addLine("DataType.Builder.PropertyTable.set(builder, 2, %s.asList(\"z\"));",
+                Arrays.class)
+            .addLine("DataType.Builder.PropertyTable.set(builder, 3, %s.singletonMap(\"k\", 3));",
+                Collections.class)
+            .addLine("DataType value = builder.build();")
+            .addLine("assertEquals(\"b\", value.name());")
+            .addLine("assertEquals(2, value.count());")
+            .addLine("assertEquals(%s.asList(\"z\"), value.tags());", Arrays.class)
+            .addLine("assertEquals(%s.singletonMap(\"k\", 3), value.scores());",
+                Collections.class)
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testUnknownOrdinalThrows() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder().name(\"a\").count(1).build();")
+            .addLine("try {")
+            .addLine("  DataType.Builder.PropertyTable.get(value, 4);")
+            .addLine("  fail(\"Expected IndexOutOfBoundsException\");")
+            .addLine("} catch (IndexOutOfBoundsException expected) {")
+            .addLine("  assertEquals(\"No property with ordinal 4\", expected.getMessage());")
+            .addLine("}")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testPropertiesNamedLikeTableFields() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GeneratePropertyTable.class)
+            .addLine("public interface DataType {")
+            .addLine("  String names();")
+            .addLine("  int types();")
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("assertEquals(%s.asList(\"names\", \"types\"),", Arrays.class)
+            .addLine("    DataType.Builder.PropertyTable.propertyNames());")
+            .addLine("assertEquals(%s.asList(String.class, int.class),", Arrays.class)
+            .addLine("    DataType.Builder.PropertyTable.propertyTypes());")
+            .addLine("assertEquals(1, DataType.Builder.PropertyTable.TYPES);")
+            .build())
+        .runTest();
+  }
+
+  private static SourceBuilder dataType() {
+    return SourceBuilder.forTesting()
+        .addLine("package com.example;")
+        .addLine("@%s", FreeBuilder.class)
+        .addLine("@%s", GeneratePropertyTable.class)
+        .addLine("public interface DataType {")
+        .addLine("  String name();")
+        .addLine("  int count();")
+        .addLine("  %s<String> tags();", List.class)
+        .addLine("  %s<String, Integer> scores();", Map.class)
+        .addLine("")
+        .addLine("  class Builder extends DataType_Builder {}")
+        .addLine("}");
+  }
+
+  private static TestBuilder testBuilder() {
+    return new TestBuilder().addImport("com.example.DataType");
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.GenerateRecordValue;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.feature.FeatureSet;
+import org.inferred.freebuilder.processor.source.testing.BehaviorTester;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory.Shared;
+import org.inferred.freebuilder.processor.source.testing.TestBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.junit.runners.Parameterized.UseParametersRunnerFactory;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+import javax.lang.model.SourceVersion;
+
+@RunWith(Parameterized.class)
+@UseParametersRunnerFactory(ParameterizedBehaviorTestFactory.class)
+public class RecordValueTest {
+
+  @Parameters(name = "{0}")
+  public static List<FeatureSet> featureSets() {
+    return FeatureSets.WITH_RECORDS;
+  }
+
+  @Parameter public FeatureSet features;
+
+  @Shared public BehaviorTester behaviorTester;
+
+  @Before
+  public void requireRecords() {
+    assumeTrue(SourceVersion.latestSupported().ordinal() >= 16);
+  }
+
+  @Test
+  public void testValueIsRecord() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder().name(\"a\").count(1).build();")
+            .addLine("assertTrue(isRecord(value));")
+            .addLine("assertEquals(\"a\", value.name());")
+            .addLine("assertEquals(1, value.count());")
+            .addLine("assertNull(value.nickname());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testEqualsAndHashCode() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder().name(\"a\").count(1).build();")
+            .addLine("DataType copy = new DataType.Builder().name(\"a\").count(1).build();")
+            .addLine("assertEquals(value, copy);")
+            .addLine("assertEquals(value.hashCode(), copy.hashCode());")
+            .addLine("assertNotEquals(value, copy.toBuilder().nickname(\"n\").build());")
+            .addLine("assertNotEquals(value, new DataType.Builder()")
+            .addLine("    .name(\"a\")")
+            .addLine("    .count(1)")
+            .addLine("    .buildPartial());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testToBuilder() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder().name(\"a\").count(1).build();")
+            .addLine("DataType changed = value.toBuilder().count(2).build();")
+            .addLine("assertTrue(isRecord(changed));")
+            .addLine("assertEquals(\"a\", changed.name());")
+            .addLine("assertEquals(2, changed.count());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testGenericType() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateRecordValue.class)
+            .addLine("public interface DataType<T> {")
+            .addLine("  T item();")
+            .addLine("")
+            .addLine("  Builder<T> toBuilder();")
+            .addLine("")
+            .addLine("  class Builder<T> extends DataType_Builder<T> {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType<String> value = new DataType.Builder<String>().item(\"a\").build();")
+            .addLine("assertTrue(isRecord(value));")
+            .addLine("assertEquals(\"b\", value.toBuilder().item(\"b\").build().item());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testKeepsClassWithoutAnnotation() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("public interface DataType {")
+            .addLine("  String name();")
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder().name(\"a\").build();")
+            .addLine("assertFalse(isRecord(value));")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testFallsBackToClassForCollections() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateRecordValue.class)
+            .addLine("public interface DataType {")
+            .addLine("  %s<String> tags();", List.class)
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder().addTags(\"a\").build();")
+            .addLine("assertFalse(isRecord(value));")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testFallsBackToClassForBeanGetters() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateRecordValue.class)
+            .addLine("public interface DataType {")
+            .addLine("  String getName();")
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder().setName(\"a\").build();")
+            .addLine("assertFalse(isRecord(value));")
+            .build())
+        .runTest();
+  }
+
+  private static SourceBuilder dataType() {
+    return SourceBuilder.forTesting()
+        .addLine("package com.example;")
+        .addLine("@%s", FreeBuilder.class)
+        .addLine("@%s", GenerateRecordValue.class)
+        .addLine("public interface DataType {")
+        .addLine("  String name();")
+        .addLine("  int count();")
+        .addLine("  @%s String nickname();", Nullable.class)
+        .addLine("")
+        .addLine("  Builder toBuilder();")
+        .addLine("")
+        .addLine("  class Builder extends DataType_Builder {}")
+        .addLine("}");
+  }
+
+  private static TestBuilder testBuilder() {
+    return new TestBuilder()
+        .addImport("com.example.DataType")
+        .addStaticImport(RecordValueTest.class, "isRecord");
+  }
+
+  /** Calls {@code Class.isRecord}, which is missing from the JDK these tests compile against. */
+  public static boolean isRecord(Object value) throws ReflectiveOperationException {
+    return (Boolean) Class.class.getMethod("isRecord").invoke(value.getClass());
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.GenerateRetainedSize;
+import org.inferred.freebuilder.Lazy;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.feature.FeatureSet;
+import org.inferred.freebuilder.processor.source.testing.BehaviorTester;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory.Shared;
+import org.inferred.freebuilder.processor.source.testing.TestBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.junit.runners.Parameterized.UseParametersRunnerFactory;
+
+import java.util.List;
+import java.util.Optional;
+
+@RunWith(Parameterized.class)
+@UseParametersRunnerFactory(ParameterizedBehaviorTestFactory.class)
+public class RetainedSizeTest {
+
+  @Parameters(name = "{0}")
+  public static List<FeatureSet> featureSets() {
+    return FeatureSets.ALL;
+  }
+
+  @Parameter public FeatureSet features;
+
+  @Shared public BehaviorTester behaviorTester;
+
+  @Test
+  public void testCountsFieldsAndStrings() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder().name(\"abc\").count(1).build();")
+            // A 12-byte header and 16 bytes of fields, plus a 3-character string of 48 bytes
+            .addLine("assertEquals(80, value.estimatedRetainedBytes());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testCountsCollectionElements() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder().name(\"abc\").count(1).build();")
+            .addLine("DataType tagged = value.toBuilder().addTags(\"x\", \"y\").build();")
+            // A list of two references, and two 1-character strings of 48 bytes
+            .addLine("assertEquals(value.estimatedRetainedBytes() + 136,")
+            .addLine("    tagged.estimatedRetainedBytes());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testRecursesIntoNestedValues() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType child = new DataType.Builder().name(\"c\").count(1).build();")
+            .addLine("DataType value = new DataType.Builder().name(\"abc\").count(1).build();")
+            .addLine("DataType parent = value.toBuilder().parent(child).build();")
+            .addLine("long expected =")
+            .addLine("    value.estimatedRetainedBytes() + child.estimatedRetainedBytes();")
+            .addLine("assertEquals(expected, parent.estimatedRetainedBytes());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testDoesNotComputeLazyProperties() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", GenerateRetainedSize.class)
+            .addLine("public interface DataType {")
+            .addLine("  @%s String summary();", Lazy.class)
+            .addLine("")
+            .addLine("  long estimatedRetainedBytes();")
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("int[] calls = {0};")
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .summaryLazily(() -> \"s\" + ++calls[0])")
+            .addLine("    .build();")
+            .addLine("long pending = value.estimatedRetainedBytes();")
+            .addLine("assertEquals(0, calls[0]);")
+            .addLine("value.summary();")
+            .addLine("assertEquals(pending + 32, value.estimatedRetainedBytes());")
+            .build())
+        .runTest();
+  }
+
+  private static SourceBuilder dataType() {
+    return SourceBuilder.forTesting()
+        .addLine("package com.example;")
+        .addLine("@%s", FreeBuilder.class)
+        .addLine("@%s", GenerateRetainedSize.class)
+        .addLine("public interface DataType {")
+        .addLine("  String name();")
+        .addLine("  int count();")
+        .addLine("  %s<DataType> parent();", Optional.class)
+        .addLine("  %s<String> tags();", List.class)
+        .addLine("")
+        .addLine("  long estimatedRetainedBytes();")
+        .addLine("  Builder toBuilder();")
+        .addLine("")
+        .addLine("  class Builder extends DataType_Builder {}")
+        .addLine("}");
+  }
+
+  private static TestBuilder testBuilder() {
+    return new TestBuilder().addImport("com.example.DataType");
+  }
+}
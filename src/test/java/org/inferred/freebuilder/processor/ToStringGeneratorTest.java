@@ -21,6 +21,8 @@ import org.mockito.internal.stubbing.defaultanswers.ReturnsSmartNulls;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import javax.lang.model.type.TypeMirror;
+
 @RunWith(JUnit4.class)
 public class ToStringGeneratorTest {
 
@@ -522,13 +524,51 @@ public class ToStringGeneratorTest {
         + "}\n");
   }
 
+  @Test
+  public void appendTo() {
+    ToStringBuilder builder = builderFor("Person")
+        .withRequired("name")
+        .withOptional("age")
+        .withAppendTo();
+
+    assertThat(builder.valueToString()).isEqualTo("\n"
+        + "@Override\n"
+        + "public String toString() {\n"
+        + "  return appendTo(new StringBuilder()).toString();\n"
+        + "}\n");
+    assertThat(builder.valueAppendTo()).isEqualTo("\n"
+        + "@Override\n"
+        + "public StringBuilder appendTo(StringBuilder result) {\n"
+        + "  result.append(\"Person{\");\n"
+        + "  result.append(\"name=\").append(name);\n"
+        + "  if (age != null) {\n"
+        + "    result.append(\", age=\").append(age);\n"
+        + "  }\n"
+        + "  return result.append(\"}\");\n"
+        + "}\n");
+    assertThat(builder.partialAppendTo()).isEqualTo("\n"
+        + "@Override\n"
+        + "public StringBuilder appendTo(StringBuilder result) {\n"
+        + "  result.append(\"partial Person{\");\n"
+        + "  String separator = \"\";\n"
+        + "  if (!_unsetProperties.contains(Person_Builder.Property.NAME)) {\n"
+        + "    result.append(\"name=\").append(name);\n"
+        + "    separator = \", \";\n"
+        + "  }\n"
+        + "  if (age != null) {\n"
+        + "    result.append(separator).append(\"age=\").append(age);\n"
+        + "  }\n"
+        + "  return result.append(\"}\");\n"
+        + "}\n");
+  }
+
   private static ToStringBuilder builderFor(String typename) {
     return new ToStringBuilder(typename);
   }
 
   private static class ToStringBuilder {
 
-    private final Datatype datatype;
+    private Datatype datatype;
     private final Map<Property, PropertyCodeGenerator> generatorsByProperty = new LinkedHashMap<>();
 
     ToStringBuilder(String typename) {
@@ -551,6 +591,11 @@ public class ToStringGeneratorTest {
       return with(Initially.HAS_DEFAULT, name);
     }
 
+    ToStringBuilder withAppendTo() {
+      datatype = datatype.toBuilder().setHasAppendToMethod(true).buildPartial();
+      return this;
+    }
+
     String valueToString() {
       SourceBuilder code = SourceBuilder.forTesting();
       ToStringGenerator.addToString(code, datatype, generatorsByProperty, false);
@@ -563,10 +608,23 @@ public class ToStringGeneratorTest {
       return code.toString();
     }
 
+    String valueAppendTo() {
+      SourceBuilder code = SourceBuilder.forTesting();
+      ToStringGenerator.addAppendTo(code, datatype, generatorsByProperty, false);
+      return code.toString();
+    }
+
+    String partialAppendTo() {
+      SourceBuilder code = SourceBuilder.forTesting();
+      ToStringGenerator.addAppendTo(code, datatype, generatorsByProperty, true);
+      return code.toString();
+    }
+
     private ToStringBuilder with(PropertyCodeGenerator.Initially initially, String name) {
       Property property = new Property.Builder()
           .setName(name)
           .setAllCapsName(name.replaceAll("([A-Z])", "_$1").toUpperCase())
+          .setType(mock(TypeMirror.class))
           .buildPartial();
       PropertyCodeGenerator generator = mock(PropertyCodeGenerator.class, new ReturnsSmartNulls());
       when(generator.initialState()).thenReturn(initially);
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor;
+
+import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.Lazy;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.feature.FeatureSet;
+import org.inferred.freebuilder.processor.source.testing.BehaviorTester;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory.Shared;
+import org.inferred.freebuilder.processor.source.testing.TestBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.junit.runners.Parameterized.UseParametersRunnerFactory;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+@RunWith(Parameterized.class)
+@UseParametersRunnerFactory(ParameterizedBehaviorTestFactory.class)
+public class WithMethodsTest {
+
+  @Parameters(name = "{0}")
+  public static List<FeatureSet> featureSets() {
+    return FeatureSets.ALL;
+  }
+
+  @Parameter public FeatureSet features;
+
+  @Shared public BehaviorTester behaviorTester;
+
+  @Test
+  public void testReplacesOneProperty() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .name(\"a\")")
+            .addLine("    .count(1)")
+            .addLine("    .addTags(\"x\")")
+            .addLine("    .build();")
+            .addLine("DataType copy = value.withName(\"b\").withNickname(\"c\");")
+            .addLine("assertEquals(\"b\", copy.name());")
+            .addLine("assertEquals(1, copy.count());")
+            .addLine("assertEquals(\"c\", copy.nickname());")
+            .addLine("assertSame(value.tags(), copy.tags());")
+            .addLine("assertEquals(\"a\", value.name());")
+            .addLine("assertEquals(null, value.nickname());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testRejectsNull() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder().name(\"a\").count(1).build();")
+            .addLine("try {")
+            .addLine("  value.withName(null);")
+            .addLine("  fail(\"Expected NullPointerException\");")
+            .addLine("} catch (NullPointerException expected) {}")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testCallsOverriddenSetter() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder().name(\"a\").count(1).build();")
+            .addLine("assertEquals(2, value.withCount(2).count());")
+            .addLine("try {")
+            .addLine("  value.withCount(-1);")
+            .addLine("  fail(\"Expected IllegalArgumentException\");")
+            .addLine("} catch (IllegalArgumentException expected) {")
+            .addLine("  assertEquals(\"count must be non-negative\", expected.getMessage());")
+            .addLine("}")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testKeepsLazyPropertyUncomputed() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("public interface DataType {")
+            .addLine("  String name();")
+            .addLine("  @%s String summary();", Lazy.class)
+            .addLine("")
+            .addLine("  DataType withName(String name);")
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("int[] calls = {0};")
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .name(\"a\")")
+            .addLine("    .summaryLazily(() -> \"s\" + ++calls[0])")
+            .addLine("    .build();")
+            .addLine("DataType copy = value.withName(\"b\");")
+            .addLine("assertEquals(0, calls[0]);")
+            .addLine("assertEquals(\"s1\", copy.summary());")
+            .addLine("assertEquals(\"s1\", value.summary());")
+            .addLine("assertEquals(1, calls[0]);")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testPartial() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(dataType())
+        .with(testBuilder()
+            .addLine("DataType partial = new DataType.Builder().name(\"a\").buildPartial();")
+            .addLine("DataType copy = partial.withName(\"b\");")
+            .addLine("assertEquals(\"b\", copy.name());")
+            .addLine("try {")
+            .addLine("  copy.count();")
+            .addLine("  fail(\"Expected UnsupportedOperationException\");")
+            .addLine("} catch (UnsupportedOperationException expected) {}")
+            .build())
+        .runTest();
+  }
+
+  private static SourceBuilder dataType() {
+    return SourceBuilder.forTesting()
+        .addLine("package com.example;")
+        .addLine("@%s", FreeBuilder.class)
+        .addLine("public interface DataType {")
+        .addLine("  String name();")
+        .addLine("  int count();")
+        .addLine("  @%s String nickname();", Nullable.class)
+        .addLine("  %s<String> tags();", List.class)
+        .addLine("")
+        .addLine("  DataType withName(String name);")
+        .addLine("  DataType withCount(int count);")
+        .addLine("  DataType withNickname(String nickname);")
+        .addLine("")
+        .addLine("  class Builder extends DataType_Builder {")
+        .addLine("    @Override public Builder count(int count) {")
+        .addLine("      if (count < 0) {")
+        .addLine("        throw new IllegalArgumentException(\"count must be non-negative\");")
+        .addLine("      }")
+        .addLine("      return super.count(count);")
+        .addLine("    }")
+        .addLine("  }")
+        .addLine("}");
+  }
+
+  private static TestBuilder testBuilder() {
+    return new TestBuilder().addImport("com.example.DataType");
+  }
+}
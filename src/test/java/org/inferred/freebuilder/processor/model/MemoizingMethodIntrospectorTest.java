@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.inferred.freebuilder.processor.model.MethodIntrospector.OwnMethodInvocationVisitor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Name;
+import javax.tools.Diagnostic.Kind;
+
+@RunWith(JUnit4.class)
+public class MemoizingMethodIntrospectorTest {
+
+  private final MethodIntrospector delegate = mock(MethodIntrospector.class);
+  private final MethodIntrospector introspector = new MemoizingMethodIntrospector(delegate);
+  private final ExecutableElement method = mock(ExecutableElement.class);
+  private final Name foo = new NameImpl("foo");
+  private final Name bar = new NameImpl("bar");
+
+  @Test
+  public void getOwnMethodInvocations_delegatesOnce() {
+    when(delegate.getOwnMethodInvocations(method)).thenReturn(ImmutableSet.of(foo, bar));
+
+    Set<Name> first = introspector.getOwnMethodInvocations(method);
+    Set<Name> second = introspector.getOwnMethodInvocations(method);
+
+    assertEquals(ImmutableSet.of(foo, bar), first);
+    assertEquals(first, second);
+    verify(delegate, times(1)).getOwnMethodInvocations(method);
+  }
+
+  @Test
+  public void visitAllOwnMethodInvocations_replaysInvocationsAndLoggers() {
+    OwnMethodInvocationVisitor.Logger logger = mock(OwnMethodInvocationVisitor.Logger.class);
+    doAnswer(invocation -> {
+      OwnMethodInvocationVisitor visitor =
+          (OwnMethodInvocationVisitor) invocation.getArguments()[1];
+      visitor.visitInvocation(foo, logger);
+      visitor.visitInvocation(bar, logger);
+      return null;
+    }).when(delegate).visitAllOwnMethodInvocations(eq(method), any());
+
+    List<Name> visited = new ArrayList<>();
+    OwnMethodInvocationVisitor visitor = (methodName, methodLogger) -> {
+      visited.add(methodName);
+      methodLogger.logMessage(Kind.NOTE, methodName);
+    };
+    introspector.visitAllOwnMethodInvocations(method, visitor);
+    introspector.visitAllOwnMethodInvocations(method, visitor);
+
+    assertEquals(ImmutableList.of(foo, bar, foo, bar), visited);
+    verify(delegate, times(1)).visitAllOwnMethodInvocations(eq(method), any());
+    verify(logger, times(2)).logMessage(Kind.NOTE, foo);
+    verify(logger, times(2)).logMessage(Kind.NOTE, bar);
+  }
+}
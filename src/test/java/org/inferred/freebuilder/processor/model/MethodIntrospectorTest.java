@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor.model;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.annotation.processing.ProcessingEnvironment;
+
+@RunWith(JUnit4.class)
+public class MethodIntrospectorTest {
+
+  private final ProcessingEnvironment env = mock(ProcessingEnvironment.class);
+
+  @Test
+  public void instance_sharedUntilCleared() {
+    MethodIntrospector first = MethodIntrospector.instance(env);
+    MethodIntrospector second = MethodIntrospector.instance(env);
+    MethodIntrospector.clearCaches(env);
+    MethodIntrospector third = MethodIntrospector.instance(env);
+
+    assertSame(first, second);
+    assertNotSame(first, third);
+  }
+}
@@ -275,11 +275,14 @@ public class BiMapSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Value)) {",
         "        return false;",
         "      }",
         "      Value other = (Value) obj;",
-        "      return Objects.equals(name, other.name);",
+        "      return name.size() == other.name.size() && name.equals(other.name);",
         "    }",
         "",
         "    @Override",
@@ -321,11 +324,14 @@ public class BiMapSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Partial)) {",
         "        return false;",
         "      }",
         "      Partial other = (Partial) obj;",
-        "      return Objects.equals(name, other.name);",
+        "      return name.size() == other.name.size() && name.equals(other.name);",
         "    }",
         "",
         "    @Override",
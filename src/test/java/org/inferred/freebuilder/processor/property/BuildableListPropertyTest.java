@@ -10,6 +10,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
 import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.ReuseUnchangedValues;
 import org.inferred.freebuilder.processor.FeatureSets;
 import org.inferred.freebuilder.processor.NamingConvention;
 import org.inferred.freebuilder.processor.Processor;
@@ -1214,6 +1215,47 @@ public class BuildableListPropertyTest {
         .allTestsPass();
   }
 
+  @Test
+  public void rebuildReusesUnchangedValues() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("@%s", ReuseUnchangedValues.class)
+            .addLine("public interface Receipt {")
+            .addLine("  @%s", FreeBuilder.class)
+            .addLine("  @%s", ReuseUnchangedValues.class)
+            .addLine("  interface Item {")
+            .addLine("    String name();")
+            .addLine("    int price();")
+            .addLine("")
+            .addLine("    Builder toBuilder();")
+            .addLine("    class Builder extends Receipt_Item_Builder {}")
+            .addLine("  }")
+            .addLine("")
+            .addLine("  %s<Item> %s;", List.class, convention.get("items"))
+            .addLine("")
+            .addLine("  Builder toBuilder();")
+            .addLine("  class Builder extends Receipt_Builder {}")
+            .addLine("}"))
+        .with(testBuilder()
+            .addLine("Item candy = new Item.Builder().name(\"candy\").price(15).build();")
+            .addLine("Item apple = new Item.Builder().name(\"apple\").price(50).build();")
+            .addLine("Receipt.Builder builder = new Receipt.Builder().addItems(candy, apple);")
+            .addLine("builder.%s.get(1).price(55);", convention.get("buildersOfItems"))
+            .addLine("Receipt value = builder.build();")
+            .addLine("assertThat(value.%s.get(0)).isSameAs(candy);", convention.get("items"))
+            .addLine("assertThat(builder.build()).isSameAs(value);")
+            .addLine("builder.%s.get(0).price(20);", convention.get("buildersOfItems"))
+            .addLine("Receipt changed = builder.build();")
+            .addLine("assertThat(changed).isNotSameAs(value);")
+            .addLine("assertThat(changed.%1$s.get(1)).isSameAs(value.%1$s.get(1));",
+                convention.get("items"))
+            .build())
+        .runTest();
+  }
+
   @Test
   public void testJacksonInteroperability() {
     behaviorTester
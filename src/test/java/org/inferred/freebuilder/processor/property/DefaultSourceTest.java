@@ -244,11 +244,14 @@ public class DefaultSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Value)) {",
         "        return false;",
         "      }",
         "      Value other = (Value) obj;",
-        "      return Objects.equals(name, other.name) && age == other.age;",
+        "      return age == other.age && Objects.equals(name, other.name);",
         "    }",
         "",
         "    @Override",
@@ -298,11 +301,14 @@ public class DefaultSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Partial)) {",
         "        return false;",
         "      }",
         "      Partial other = (Partial) obj;",
-        "      return Objects.equals(name, other.name) && age == other.age;",
+        "      return age == other.age && Objects.equals(name, other.name);",
         "    }",
         "",
         "    @Override",
@@ -600,11 +606,14 @@ public class DefaultSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Value)) {",
         "        return false;",
         "      }",
         "      Value other = (Value) obj;",
-        "      return Objects.equals(name, other.name) && age == other.age;",
+        "      return age == other.age && Objects.equals(name, other.name);",
         "    }",
         "",
         "    @Override",
@@ -664,12 +673,15 @@ public class DefaultSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Partial)) {",
         "        return false;",
         "      }",
         "      Partial other = (Partial) obj;",
-        "      return Objects.equals(name, other.name)",
-        "          && age == other.age",
+        "      return age == other.age",
+        "          && Objects.equals(name, other.name)",
         "          && Objects.equals(_unsetProperties, other._unsetProperties);",
         "    }",
         "",
@@ -977,6 +989,9 @@ public class DefaultSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Value)) {",
         "        return false;",
         "      }",
@@ -1041,6 +1056,9 @@ public class DefaultSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Partial)) {",
         "        return false;",
         "      }",
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor.property;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultimap;
+
+import org.inferred.freebuilder.processor.source.testing.ModelRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+import java.util.OptionalInt;
+
+import javax.lang.model.type.TypeMirror;
+
+/** Unit tests for {@link Factories}. */
+@RunWith(JUnit4.class)
+public class FactoriesTest {
+
+  @ClassRule public static final ModelRule model = new ModelRule();
+
+  @Test
+  public void list() {
+    assertThat(factoriesFor(model.typeMirror("java.util.List<String>"))).containsExactly(
+        NullableProperty.Factory.class,
+        LazyProperty.Factory.class,
+        BuildableListProperty.Factory.class,
+        ListProperty.Factory.class,
+        BuildableProperty.Factory.class,
+        DefaultProperty.Factory.class).inOrder();
+  }
+
+  @Test
+  public void multimap() {
+    assertThat(factoriesFor(model.typeMirror(ImmutableMultimap.class))).containsExactly(
+        NullableProperty.Factory.class,
+        LazyProperty.Factory.class,
+        ListMultimapProperty.Factory.class,
+        BuildableProperty.Factory.class,
+        DefaultProperty.Factory.class).inOrder();
+  }
+
+  @Test
+  public void primitiveOptional() {
+    assertThat(factoriesFor(model.typeMirror(OptionalInt.class))).containsExactly(
+        NullableProperty.Factory.class,
+        LazyProperty.Factory.class,
+        PrimitiveOptionalProperty.Factory.class,
+        BuildableProperty.Factory.class,
+        DefaultProperty.Factory.class).inOrder();
+  }
+
+  @Test
+  public void otherDeclaredType() {
+    assertThat(factoriesFor(model.typeMirror(String.class))).containsExactly(
+        NullableProperty.Factory.class,
+        LazyProperty.Factory.class,
+        BuildableProperty.Factory.class,
+        DefaultProperty.Factory.class).inOrder();
+  }
+
+  @Test
+  public void primitive() {
+    assertThat(factoriesFor(model.typeMirror(int.class))).containsExactly(
+        NullableProperty.Factory.class,
+        LazyProperty.Factory.class,
+        BuildableProperty.Factory.class,
+        DefaultProperty.Factory.class).inOrder();
+  }
+
+  @Test
+  public void everyIndexedFactoryIsSelectedForItsTypes() {
+    for (PropertyCodeGenerator.Factory factory : Factories.PROPERTY_FACTORIES) {
+      factory.supportedTypes().forEach(type -> {
+        TypeMirror mirror = model.elementUtils().getTypeElement(type.toString()).asType();
+        assertThat(Factories.factoriesFor(mirror)).contains(factory);
+      });
+    }
+  }
+
+  private static List<Class<?>> factoriesFor(TypeMirror type) {
+    return ImmutableList.copyOf(Factories.factoriesFor(type)
+        .stream()
+        .map(Object::getClass)
+        .collect(toList()));
+  }
+}
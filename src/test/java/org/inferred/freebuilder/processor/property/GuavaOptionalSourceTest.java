@@ -332,6 +332,9 @@ public class GuavaOptionalSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Value)) {",
         "        return false;",
         "      }",
@@ -401,6 +404,9 @@ public class GuavaOptionalSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Partial)) {",
         "        return false;",
         "      }",
@@ -314,6 +314,9 @@ public class JavaUtilOptionalSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Value)) {",
         "        return false;",
         "      }",
@@ -383,6 +386,9 @@ public class JavaUtilOptionalSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Partial)) {",
         "        return false;",
         "      }",
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2014 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor.property;
+
+import com.google.common.collect.Lists;
+
+import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.Lazy;
+import org.inferred.freebuilder.processor.FeatureSets;
+import org.inferred.freebuilder.processor.NamingConvention;
+import org.inferred.freebuilder.processor.Processor;
+import org.inferred.freebuilder.processor.source.SourceBuilder;
+import org.inferred.freebuilder.processor.source.feature.FeatureSet;
+import org.inferred.freebuilder.processor.source.testing.BehaviorTester;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory;
+import org.inferred.freebuilder.processor.source.testing.ParameterizedBehaviorTestFactory.Shared;
+import org.inferred.freebuilder.processor.source.testing.TestBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.junit.runners.Parameterized.UseParametersRunnerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(Parameterized.class)
+@UseParametersRunnerFactory(ParameterizedBehaviorTestFactory.class)
+public class LazyPropertyTest {
+
+  @SuppressWarnings("unchecked")
+  @Parameters(name = "{0}, {1}")
+  public static Iterable<Object[]> parameters() {
+    List<NamingConvention> conventions = Arrays.asList(NamingConvention.values());
+    List<FeatureSet> features = FeatureSets.ALL;
+    return () -> Lists
+        .cartesianProduct(conventions, features)
+        .stream()
+        .map(List::toArray)
+        .iterator();
+  }
+
+  @Rule public final ExpectedException thrown = ExpectedException.none();
+  @Shared public BehaviorTester behaviorTester;
+
+  private final NamingConvention convention;
+  private final FeatureSet features;
+
+  private final SourceBuilder lazyPropertyType;
+
+  public LazyPropertyTest(NamingConvention convention, FeatureSet features) {
+    this.convention = convention;
+    this.features = features;
+
+    lazyPropertyType = SourceBuilder.forTesting()
+        .addLine("package com.example;")
+        .addLine("@%s", FreeBuilder.class)
+        .addLine("public abstract class DataType {")
+        .addLine("  @%s public abstract String %s;", Lazy.class, convention.get("name"))
+        .addLine("  @%s public abstract int %s;", Lazy.class, convention.get("count"))
+        .addLine("")
+        .addLine("  public abstract Builder toBuilder();")
+        .addLine("")
+        .addLine("  public static class Builder extends DataType_Builder {}")
+        .addLine("}");
+  }
+
+  @Test
+  public void testSetEagerly() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(lazyPropertyType)
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .%s(\"Alice\")", convention.set("name"))
+            .addLine("    .%s(3)", convention.set("count"))
+            .addLine("    .build();")
+            .addLine("assertEquals(\"Alice\", value.%s);", convention.get("name"))
+            .addLine("assertEquals(3, value.%s);", convention.get("count"))
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testSupplierNotCalledUntilGetterCalled() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(lazyPropertyType)
+        .with(testBuilder()
+            .addLine("%1$s calls = new %1$s();", AtomicInteger.class)
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .%sLazily(() -> {", convention.set("name"))
+            .addLine("      calls.incrementAndGet();")
+            .addLine("      return \"Alice\";")
+            .addLine("    })")
+            .addLine("    .%s(3)", convention.set("count"))
+            .addLine("    .build();")
+            .addLine("assertEquals(0, calls.get());")
+            .addLine("assertEquals(\"Alice\", value.%s);", convention.get("name"))
+            .addLine("assertEquals(\"Alice\", value.%s);", convention.get("name"))
+            .addLine("assertEquals(1, calls.get());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testEqualsHashCodeAndToStringForceEvaluation() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(lazyPropertyType)
+        .with(testBuilder()
+            .addLine("DataType lazy = new DataType.Builder()")
+            .addLine("    .%sLazily(() -> \"Alice\")", convention.set("name"))
+            .addLine("    .%sLazily(() -> 3)", convention.set("count"))
+            .addLine("    .build();")
+            .addLine("DataType eager = new DataType.Builder()")
+            .addLine("    .%s(\"Alice\")", convention.set("name"))
+            .addLine("    .%s(3)", convention.set("count"))
+            .addLine("    .build();")
+            .addLine("assertEquals(eager, lazy);")
+            .addLine("assertEquals(eager.hashCode(), lazy.hashCode());")
+            .addLine("assertEquals(\"DataType{name=Alice, count=3}\", lazy.toString());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testLaterSetterOverridesSupplier() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(lazyPropertyType)
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .%sLazily(() -> {", convention.set("name"))
+            .addLine("      throw new AssertionError(\"supplier called\");")
+            .addLine("    })")
+            .addLine("    .%s(\"Bob\")", convention.set("name"))
+            .addLine("    .%s(3)", convention.set("count"))
+            .addLine("    .build();")
+            .addLine("assertEquals(\"Bob\", value.%s);", convention.get("name"))
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testToBuilderSharesResult() {
+    behaviorTester
+        .with(new Processor(features))
+        .with(lazyPropertyType)
+        .with(testBuilder()
+            .addLine("%1$s calls = new %1$s();", AtomicInteger.class)
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .%sLazily(() -> {", convention.set("name"))
+            .addLine("      calls.incrementAndGet();")
+            .addLine("      return \"Alice\";")
+            .addLine("    })")
+            .addLine("    .%s(3)", convention.set("count"))
+            .addLine("    .build();")
+            .addLine("DataType copy = value.toBuilder().%s(4).build();", convention.set("count"))
+            .addLine("assertEquals(\"Alice\", copy.%s);", convention.get("name"))
+            .addLine("assertEquals(\"Alice\", value.%s);", convention.get("name"))
+            .addLine("assertEquals(1, calls.get());")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testSupplierReturningNull() {
+    thrown.expect(NullPointerException.class);
+    thrown.expectMessage("name supplier returned null");
+    behaviorTester
+        .with(new Processor(features))
+        .with(lazyPropertyType)
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .%sLazily(() -> null)", convention.set("name"))
+            .addLine("    .%s(3)", convention.set("count"))
+            .addLine("    .build();")
+            .addLine("value.%s;", convention.get("name"))
+            .build())
+        .runTest();
+  }
+
+  private static TestBuilder testBuilder() {
+    return new TestBuilder().addImport("com.example.DataType");
+  }
+}
@@ -31,6 +31,7 @@ import org.inferred.freebuilder.processor.model.GenericTypeElementImpl;
 import org.inferred.freebuilder.processor.model.GenericTypeElementImpl.GenericTypeMirrorImpl;
 import org.inferred.freebuilder.processor.source.FunctionalType;
 import org.inferred.freebuilder.processor.source.QualifiedName;
+import org.inferred.freebuilder.processor.source.feature.EmissionMode;
 import org.inferred.freebuilder.processor.source.feature.GuavaLibrary;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -374,11 +375,17 @@ public class ListSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Value)) {",
         "        return false;",
         "      }",
         "      Value other = (Value) obj;",
-        "      return Objects.equals(name, other.name) && Objects.equals(age, other.age);",
+        "      return name.size() == other.name.size()",
+        "          && name.equals(other.name)",
+        "          && age.size() == other.age.size()",
+        "          && age.equals(other.age);",
         "    }",
         "",
         "    @Override",
@@ -428,11 +435,17 @@ public class ListSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Partial)) {",
         "        return false;",
         "      }",
         "      Partial other = (Partial) obj;",
-        "      return Objects.equals(name, other.name) && Objects.equals(age, other.age);",
+        "      return name.size() == other.name.size()",
+        "          && name.equals(other.name)",
+        "          && age.size() == other.age.size()",
+        "          && age.equals(other.age);",
         "    }",
         "",
         "    @Override",
@@ -834,11 +847,17 @@ public class ListSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Value)) {",
         "        return false;",
         "      }",
         "      Value other = (Value) obj;",
-        "      return Objects.equals(name, other.name) && Objects.equals(age, other.age);",
+        "      return name.size() == other.name.size()",
+        "          && name.equals(other.name)",
+        "          && age.size() == other.age.size()",
+        "          && age.equals(other.age);",
         "    }",
         "",
         "    @Override",
@@ -888,11 +907,17 @@ public class ListSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Partial)) {",
         "        return false;",
         "      }",
         "      Partial other = (Partial) obj;",
-        "      return Objects.equals(name, other.name) && Objects.equals(age, other.age);",
+        "      return name.size() == other.name.size()",
+        "          && name.equals(other.name)",
+        "          && age.size() == other.age.size()",
+        "          && age.equals(other.age);",
         "    }",
         "",
         "    @Override",
@@ -908,6 +933,281 @@ public class ListSourceTest {
         "}");
   }
 
+  @Test
+  public void test_compact() {
+    assertThat(builder()).given(EmissionMode.COMPACT).generates(
+        "// Autogenerated code. Do not modify.",
+        "package com.example;",
+        "",
+        "import com.example.Person;",
+        "import java.util.ArrayList;",
+        "import java.util.Arrays;",
+        "import java.util.Collections;",
+        "import java.util.List;",
+        "import java.util.Objects;",
+        "import java.util.Spliterator;",
+        "import java.util.function.Consumer;",
+        "import java.util.stream.BaseStream;",
+        "",
+        "abstract class Person_Builder {",
+        "",
+        "  public static Person.Builder from(Person value) {",
+        "    if (value instanceof Rebuildable) {",
+        "      return ((Rebuildable) value).toBuilder();",
+        "    } else {",
+        "      return new Person.Builder().mergeFrom(value);",
+        "    }",
+        "  }",
+        "",
+        "  private final ArrayList<String> name = new ArrayList<>();",
+        "  private final ArrayList<Integer> age = new ArrayList<>();",
+        "",
+        "  public Person.Builder addName(String element) {",
+        "    name.add(Objects.requireNonNull(element));",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person.Builder addName(String... elements) {",
+        "    return addAllName(Arrays.spliterator(elements));",
+        "  }",
+        "",
+        "  public Person.Builder addAllName(Spliterator<? extends String> elements) {",
+        "    if ((elements.characteristics() & Spliterator.SIZED) != 0) {",
+        "      long elementsSize = elements.estimateSize();",
+        "      if (elementsSize > 0 && elementsSize <= Integer.MAX_VALUE) {",
+        "        name.ensureCapacity(name.size() + (int) elementsSize);",
+        "      }",
+        "    }",
+        "    elements.forEachRemaining(this::addName);",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person.Builder addAllName(BaseStream<? extends String, ?> elements) {",
+        "    return addAllName(elements.spliterator());",
+        "  }",
+        "",
+        "  public Person.Builder addAllName(Iterable<? extends String> elements) {",
+        "    return addAllName(elements.spliterator());",
+        "  }",
+        "",
+        "  public Person.Builder mutateName(Consumer<? super List<String>> mutator) {",
+        "    // If addName is overridden, this method will be updated to delegate to it",
+        "    mutator.accept(name);",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person.Builder clearName() {",
+        "    name.clear();",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public List<String> name() {",
+        "    return Collections.unmodifiableList(name);",
+        "  }",
+        "",
+        "  public Person.Builder addAge(int element) {",
+        "    age.add(element);",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person.Builder addAge(int... elements) {",
+        "    return addAllAge(Arrays.spliterator(elements));",
+        "  }",
+        "",
+        "  public Person.Builder addAllAge(Spliterator<? extends Integer> elements) {",
+        "    if ((elements.characteristics() & Spliterator.SIZED) != 0) {",
+        "      long elementsSize = elements.estimateSize();",
+        "      if (elementsSize > 0 && elementsSize <= Integer.MAX_VALUE) {",
+        "        age.ensureCapacity(age.size() + (int) elementsSize);",
+        "      }",
+        "    }",
+        "    elements.forEachRemaining(this::addAge);",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person.Builder addAllAge(BaseStream<? extends Integer, ?> elements) {",
+        "    return addAllAge(elements.spliterator());",
+        "  }",
+        "",
+        "  public Person.Builder addAllAge(Iterable<? extends Integer> elements) {",
+        "    return addAllAge(elements.spliterator());",
+        "  }",
+        "",
+        "  public Person.Builder mutateAge(Consumer<? super List<Integer>> mutator) {",
+        "    // If addAge is overridden, this method will be updated to delegate to it",
+        "    mutator.accept(age);",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person.Builder clearAge() {",
+        "    age.clear();",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public List<Integer> age() {",
+        "    return Collections.unmodifiableList(age);",
+        "  }",
+        "",
+        "  public Person.Builder mergeFrom(Person value) {",
+        "    addAllName(value.name());",
+        "    addAllAge(value.age());",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person.Builder mergeFrom(Person.Builder template) {",
+        "    // Upcast to access private fields; otherwise, oddly, we get an access violation.",
+        "    Person_Builder base = template;",
+        "    addAllName(base.name);",
+        "    addAllAge(base.age);",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person.Builder clear() {",
+        "    clearName();",
+        "    clearAge();",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person build() {",
+        "    return new Value(this);",
+        "  }",
+        "",
+        "  public Person buildPartial() {",
+        "    return new Partial(this);",
+        "  }",
+        "",
+        "  private abstract static class Rebuildable extends Person {",
+        "    public abstract Person.Builder toBuilder();",
+        "  }",
+        "",
+        "  private static final class Value extends Rebuildable {",
+        "    private final List<String> name;",
+        "    private final List<Integer> age;",
+        "",
+        "    private Value(Person_Builder builder) {",
+        "      this.name = immutableList(builder.name);",
+        "      this.age = immutableList(builder.age);",
+        "    }",
+        "",
+        "    @Override",
+        "    public List<String> name() {",
+        "      return name;",
+        "    }",
+        "",
+        "    @Override",
+        "    public List<Integer> age() {",
+        "      return age;",
+        "    }",
+        "",
+        "    @Override",
+        "    public Person.Builder toBuilder() {",
+        "      Person_Builder builder = new Person.Builder();",
+        "      builder.name.addAll(name);",
+        "      builder.age.addAll(age);",
+        "      return (Person.Builder) builder;",
+        "    }",
+        "",
+        "    @Override",
+        "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
+        "      if (!(obj instanceof Value)) {",
+        "        return false;",
+        "      }",
+        "      Value other = (Value) obj;",
+        "      return name.size() == other.name.size()",
+        "          && name.equals(other.name)",
+        "          && age.size() == other.age.size()",
+        "          && age.equals(other.age);",
+        "    }",
+        "",
+        "    @Override",
+        "    public int hashCode() {",
+        "      return Objects.hash(name, age);",
+        "    }",
+        "",
+        "    @Override",
+        "    public String toString() {",
+        "      return \"Person{name=\" + name + \", age=\" + age + \"}\";",
+        "    }",
+        "  }",
+        "",
+        "  private static final class Partial extends Rebuildable {",
+        "    private final List<String> name;",
+        "    private final List<Integer> age;",
+        "",
+        "    Partial(Person_Builder builder) {",
+        "      this.name = immutableList(builder.name);",
+        "      this.age = immutableList(builder.age);",
+        "    }",
+        "",
+        "    @Override",
+        "    public List<String> name() {",
+        "      return name;",
+        "    }",
+        "",
+        "    @Override",
+        "    public List<Integer> age() {",
+        "      return age;",
+        "    }",
+        "",
+        "    private static class PartialBuilder extends Person.Builder {",
+        "      @Override",
+        "      public Person build() {",
+        "        return buildPartial();",
+        "      }",
+        "    }",
+        "",
+        "    @Override",
+        "    public Person.Builder toBuilder() {",
+        "      Person_Builder builder = new PartialBuilder();",
+        "      builder.name.addAll(name);",
+        "      builder.age.addAll(age);",
+        "      return (Person.Builder) builder;",
+        "    }",
+        "",
+        "    @Override",
+        "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
+        "      if (!(obj instanceof Partial)) {",
+        "        return false;",
+        "      }",
+        "      Partial other = (Partial) obj;",
+        "      return name.size() == other.name.size()",
+        "          && name.equals(other.name)",
+        "          && age.size() == other.age.size()",
+        "          && age.equals(other.age);",
+        "    }",
+        "",
+        "    @Override",
+        "    public int hashCode() {",
+        "      return Objects.hash(name, age);",
+        "    }",
+        "",
+        "    @Override",
+        "    public String toString() {",
+        "      return \"partial Person{name=\" + name + \", age=\" + age + \"}\";",
+        "    }",
+        "  }",
+        "",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  private static <E> List<E> immutableList(List<E> elements) {",
+        "    switch (elements.size()) {",
+        "      case 0:",
+        "        return Collections.emptyList();",
+        "      case 1:",
+        "        return Collections.singletonList(elements.get(0));",
+        "      default:",
+        "        return (List<E>) (List<?>) Collections.unmodifiableList("
+            + "Arrays.asList(elements.toArray()));",
+        "    }",
+        "  }",
+        "}");
+  }
+
   /**
    * Returns a {@link Datatype} instance for a FreeBuilder type with two properties: name, of
    * type {@code List<String>}; and age, of type {@code List<Integer>}.
@@ -239,11 +239,14 @@ public class MapSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Value)) {",
         "        return false;",
         "      }",
         "      Value other = (Value) obj;",
-        "      return Objects.equals(name, other.name);",
+        "      return name.size() == other.name.size() && name.equals(other.name);",
         "    }",
         "",
         "    @Override",
@@ -285,11 +288,14 @@ public class MapSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Partial)) {",
         "        return false;",
         "      }",
         "      Partial other = (Partial) obj;",
-        "      return Objects.equals(name, other.name);",
+        "      return name.size() == other.name.size() && name.equals(other.name);",
         "    }",
         "",
         "    @Override",
@@ -517,11 +523,14 @@ public class MapSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Value)) {",
         "        return false;",
         "      }",
         "      Value other = (Value) obj;",
-        "      return Objects.equals(name, other.name);",
+        "      return name.size() == other.name.size() && name.equals(other.name);",
         "    }",
         "",
         "    @Override",
@@ -563,11 +572,14 @@ public class MapSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Partial)) {",
         "        return false;",
         "      }",
         "      Partial other = (Partial) obj;",
-        "      return Objects.equals(name, other.name);",
+        "      return name.size() == other.name.size() && name.equals(other.name);",
         "    }",
         "",
         "    @Override",
@@ -24,9 +24,9 @@ import com.google.common.collect.ImmutableMap;
 import org.inferred.freebuilder.processor.BuilderFactory;
 import org.inferred.freebuilder.processor.Datatype;
 import org.inferred.freebuilder.processor.GeneratedBuilder;
+import org.inferred.freebuilder.processor.OptionalType;
 import org.inferred.freebuilder.processor.model.ClassTypeImpl;
 import org.inferred.freebuilder.processor.model.PrimitiveTypeImpl;
-import org.inferred.freebuilder.processor.property.PrimitiveOptionalProperty.OptionalType;
 import org.inferred.freebuilder.processor.source.QualifiedName;
 import org.inferred.freebuilder.processor.source.feature.GuavaLibrary;
 import org.junit.Test;
@@ -276,6 +276,9 @@ public class PrimitiveOptionalSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Value)) {",
         "        return false;",
         "      }",
@@ -339,6 +342,9 @@ public class PrimitiveOptionalSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Partial)) {",
         "        return false;",
         "      }",
@@ -29,6 +29,7 @@ import com.google.common.collect.Lists;
 import com.google.common.testing.EqualsTester;
 
 import org.inferred.freebuilder.FreeBuilder;
+import org.inferred.freebuilder.UseEnumSet;
 import org.inferred.freebuilder.processor.FeatureSets;
 import org.inferred.freebuilder.processor.NamingConvention;
 import org.inferred.freebuilder.processor.Processor;
@@ -1135,6 +1136,129 @@ public class SetPropertyTest {
         .withNoWarnings();
   }
 
+  @Test
+  public void testEnumElements_keepInsertionOrderByDefault() {
+    assumeEnumSetProperty();
+    behaviorTester
+        .with(new Processor(features))
+        .with(enumSetPropertyType(false))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .addItems(DataType.Flag.C, DataType.Flag.A)")
+            .addLine("    .build();")
+            .addLine("assertThat(value.%s)", convention.get())
+            .addLine("    .containsExactly(DataType.Flag.C, DataType.Flag.A)")
+            .addLine("    .inOrder();")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testUseEnumSet() {
+    assumeEnumSetProperty();
+    behaviorTester
+        .with(new Processor(features))
+        .with(enumSetPropertyType(true))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .addItems(DataType.Flag.C, DataType.Flag.A, DataType.Flag.B)")
+            .addLine("    .removeItems(DataType.Flag.B)")
+            .addLine("    .build();")
+            .addLine("assertThat(value.%s)", convention.get())
+            .addLine("    .containsExactly(DataType.Flag.A, DataType.Flag.C)")
+            .addLine("    .inOrder();")
+            .addLine("DataType copy = value.toBuilder()")
+            .addLine("    .mutateItems(items -> items.add(DataType.Flag.B))")
+            .addLine("    .build();")
+            .addLine("assertThat(copy.%s)", convention.get())
+            .addLine("    .containsExactly(DataType.Flag.A, DataType.Flag.B, DataType.Flag.C)")
+            .addLine("    .inOrder();")
+            .addLine("assertThat(value.%s)", convention.get())
+            .addLine("    .containsExactly(DataType.Flag.A, DataType.Flag.C)")
+            .addLine("    .inOrder();")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testUseEnumSet_immutable() {
+    assumeEnumSetProperty();
+    thrown.expect(UnsupportedOperationException.class);
+    behaviorTester
+        .with(new Processor(features))
+        .with(enumSetPropertyType(true))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .addItems(DataType.Flag.A)")
+            .addLine("    .build();")
+            .addLine("value.%s.add(DataType.Flag.B);", convention.get())
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testUseEnumSet_guavaImmutableEnumSet() {
+    assumeEnumSetProperty();
+    assumeGuavaAvailable();
+    behaviorTester
+        .with(new Processor(features))
+        .with(enumSetPropertyType(true))
+        .with(testBuilder()
+            .addLine("DataType value = new DataType.Builder()")
+            .addLine("    .addItems(DataType.Flag.B, DataType.Flag.A)")
+            .addLine("    .build();")
+            .addLine("assertThat(value.%s.getClass().getSimpleName())", convention.get())
+            .addLine("    .isEqualTo(\"ImmutableEnumSet\");")
+            .addLine("assertThat(value.%s)", convention.get())
+            .addLine("    .containsExactly(DataType.Flag.A, DataType.Flag.B)")
+            .addLine("    .inOrder();")
+            .build())
+        .runTest();
+  }
+
+  @Test
+  public void testUseEnumSet_nonEnumElements() {
+    assumeEnumSetProperty();
+    behaviorTester
+        .with(new Processor(features))
+        .with(SourceBuilder.forTesting()
+            .addLine("package com.example;")
+            .addLine("@%s", FreeBuilder.class)
+            .addLine("public interface DataType {")
+            .addLine("  @%s", UseEnumSet.class)
+            .addLine("  %s<String> %s;", set.type(), convention.get())
+            .addLine("")
+            .addLine("  class Builder extends DataType_Builder {}")
+            .addLine("}"))
+        .failsToCompile()
+        .withErrorThat(subject -> subject
+            .hasMessage("@UseEnumSet is only supported on sets of enum constants"));
+  }
+
+  private void assumeEnumSetProperty() {
+    // The enum is declared in the source, so other element types would only repeat the test
+    assumeTrue(set == SetType.SET && elements == ElementFactory.STRINGS);
+  }
+
+  private SourceBuilder enumSetPropertyType(boolean useEnumSet) {
+    SourceBuilder code = SourceBuilder.forTesting()
+        .addLine("package com.example;")
+        .addLine("@%s", FreeBuilder.class)
+        .addLine("public interface DataType {")
+        .addLine("  enum Flag { A, B, C }")
+        .addLine("");
+    if (useEnumSet) {
+      code.addLine("  @%s", UseEnumSet.class);
+    }
+    return code
+        .addLine("  %s<Flag> %s;", set.type(), convention.get())
+        .addLine("")
+        .addLine("  Builder toBuilder();")
+        .addLine("")
+        .addLine("  class Builder extends DataType_Builder {}")
+        .addLine("}");
+  }
+
   private void assumeGuavaAvailable() {
     assumeTrue("Guava available", features.get(GUAVA).isAvailable());
   }
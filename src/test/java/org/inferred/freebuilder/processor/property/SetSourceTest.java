@@ -29,6 +29,7 @@ import org.inferred.freebuilder.processor.GeneratedBuilder;
 import org.inferred.freebuilder.processor.model.GenericTypeElementImpl;
 import org.inferred.freebuilder.processor.model.GenericTypeElementImpl.GenericTypeMirrorImpl;
 import org.inferred.freebuilder.processor.source.QualifiedName;
+import org.inferred.freebuilder.processor.source.feature.EmissionMode;
 import org.inferred.freebuilder.processor.source.feature.GuavaLibrary;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -273,11 +274,14 @@ public class SetSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Value)) {",
         "        return false;",
         "      }",
         "      Value other = (Value) obj;",
-        "      return Objects.equals(name, other.name);",
+        "      return name.size() == other.name.size() && name.equals(other.name);",
         "    }",
         "",
         "    @Override",
@@ -319,11 +323,14 @@ public class SetSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Partial)) {",
         "        return false;",
         "      }",
         "      Partial other = (Partial) obj;",
-        "      return Objects.equals(name, other.name);",
+        "      return name.size() == other.name.size() && name.equals(other.name);",
         "    }",
         "",
         "    @Override",
@@ -609,11 +616,14 @@ public class SetSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Value)) {",
         "        return false;",
         "      }",
         "      Value other = (Value) obj;",
-        "      return Objects.equals(name, other.name);",
+        "      return name.size() == other.name.size() && name.equals(other.name);",
         "    }",
         "",
         "    @Override",
@@ -655,11 +665,206 @@ public class SetSourceTest {
         "",
         "    @Override",
         "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
+        "      if (!(obj instanceof Partial)) {",
+        "        return false;",
+        "      }",
+        "      Partial other = (Partial) obj;",
+        "      return name.size() == other.name.size() && name.equals(other.name);",
+        "    }",
+        "",
+        "    @Override",
+        "    public int hashCode() {",
+        "      return Objects.hash(name);",
+        "    }",
+        "",
+        "    @Override",
+        "    public String toString() {",
+        "      return \"partial Person{name=\" + name + \"}\";",
+        "    }",
+        "  }",
+        "}");
+  }
+
+  @Test
+  public void test_compact() {
+    assertThat(builder()).given(EmissionMode.COMPACT).generates(
+        "// Autogenerated code. Do not modify.",
+        "package com.example;",
+        "",
+        "import com.example.Person;",
+        "import java.util.Arrays;",
+        "import java.util.Collections;",
+        "import java.util.LinkedHashSet;",
+        "import java.util.Objects;",
+        "import java.util.Set;",
+        "import java.util.Spliterator;",
+        "import java.util.function.Consumer;",
+        "import java.util.stream.BaseStream;",
+        "",
+        "abstract class Person_Builder {",
+        "",
+        "  public static Person.Builder from(Person value) {",
+        "    if (value instanceof Rebuildable) {",
+        "      return ((Rebuildable) value).toBuilder();",
+        "    } else {",
+        "      return new Person.Builder().mergeFrom(value);",
+        "    }",
+        "  }",
+        "",
+        "  private final LinkedHashSet<String> name = new LinkedHashSet<>();",
+        "",
+        "  public Person.Builder addName(String element) {",
+        "    name.add(Objects.requireNonNull(element));",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person.Builder addName(String... elements) {",
+        "    return addAllName(Arrays.spliterator(elements));",
+        "  }",
+        "",
+        "  public Person.Builder addAllName(Spliterator<? extends String> elements) {",
+        "    elements.forEachRemaining(this::addName);",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person.Builder addAllName(BaseStream<? extends String, ?> elements) {",
+        "    return addAllName(elements.spliterator());",
+        "  }",
+        "",
+        "  public Person.Builder addAllName(Iterable<? extends String> elements) {",
+        "    return addAllName(elements.spliterator());",
+        "  }",
+        "",
+        "  public Person.Builder removeName(String element) {",
+        "    name.remove(Objects.requireNonNull(element));",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person.Builder mutateName(Consumer<? super Set<String>> mutator) {",
+        "    // If addName is overridden, this method will be updated to delegate to it",
+        "    mutator.accept(name);",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person.Builder clearName() {",
+        "    name.clear();",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Set<String> name() {",
+        "    return Collections.unmodifiableSet(name);",
+        "  }",
+        "",
+        "  public Person.Builder mergeFrom(Person value) {",
+        "    addAllName(value.name());",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person.Builder mergeFrom(Person.Builder template) {",
+        "    // Upcast to access private fields; otherwise, oddly, we get an access violation.",
+        "    Person_Builder base = template;",
+        "    addAllName(base.name);",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person.Builder clear() {",
+        "    clearName();",
+        "    return (Person.Builder) this;",
+        "  }",
+        "",
+        "  public Person build() {",
+        "    return new Value(this);",
+        "  }",
+        "",
+        "  public Person buildPartial() {",
+        "    return new Partial(this);",
+        "  }",
+        "",
+        "  private abstract static class Rebuildable extends Person {",
+        "    public abstract Person.Builder toBuilder();",
+        "  }",
+        "",
+        "  private static final class Value extends Rebuildable {",
+        "    private final Set<String> name;",
+        "",
+        "    private Value(Person_Builder builder) {",
+        "      this.name = immutableSet(builder.name);",
+        "    }",
+        "",
+        "    @Override",
+        "    public Set<String> name() {",
+        "      return name;",
+        "    }",
+        "",
+        "    @Override",
+        "    public Person.Builder toBuilder() {",
+        "      Person_Builder builder = new Person.Builder();",
+        "      builder.name.addAll(name);",
+        "      return (Person.Builder) builder;",
+        "    }",
+        "",
+        "    @Override",
+        "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
+        "      if (!(obj instanceof Value)) {",
+        "        return false;",
+        "      }",
+        "      Value other = (Value) obj;",
+        "      return name.size() == other.name.size() && name.equals(other.name);",
+        "    }",
+        "",
+        "    @Override",
+        "    public int hashCode() {",
+        "      return Objects.hash(name);",
+        "    }",
+        "",
+        "    @Override",
+        "    public String toString() {",
+        "      return \"Person{name=\" + name + \"}\";",
+        "    }",
+        "  }",
+        "",
+        "  private static final class Partial extends Rebuildable {",
+        "    private final Set<String> name;",
+        "",
+        "    Partial(Person_Builder builder) {",
+        "      this.name = immutableSet(builder.name);",
+        "    }",
+        "",
+        "    @Override",
+        "    public Set<String> name() {",
+        "      return name;",
+        "    }",
+        "",
+        "    private static class PartialBuilder extends Person.Builder {",
+        "      @Override",
+        "      public Person build() {",
+        "        return buildPartial();",
+        "      }",
+        "    }",
+        "",
+        "    @Override",
+        "    public Person.Builder toBuilder() {",
+        "      Person_Builder builder = new PartialBuilder();",
+        "      builder.name.addAll(name);",
+        "      return (Person.Builder) builder;",
+        "    }",
+        "",
+        "    @Override",
+        "    public boolean equals(Object obj) {",
+        "      if (obj == this) {",
+        "        return true;",
+        "      }",
         "      if (!(obj instanceof Partial)) {",
         "        return false;",
         "      }",
         "      Partial other = (Partial) obj;",
-        "      return Objects.equals(name, other.name);",
+        "      return name.size() == other.name.size() && name.equals(other.name);",
         "    }",
         "",
         "    @Override",
@@ -672,6 +877,17 @@ public class SetSourceTest {
         "      return \"partial Person{name=\" + name + \"}\";",
         "    }",
         "  }",
+        "",
+        "  private static <E> Set<E> immutableSet(Set<E> elements) {",
+        "    switch (elements.size()) {",
+        "      case 0:",
+        "        return Collections.emptySet();",
+        "      case 1:",
+        "        return Collections.singleton(elements.iterator().next());",
+        "      default:",
+        "        return Collections.unmodifiableSet(new LinkedHashSet<>(elements));",
+        "    }",
+        "  }",
         "}");
   }
 
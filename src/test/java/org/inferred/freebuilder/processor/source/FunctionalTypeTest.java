@@ -14,6 +14,7 @@ import static java.util.stream.Collectors.toMap;
 import com.google.common.primitives.Primitives;
 import com.google.common.reflect.TypeToken;
 
+import org.inferred.freebuilder.processor.model.MethodFinder;
 import org.inferred.freebuilder.processor.source.feature.StaticFeatureSet;
 import org.inferred.freebuilder.processor.source.testing.BehaviorTester;
 import org.inferred.freebuilder.processor.source.testing.ModelRule;
@@ -182,7 +183,7 @@ public class FunctionalTypeTest {
         (DeclaredType) myBuilder.asType(),
         "mapFoo",
         unaryOperator,
-        model.elementUtils(),
+        new MethodFinder(model.elementUtils()),
         model.typeUtils());
 
     assertEquals(unaryOperator, result);
@@ -204,7 +205,7 @@ public class FunctionalTypeTest {
         (DeclaredType) myBuilder.asType(),
         "mapFoo",
         unaryOperator,
-        model.elementUtils(),
+        new MethodFinder(model.elementUtils()),
         model.typeUtils());
 
     assertEquals(longUnaryOperator, result);
@@ -226,7 +227,7 @@ public class FunctionalTypeTest {
         (DeclaredType) myBuilder.asType(),
         "mutateFoo",
         consumer,
-        model.elementUtils(),
+        new MethodFinder(model.elementUtils()),
         model.typeUtils());
 
     assertEquals(longConsumer, result);
@@ -253,7 +254,7 @@ public class FunctionalTypeTest {
         (DeclaredType) model.typeElement(Foo.class).asType(),
         "mutate",
         consumerSuperIntList,
-        model.elementUtils(),
+        new MethodFinder(model.elementUtils()),
         model.typeUtils());
 
     assertEquals(
@@ -273,7 +274,7 @@ public class FunctionalTypeTest {
         barInteger,
         "mutate",
         functionalType(IntListConsumer.class),
-        model.elementUtils(),
+        new MethodFinder(model.elementUtils()),
         model.typeUtils());
 
 
@@ -284,11 +285,13 @@ public class FunctionalTypeTest {
 
   private FunctionalType functionalType(Class<?> cls) {
     DeclaredType declaredType = maybeDeclared(model.typeMirror(cls)).get();
-    return maybeFunctionalType(declaredType, model.elementUtils(), model.typeUtils()).orElse(null);
+    return maybeFunctionalType(
+        declaredType, new MethodFinder(model.elementUtils()), model.typeUtils()).orElse(null);
   }
 
   private FunctionalType functionalType(TypeToken<?> type) {
     DeclaredType declaredType = maybeDeclared(model.typeMirror(type)).get();
-    return maybeFunctionalType(declaredType, model.elementUtils(), model.typeUtils()).orElse(null);
+    return maybeFunctionalType(
+        declaredType, new MethodFinder(model.elementUtils()), model.typeUtils()).orElse(null);
   }
 }
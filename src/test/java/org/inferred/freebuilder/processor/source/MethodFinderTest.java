@@ -31,6 +31,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Name;
@@ -189,6 +190,58 @@ public class MethodFinderTest {
     assertThat(errorTypes).hasSize(2);
   }
 
+  @Test
+  public void testErrorTypesReportedOnEveryCall() {
+    TypeElement testClass = model.newType(
+        "package com.example;",
+        "class RepeatedTestClass extends MissingType {",
+        "  public int foo(short a);",
+        "}");
+    List<ErrorType> errorTypes = new ArrayList<>();
+    MethodFinder methodFinder = new MethodFinder(model.elementUtils());
+
+    methodFinder.methodsOn(testClass, errorTypes::add);
+    methodFinder.methodsOn(testClass, errorTypes::add);
+
+    assertThat(errorTypes).hasSize(2);
+  }
+
+  private interface SharedMixin {
+    void mixinMethod();
+  }
+
+  private abstract static class FirstMixinUser implements SharedMixin {
+    abstract void first();
+  }
+
+  private abstract static class SecondMixinUser implements SharedMixin {
+    abstract void second();
+  }
+
+  @Test
+  public void testSharedSupertypes() {
+    assertThat(methodsOn(FirstMixinUser.class))
+        .containsExactly("void SharedMixin::mixinMethod()", "void FirstMixinUser::first()")
+        .inOrder();
+    assertThat(methodsOn(SecondMixinUser.class))
+        .containsExactly("void SharedMixin::mixinMethod()", "void SecondMixinUser::second()")
+        .inOrder();
+  }
+
+  @Test
+  public void testResultsCachedUntilCleared() {
+    TypeElement type = model.typeElement(FirstMixinUser.class);
+    MethodFinder methodFinder = new MethodFinder(model.elementUtils());
+    Set<ExecutableElement> first = methodFinder.methodsOn(type, null);
+    Set<ExecutableElement> second = methodFinder.methodsOn(type, null);
+    methodFinder.clearCaches();
+    Set<ExecutableElement> third = methodFinder.methodsOn(type, null);
+
+    assertThat(second).isSameAs(first);
+    assertThat(third).isNotSameAs(first);
+    assertThat(third).containsExactlyElementsIn(first).inOrder();
+  }
+
   interface RedeclaresToString {
     @Override String toString();
   }
@@ -24,6 +24,7 @@ import static javax.lang.model.util.ElementFilter.fieldsIn;
 
 import com.google.common.collect.ImmutableList;
 
+import org.inferred.freebuilder.processor.source.feature.EmissionMode;
 import org.inferred.freebuilder.processor.source.testing.ModelRule;
 import org.junit.Rule;
 import org.junit.Test;
@@ -232,6 +233,56 @@ public class SourceBuilderTest {
         .addLine("package com.example;").addLine("%s", errorType);
   }
 
+  @Test
+  public void testCompactEmissionMode_dropsJavadoc() {
+    String code = SourceBuilder.forTesting(EmissionMode.COMPACT)
+        .addLine("package com.example;")
+        .addLine("/** Javadoc referencing {@link %s}. */", AtomicLong.class)
+        .addLine("public class Bar {")
+        .addLine("  /**")
+        .addLine("   * Multi-line Javadoc.")
+        .addLine("   */")
+        .addLine("  public %s foo() {", AbstractMap.class)
+        .addLine("    /* Block comment */")
+        .addLine("    return null;")
+        .addLine("  }")
+        .addLine("}")
+        .toString();
+    assertEquals(
+        "package com.example;\n\n"
+            + "import java.util.AbstractMap;\n\n"
+            + "public class Bar {\n"
+            + "  public AbstractMap foo() {\n"
+            + "    /* Block comment */\n"
+            + "    return null;\n"
+            + "  }\n"
+            + "}\n",
+        code);
+  }
+
+  @Test
+  public void testCompactEmissionMode_ignoresJavadocMarkersInLiterals() {
+    String code = SourceBuilder.forTesting(EmissionMode.COMPACT)
+        .addLine("package com.example;")
+        .addLine("public class Bar {")
+        .addLine("  String a = \"/** not Javadoc */\";")
+        .addLine("  char b = '\\'';")
+        .addLine("  // /** not Javadoc */")
+        .addLine("  /**/ %s c;", AtomicLong.class)
+        .addLine("}")
+        .toString();
+    assertEquals(
+        "package com.example;\n\n"
+            + "import java.util.concurrent.atomic.AtomicLong;\n\n"
+            + "public class Bar {\n"
+            + "  String a = \"/** not Javadoc */\";\n"
+            + "  char b = '\\'';\n"
+            + "  // /** not Javadoc */\n"
+            + "  /**/ AtomicLong c;\n"
+            + "}\n",
+        code);
+  }
+
   private SourceBuilder source() {
     return SourceBuilder.forEnvironment(model.environment(), null);
   }
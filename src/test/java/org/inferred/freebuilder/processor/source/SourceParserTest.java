@@ -119,6 +119,18 @@ public class SourceParserTest {
     verify(eventHandler).onTypeBlockStart("class", "FooBar", ImmutableSet.of("Foo", "Bar", "Baz"));
   }
 
+  @Test
+  public void recordDeclaration() {
+    parse("private record FooBar(String bar, Map<K, V> baz) {");
+    verify(eventHandler).onTypeBlockStart("record", "FooBar", ImmutableSet.of());
+  }
+
+  @Test
+  public void genericRecordImplementingInterface() {
+    parse("private record FooBar<A>(@Nullable A bar) implements Baz.Bam<A> {");
+    verify(eventHandler).onTypeBlockStart("record", "FooBar", ImmutableSet.of("Baz.Bam"));
+  }
+
   @Test
   public void methodWithNoArguments() {
     parse("void foo() {");
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.inferred.freebuilder.processor.source.feature;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.processing.ProcessingEnvironment;
+
+@RunWith(JUnit4.class)
+public class EnvironmentFeatureSetTest {
+
+  private final ProcessingEnvironment env = mock(ProcessingEnvironment.class);
+  private final EnvironmentFeatureSet features = new EnvironmentFeatureSet(env);
+  private final AtomicInteger guavaProbes = new AtomicInteger();
+  private final AtomicInteger jsr305Probes = new AtomicInteger();
+
+  private final FeatureType<GuavaLibrary> guava = new FeatureType<GuavaLibrary>() {
+    @Override
+    protected GuavaLibrary testDefault(FeatureSet features) {
+      return GuavaLibrary.UNAVAILABLE;
+    }
+
+    @Override
+    protected GuavaLibrary forEnvironment(ProcessingEnvironment env, FeatureSet features) {
+      guavaProbes.incrementAndGet();
+      return GuavaLibrary.AVAILABLE;
+    }
+  };
+
+  /** Depends on {@link #guava}, as real feature types may depend on others. */
+  private final FeatureType<Jsr305> jsr305 = new FeatureType<Jsr305>() {
+    @Override
+    protected Jsr305 testDefault(FeatureSet features) {
+      return Jsr305.UNAVAILABLE;
+    }
+
+    @Override
+    protected Jsr305 forEnvironment(ProcessingEnvironment env, FeatureSet features) {
+      jsr305Probes.incrementAndGet();
+      return features.get(guava).isAvailable() ? Jsr305.AVAILABLE : Jsr305.UNAVAILABLE;
+    }
+  };
+
+  @Test
+  public void detectsEachFeatureOnce() {
+    GuavaLibrary first = features.get(guava);
+    GuavaLibrary second = features.get(guava);
+
+    assertSame(GuavaLibrary.AVAILABLE, first);
+    assertSame(first, second);
+    assertEquals(1, guavaProbes.get());
+  }
+
+  @Test
+  public void featuresMayDependOnOtherFeatures() {
+    assertSame(Jsr305.AVAILABLE, features.get(jsr305));
+    assertSame(Jsr305.AVAILABLE, features.get(jsr305));
+    assertSame(GuavaLibrary.AVAILABLE, features.get(guava));
+
+    assertEquals(1, guavaProbes.get());
+    assertEquals(1, jsr305Probes.get());
+  }
+
+  @Test
+  public void toStringListsDetectedFeatures() {
+    assertEquals("", features.toString());
+
+    features.get(jsr305);
+
+    assertEquals("Guava, JSR 305", features.toString());
+  }
+}